@@ -3620,11 +3620,13 @@ public class ETReduxFrame extends javax.swing.JFrame implements ReportPainterI,
         if (theSample != null) {
 
             // oct 2014 per bug report by Matt Rioux email
+            // the analysis tree calculates the sample date models in the background
+            // and saves the sample once they are all calculated
             if (theSample.isAnalyzed()) {
-                SampleInterface.updateAndSaveSampleDateModelsByAliquot(theSample);
+                SampleInterface.reduceAndPrepareSampleDateModelsByAliquot(theSample);
+            } else {
+                SampleInterface.saveSampleAsSerializedReduxFile(theSample);
             }
-
-            SampleInterface.saveSampleAsSerializedReduxFile(theSample);
             myWeightedMeanGraphPanel
                     = new WeightedMeanGraphPanel(theSample);
 
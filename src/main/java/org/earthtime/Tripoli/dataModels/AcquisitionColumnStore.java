@@ -0,0 +1,170 @@
+/*
+ * AcquisitionColumnStore.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.dataModels;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Session-wide columnar storage for per-fraction acquisition arrays. Each
+ * stored column becomes a slice of a large primitive page, so that a session
+ * of many fractions keeps a handful of large arrays rather than many small
+ * ones, both on the heap and in the serialized project. Slices are addressed
+ * by a handle returned from <code>store</code>; the length of each slice is
+ * kept in the page just ahead of its values. Slices are never moved or freed
+ * individually: a slice no longer used is released, and once enough of the
+ * store has been released the owner repacks the live slices into a new store.
+ *
+ * @author James F. Bowring
+ */
+public class AcquisitionColumnStore implements Serializable {
+
+    // Class variables
+    private static final long serialVersionUID = -2837140925318813446L;
+    /**
+     * handle for a column that was null when stored
+     */
+    public static final long NULL_HANDLE = -1L;
+    private static final int PAGE_SIZE = 1 << 17;
+    // instance variables
+    private final List<double[]> pages;
+    private int fillOfLastPage;
+    private long releasedSizeInDoubles;
+
+    /**
+     *
+     */
+    public AcquisitionColumnStore() {
+        this.pages = new ArrayList<>();
+        this.fillOfLastPage = 0;
+        this.releasedSizeInDoubles = 0;
+    }
+
+    /**
+     * Copies values into the store.
+     *
+     * @param values may be null
+     * @return the handle of the stored slice
+     */
+    public synchronized long store(double[] values) {
+        if (values == null) {
+            return NULL_HANDLE;
+        }
+
+        int required = values.length + 1;
+        int pageIndex = pages.size() - 1;
+        if ((pageIndex < 0) || (fillOfLastPage + required > pages.get(pageIndex).length)) {
+            pages.add(new double[Math.max(PAGE_SIZE, required)]);
+            pageIndex++;
+            fillOfLastPage = 0;
+        }
+
+        double[] page = pages.get(pageIndex);
+        int offset = fillOfLastPage;
+        page[offset] = values.length;
+        System.arraycopy(values, 0, page, offset + 1, values.length);
+        fillOfLastPage += required;
+
+        return (((long) pageIndex) << 32) | offset;
+    }
+
+    /**
+     *
+     * @param handle
+     * @return the length of the stored slice, or -1 for a null column
+     */
+    public synchronized int length(long handle) {
+        if (handle == NULL_HANDLE) {
+            return -1;
+        }
+        return (int) pages.get((int) (handle >>> 32))[(int) handle];
+    }
+
+    /**
+     *
+     * @param handle
+     * @param index
+     * @return a single value of the stored slice
+     */
+    public synchronized double get(long handle, int index) {
+        double[] page = pages.get((int) (handle >>> 32));
+        int offset = (int) handle;
+        if ((index < 0) || (index >= (int) page[offset])) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return page[offset + 1 + index];
+    }
+
+    /**
+     * Materializes a stored slice.
+     *
+     * @param handle
+     * @return a new array holding the slice, or null for a null column
+     */
+    public synchronized double[] fetch(long handle) {
+        if (handle == NULL_HANDLE) {
+            return null;
+        }
+        double[] page = pages.get((int) (handle >>> 32));
+        int offset = (int) handle;
+        int length = (int) page[offset];
+        return Arrays.copyOfRange(page, offset + 1, offset + 1 + length);
+    }
+
+    /**
+     * Records that a stored slice is no longer used.
+     *
+     * @param handle
+     */
+    public synchronized void release(long handle) {
+        if (handle != NULL_HANDLE) {
+            releasedSizeInDoubles += length(handle) + 1;
+        }
+    }
+
+    /**
+     * @return the count of doubles held by released slices
+     */
+    public synchronized long getReleasedSizeInDoubles() {
+        return releasedSizeInDoubles;
+    }
+
+    /**
+     * Releases the unused tail of the last page, typically once a session has
+     * been packed.
+     */
+    public synchronized void trimToSize() {
+        int lastPageIndex = pages.size() - 1;
+        if ((lastPageIndex >= 0) && (fillOfLastPage < pages.get(lastPageIndex).length)) {
+            pages.set(lastPageIndex, Arrays.copyOf(pages.get(lastPageIndex), fillOfLastPage));
+        }
+    }
+
+    /**
+     * @return the count of doubles held, including slice lengths
+     */
+    public synchronized long getSizeInDoubles() {
+        long size = 0;
+        for (int i = 0; i < pages.size() - 1; i++) {
+            size += pages.get(i).length;
+        }
+        return size + fillOfLastPage;
+    }
+}
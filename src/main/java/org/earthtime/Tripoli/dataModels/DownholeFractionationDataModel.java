@@ -23,6 +23,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -173,8 +174,9 @@ public class DownholeFractionationDataModel implements Serializable, DataModelFi
         }
 
         // section 7b Calculate offsets and uncertainties for downhole per iolite
-        Matrix sumInvSlogRatioX_Y = new Matrix(countOfActiveData, countOfActiveData);
-        Matrix sumInvSlogRatioX_YTimeslr = new Matrix(countOfActiveData, 1);
+        // each standard's covariance matrix is built, solved and folded into the sums in
+        // parallel, a fixed chunk of standards at a time; see StandardsInformation
+        List<RawRatioDataModel> standardsRawRatios = new ArrayList<>();
 
         // assume fraction iterator is correct length as it was set on included fractions
         Iterator<TripoliFraction> fractionIterator
@@ -184,56 +186,65 @@ public class DownholeFractionationDataModel implements Serializable, DataModelFi
 
         while (fractionIterator.hasNext()) {
             TripoliFraction tf = fractionIterator.next();
+            standardsRawRatios.add((RawRatioDataModel) tf.getRawRatioDataModelByName(rawRatioName));
+        }
 
-            RawRatioDataModel rawRatio
-                    = ((RawRatioDataModel) tf.getRawRatioDataModelByName(rawRatioName));
+        final int countOfCommonActiveData = countOfActiveData;
+        Matrix sumInformation = StandardsInformation.sum(standardsRawRatios.size(), countOfActiveData, //
+                (int standard) -> standardInformation(standardsRawRatios.get(standard), dataCommonActiveMap, countOfCommonActiveData));
+        Matrix weightedMean = StandardsInformation.weightedMean(sumInformation);
 
-            rawRatio.calculateSlogRatioX_Y(dataCommonActiveMap);
+        // square matrix
+        SwtdMeanStdIntegrations = weightedMean.getMatrix(0, countOfActiveData - 1, 0, countOfActiveData - 1);
 
-            Matrix SlogRatioX_Y_copy = rawRatio.getSlogRatioX_Y(false).copy();
+        // column vector for THICK BLACK LINE
+        Matrix wtdMeanStdIntegrations = weightedMean.getMatrix(0, countOfActiveData - 1, countOfActiveData, countOfActiveData);
 
-            // get active logratios from standard with any zero entries replaced with interposlated values
-            Matrix logRatiosVector = new Matrix(rawRatio.getActiveLogRatios(countOfActiveData, dataCommonActiveMap), countOfActiveData);
+        // populate arrays for plotting and fitting of thick RED LINE from weightedMeanIntegrations
+        for (int i = 0; i < weightedMeanIntegrations.length; i++) {
+            weightedMeanIntegrations[i] = wtdMeanStdIntegrations.get(i, 0);
+        }
+    }
 
-            // Sept 2016 to support matrix math for downhole
-            // infill zeroes in logRatiosVector due to rejected points with interpolations 
-            // per Noah and multiply corresponding SlogRatioXY diagonal elements by 100
-            int lastGoodIndex = -1;
-            int nextGoodIndex = -1;
-            for (int i = 0; i < logRatiosVector.getRowDimension(); i++) {
-                if ((lastGoodIndex < 0) && (logRatiosVector.get(i, 0) == 0)) {
-                    lastGoodIndex = i - 1;
-                }
-                if ((lastGoodIndex >= 0) && (logRatiosVector.get(i, 0) > 0)) {
-                    nextGoodIndex = i;
-                    double average = (logRatiosVector.get(lastGoodIndex, 0) + logRatiosVector.get(nextGoodIndex, 0)) / 2.0;
-                    for (int j = lastGoodIndex + 1; j < nextGoodIndex; j++) {
-                        logRatiosVector.set(j, 0, average);
-                        SlogRatioX_Y_copy.set(j, j, SlogRatioX_Y_copy.get(j, j) * 100.0);
-                    }
-                    lastGoodIndex = -1;
-                    nextGoodIndex = -1;
-                }
-            }
+    /**
+     * The information of one standard, with rejected log ratios infilled.
+     *
+     * @param rawRatio the standard's raw ratio, whose SlogRatioX_Y is
+     * recalculated for the common active data
+     * @param dataCommonActiveMap
+     * @param countOfActiveData
+     * @return
+     */
+    private static Matrix standardInformation(RawRatioDataModel rawRatio, boolean[] dataCommonActiveMap, int countOfActiveData) {
+        rawRatio.calculateSlogRatioX_Y(dataCommonActiveMap);
 
-            // sum of the inverses of all of the Slr_X_Y covariance matrices
-            sumInvSlogRatioX_Y.plusEquals(SlogRatioX_Y_copy.inverse());
+        Matrix SlogRatioX_Y_copy = rawRatio.getSlogRatioX_Y(false).copy();
 
-            // column vector length count of aquisitions
-            sumInvSlogRatioX_YTimeslr.plusEquals(SlogRatioX_Y_copy.solve(logRatiosVector));
+        // get active logratios from standard with any zero entries replaced with interposlated values
+        Matrix logRatiosVector = new Matrix(rawRatio.getActiveLogRatios(countOfActiveData, dataCommonActiveMap), countOfActiveData);
 
+        // Sept 2016 to support matrix math for downhole
+        // infill zeroes in logRatiosVector due to rejected points with interpolations 
+        // per Noah and multiply corresponding SlogRatioXY diagonal elements by 100
+        int lastGoodIndex = -1;
+        int nextGoodIndex = -1;
+        for (int i = 0; i < logRatiosVector.getRowDimension(); i++) {
+            if ((lastGoodIndex < 0) && (logRatiosVector.get(i, 0) == 0)) {
+                lastGoodIndex = i - 1;
+            }
+            if ((lastGoodIndex >= 0) && (logRatiosVector.get(i, 0) > 0)) {
+                nextGoodIndex = i;
+                double average = (logRatiosVector.get(lastGoodIndex, 0) + logRatiosVector.get(nextGoodIndex, 0)) / 2.0;
+                for (int j = lastGoodIndex + 1; j < nextGoodIndex; j++) {
+                    logRatiosVector.set(j, 0, average);
+                    SlogRatioX_Y_copy.set(j, j, SlogRatioX_Y_copy.get(j, j) * 100.0);
+                }
+                lastGoodIndex = -1;
+                nextGoodIndex = -1;
+            }
         }
 
-        // column vector for THICK BLACK LINE
-        Matrix wtdMeanStdIntegrations = sumInvSlogRatioX_Y.solve(sumInvSlogRatioX_YTimeslr);
-
-        // square matrix
-        SwtdMeanStdIntegrations = sumInvSlogRatioX_Y.inverse();
-
-        // populate arrays for plotting and fitting of thick RED LINE from weightedMeanIntegrations
-        for (int i = 0; i < weightedMeanIntegrations.length; i++) {
-            weightedMeanIntegrations[i] = wtdMeanStdIntegrations.get(i, 0);
-        }
+        return StandardsInformation.information(SlogRatioX_Y_copy, logRatiosVector);
     }
 
     private boolean generateMEANfitFunctionUsingLM() {
@@ -0,0 +1,187 @@
+/*
+ * FractionIntensities.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.dataModels;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import org.earthtime.Tripoli.dataModels.collectorModels.AbstractCollectorModel;
+import org.earthtime.dataDictionaries.IsotopeNames;
+
+/**
+ * The background and on peak intensities of each isotope of one fraction as
+ * they stand after one of the intensity stages, with any isobaric
+ * corrections made. Instances are immutable: each stage is a function
+ * returning a new instance, arrays are copied in and out, and the arrays a
+ * stage leaves unchanged are shared with its input.
+ *
+ * @author James F. Bowring
+ */
+public final class FractionIntensities {
+
+    private final Map<IsotopeNames, double[]> backgroundIntensities;
+    private final Map<IsotopeNames, double[]> onPeakIntensities;
+    // present only for isotopes corrected for an isobaric interference
+    private final Map<IsotopeNames, double[]> backgroundCorrections;
+    private final Map<IsotopeNames, double[]> onPeakCorrections;
+
+    private FractionIntensities(//
+            Map<IsotopeNames, double[]> backgroundIntensities, Map<IsotopeNames, double[]> onPeakIntensities, //
+            Map<IsotopeNames, double[]> backgroundCorrections, Map<IsotopeNames, double[]> onPeakCorrections) {
+        this.backgroundIntensities = Collections.unmodifiableMap(backgroundIntensities);
+        this.onPeakIntensities = Collections.unmodifiableMap(onPeakIntensities);
+        this.backgroundCorrections = Collections.unmodifiableMap(backgroundCorrections);
+        this.onPeakCorrections = Collections.unmodifiableMap(onPeakCorrections);
+    }
+
+    /**
+     * The intensities as loaded into the virtual collectors of the isotope
+     * models, before any correction.
+     *
+     * @param isotopeModels each a <code>RawIntensityDataModel</code>
+     * @return
+     */
+    public static FractionIntensities of(Collection<DataModelInterface> isotopeModels) {
+        Map<IsotopeNames, double[]> background = new EnumMap<>(IsotopeNames.class);
+        Map<IsotopeNames, double[]> onPeak = new EnumMap<>(IsotopeNames.class);
+        for (DataModelInterface dm : isotopeModels) {
+            RawIntensityDataModel im = (RawIntensityDataModel) dm;
+            background.put(im.getRawIsotopeModelName(), im.getBackgroundVirtualCollector().getIntensities().clone());
+            onPeak.put(im.getRawIsotopeModelName(), im.getOnPeakVirtualCollector().getIntensities().clone());
+        }
+
+        return new FractionIntensities(background, onPeak, //
+                new EnumMap<>(IsotopeNames.class), new EnumMap<>(IsotopeNames.class));
+    }
+
+    /**
+     * The counts per second stage.
+     *
+     * @param collectorModels the collector of each isotope
+     * @return the intensities converted to counts per second
+     */
+    public FractionIntensities convertedToCountsPerSecond(Map<IsotopeNames, AbstractCollectorModel> collectorModels) {
+        Map<IsotopeNames, double[]> background = new EnumMap<>(IsotopeNames.class);
+        Map<IsotopeNames, double[]> onPeak = new EnumMap<>(IsotopeNames.class);
+        for (IsotopeNames isotope : getIsotopes()) {
+            AbstractCollectorModel collectorModel = collectorModels.get(isotope);
+            background.put(isotope, collectorModel.convertRawIntensitiesToCountsPerSecond(backgroundIntensities.get(isotope)));
+            onPeak.put(isotope, collectorModel.convertRawIntensitiesToCountsPerSecond(onPeakIntensities.get(isotope)));
+        }
+
+        return new FractionIntensities(background, onPeak, backgroundCorrections, onPeakCorrections);
+    }
+
+    /**
+     * The isobaric interference stage, across both background and on peak.
+     *
+     * @param interferingIsotope the measured interfering isotope, such as
+     * 202Hg
+     * @param isotope the isotope to correct, such as 204Pb
+     * @param interferingToIsotopeRatio natural ratio of the interfering
+     * isotope to its isobar, such as 202Hg/204Hg
+     * @return the intensities with isotope corrected
+     */
+    public FractionIntensities correctedForIsobaricInterference(//
+            IsotopeNames interferingIsotope, IsotopeNames isotope, double interferingToIsotopeRatio) {
+        double[][] backgroundCorrection = IntensityCorrectionStages.correctIsobaricInterference(//
+                backgroundIntensities.get(interferingIsotope), backgroundIntensities.get(isotope), interferingToIsotopeRatio);
+        double[][] onPeakCorrection = IntensityCorrectionStages.correctIsobaricInterference(//
+                onPeakIntensities.get(interferingIsotope), onPeakIntensities.get(isotope), interferingToIsotopeRatio);
+
+        Map<IsotopeNames, double[]> background = copyOf(backgroundIntensities);
+        Map<IsotopeNames, double[]> onPeak = copyOf(onPeakIntensities);
+        Map<IsotopeNames, double[]> myBackgroundCorrections = copyOf(backgroundCorrections);
+        Map<IsotopeNames, double[]> myOnPeakCorrections = copyOf(onPeakCorrections);
+
+        myBackgroundCorrections.put(isotope, backgroundCorrection[0]);
+        background.put(isotope, backgroundCorrection[1]);
+        myOnPeakCorrections.put(isotope, onPeakCorrection[0]);
+        onPeak.put(isotope, onPeakCorrection[1]);
+
+        return new FractionIntensities(background, onPeak, myBackgroundCorrections, myOnPeakCorrections);
+    }
+
+    // the arrays are never changed, so are shared
+    private static Map<IsotopeNames, double[]> copyOf(Map<IsotopeNames, double[]> map) {
+        Map<IsotopeNames, double[]> copy = new EnumMap<>(IsotopeNames.class);
+        copy.putAll(map);
+        return copy;
+    }
+
+    /**
+     * Sets copies of these intensities and corrections into the virtual
+     * collectors of the isotope models, with zero corrections for isotopes
+     * not corrected.
+     *
+     * @param isotopeModels each a <code>RawIntensityDataModel</code>
+     */
+    public void applyTo(Collection<DataModelInterface> isotopeModels) {
+        for (DataModelInterface dm : isotopeModels) {
+            RawIntensityDataModel im = (RawIntensityDataModel) dm;
+            IsotopeNames isotope = im.getRawIsotopeModelName();
+            if (backgroundIntensities.containsKey(isotope)) {
+                applyTo(im.getBackgroundVirtualCollector(), backgroundIntensities.get(isotope), backgroundCorrections.get(isotope));
+                applyTo(im.getOnPeakVirtualCollector(), onPeakIntensities.get(isotope), onPeakCorrections.get(isotope));
+            }
+        }
+    }
+
+    private static void applyTo(VirtualCollectorModel vcm, double[] intensities, double[] corrections) {
+        vcm.setIntensities(intensities.clone());
+        vcm.setIntensityCorrections((corrections == null) ? new double[intensities.length] : corrections.clone());
+    }
+
+    /**
+     * @return the isotopes held
+     */
+    public Set<IsotopeNames> getIsotopes() {
+        return backgroundIntensities.keySet();
+    }
+
+    /**
+     *
+     * @param isotope
+     * @return a copy of the background intensities of isotope
+     */
+    public double[] getBackgroundIntensities(IsotopeNames isotope) {
+        return backgroundIntensities.get(isotope).clone();
+    }
+
+    /**
+     *
+     * @param isotope
+     * @return a copy of the on peak intensities of isotope
+     */
+    public double[] getOnPeakIntensities(IsotopeNames isotope) {
+        return onPeakIntensities.get(isotope).clone();
+    }
+
+    /**
+     *
+     * @param isotope
+     * @return a copy of the on peak isobaric corrections of isotope, zeroes if
+     * it is not corrected
+     */
+    public double[] getOnPeakCorrections(IsotopeNames isotope) {
+        double[] corrections = onPeakCorrections.get(isotope);
+        return (corrections == null) ? new double[onPeakIntensities.get(isotope).length] : corrections.clone();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * IntensityCorrectionStages.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.dataModels;
+
+import org.earthtime.Tripoli.fitFunctions.AbstractFunctionOfX;
+
+/**
+ * Side-effect free forms of the per-fraction intensity stages: each takes its
+ * input arrays and returns new arrays, leaving the inputs untouched, so that
+ * results can be cached, recomputed individually and computed for several
+ * fractions at once.
+ *
+ * @author James F. Bowring
+ */
+public final class IntensityCorrectionStages {
+
+    private IntensityCorrectionStages() {
+    }
+
+    /**
+     * Evaluates a background fit function at the normalized aquire times.
+     *
+     * @param backgroundFitFunction may be null, giving zeroes
+     * @param normalizedAquireTimes
+     * @return the fit background intensities
+     */
+    public static double[] evaluateBackgroundFit(AbstractFunctionOfX backgroundFitFunction, double[] normalizedAquireTimes) {
+        double[] fitBackgroundIntensities = new double[normalizedAquireTimes.length];
+        if (backgroundFitFunction != null) {
+            for (int i = 0; i < fitBackgroundIntensities.length; i++) {
+                fitBackgroundIntensities[i] = backgroundFitFunction.f(normalizedAquireTimes[i]);
+            }
+        }
+        return fitBackgroundIntensities;
+    }
+
+    /**
+     *
+     * @param intensities
+     * @param fitBackgroundIntensities same length as intensities
+     * @return the background corrected intensities
+     */
+    public static double[] subtractBackground(double[] intensities, double[] fitBackgroundIntensities) {
+        double[] correctedIntensities = new double[intensities.length];
+        for (int i = 0; i < correctedIntensities.length; i++) {
+            correctedIntensities[i] = intensities[i] - fitBackgroundIntensities[i];
+        }
+        return correctedIntensities;
+    }
+
+    /**
+     * Replaces zeroes, the only value for which the log is undefined after
+     * correction, with Double.MIN_VALUE.
+     *
+     * @param correctedIntensities
+     * @return
+     */
+    public static double[] adjustZeroIntensities(double[] correctedIntensities) {
+        double[] adjustedIntensities = correctedIntensities.clone();
+        for (int i = 0; i < adjustedIntensities.length; i++) {
+            if (adjustedIntensities[i] == 0.0) {
+                adjustedIntensities[i] = Double.MIN_VALUE;
+            }
+        }
+        return adjustedIntensities;
+    }
+
+    /**
+     *
+     * @param correctedIntensities
+     * @return natural logs of correctedIntensities
+     */
+    public static double[] logIntensities(double[] correctedIntensities) {
+        double[] logIntensities = new double[correctedIntensities.length];
+        for (int i = 0; i < logIntensities.length; i++) {
+            logIntensities[i] = Math.log(correctedIntensities[i]);
+        }
+        return logIntensities;
+    }
+
+    /**
+     * Corrects an isotope for an isobaric interference, such as 204Pb for
+     * 204Hg measured as 202Hg.
+     *
+     * @param interferingIntensities intensities of the measured interfering
+     * isotope
+     * @param isotopeIntensities intensities of the isotope to correct, same
+     * length
+     * @param interferingToIsotopeRatio natural ratio of the measured
+     * interfering isotope to its isobar, such as 202Hg/204Hg
+     * @return two rows: the corrections and the corrected intensities
+     */
+    public static double[][] correctIsobaricInterference(//
+            double[] interferingIntensities, double[] isotopeIntensities, double interferingToIsotopeRatio) {
+        double[] corrections = new double[interferingIntensities.length];
+        double[] correctedIntensities = isotopeIntensities.clone();
+        for (int i = 0; i < corrections.length; i++) {
+            corrections[i] = interferingIntensities[i] / interferingToIsotopeRatio;
+            correctedIntensities[i] -= corrections[i];
+        }
+        return new double[][]{corrections, correctedIntensities};
+    }
+}
@@ -97,6 +97,9 @@ public class RawIntensityDataModel //
 
     private double[] allItensities;
     private double[] allAnalogCorrectionFactors;
+    // non-null when the arrays above are packed into the session column store
+    private AcquisitionColumnStore columnStore;
+    private long[] columnHandles;
     // nov 2014 - see validateOnPeakBaselineCorrectedIsotope inn abstractMassSpecSetup
     private boolean forceMeanForCommonLeadRatios;
     private double forcedMeanForCommonLeadRatios;
@@ -215,13 +218,13 @@ public class RawIntensityDataModel //
         StringBuilder retval = new StringBuilder(//
                 rawIsotopeModelName.getName() + " [" + collectorModel.getCollectorType() + "]\n");
         retval.append("\tBack:\t");
-        for (int i = 0; i < backgroundVirtualCollector.getIntensities().length; i++) {
-            retval.append(backgroundVirtualCollector.getIntensities()[i]).append(", ");
+        for (double intensity : backgroundVirtualCollector.getIntensities()) {
+            retval.append(intensity).append(", ");
         }
         retval.append("\n");
         retval.append("\tPeak:\t");
-        for (int i = 0; i < onPeakVirtualCollector.getIntensities().length; i++) {
-            retval.append(onPeakVirtualCollector.getIntensities()[i]).append(", ");
+        for (double intensity : onPeakVirtualCollector.getIntensities()) {
+            retval.append(intensity).append(", ");
         }
 
         return retval.toString();
@@ -236,8 +239,8 @@ public class RawIntensityDataModel //
                 rawIsotopeModelName.getName() + " [" + collectorModel.getCollectorType() + "]\n");
 
         retval.append("\tBack:\t");
-        for (int i = 0; i < onPeakVirtualCollector.getCorrectedIntensities().length; i++) {
-            retval.append(onPeakVirtualCollector.getCorrectedIntensities()[i]).append(", ");
+        for (double correctedIntensity : onPeakVirtualCollector.getCorrectedIntensities()) {
+            retval.append(correctedIntensity).append(", ");
         }
 
         return retval.toString();
@@ -252,8 +255,8 @@ public class RawIntensityDataModel //
                 rawIsotopeModelName.getName() + " [" + collectorModel.getCollectorType() + "]\n");
 
         retval.append("\tBack:\t");
-        for (int i = 0; i < onPeakVirtualCollector.getLogCorrectedIntensities().length; i++) {
-            retval.append(onPeakVirtualCollector.getLogCorrectedIntensities()[i]).append(", ");
+        for (double logCorrectedIntensity : onPeakVirtualCollector.getLogCorrectedIntensities()) {
+            retval.append(logCorrectedIntensity).append(", ");
         }
 
         return retval.toString();
@@ -335,6 +338,7 @@ public class RawIntensityDataModel //
         // task is to build diagonal from baseline and ablation raw intensities and modify
         // it with collector values for each isotope
         // the modification is done in collector classes by type
+        unpackColumns();
 
         double[] baselineIntensities = backgroundVirtualCollector.getIntensities();
         double[] ablationIntensities = onPeakVirtualCollector.getIntensities();
@@ -354,6 +358,69 @@ public class RawIntensityDataModel //
                 baselineIntensities.length, allAnalogCorrectionFactors, allItensities, integrationTime).clone();
     }
 
+    /**
+     * Moves the acquisition arrays of this isotope and of both of its virtual
+     * collectors into columnStore, unless already there. While packed, the
+     * getters return copies read from the store, made on every call and not
+     * written back.
+     *
+     * @param columnStore
+     */
+    public void packColumns(AcquisitionColumnStore columnStore) {
+        if (this.columnStore != columnStore) {
+            unpackColumns();
+
+            long[] handles = new long[]{//
+                columnStore.store(diagonalOfMatrixSIntensities),
+                columnStore.store(diagonalOfMatrixSCorrectedIntensities),
+                columnStore.store(allItensities),
+                columnStore.store(allAnalogCorrectionFactors)};
+
+            diagonalOfMatrixSIntensities = null;
+            diagonalOfMatrixSCorrectedIntensities = null;
+            allItensities = null;
+            allAnalogCorrectionFactors = null;
+
+            this.columnHandles = handles;
+            this.columnStore = columnStore;
+        }
+
+        backgroundVirtualCollector.packColumns(columnStore);
+        onPeakVirtualCollector.packColumns(columnStore);
+    }
+
+    /**
+     * Materializes the acquisition arrays of this isotope, if packed, before
+     * they are changed; the slices they occupied are released in the store.
+     */
+    private void unpackColumns() {
+        if (columnStore != null) {
+            diagonalOfMatrixSIntensities = columnStore.fetch(columnHandles[0]);
+            diagonalOfMatrixSCorrectedIntensities = columnStore.fetch(columnHandles[1]);
+            allItensities = columnStore.fetch(columnHandles[2]);
+            allAnalogCorrectionFactors = columnStore.fetch(columnHandles[3]);
+
+            for (long handle : columnHandles) {
+                columnStore.release(handle);
+            }
+            columnStore = null;
+            columnHandles = null;
+        }
+    }
+
+    // while packed, the arrays are read from the store as copies
+    private double[] storedColumn(double[] column, int columnIndex) {
+        return (columnStore == null) ? column : columnStore.fetch(columnHandles[columnIndex]);
+    }
+
+    /**
+     * @return true if the acquisition arrays of this isotope and of both of its
+     * virtual collectors are held in a column store
+     */
+    public boolean isPacked() {
+        return (columnStore != null) && backgroundVirtualCollector.isPacked() && onPeakVirtualCollector.isPacked();
+    }
+
     /**
      *
      * @return
@@ -615,7 +682,7 @@ public class RawIntensityDataModel //
      * @return
      */
     public Matrix specialBuildMatrixSiForHg202() {
-        return collectorModel.buildMatrixSi(diagonalOfMatrixSIntensities, allItensities);
+        return collectorModel.buildMatrixSi(storedColumn(diagonalOfMatrixSIntensities, 0), storedColumn(allItensities, 2));
     }
 
     /**
@@ -625,9 +692,11 @@ public class RawIntensityDataModel //
 
         // nov 2012 calculate the SigmaI matrix for the background fit
         // first calculate the full matrix, then take upper left quadrant
+        double[] myDiagonalOfMatrixSIntensities = storedColumn(diagonalOfMatrixSIntensities, 0);
+        double[] myAllItensities = storedColumn(allItensities, 2);
         if (USING_FULL_PROPAGATION) {
 
-            matrixSiCovarianceIntensities = collectorModel.buildMatrixSi(diagonalOfMatrixSIntensities, allItensities);
+            matrixSiCovarianceIntensities = collectorModel.buildMatrixSi(myDiagonalOfMatrixSIntensities, myAllItensities);
             if ((correctedHg202Si != null) && rawIsotopeModelName.compareTo(IsotopeNames.Pb204) == 0) {
                 matrixSiCovarianceIntensities.plusEquals(correctedHg202Si);
                 //get rid of it
@@ -639,7 +708,7 @@ public class RawIntensityDataModel //
             matrixSibCovarianceBackgroundIntensities = matrixSiCovarianceIntensities//
                     .getMatrix(0, backgroundIntensityCount - 1, 0, backgroundIntensityCount - 1);
         } else {
-            vectorSviVarianceIntensities = collectorModel.buildVectorSvi(diagonalOfMatrixSIntensities, allItensities);
+            vectorSviVarianceIntensities = collectorModel.buildVectorSvi(myDiagonalOfMatrixSIntensities, myAllItensities);
             if ((correctedHg202Si != null) && rawIsotopeModelName.compareTo(IsotopeNames.Pb204) == 0) {
                 vectorSviVarianceIntensities.plusEquals(correctedHg202Si);
                 //get rid of it
@@ -715,22 +784,20 @@ public class RawIntensityDataModel //
 
         AbstractFunctionOfX backgroundFitFunction = getFitFunctions().get(fitFunctionTypeName);
 
-        double[] fitBackgroundIntensitiesBackground = new double[backgroundVirtualCollector.getAquireTimes().length];
-        double[] normalizedOnPeakAquireTimes = getNormalizedOnPeakAquireTimes();
-        double[] fitBackgroundIntensitiesOnPeak = new double[onPeakVirtualCollector.getAquireTimes().length];
-
         if (backgroundFitFunction != null) {
             System.out.println("Fitting Background ....");
-            // apply fitfunction to background  (NOT TRUE precondition = both same size of course)
-            for (int i = 0; i < fitBackgroundIntensitiesBackground.length; i++) {
-                fitBackgroundIntensitiesBackground[i] = backgroundFitFunction.f(normalizedBackgroundAquireTimes[i]);
-            }
-
-            // apply fitfunction to onPeak - corrected dec 2014
-            for (int i = 0; i < fitBackgroundIntensitiesOnPeak.length; i++) {
-                fitBackgroundIntensitiesOnPeak[i] = backgroundFitFunction.f(normalizedOnPeakAquireTimes[i]);
-            }
         }
+        double[] normalizedBackgroundTimes = normalizedBackgroundAquireTimes;
+        if (normalizedBackgroundTimes == null) {
+            // transient, so absent after a session is reopened
+            normalizedBackgroundTimes = (backgroundFitFunction == null)//
+                    ? new double[backgroundVirtualCollector.getAquireTimes().length] : getNormalizedBackgroundAquireTimes();
+        }
+        // apply fitfunction to background and to onPeak - corrected dec 2014
+        double[] fitBackgroundIntensitiesBackground//
+                = IntensityCorrectionStages.evaluateBackgroundFit(backgroundFitFunction, normalizedBackgroundTimes);
+        double[] fitBackgroundIntensitiesOnPeak//
+                = IntensityCorrectionStages.evaluateBackgroundFit(backgroundFitFunction, getNormalizedOnPeakAquireTimes());
 
         backgroundVirtualCollector.setFitBackgroundIntensities(fitBackgroundIntensitiesBackground);
         onPeakVirtualCollector.setFitBackgroundIntensities(fitBackgroundIntensitiesOnPeak);
@@ -835,10 +902,11 @@ public class RawIntensityDataModel //
 
                     // calculate the covariance matrix for the log-ratios, Sopbclr.
                     double[][] invertedOnPeakCorrectedIntensities = new double[countOfActiveOnPeakData][1];
+                    double[] onPeakCorrectedIntensities = onPeakVirtualCollector.getCorrectedIntensities();
                     count = 0;
                     for (int i = 0; i < onPeakVirtualCollector.getDataActiveMap().length; i++) {
                         if (onPeakVirtualCollector.getDataActiveMap()[i]) {
-                            invertedOnPeakCorrectedIntensities[count][0] = 1.0 / onPeakVirtualCollector.getCorrectedIntensities()[i];
+                            invertedOnPeakCorrectedIntensities[count][0] = 1.0 / onPeakCorrectedIntensities[i];
                             count++;
                         }
                     }
@@ -865,9 +933,10 @@ public class RawIntensityDataModel //
 
         // account for missing data
         ArrayList<Double> correctedIntensities = new ArrayList<>();
-        for (int i = 0; i < onPeakVirtualCollector.getCorrectedIntensities().length; i++) {
+        double[] onPeakCorrectedIntensities = onPeakVirtualCollector.getCorrectedIntensities();
+        for (int i = 0; i < onPeakCorrectedIntensities.length; i++) {
             if (onPeakVirtualCollector.getDataActiveMap()[i]) {
-                correctedIntensities.add(onPeakVirtualCollector.getCorrectedIntensities()[i]);
+                correctedIntensities.add(onPeakCorrectedIntensities[i]);
             }
         }
 
@@ -1245,10 +1314,10 @@ public class RawIntensityDataModel //
     }
 
     /**
-     * @return the diagonalOfMatrixSIntensities
+     * @return the diagonalOfMatrixSIntensities, a copy while packed
      */
     public double[] getDiagonalOfMatrixSIntensities() {
-        return diagonalOfMatrixSIntensities;
+        return storedColumn(diagonalOfMatrixSIntensities, 0);
     }
 
     /**
@@ -1256,14 +1325,15 @@ public class RawIntensityDataModel //
      * set
      */
     public void setDiagonalOfMatrixSIntensities(double[] diagonalOfMatrixSIntensities) {
+        unpackColumns();
         this.diagonalOfMatrixSIntensities = diagonalOfMatrixSIntensities;
     }
 
     /**
-     * @return the diagonalOfMatrixSCorrectedIntensities
+     * @return the diagonalOfMatrixSCorrectedIntensities, a copy while packed
      */
     public double[] getDiagonalOfMatrixSCorrectedIntensities() {
-        return diagonalOfMatrixSCorrectedIntensities;
+        return storedColumn(diagonalOfMatrixSCorrectedIntensities, 1);
     }
 
     /**
@@ -1271,6 +1341,7 @@ public class RawIntensityDataModel //
      * diagonalOfMatrixSCorrectedIntensities to set
      */
     public void setDiagonalOfMatrixSCorrectedIntensities(double[] diagonalOfMatrixSCorrectedIntensities) {
+        unpackColumns();
         this.diagonalOfMatrixSCorrectedIntensities = diagonalOfMatrixSCorrectedIntensities;
     }
 
@@ -41,7 +41,8 @@ import org.earthtime.UPb_Redux.utilities.comparators.IntuitiveStringComparator;
 import org.earthtime.dataDictionaries.FitFunctionTypeEnum;
 import org.earthtime.dataDictionaries.IsotopeNames;
 import org.earthtime.dataDictionaries.RawRatioNames;
-import org.earthtime.statistics.NonParametricStats;
+import org.earthtime.statistics.RobustStatistics;
+import org.earthtime.statistics.SampleSummary;
 
 /**
  *
@@ -491,14 +492,12 @@ public class RawRatioDataModel //
      */
     @Override
     public void calculateCorrectedRatioStatistics() {
-        NonParametricStats nonParametricStats = NonParametricStats.getInstance();
-
         if (correctedRatios != null) {
-            nonParametricStats.calculateStats(dataActiveMap, correctedRatios);
+            SampleSummary summary = SampleSummary.of(dataActiveMap, correctedRatios);
 
-            meanOfCorrectedRatios = nonParametricStats.getSampleMean();
-            stdDevOfCorrectedRatios = Math.sqrt(nonParametricStats.getVariance());
-            stdErrOfMeanCorrectedRatios = nonParametricStats.getStdErrSampleMean();
+            meanOfCorrectedRatios = summary.getMean();
+            stdDevOfCorrectedRatios = summary.getStandardDeviation();
+            stdErrOfMeanCorrectedRatios = summary.getStdErrSampleMean();
         }
     }
 
@@ -529,14 +528,11 @@ public class RawRatioDataModel //
     private void generateMEANfitFunctionForPbcRatiosWhereNegativeValues() {
 
         //create mean ratio (no log due to negative values)- we are here because this ratio is */204 and has >10% negative values 
-        NonParametricStats nonParametricStats = NonParametricStats.getInstance();
         double[] isotopeOPBC = ((RawIntensityDataModel) topIsotope).getOnPeakVirtualCollector().getCorrectedIntensities();
-        nonParametricStats.calculateStats(dataActiveMap, isotopeOPBC);
-        ((RawIntensityDataModel) topIsotope).setForcedMeanForCommonLeadRatios(nonParametricStats.getSampleMean());
+        ((RawIntensityDataModel) topIsotope).setForcedMeanForCommonLeadRatios(SampleSummary.of(dataActiveMap, isotopeOPBC).getMean());
 
         isotopeOPBC = ((RawIntensityDataModel) botIsotope).getOnPeakVirtualCollector().getCorrectedIntensities();
-        nonParametricStats.calculateStats(dataActiveMap, isotopeOPBC);
-        ((RawIntensityDataModel) botIsotope).setForcedMeanForCommonLeadRatios(nonParametricStats.getSampleMean());
+        ((RawIntensityDataModel) botIsotope).setForcedMeanForCommonLeadRatios(SampleSummary.of(dataActiveMap, isotopeOPBC).getMean());
 
         double forcedMean;
         try {
@@ -880,9 +876,8 @@ public class RawRatioDataModel //
 
             // nov 2014 - detect if common lead ratios have entered or left negative territory
             if (botIsotope.getDataModelName().equalsIgnoreCase(IsotopeNames.Pb204.getName())) {
-                NonParametricStats nonParametricStats = NonParametricStats.getInstance();
                 ((RawIntensityDataModel) botIsotope).setForceMeanForCommonLeadRatios(//
-                        nonParametricStats.determineIfTenPercentOrMoreAreNegative(//
+                        RobustStatistics.isTenPercentOrMoreNegative(//
                                 dataActiveMap, //
                                 ((RawIntensityDataModel) botIsotope).getOnPeakVirtualCollector().getCorrectedIntensities()));
             }
@@ -1047,11 +1042,10 @@ public class RawRatioDataModel //
      */
     @Override
     public double[] getNormalizedOnPeakAquireTimes() {
+        double[] onPeakAquireTimes = ((RawIntensityDataModel) topIsotope).getOnPeakVirtualCollector().getOnPeakAquireTimes();
         double[] normalizedAquire = new double[ratios.length];
         for (int i = 0; i < normalizedAquire.length; i++) {
-            normalizedAquire[i]
-                    =//
-                    ((RawIntensityDataModel) topIsotope).getOnPeakVirtualCollector().getOnPeakAquireTimes()[i] / COLLECTOR_DATA_FREQUENCY_MILLISECS;
+            normalizedAquire[i] = onPeakAquireTimes[i] / COLLECTOR_DATA_FREQUENCY_MILLISECS;
         }
 
         return normalizedAquire;
@@ -1063,11 +1057,10 @@ public class RawRatioDataModel //
      */
     @Override
     public double[] getOnPeakAquireTimesInSeconds() {
+        double[] onPeakAquireTimes = ((RawIntensityDataModel) topIsotope).getOnPeakVirtualCollector().getOnPeakAquireTimes();
         double[] onPeakAquireTimesInSeconds = new double[ratios.length];
         for (int i = 0; i < onPeakAquireTimesInSeconds.length; i++) {
-            onPeakAquireTimesInSeconds[i]
-                    =//
-                    ((RawIntensityDataModel) topIsotope).getOnPeakVirtualCollector().getOnPeakAquireTimes()[i] / 1000.0;
+            onPeakAquireTimesInSeconds[i] = onPeakAquireTimes[i] / 1000.0;
         }
 
         return onPeakAquireTimesInSeconds;
@@ -1439,10 +1432,11 @@ public class RawRatioDataModel //
      */
     public double[] getFitFunctionLogValues() {
         AbstractFunctionOfX fitFunc = getSelectedFitFunction();
+        double[] normalizedOnPeakAquireTimes = topIsotope.getNormalizedOnPeakAquireTimes();
 
         for (int i = 0; i < fitFunctionLogValues.length; i++) {
             try {
-                fitFunctionLogValues[i] = fitFunc.f(topIsotope.getNormalizedOnPeakAquireTimes()[i]);
+                fitFunctionLogValues[i] = fitFunc.f(normalizedOnPeakAquireTimes[i]);
             } catch (Exception e) {
                 fitFunctionLogValues[i] = 0.0;
             }
@@ -1455,10 +1449,11 @@ public class RawRatioDataModel //
      */
     public double[] getDownHoleFitFunctionLogValues() {
         AbstractFunctionOfX fitFunc = getSelectedDownHoleFitFunction();
+        double[] normalizedOnPeakAquireTimes = topIsotope.getNormalizedOnPeakAquireTimes();
 
         for (int i = 0; i < fitFunctionLogValues.length; i++) {
             try {
-                fitFunctionLogValues[i] = fitFunc.f(topIsotope.getNormalizedOnPeakAquireTimes()[i]);
+                fitFunctionLogValues[i] = fitFunc.f(normalizedOnPeakAquireTimes[i]);
             } catch (Exception e) {
                 fitFunctionLogValues[i] = 0.0;
             }
@@ -0,0 +1,144 @@
+/*
+ * StandardsInformation.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.dataModels;
+
+import Jama.CholeskyDecomposition;
+import Jama.Matrix;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+
+/**
+ * The weighted mean of the standards' log ratios for downhole fractionation,
+ * from the information inverse(S) and inverse(S) * logRatios of each
+ * standard, formed by symmetric solves rather than explicit inverses.
+ *
+ * @author James F. Bowring
+ */
+final class StandardsInformation {
+
+    // standards whose information is summed at once
+    static final int STANDARDS_PER_CHUNK = 8;
+
+    private StandardsInformation() {
+    }
+
+    /**
+     * Solves A * X = B for symmetric A, using a Cholesky decomposition when A
+     * is positive definite and falling back to LU otherwise.
+     *
+     * @param A
+     * @param B
+     * @return X
+     */
+    static Matrix solveSymmetric(Matrix A, Matrix B) {
+        CholeskyDecomposition choleskyOfA = A.chol();
+        return choleskyOfA.isSPD() ? choleskyOfA.solve(B) : A.solve(B);
+    }
+
+    /**
+     * The information of one standard, side by side as [inverse(S) |
+     * inverse(S) * logRatios], from one symmetric solve.
+     *
+     * @param S
+     * @param logRatios
+     * @return
+     */
+    static Matrix information(Matrix S, Matrix logRatios) {
+        int countOfActiveData = S.getRowDimension();
+        Matrix rightHandSide = new Matrix(countOfActiveData, countOfActiveData + 1);
+        rightHandSide.setMatrix(0, countOfActiveData - 1, 0, countOfActiveData - 1, Matrix.identity(countOfActiveData, countOfActiveData));
+        rightHandSide.setMatrix(0, countOfActiveData - 1, countOfActiveData, countOfActiveData, logRatios);
+
+        return solveSymmetric(S, rightHandSide);
+    }
+
+    /**
+     * Sums the information of the standards in parallel, a chunk of
+     * STANDARDS_PER_CHUNK at a time so that only a chunk's matrices are held.
+     * Chunks and the tree within each depend on the count of standards alone,
+     * so the order of summation, and hence the result, is the same on every
+     * machine.
+     *
+     * @param countOfStandards
+     * @param countOfActiveData
+     * @param standardInformation the information of each standard, as from
+     * information
+     * @return [sum of inverse(S) | sum of inverse(S) * logRatios]
+     */
+    static Matrix sum(int countOfStandards, int countOfActiveData, IntFunction<Matrix> standardInformation) {
+        Matrix sumInformation = new Matrix(countOfActiveData, countOfActiveData + 1);
+        for (int chunkStart = 0; chunkStart < countOfStandards; chunkStart += STANDARDS_PER_CHUNK) {
+            int chunkEnd = Math.min(chunkStart + STANDARDS_PER_CHUNK, countOfStandards);
+            sumInformation.plusEquals(ForkJoinPool.commonPool().invoke(//
+                    new SumTask(standardInformation, chunkStart, chunkEnd)));
+        }
+        return sumInformation;
+    }
+
+    /**
+     * The weighted mean and its covariance from the summed information, in
+     * one symmetric solve.
+     *
+     * @param sumInformation as from sum
+     * @return [covariance of weighted mean | weighted mean]
+     */
+    static Matrix weightedMean(Matrix sumInformation) {
+        int countOfActiveData = sumInformation.getRowDimension();
+        Matrix rightHandSide = new Matrix(countOfActiveData, countOfActiveData + 1);
+        rightHandSide.setMatrix(0, countOfActiveData - 1, 0, countOfActiveData - 1, Matrix.identity(countOfActiveData, countOfActiveData));
+        rightHandSide.setMatrix(0, countOfActiveData - 1, countOfActiveData, countOfActiveData, //
+                sumInformation.getMatrix(0, countOfActiveData - 1, countOfActiveData, countOfActiveData));
+
+        return solveSymmetric(sumInformation.getMatrix(0, countOfActiveData - 1, 0, countOfActiveData - 1), rightHandSide);
+    }
+
+    /**
+     * Tree-sums the information of a range of standards. Each standard
+     * belongs to its own fraction, so their covariance matrices are built
+     * concurrently.
+     */
+    private static class SumTask extends RecursiveTask<Matrix> {
+
+        private final IntFunction<Matrix> standardInformation;
+        private final int start;
+        private final int end;
+
+        SumTask(IntFunction<Matrix> standardInformation, int start, int end) {
+            this.standardInformation = standardInformation;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Matrix compute() {
+            Matrix retVal;
+            if ((end - start) == 1) {
+                retVal = standardInformation.apply(start);
+            } else {
+                int middle = (start + end) >>> 1;
+                SumTask leftTask = new SumTask(standardInformation, start, middle);
+                SumTask rightTask = new SumTask(standardInformation, middle, end);
+                leftTask.fork();
+                retVal = rightTask.compute();
+                retVal.plusEquals(leftTask.join());
+            }
+            return retVal;
+        }
+    }
+}
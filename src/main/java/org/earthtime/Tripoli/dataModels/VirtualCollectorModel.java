@@ -19,10 +19,24 @@
  */
 package org.earthtime.Tripoli.dataModels;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 
 /**
+ * Holds the acquisitions of one virtual collector for one fraction. The
+ * stored columns (intensities, analog correction factors, aquire times, fit
+ * background intensities and intensity corrections) may be packed into a
+ * session-wide <code>AcquisitionColumnStore</code> once processed, in which
+ * case the getters return copies read from the store and the columns are
+ * materialized again only when changed. The corrected and log corrected
+ * intensities are derived columns and are recalculated rather than stored,
+ * except where corrected intensities are assigned directly (SHRIMP).
+ * <p>
+ * Each call to a getter of a packed collector copies the whole column, so
+ * callers fetch a column once rather than per element, and change a column
+ * only through its setter: writes into a returned copy are not kept.
  *
  * @author James F. Bowring
  */
@@ -30,7 +44,15 @@ public class VirtualCollectorModel implements Serializable {
 
     // Class variables
     private static final long serialVersionUID = 9205757228422225198L;
-    private final int collectorNumber;
+    private static final int COUNT_OF_STORED_COLUMNS = 6;
+    private static final int INTENSITIES = 0;
+    private static final int ANALOG_CORRECTION_FACTORS = 1;
+    private static final int AQUIRE_TIMES = 2;
+    private static final int FIT_BACKGROUND_INTENSITIES = 3;
+    private static final int INTENSITY_CORRECTIONS = 4;
+    private static final int ASSIGNED_CORRECTED_INTENSITIES = 5;
+    // not final so that readObject can restore it
+    private int collectorNumber;
     private boolean background;
     // starts as measured intensities then are converted to counts
     private double[] intensities;
@@ -38,10 +60,20 @@ public class VirtualCollectorModel implements Serializable {
     private double[] aquireTimes;
     private double[] fitBackgroundIntensities;
     private double[] intensityCorrections;
-    private double[] correctedIntensities;
+    // only non-null when assigned directly rather than derived from intensities
+    private double[] assignedCorrectedIntensities;
     private double sumOfCorrectedOnPeakIntensities;
-    private double[] logCorrectedIntensities;
     private boolean[] dataActiveMap;
+    // state of the derived columns
+    private boolean onPeakIntensitiesCorrected;
+    private boolean nonPositiveCorrectedIntensitiesAdjusted;
+    private boolean logOnPeakCorrectedIntensitiesCalculated;
+    // non-null when the stored columns are packed
+    private AcquisitionColumnStore columnStore;
+    private long[] columnHandles;
+    // derived columns
+    private transient double[] correctedIntensities;
+    private transient double[] logCorrectedIntensities;
 
     /**
      *
@@ -55,24 +87,184 @@ public class VirtualCollectorModel implements Serializable {
         this.aquireTimes = new double[0];
         this.fitBackgroundIntensities = new double[0];
         this.intensityCorrections = new double[0];
-        this.correctedIntensities = new double[0];
+        this.assignedCorrectedIntensities = null;
         this.sumOfCorrectedOnPeakIntensities = 0;
-        this.logCorrectedIntensities = new double[0];
         this.dataActiveMap = new boolean[0];
+        this.onPeakIntensitiesCorrected = false;
+        this.nonPositiveCorrectedIntensitiesAdjusted = false;
+        this.logOnPeakCorrectedIntensitiesCalculated = false;
+        this.columnStore = null;
+        this.columnHandles = null;
+    }
+
+    /**
+     * Moves the stored columns into columnStore, unless already there,
+     * releasing the per-collector arrays and the derived columns.
+     *
+     * @param columnStore
+     */
+    public void packColumns(AcquisitionColumnStore columnStore) {
+        if (this.columnStore == columnStore) {
+            return;
+        }
+        unpackColumns();
+
+        double[][] storedColumns = new double[][]{//
+            intensities, analogCorrectionFactors, aquireTimes, fitBackgroundIntensities, intensityCorrections, assignedCorrectedIntensities};
+
+        long[] handles = new long[COUNT_OF_STORED_COLUMNS];
+        for (int i = 0; i < COUNT_OF_STORED_COLUMNS; i++) {
+            handles[i] = columnStore.store(storedColumns[i]);
+        }
+
+        intensities = null;
+        analogCorrectionFactors = null;
+        aquireTimes = null;
+        fitBackgroundIntensities = null;
+        intensityCorrections = null;
+        assignedCorrectedIntensities = null;
+        correctedIntensities = null;
+        logCorrectedIntensities = null;
+
+        this.columnHandles = handles;
+        this.columnStore = columnStore;
+    }
+
+    /**
+     * Materializes the stored columns from the column store, if packed, before
+     * they are changed; the slices they occupied are released in the store.
+     */
+    public void unpackColumns() {
+        if (columnStore != null) {
+            intensities = columnStore.fetch(columnHandles[INTENSITIES]);
+            analogCorrectionFactors = columnStore.fetch(columnHandles[ANALOG_CORRECTION_FACTORS]);
+            aquireTimes = columnStore.fetch(columnHandles[AQUIRE_TIMES]);
+            fitBackgroundIntensities = columnStore.fetch(columnHandles[FIT_BACKGROUND_INTENSITIES]);
+            intensityCorrections = columnStore.fetch(columnHandles[INTENSITY_CORRECTIONS]);
+            assignedCorrectedIntensities = columnStore.fetch(columnHandles[ASSIGNED_CORRECTED_INTENSITIES]);
+
+            for (long handle : columnHandles) {
+                columnStore.release(handle);
+            }
+            columnStore = null;
+            columnHandles = null;
+        }
+    }
+
+    // while packed, the columns are read from the store as copies
+    private double[] storedColumn(double[] column, int columnIndex) {
+        return (columnStore == null) ? column : columnStore.fetch(columnHandles[columnIndex]);
+    }
+
+    /**
+     * @return true if the stored columns are currently held in a column store
+     */
+    public boolean isPacked() {
+        return columnStore != null;
+    }
+
+    private double[] deriveCorrectedIntensities() {
+        double[] derived = storedColumn(assignedCorrectedIntensities, ASSIGNED_CORRECTED_INTENSITIES);
+        if (derived == null) {
+            if (!onPeakIntensitiesCorrected) {
+                derived = new double[0];
+            } else if (background) {
+                derived = new double[getIntensities().length];
+            } else {
+                derived = IntensityCorrectionStages.subtractBackground(getIntensities(), getFitBackgroundIntensities());
+            }
+        }
+
+        if (nonPositiveCorrectedIntensitiesAdjusted && !background) {
+            derived = IntensityCorrectionStages.adjustZeroIntensities(derived);
+        }
+
+        return derived;
+    }
+
+    private double[] deriveLogCorrectedIntensities() {
+        double[] derived;
+        if (logOnPeakCorrectedIntensitiesCalculated) {
+            if (background) {
+                derived = new double[getIntensities().length];
+            } else {
+                derived = IntensityCorrectionStages.logIntensities(getCorrectedIntensities());
+            }
+        } else {
+            derived = new double[0];
+        }
+
+        return derived;
+    }
+
+    /**
+     * Call before changing an input of the derived columns. The corrected
+     * intensities hold the values of the last correction until the next call
+     * to correctOnPeakIntensities, so they are pinned as assigned values and
+     * the derivation is invalidated.
+     */
+    private void invalidateDerivedColumns() {
+        unpackColumns();
+        if (onPeakIntensitiesCorrected && (assignedCorrectedIntensities == null)) {
+            assignedCorrectedIntensities = getCorrectedIntensities();
+            nonPositiveCorrectedIntensitiesAdjusted = false;
+        }
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = stream.readFields();
+
+        collectorNumber = fields.get("collectorNumber", 0);
+        background = fields.get("background", false);
+        intensities = (double[]) fields.get("intensities", null);
+        analogCorrectionFactors = (double[]) fields.get("analogCorrectionFactors", null);
+        aquireTimes = (double[]) fields.get("aquireTimes", null);
+        fitBackgroundIntensities = (double[]) fields.get("fitBackgroundIntensities", null);
+        intensityCorrections = (double[]) fields.get("intensityCorrections", null);
+        sumOfCorrectedOnPeakIntensities = fields.get("sumOfCorrectedOnPeakIntensities", 0.0);
+        dataActiveMap = (boolean[]) fields.get("dataActiveMap", null);
+        columnStore = (AcquisitionColumnStore) fields.get("columnStore", null);
+        columnHandles = (long[]) fields.get("columnHandles", null);
+
+        double[] legacyCorrectedIntensities = (double[]) readLegacyField(fields, "correctedIntensities");
+        if (legacyCorrectedIntensities != null) {
+            // projects saved before derived columns were introduced keep their corrected intensities as stored
+            assignedCorrectedIntensities = legacyCorrectedIntensities;
+            double[] legacyLogCorrectedIntensities = (double[]) readLegacyField(fields, "logCorrectedIntensities");
+            logOnPeakCorrectedIntensitiesCalculated = (legacyLogCorrectedIntensities != null) && (legacyLogCorrectedIntensities.length > 0);
+        } else {
+            assignedCorrectedIntensities = (double[]) fields.get("assignedCorrectedIntensities", null);
+            onPeakIntensitiesCorrected = fields.get("onPeakIntensitiesCorrected", false);
+            nonPositiveCorrectedIntensitiesAdjusted = fields.get("nonPositiveCorrectedIntensitiesAdjusted", false);
+            logOnPeakCorrectedIntensitiesCalculated = fields.get("logOnPeakCorrectedIntensitiesCalculated", false);
+        }
+    }
+
+    private static Object readLegacyField(ObjectInputStream.GetField fields, String name) throws IOException {
+        Object retVal;
+        try {
+            retVal = fields.get(name, null);
+        } catch (IllegalArgumentException e) {
+            // field is not in this stream
+            retVal = null;
+        }
+        return retVal;
     }
 
     /**
      *
      */
     public void correctOnPeakIntensities () {
-        correctedIntensities = new double[intensities.length];
+        unpackColumns();
+        assignedCorrectedIntensities = null;
+        onPeakIntensitiesCorrected = true;
+        nonPositiveCorrectedIntensitiesAdjusted = false;
+        correctedIntensities = deriveCorrectedIntensities();
+        logCorrectedIntensities = null;
+
         sumOfCorrectedOnPeakIntensities = 0.0;
         if (  ! background ) {
-            for (int i = 0; i < intensities.length; i ++) {
-                correctedIntensities[i] = //
-                        intensities[i] //
-                        - fitBackgroundIntensities[i]; //
-
+            for (int i = 0; i < correctedIntensities.length; i ++) {
                 sumOfCorrectedOnPeakIntensities += correctedIntensities[i];
             }
         }
@@ -83,11 +275,10 @@ public class VirtualCollectorModel implements Serializable {
      */
     public void adjustNonPositiveCorrectedIntensities () {
         if (  ! background ) {
-            for (int i = 0; i < correctedIntensities.length; i ++) {
-                if ( correctedIntensities[i] == 0.0 ) {// changed from <= to == nov 2014 since 0 is only number undefined with log
-                    correctedIntensities[i] = Double.MIN_VALUE;
-                }
-            }
+            // changed from <= to == nov 2014 since 0 is only number undefined with log
+            nonPositiveCorrectedIntensitiesAdjusted = true;
+            correctedIntensities = deriveCorrectedIntensities();
+            logCorrectedIntensities = null;
         }
     }
         
@@ -95,13 +286,8 @@ public class VirtualCollectorModel implements Serializable {
      *
      */
     public void calculateLogOnPeakCorrectedIntensities () {
-        logCorrectedIntensities = new double[intensities.length];
-        if (  ! background ) {
-            for (int i = 0; i < logCorrectedIntensities.length; i ++) {
-                logCorrectedIntensities[i] = Math.log( correctedIntensities[i] );
-            }
-        }
-
+        logOnPeakCorrectedIntensitiesCalculated = true;
+        logCorrectedIntensities = deriveLogCorrectedIntensities();
     }
 
     /**
@@ -109,6 +295,7 @@ public class VirtualCollectorModel implements Serializable {
      * @param background
      */
     public void updateCollector ( boolean background ) {
+        invalidateDerivedColumns();
         this.background = background;
     }
 
@@ -129,16 +316,17 @@ public class VirtualCollectorModel implements Serializable {
     }
 
     /**
-     * @return the intensities
+     * @return the intensities, a copy while packed
      */
     public double[] getIntensities () {
-        return intensities;
+        return storedColumn(intensities, INTENSITIES);
     }
 
     /**
      * @param intensities the intensities to set
      */
     public void setIntensities ( double[] intensities ) {
+        invalidateDerivedColumns();
         this.intensities = intensities;
     }
 
@@ -157,10 +345,10 @@ public class VirtualCollectorModel implements Serializable {
     }
 
     /**
-     * @return the aquireTimes
+     * @return the aquireTimes, a copy while packed
      */
     public double[] getAquireTimes () {
-        return aquireTimes;
+        return storedColumn(aquireTimes, AQUIRE_TIMES);
     }
 
     /**
@@ -168,10 +356,11 @@ public class VirtualCollectorModel implements Serializable {
      * @return
      */
     public double[] getOnPeakAquireTimes () {
+        double[] myAquireTimes = getAquireTimes();
         // times shifted left to ignore background
-        double[] onPeakAquireTimes = new double[aquireTimes.length];
+        double[] onPeakAquireTimes = new double[myAquireTimes.length];
         for (int i = 0; i < onPeakAquireTimes.length; i ++) {
-            onPeakAquireTimes[i] = aquireTimes[i] - aquireTimes[0];
+            onPeakAquireTimes[i] = myAquireTimes[i] - myAquireTimes[0];
         }
 
         return onPeakAquireTimes;
@@ -182,41 +371,44 @@ public class VirtualCollectorModel implements Serializable {
      * @return
      */
     public double[] getBackgroundAquireTimes () {
-        return aquireTimes;
+        return getAquireTimes();
     }
 
     /**
      * @param aquireTimes the aquireTimes to set
      */
     public void setAquireTimes ( double[] aquireTimes ) {
+        unpackColumns();
         this.aquireTimes = aquireTimes;
     }
 
     /**
-     * @return the intensityCorrections
+     * @return the intensityCorrections, a copy while packed
      */
     public double[] getIntensityCorrections () {
-        return intensityCorrections;
+        return storedColumn(intensityCorrections, INTENSITY_CORRECTIONS);
     }
 
     /**
      * @param intensityCorrections the intensityCorrections to set
      */
     public void setIntensityCorrections ( double[] intensityCorrections ) {
+        unpackColumns();
         this.intensityCorrections = intensityCorrections;
     }
 
     /**
-     * @return the fitBackgroundIntensities
+     * @return the fitBackgroundIntensities, a copy while packed
      */
     public double[] getFitBackgroundIntensities () {
-        return fitBackgroundIntensities;
+        return storedColumn(fitBackgroundIntensities, FIT_BACKGROUND_INTENSITIES);
     }
 
     /**
      * @param fitBackgroundIntensities the fitBackgroundIntensities to set
      */
     public void setFitBackgroundIntensities ( double[] fitBackgroundIntensities ) {
+        invalidateDerivedColumns();
         this.fitBackgroundIntensities = fitBackgroundIntensities;
     }
 
@@ -231,14 +423,23 @@ public class VirtualCollectorModel implements Serializable {
      * @param background the background to set
      */
     public void setBackground ( boolean background ) {
+        invalidateDerivedColumns();
         this.background = background;
     }
 
     /**
-     * @return the correctedIntensities
+     * @return the correctedIntensities, a copy while packed
      */
     public double[] getCorrectedIntensities () {
-        return correctedIntensities;
+        double[] myCorrectedIntensities = correctedIntensities;
+        if ( myCorrectedIntensities == null ) {
+            myCorrectedIntensities = deriveCorrectedIntensities();
+            // kept only while unpacked, so that a packed collector holds no arrays
+            if ( columnStore == null ) {
+                correctedIntensities = myCorrectedIntensities;
+            }
+        }
+        return myCorrectedIntensities;
     }
     
     /**
@@ -247,10 +448,11 @@ public class VirtualCollectorModel implements Serializable {
      */
     public double[] getActiveCorrectedIntensities () {
 
+        double[] myCorrectedIntensities = getCorrectedIntensities();
         ArrayList<Double> activeCorrectedintensitiesList = new ArrayList<Double>();
         for (int i = 0; i < dataActiveMap.length; i ++) {
             if ( dataActiveMap[i] ) {
-                activeCorrectedintensitiesList.add(correctedIntensities[i]);
+                activeCorrectedintensitiesList.add(myCorrectedIntensities[i]);
             }
         }
         
@@ -266,14 +468,25 @@ public class VirtualCollectorModel implements Serializable {
      * @param correctedIntensities the correctedIntensities to set
      */
     public void setCorrectedIntensities ( double[] correctedIntensities ) {
+        unpackColumns();
+        this.assignedCorrectedIntensities = correctedIntensities;
+        this.nonPositiveCorrectedIntensitiesAdjusted = false;
         this.correctedIntensities = correctedIntensities;
+        this.logCorrectedIntensities = null;
     }
 
     /**
-     * @return the logCorrectedIntensities
+     * @return the logCorrectedIntensities, a copy while packed
      */
     public double[] getLogCorrectedIntensities () {
-        return logCorrectedIntensities;
+        double[] myLogCorrectedIntensities = logCorrectedIntensities;
+        if ( myLogCorrectedIntensities == null ) {
+            myLogCorrectedIntensities = deriveLogCorrectedIntensities();
+            if ( columnStore == null ) {
+                logCorrectedIntensities = myLogCorrectedIntensities;
+            }
+        }
+        return myLogCorrectedIntensities;
     }
 
     /**
@@ -284,16 +497,17 @@ public class VirtualCollectorModel implements Serializable {
     }
 
     /**
-     * @return the analogCorrectionFactors
+     * @return the analogCorrectionFactors, a copy while packed
      */
     public double[] getAnalogCorrectionFactors() {
-        return analogCorrectionFactors;
+        return storedColumn(analogCorrectionFactors, ANALOG_CORRECTION_FACTORS);
     }
 
     /**
      * @param analogCorrectionFactors the analogCorrectionFactors to set
      */
     public void setAnalogCorrectionFactors(double[] analogCorrectionFactors) {
+        unpackColumns();
         this.analogCorrectionFactors = analogCorrectionFactors;
     }
 }
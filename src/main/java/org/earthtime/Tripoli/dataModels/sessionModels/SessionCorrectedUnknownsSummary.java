@@ -18,9 +18,12 @@
 package org.earthtime.Tripoli.dataModels.sessionModels;
 
 import Jama.Matrix;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Map;
 import org.earthtime.dataDictionaries.RadRatios;
+import org.earthtime.utilities.jamaHelpers.DiagonalPlusLowRankMatrix;
 
 /**
  *
@@ -31,7 +34,9 @@ public class SessionCorrectedUnknownsSummary implements Serializable{
     // Class variables
     private static final long serialVersionUID = -5775331053687026298L;
     // instance variables
+    // dense form retained only so that older serialized sessions can be read
     private Matrix unknownsAnalyticalCovarianceSu;
+    private DiagonalPlusLowRankMatrix unknownsAnalyticalCovarianceSuFactored;
     private Map<String, Integer> unknownFractionIDs;
     private Matrix unknownsLogRatioMeans;
     private RadRatios radiogenicRatioName;
@@ -52,30 +57,45 @@ public class SessionCorrectedUnknownsSummary implements Serializable{
      * @param standardRatio
      */
     public SessionCorrectedUnknownsSummary (//
-            Matrix unknownsAnalyticalCovarianceSu,//
+            DiagonalPlusLowRankMatrix unknownsAnalyticalCovarianceSu,//
             Map<String, Integer> unknownFractionIDs,//
             Matrix unknownsLogRatioMeans, //
             RadRatios radiogenicRatioName,
             double varianceOfStandardLogRatio) {
-        this.unknownsAnalyticalCovarianceSu = unknownsAnalyticalCovarianceSu;
+        this.unknownsAnalyticalCovarianceSu = null;
+        this.unknownsAnalyticalCovarianceSuFactored = unknownsAnalyticalCovarianceSu;
         this.unknownFractionIDs = unknownFractionIDs;
         this.unknownsLogRatioMeans = unknownsLogRatioMeans;
         this.radiogenicRatioName = radiogenicRatioName;
         this.varianceOfStandardLogRatio = varianceOfStandardLogRatio;
     }
 
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        // older sessions hold Su densely; keep it dense rather than factor it
+        if ((unknownsAnalyticalCovarianceSuFactored == null) && (unknownsAnalyticalCovarianceSu != null)) {
+            unknownsAnalyticalCovarianceSuFactored = DiagonalPlusLowRankMatrix.fromDenseMatrix(unknownsAnalyticalCovarianceSu);
+            unknownsAnalyticalCovarianceSu = null;
+        }
+    }
+
     /**
+     * Su is held as a diagonal plus a low-rank term from the shared session
+     * fit; entries and sub-blocks are formed on demand. Su read from an older
+     * session is held densely.
+     *
      * @return the unknownsAnalyticalCovarianceSu
      */
-    public Matrix getUnknownsAnalyticalCovarianceSu () {
-        return unknownsAnalyticalCovarianceSu;
+    public DiagonalPlusLowRankMatrix getUnknownsAnalyticalCovarianceSu () {
+        return unknownsAnalyticalCovarianceSuFactored;
     }
 
     /**
      * @param unknownsAnalyticalCovarianceSu the unknownsAnalyticalCovarianceSu to set
      */
-    public void setUnknownsAnalyticalCovarianceSu ( Matrix unknownsAnalyticalCovarianceSu ) {
-        this.unknownsAnalyticalCovarianceSu = unknownsAnalyticalCovarianceSu;
+    public void setUnknownsAnalyticalCovarianceSu ( DiagonalPlusLowRankMatrix unknownsAnalyticalCovarianceSu ) {
+        this.unknownsAnalyticalCovarianceSu = null;
+        this.unknownsAnalyticalCovarianceSuFactored = unknownsAnalyticalCovarianceSu;
     }
 
     /**
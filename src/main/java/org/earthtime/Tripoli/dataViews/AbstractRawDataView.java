@@ -44,10 +44,12 @@ import javax.swing.event.MouseInputListener;
 import org.earthtime.ETReduxFrame;
 import org.earthtime.Tripoli.dataModels.DataModelInterface;
 import org.earthtime.Tripoli.dataModels.MaskingSingleton;
+import org.earthtime.Tripoli.dataModels.RawIntensityDataModel;
 import org.earthtime.Tripoli.dataModels.RawRatioDataModel;
 import org.earthtime.Tripoli.dataModels.sessionModels.AbstractSessionForStandardDataModel;
 import org.earthtime.Tripoli.dataViews.dataMonitorViews.AbstractDataMonitorView;
 import org.earthtime.Tripoli.dataViews.fitFunctionPresentationViews.AbstractFitFunctionPresentationView;
+import org.earthtime.Tripoli.dataViews.overlayViews.TripoliSessionRawDataView;
 import org.earthtime.Tripoli.dataViews.simpleViews.FitFunctionDataInterface;
 import org.earthtime.Tripoli.dataViews.simpleViews.SessionOfStandardView;
 import org.earthtime.Tripoli.dataViews.simpleViews.usedByReflection.CorrectedRatioDataView;
@@ -57,6 +59,7 @@ import org.earthtime.Tripoli.sessions.TripoliSessionFractionationCalculatorInter
 import org.earthtime.UPb_Redux.ReduxConstants;
 import org.earthtime.dataDictionaries.DataPresentationModeEnum;
 import org.earthtime.dataDictionaries.IncludedTypeEnum;
+import org.earthtime.dataDictionaries.TripoliProcessingSettingsEnum;
 
 /**
  *
@@ -424,6 +427,40 @@ public abstract class AbstractRawDataView extends JLayeredPane implements MouseI
         return (((getMaxY_Display() - y) / getRangeY_Display()) * graphHeight) + topMargin;
     }
 
+    /**
+     * The indices of the data points to draw as single pixel marks, cached by
+     * downsampler until the series or the mapping changes.
+     *
+     * @param downsampler
+     * @param x
+     * @param shiftX added to each x before mapping
+     * @param y
+     * @param pointClasses the class of each point, or null
+     * @return
+     */
+    protected int[] pointsToDraw(PixelDownsampler downsampler, double[] x, double shiftX, double[] y, byte[] pointClasses) {
+        double scaleX = graphWidth / getRangeX_Display();
+        double scaleY = -graphHeight / getRangeY_Display();
+        return downsampler.indicesToDraw(x, y, pointClasses, //
+                scaleX, (shiftX - getMinX_Display()) * scaleX + leftMargin, //
+                scaleY, topMargin - getMaxY_Display() * scaleY, //
+                getWidth(), getHeight());
+    }
+
+    /**
+     *
+     * @return the class of each data point for downsampling: 0 if included, 1
+     * if excluded, as colored by determineDataColor
+     */
+    protected byte[] determineDataClasses() {
+        boolean[] dataActiveMap = rawRatioDataModel.getDataActiveMap();
+        byte[] dataClasses = new byte[dataActiveMap.length];
+        for (int i = 0; i < dataActiveMap.length; i++) {
+            dataClasses[i] = (byte) (dataActiveMap[i] ? 0 : 1);
+        }
+        return dataClasses;
+    }
+
     /**
      *
      * @param targetDataModelView
@@ -821,6 +858,19 @@ public abstract class AbstractRawDataView extends JLayeredPane implements MouseI
         return tripoliFraction;
     }
 
+    /**
+     * Call after the user changes the fit function or overdispersion choice of
+     * this view's data model; if it is an isotope, the change of its background
+     * fit is recorded so that re-propagation performs that fraction again.
+     */
+    public void fitFunctionChoiceChanged() {
+        if ((getDataModel() instanceof RawIntensityDataModel) && (tripoliFraction != null)//
+                && (sampleSessionDataView instanceof TripoliSessionRawDataView)) {
+            ((TripoliSessionRawDataView) sampleSessionDataView).getTripoliSession().getMassSpec().getStageDependencyTracker()//
+                    .settingChanged(TripoliProcessingSettingsEnum.BACKGROUND_FIT_FUNCTION, tripoliFraction.getFractionID());
+        }
+    }
+
     /**
      * @return the myOnPeakData
      */
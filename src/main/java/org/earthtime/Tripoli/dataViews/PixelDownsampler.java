@@ -0,0 +1,147 @@
+/*
+ * PixelDownsampler.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.dataViews;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Downsampling of a series of data points drawn as single pixel marks to the
+ * points that mark distinct pixels, so that an acquisition of many more
+ * points than the pane has pixels is drawn with at most one mark per pixel
+ * and class of point. Every pixel the full series would mark is still marked,
+ * so outliers and isolated points are always drawn, and points of different
+ * classes, such as included and excluded points, are reduced separately so
+ * that each stays visible. Points are kept in series order.
+ *
+ * The points to draw are cached for the series, classes, mapping and pane
+ * size they were computed for and recomputed only when one of these changes,
+ * as on zoom and pan; the series arrays are compared by identity, so clear
+ * must be called when their contents change in place.
+ *
+ * @author James F. Bowring
+ */
+public class PixelDownsampler {
+
+    // marks reach one pixel beyond the point
+    private static final int MARGIN = 2;
+
+    private double[] x;
+    private double[] y;
+    private byte[] pointClasses;
+    private double[] mapping;
+    private int width;
+    private int height;
+    private int[] indices;
+
+    /**
+     *
+     */
+    public PixelDownsampler() {
+        clear();
+    }
+
+    /**
+     * Discards the cached points.
+     */
+    public final void clear() {
+        this.x = null;
+        this.y = null;
+        this.pointClasses = null;
+        this.mapping = null;
+        this.indices = null;
+    }
+
+    /**
+     * The indices of the points to draw, with x and y mapped to the pane as x
+     * * scaleX + offsetX and y * scaleY + offsetY.
+     *
+     * @param x
+     * @param y
+     * @param pointClasses the class of each point, or null if all are of one
+     * class
+     * @param scaleX
+     * @param offsetX
+     * @param scaleY
+     * @param offsetY
+     * @param width the width of the pane
+     * @param height the height of the pane
+     * @return the indices, in increasing order
+     */
+    public int[] indicesToDraw(double[] x, double[] y, byte[] pointClasses, //
+            double scaleX, double offsetX, double scaleY, double offsetY, int width, int height) {
+        double[] requestedMapping = new double[]{scaleX, offsetX, scaleY, offsetY};
+        if ((indices == null) || (x != this.x) || (y != this.y) || (width != this.width) || (height != this.height)//
+                || !Arrays.equals(requestedMapping, mapping) || !Arrays.equals(pointClasses, this.pointClasses)) {
+            this.x = x;
+            this.y = y;
+            this.pointClasses = (pointClasses == null) ? null : pointClasses.clone();
+            this.mapping = requestedMapping;
+            this.width = width;
+            this.height = height;
+            this.indices = downsample(x, y, pointClasses, scaleX, offsetX, scaleY, offsetY, width, height);
+        }
+        return indices;
+    }
+
+    /**
+     *
+     * @param x
+     * @param y
+     * @param pointClasses the class of each point, or null if all are of one
+     * class
+     * @param scaleX
+     * @param offsetX
+     * @param scaleY
+     * @param offsetY
+     * @param width the width of the pane
+     * @param height the height of the pane
+     * @return the indices of the first point of each class marking each pixel
+     * of the pane, in increasing order
+     */
+    public static int[] downsample(double[] x, double[] y, byte[] pointClasses, //
+            double scaleX, double offsetX, double scaleY, double offsetY, int width, int height) {
+        int count = Math.min(x.length, y.length);
+        int columns = Math.max(width, 0) + 2 * MARGIN;
+        int rows = Math.max(height, 0) + 2 * MARGIN;
+        int cells = columns * rows;
+
+        BitSet[] markedCells = new BitSet[Byte.MAX_VALUE + 1];
+        int[] selected = new int[count];
+        int countSelected = 0;
+        for (int i = 0; i < count; i++) {
+            double pixelX = x[i] * scaleX + offsetX + MARGIN;
+            double pixelY = y[i] * scaleY + offsetY + MARGIN;
+            // not finite or clipped
+            if (!((pixelX >= 0.0) && (pixelX < columns) && (pixelY >= 0.0) && (pixelY < rows))) {
+                continue;
+            }
+            int pointClass = (pointClasses == null) ? 0 : (pointClasses[i] & Byte.MAX_VALUE);
+            if (markedCells[pointClass] == null) {
+                markedCells[pointClass] = new BitSet(cells);
+            }
+            int cell = ((int) pixelY) * columns + (int) pixelX;
+            if (!markedCells[pointClass].get(cell)) {
+                markedCells[pointClass].set(cell);
+                selected[countSelected++] = i;
+            }
+        }
+
+        return Arrays.copyOf(selected, countSelected);
+    }
+}
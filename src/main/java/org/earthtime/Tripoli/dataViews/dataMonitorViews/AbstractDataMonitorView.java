@@ -94,6 +94,7 @@ import org.earthtime.UPb_Redux.dialogs.projectManagers.ProjectManagerFor_LAICPMS
 import org.earthtime.UPb_Redux.dialogs.projectManagers.ProjectManagerSubscribeInterface;
 import org.earthtime.UPb_Redux.fractions.FractionsFilterInterface;
 import org.earthtime.UPb_Redux.utilities.CustomIcon;
+import org.earthtime.UPb_Redux.valueModels.SampleDateModel;
 import org.earthtime.aliquots.AliquotInterface;
 import org.earthtime.aliquots.ReduxAliquotInterface;
 import org.earthtime.beans.ET_JButton;
@@ -1085,6 +1086,11 @@ public class AbstractDataMonitorView extends AbstractRawDataView
 //        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
+    @Override
+    public void sampleTreeDateModelCalculated(SampleDateModel sampleDateModel) {
+        concordiaGraphPanel.repaint();
+    }
+
     @Override
     public void sampleTreeChangeAnalysisMode(Object node) {
         //  System.out.println("WOW MODE CALL BACK");
@@ -267,6 +267,9 @@ public abstract class AbstractFitFunctionPresentationView extends AbstractRawDat
                         ((RawRatioDataModel) rawRatioDataModel).setOverDispersionSelectedDownHole(((AbstractButton) ae.getSource()).isSelected());
                     } else {
                         rawRatioDataModel.setOverDispersionSelected(((AbstractButton) ae.getSource()).isSelected());
+                        if (targetDataModelView instanceof AbstractRawDataView) {
+                            ((AbstractRawDataView) targetDataModelView).fitFunctionChoiceChanged();
+                        }
                     }
 
                     refreshPanel(true, false);
@@ -500,7 +503,11 @@ public abstract class AbstractFitFunctionPresentationView extends AbstractRawDat
             // on click, take control
             // check if fit function exists (could be calculated)
             if (rawRatioDataModel.containsFitFunction(fitFunctionType)) {
+                boolean changed = (rawRatioDataModel.getSelectedFitFunctionType() != fitFunctionType);
                 rawRatioDataModel.setSelectedFitFunctionType(fitFunctionType);
+                if (changed && (targetDataModelView instanceof AbstractRawDataView)) {
+                    ((AbstractRawDataView) targetDataModelView).fitFunctionChoiceChanged();
+                }
                 
                 if (targetDataModelView instanceof DataViewsOverlay) {
                     ((DataViewsOverlay) targetDataModelView).getDownholeFractionationDataModel()//
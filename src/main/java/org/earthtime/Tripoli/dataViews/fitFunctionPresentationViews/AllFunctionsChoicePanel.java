@@ -134,8 +134,10 @@ public class AllFunctionsChoicePanel extends AbstractRawDataView {
         functionChoiceButton.addActionListener((ActionEvent e) -> {
             for (AbstractRawDataView rawDataModelView : rawDataModelViews) {
                 DataModelFitFunctionInterface rawRatioDataModel1 = (DataModelFitFunctionInterface) rawDataModelView.getDataModel();
-                if (rawRatioDataModel1.containsFitFunction(fitFunctionType)) {
+                if (rawRatioDataModel1.containsFitFunction(fitFunctionType)//
+                        && (rawRatioDataModel1.getSelectedFitFunctionType() != fitFunctionType)) {
                     rawRatioDataModel1.setSelectedFitFunctionType(fitFunctionType);
+                    rawDataModelView.fitFunctionChoiceChanged();
                 }
                 try {
                     rawDataModelView.updatePlotsWithChanges((FitFunctionDataInterface) rawDataModelView);
@@ -175,8 +177,9 @@ public class AllFunctionsChoicePanel extends AbstractRawDataView {
                     DataModelFitFunctionInterface rawRatioDataModel = (DataModelFitFunctionInterface) rawDataModelView.getDataModel();
                     if (meanOnly) {// case of downhole
                         ((RawRatioDataModel) rawRatioDataModel).setOverDispersionSelectedDownHole(setOD);
-                    } else {
+                    } else if (rawRatioDataModel.isOverDispersionSelected() != setOD) {
                         rawRatioDataModel.setOverDispersionSelected(setOD);
+                        rawDataModelView.fitFunctionChoiceChanged();
                     }
 //                    try {
 //                        ((FitFunctionDataInterface) rawDataModelView).updateFittedData(true);
@@ -34,6 +34,8 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import javax.swing.JLayeredPane;
 import javax.swing.JSlider;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import org.earthtime.ETReduxFrame;
@@ -134,6 +136,10 @@ public class TripoliSessionRawDataView extends AbstractRawDataView implements Tr
     private AbstractRawDataView dataPresentationModeChooserPanel;
     private SessionAnalysisWorkflowManagerInterface sessionAnalysisWorkflowManager;
     private transient AbstractTripoliSample selectedSample;
+    // fraction columns are attached only while within a viewport's width of the visible rect
+    private transient final VirtualizedColumns fractionColumns;
+    private transient final ChangeListener viewportChangeListener;
+    private transient JViewport viewport;
 
     /**
      *
@@ -207,6 +213,43 @@ public class TripoliSessionRawDataView extends AbstractRawDataView implements Tr
 
         // the first one should be reference material
         this.selectedSample = tripoliSession.getTripoliSamples().get(0);
+
+        this.fractionColumns = new VirtualizedColumns();
+        this.viewportChangeListener = (ChangeEvent e) -> updateAttachedFractionColumns();
+        this.viewport = null;
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null) {
+            viewport.addChangeListener(viewportChangeListener);
+        }
+        updateAttachedFractionColumns();
+    }
+
+    @Override
+    public void removeNotify() {
+        if (viewport != null) {
+            viewport.removeChangeListener(viewportChangeListener);
+            viewport = null;
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * Attaches the fraction columns near the visible part of the viewport and
+     * detaches the rest, or attaches them all when not in a viewport, as when
+     * printing.
+     */
+    private void updateAttachedFractionColumns() {
+        if ((viewport == null) || (viewport.getView() != this) || (viewport.getExtentSize().width <= 0)) {
+            fractionColumns.attachAll();
+        } else {
+            Rectangle viewRect = viewport.getViewRect();
+            fractionColumns.update(viewRect.x - viewRect.width, viewRect.x + 2 * viewRect.width);
+        }
     }
 
     /**
@@ -491,6 +534,7 @@ public class TripoliSessionRawDataView extends AbstractRawDataView implements Tr
 
         removeAll();
         validate();
+        fractionColumns.clear();
 
         tripoliSessionRawDataViewYAxis.removeAll();
         tripoliSessionRawDataViewYAxis.validate();
@@ -1208,16 +1252,16 @@ public class TripoliSessionRawDataView extends AbstractRawDataView implements Tr
 
                 }
 
-                // add vertical views containers
-                add(tripoliFractionViewsContainer);
+                // vertical views containers are added as they scroll into view
+                fractionColumns.add(this, tripoliFractionViewsContainer);
 
-                tripoliSessionDataHeader_pane.add(tripoliFractionInfoViewsContainer, javax.swing.JLayeredPane.DEFAULT_LAYER);
+                fractionColumns.add(tripoliSessionDataHeader_pane, tripoliFractionInfoViewsContainer);
 
                 if (layeredYAxisDataViewsContainer != null) {
-                    add(layeredYAxisDataViewsContainer);
+                    fractionColumns.add(this, layeredYAxisDataViewsContainer);
                 }
                 if (layeredLocalInterceptFitFunctionsContainer != null) {
-                    add(layeredLocalInterceptFitFunctionsContainer);
+                    fractionColumns.add(this, layeredLocalInterceptFitFunctionsContainer);
                 }
             }
 
@@ -1227,6 +1271,8 @@ public class TripoliSessionRawDataView extends AbstractRawDataView implements Tr
         setPreferredSize( //
                 new Dimension(leftMargin + rightMargin + (int) graphWidth, 30 + topMargin + countOfDataModels * (dataModelHeight + HEIGHT_OF_OVERLAY_XAXIS_PANES + residualsHeight)));
 
+        updateAttachedFractionColumns();
+
         validate();
 
     }
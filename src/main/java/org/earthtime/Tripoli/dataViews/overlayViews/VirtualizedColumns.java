@@ -0,0 +1,127 @@
+/*
+ * VirtualizedColumns.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.dataViews.overlayViews;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The column components of a horizontally scrolling view, such as the
+ * containers of each fraction's data views, kept in their parents only while
+ * they lie within the visible range of x. Detached columns take no part in
+ * layout, painting or event dispatch, so a session of many fractions scrolls
+ * at the cost of the few on screen. Columns in different parents, such as a
+ * header scrolled in step with the view, share the view's x coordinates.
+ *
+ * @author James F. Bowring
+ */
+public class VirtualizedColumns {
+
+    private final List<Column> columns;
+
+    /**
+     *
+     */
+    public VirtualizedColumns() {
+        this.columns = new ArrayList<>();
+    }
+
+    /**
+     * Records a column, detached until the next update or attachAll.
+     *
+     * @param parent the container the column belongs in
+     * @param component the column, with its bounds set
+     */
+    public void add(Container parent, Component component) {
+        columns.add(new Column(parent, component));
+    }
+
+    /**
+     * Forgets the columns without detaching them, as when their parents have
+     * been cleared.
+     */
+    public void clear() {
+        columns.clear();
+    }
+
+    /**
+     * Attaches the columns intersecting minX to maxX and detaches the rest.
+     *
+     * @param minX
+     * @param maxX
+     * @return the number of columns attached
+     */
+    public int update(int minX, int maxX) {
+        int countAttached = 0;
+        for (Column column : columns) {
+            Rectangle bounds = column.component.getBounds();
+            if ((bounds.x <= maxX) && ((bounds.x + bounds.width) >= minX)) {
+                column.attach();
+                countAttached++;
+            } else {
+                column.detach();
+            }
+        }
+        return countAttached;
+    }
+
+    /**
+     * Attaches every column, as when the view is not in a viewport.
+     */
+    public void attachAll() {
+        for (Column column : columns) {
+            column.attach();
+        }
+    }
+
+    /**
+     *
+     * @return the number of columns recorded
+     */
+    public int size() {
+        return columns.size();
+    }
+
+    private static class Column {
+
+        private final Container parent;
+        private final Component component;
+
+        Column(Container parent, Component component) {
+            this.parent = parent;
+            this.component = component;
+        }
+
+        void attach() {
+            if (component.getParent() != parent) {
+                parent.add(component);
+                parent.repaint(component.getX(), component.getY(), component.getWidth(), component.getHeight());
+            }
+        }
+
+        void detach() {
+            if (component.getParent() == parent) {
+                parent.remove(component);
+                parent.repaint(component.getX(), component.getY(), component.getWidth(), component.getHeight());
+            }
+        }
+    }
+}
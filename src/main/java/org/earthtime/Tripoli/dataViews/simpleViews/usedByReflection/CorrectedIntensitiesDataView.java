@@ -27,6 +27,7 @@ import javax.swing.JLayeredPane;
 import org.earthtime.Tripoli.dataModels.DataModelInterface;
 import org.earthtime.Tripoli.dataModels.RawIntensityDataModel;
 import org.earthtime.Tripoli.dataViews.AbstractRawDataView;
+import org.earthtime.Tripoli.dataViews.PixelDownsampler;
 import org.earthtime.Tripoli.fractions.TripoliFraction;
 import org.earthtime.UPb_Redux.ReduxConstants;
 import org.earthtime.dataDictionaries.IncludedTypeEnum;
@@ -42,6 +43,8 @@ public class CorrectedIntensitiesDataView extends AbstractRawDataView {
      *
      */
     public static int DEFAULT_WIDTH_OF_PANE = 128;
+
+    private transient final PixelDownsampler onPeakDownsampler;
     //
     //private DataModelInterface rawRatioDataModel;
 
@@ -62,6 +65,7 @@ public class CorrectedIntensitiesDataView extends AbstractRawDataView {
         super(sampleSessionDataView, tripoliFraction, bounds, invokeMouseListener, true);
 
         this.rawRatioDataModel = rawIsotopeDataModel;
+        this.onPeakDownsampler = new PixelDownsampler();
 
     }
 
@@ -79,7 +83,14 @@ public class CorrectedIntensitiesDataView extends AbstractRawDataView {
         }
 
         // draw corrected onPeak intensities 
+        byte[] dataClasses = determineDataClasses();
         for (int i = 0; i < myOnPeakData.length; i++) {
+            // drawn red below
+            if (myOnPeakData[i] <= Double.MIN_VALUE) {
+                dataClasses[i] = 2;
+            }
+        }
+        for (int i : pointsToDraw(onPeakDownsampler, myOnPeakNormalizedAquireTimes, 0.0, myOnPeakData, dataClasses)) {
             Shape intensity = new java.awt.geom.Ellipse2D.Double( //
                     mapX(myOnPeakNormalizedAquireTimes[i]), mapY(myOnPeakData[i]), 1, 1);
             g2d.setPaint(determineDataColor(i, Color.black));
@@ -102,6 +113,7 @@ public class CorrectedIntensitiesDataView extends AbstractRawDataView {
     public void preparePanel(boolean doReScale, boolean inLiveMode) {
 
         this.removeAll();
+        onPeakDownsampler.clear();
 
         // walk intensities and get min and max for axes
         myOnPeakData = ((RawIntensityDataModel) rawRatioDataModel).getOnPeakCorrectedCountsPerSecondAsRawIntensities();// .getOnPeakVirtualCollector().getCorrectedIntensities();
@@ -27,6 +27,7 @@ import javax.swing.JLayeredPane;
 import org.earthtime.Tripoli.dataModels.DataModelInterface;
 import org.earthtime.Tripoli.dataModels.RawRatioDataModel;
 import org.earthtime.Tripoli.dataViews.AbstractRawDataView;
+import org.earthtime.Tripoli.dataViews.PixelDownsampler;
 import org.earthtime.Tripoli.fractions.TripoliFraction;
 import org.earthtime.dataDictionaries.IncludedTypeEnum;
 import org.earthtime.utilities.TicGeneratorForAxes;
@@ -42,6 +43,8 @@ public class CorrectedRatioDataView extends AbstractRawDataView {
      */
     public static int DEFAULT_WIDTH_OF_PANE = 128;
 
+    private transient final PixelDownsampler onPeakDownsampler;
+
     /**
      *
      * @param sampleSessionDataView
@@ -59,6 +62,7 @@ public class CorrectedRatioDataView extends AbstractRawDataView {
         super(sampleSessionDataView, tripoliFraction, bounds, invokeMouseListener, true);
 
         this.rawRatioDataModel = rawRatioDataModel;
+        this.onPeakDownsampler = new PixelDownsampler();
     }
 
     /**
@@ -135,7 +139,7 @@ public class CorrectedRatioDataView extends AbstractRawDataView {
         }
 
         // draw data points
-        for (int i = 0; i < myOnPeakData.length; i++) {
+        for (int i : pointsToDraw(onPeakDownsampler, myOnPeakNormalizedAquireTimes, 0.0, myOnPeakData, determineDataClasses())) {
             Shape rawRatioPoint = new java.awt.geom.Ellipse2D.Double( //
                     mapX(myOnPeakNormalizedAquireTimes[i]), mapY(myOnPeakData[i]), 1.0, 1.0);
             g2d.setPaint(determineDataColor(i, Color.black));
@@ -153,6 +157,7 @@ public class CorrectedRatioDataView extends AbstractRawDataView {
     public void preparePanel(boolean doReScale, boolean inLiveMode) {
 
         this.removeAll();
+        onPeakDownsampler.clear();
 
         if (doReScale) {
             setDisplayOffsetY(0.0);
@@ -28,6 +28,7 @@ import org.earthtime.Tripoli.dataModels.DataModelFitFunctionInterface;
 import org.earthtime.Tripoli.dataModels.DataModelInterface;
 import org.earthtime.Tripoli.dataModels.RawIntensityDataModel;
 import org.earthtime.Tripoli.dataViews.AbstractRawDataView;
+import org.earthtime.Tripoli.dataViews.PixelDownsampler;
 import org.earthtime.Tripoli.fractions.TripoliFraction;
 import org.earthtime.UPb_Redux.ReduxConstants;
 import org.earthtime.dataDictionaries.FitFunctionTypeEnum;
@@ -51,6 +52,8 @@ public class RawIntensitiesDataView extends AbstractRawDataView {
     private double[] onPeakIntensityUncorrectedForMercury;
     private double[] backgroundIntensityUncorrectedForMercury;
     private double[] onPeakFitBackgroundIntensities;
+    // one for each series drawn
+    private transient final PixelDownsampler[] downsamplers;
 
     /**
      *
@@ -70,6 +73,10 @@ public class RawIntensitiesDataView extends AbstractRawDataView {
 
         this.rawRatioDataModel = rawIsotopeDataModel;
         this.normalizedBackgroundAquireTimes = null;
+        this.downsamplers = new PixelDownsampler[6];
+        for (int i = 0; i < downsamplers.length; i++) {
+            downsamplers[i] = new PixelDownsampler();
+        }
     }
 
     /**
@@ -85,48 +92,58 @@ public class RawIntensitiesDataView extends AbstractRawDataView {
             g2d.drawString("BELOW DETECTION", 25, 25);
         }
 
+        boolean hasFitFunction = !((DataModelFitFunctionInterface) rawRatioDataModel).getSelectedFitFunctionType().equals(FitFunctionTypeEnum.NONE);
+        // check for presence of mercury corrections
+        boolean hasMercuryCorrections = (onPeakIntensityUncorrectedForMercury[0] != 0.0);
+
         // draw background intensities
-        for (int i = 0; i < backgroundIntensities.length; i++) {
+        g2d.setPaint(Color.BLACK);
+        for (int i : pointsToDraw(downsamplers[0], normalizedBackgroundAquireTimes, 0.0, backgroundIntensities, null)) {
             Shape intensity = new java.awt.geom.Ellipse2D.Double(//
                     mapX(normalizedBackgroundAquireTimes[i]), mapY(backgroundIntensities[i]), 1, 1);
-            g2d.setPaint(Color.BLACK);
             g2d.draw(intensity);
+        }
 
-            // test for presence of fitfunction (ie mercury has none)
-            if (!((DataModelFitFunctionInterface) rawRatioDataModel).getSelectedFitFunctionType().equals(FitFunctionTypeEnum.NONE)) {
+        // test for presence of fitfunction (ie mercury has none)
+        if (hasFitFunction) {
+            g2d.setPaint(Color.RED);
+            for (int i : pointsToDraw(downsamplers[1], normalizedBackgroundAquireTimes, 0.0, backgroundFitIntensities, null)) {
                 Shape background = new java.awt.geom.Ellipse2D.Double( //
                         mapX(normalizedBackgroundAquireTimes[i]), mapY(backgroundFitIntensities[i]), 1, 1);
-                g2d.setPaint(Color.RED);
                 g2d.draw(background);
             }
+        }
 
-            // check for presence of mercury corrections
-            if (onPeakIntensityUncorrectedForMercury[0] != 0.0) {
+        if (hasMercuryCorrections) {
+            g2d.setPaint(Color.GREEN);
+            for (int i : pointsToDraw(downsamplers[2], normalizedBackgroundAquireTimes, 0.0, backgroundIntensityUncorrectedForMercury, null)) {
                 Shape correction = new java.awt.geom.Ellipse2D.Double( //
                         mapX(normalizedBackgroundAquireTimes[i]), mapY(backgroundIntensityUncorrectedForMercury[i]), 1, 1);
-                g2d.setPaint(Color.GREEN);
                 g2d.draw(correction);
             }
         }
 
         shiftAquiredTimeIndex = normalizedBackgroundAquireTimes[normalizedBackgroundAquireTimes.length - 1] + 1;
-        for (int i = 0; i < myOnPeakData.length; i++) {
+        byte[] dataClasses = determineDataClasses();
+        for (int i : pointsToDraw(downsamplers[3], myOnPeakNormalizedAquireTimes, shiftAquiredTimeIndex, myOnPeakData, dataClasses)) {
             Shape intensity = new java.awt.geom.Ellipse2D.Double( //
                     mapX(shiftAquiredTimeIndex + myOnPeakNormalizedAquireTimes[i]), mapY(myOnPeakData[i]), 1, 1);
             g2d.setPaint(determineDataColor(i, Color.black));
 
             g2d.draw(intensity);
+        }
 
-            // test for presence of fitfunction (ie mercury has none)
-            if (!((DataModelFitFunctionInterface) rawRatioDataModel).getSelectedFitFunctionType().equals(FitFunctionTypeEnum.NONE)) {
+        if (hasFitFunction) {
+            g2d.setPaint(Color.BLUE);
+            for (int i : pointsToDraw(downsamplers[4], myOnPeakNormalizedAquireTimes, shiftAquiredTimeIndex, onPeakFitBackgroundIntensities, null)) {
                 Shape background = new java.awt.geom.Ellipse2D.Double( //
                         mapX(shiftAquiredTimeIndex + myOnPeakNormalizedAquireTimes[i]), mapY(onPeakFitBackgroundIntensities[i]), 1, 1);
-                g2d.setPaint(Color.BLUE);
                 g2d.draw(background);
             }
+        }
 
-            // check for presence of mercury corrections
-            if (onPeakIntensityUncorrectedForMercury[0] != 0.0) {
+        if (hasMercuryCorrections) {
+            for (int i : pointsToDraw(downsamplers[5], myOnPeakNormalizedAquireTimes, shiftAquiredTimeIndex, onPeakIntensityUncorrectedForMercury, dataClasses)) {
                 Shape correction = new java.awt.geom.Ellipse2D.Double( //
                         mapX(shiftAquiredTimeIndex + myOnPeakNormalizedAquireTimes[i]), mapY(onPeakIntensityUncorrectedForMercury[i]), 1, 1);
                 g2d.setPaint(determineDataColor(i, Color.GREEN));
@@ -144,6 +161,9 @@ public class RawIntensitiesDataView extends AbstractRawDataView {
     public void preparePanel(boolean doReScale, boolean inLiveMode) {
 
         this.removeAll();
+        for (PixelDownsampler downsampler : downsamplers) {
+            downsampler.clear();
+        }
 
         // walk intensities and get min and max for axes
         backgroundIntensities = ((RawIntensityDataModel) rawRatioDataModel).getBackgroundCountsPerSecondAsRawIntensities();//     .getBackgroundVirtualCollector().getIntensities();
@@ -27,6 +27,7 @@ import javax.swing.JLayeredPane;
 import org.earthtime.Tripoli.dataModels.DataModelInterface;
 import org.earthtime.Tripoli.dataModels.RawRatioDataModel;
 import org.earthtime.Tripoli.dataViews.AbstractRawDataView;
+import org.earthtime.Tripoli.dataViews.PixelDownsampler;
 import org.earthtime.Tripoli.fractions.TripoliFraction;
 import org.earthtime.UPb_Redux.ReduxConstants;
 import org.earthtime.dataDictionaries.IncludedTypeEnum;
@@ -43,6 +44,8 @@ public class RawRatioDataView extends AbstractRawDataView {
      */
     public static int DEFAULT_WIDTH_OF_PANE = 128;
 
+    private transient final PixelDownsampler onPeakDownsampler;
+
     /**
      *
      * @param sampleSessionDataView
@@ -60,6 +63,7 @@ public class RawRatioDataView extends AbstractRawDataView {
         super(sampleSessionDataView, tripoliFraction, bounds, invokeMouseListener, true);
 
         this.rawRatioDataModel = rawRatioDataModel;
+        this.onPeakDownsampler = new PixelDownsampler();
 
     }
 
@@ -77,7 +81,7 @@ public class RawRatioDataView extends AbstractRawDataView {
         }
 
         if (!isNotShownDueToBelowDetectionFlag()) {
-            for (int i = 0; i < myOnPeakData.length; i++) {
+            for (int i : pointsToDraw(onPeakDownsampler, myOnPeakNormalizedAquireTimes, 0.0, myOnPeakData, determineDataClasses())) {
                 Shape rawRatioPoint = new java.awt.geom.Ellipse2D.Double( //
                         mapX(myOnPeakNormalizedAquireTimes[i]), mapY(myOnPeakData[i]), 1, 1);
                 g2d.setPaint(determineDataColor(i, Color.black));
@@ -96,6 +100,7 @@ public class RawRatioDataView extends AbstractRawDataView {
     public void preparePanel(boolean doReScale, boolean inLiveMode) {
 
         this.removeAll();
+        onPeakDownsampler.clear();
 
         // normalize aquireTimes
         myOnPeakNormalizedAquireTimes = rawRatioDataModel.getNormalizedOnPeakAquireTimes();
@@ -26,6 +26,7 @@ import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import org.earthtime.dataDictionaries.FitFunctionTypeEnum;
+import org.earthtime.utilities.jamaHelpers.DiagonalPlusLowRankMatrix;
 
 /**
  *
@@ -133,6 +134,17 @@ public abstract class AbstractFunctionOfX implements Serializable {
      */
     protected Matrix matrixSf;
 
+    /**
+     * matrixSf = matrixSfLeftFactor * matrixSfInnerCovariance *
+     * matrixSfLeftFactor'; the dense matrixSf is only formed on request
+     */
+    protected Matrix matrixSfLeftFactor;
+
+    /**
+     *
+     */
+    protected Matrix matrixSfInnerCovariance;
+
     // nov 2014
     protected Matrix matrixJacobianYInterceptLogRatioXY;
     protected double[] diagonalOfSessionUnknownsAnalyticalCovarianceSu;
@@ -182,6 +194,8 @@ public abstract class AbstractFunctionOfX implements Serializable {
         this.overDispersion = 0.0;
         this.matrixJyp = null;
         this.matrixSf = null;
+        this.matrixSfLeftFactor = null;
+        this.matrixSfInnerCovariance = null;
     }
 
     /**
@@ -229,8 +243,12 @@ public abstract class AbstractFunctionOfX implements Serializable {
         } catch (Exception e) {
         }
         try {
-            setMatrixSf(copyFrom.getMatrixSf().copy());
+            setMatrixSfFactors(copyFrom.getMatrixSfLeftFactor().copy(), copyFrom.getMatrixSfInnerCovariance().copy());
         } catch (Exception e) {
+            try {
+                setMatrixSf(copyFrom.getMatrixSf().copy());
+            } catch (Exception e2) {
+            }
         }
 
     }
@@ -763,6 +781,9 @@ public abstract class AbstractFunctionOfX implements Serializable {
      * @return the matrixSf
      */
     public Matrix getMatrixSf() {
+        if ((matrixSf == null) && (matrixSfLeftFactor != null)) {
+            matrixSf = matrixSfLeftFactor.times(matrixSfInnerCovariance).times(matrixSfLeftFactor.transpose());
+        }
         return matrixSf;
     }
 
@@ -771,6 +792,82 @@ public abstract class AbstractFunctionOfX implements Serializable {
      */
     public void setMatrixSf(Matrix matrixSf) {
         this.matrixSf = matrixSf;
+        this.matrixSfLeftFactor = null;
+        this.matrixSfInnerCovariance = null;
+    }
+
+    /**
+     * Sets matrixSf in factored form as leftFactor * innerCovariance *
+     * leftFactor' and discards any dense copy.
+     *
+     * @param leftFactor
+     * @param innerCovariance
+     */
+    public void setMatrixSfFactors(Matrix leftFactor, Matrix innerCovariance) {
+        this.matrixSf = null;
+        this.matrixSfLeftFactor = leftFactor;
+        this.matrixSfInnerCovariance = innerCovariance;
+    }
+
+    /**
+     * Sets matrixSf in factored form and returns its diagonal without forming
+     * the dense matrix.
+     *
+     * @param leftFactor
+     * @param innerCovariance
+     * @return the diagonal of leftFactor * innerCovariance * leftFactor'
+     */
+    protected double[] setMatrixSfFactorsAndCalculateDiagonal(Matrix leftFactor, Matrix innerCovariance) {
+        setMatrixSfFactors(leftFactor, innerCovariance);
+
+        double[][] leftTimesInner = leftFactor.times(innerCovariance).getArray();
+        double[][] left = leftFactor.getArray();
+        double[] stdVariances = new double[left.length];
+        for (int i = 0; i < stdVariances.length; i++) {
+            for (int j = 0; j < left[i].length; j++) {
+                stdVariances[i] += leftTimesInner[i][j] * left[i][j];
+            }
+        }
+
+        return stdVariances;
+    }
+
+    /**
+     * @return true if matrixSf is available, densely or in factored form
+     */
+    public boolean hasMatrixSf() {
+        return (matrixSf != null) || (matrixSfLeftFactor != null);
+    }
+
+    /**
+     * @return the matrixSfLeftFactor
+     */
+    public Matrix getMatrixSfLeftFactor() {
+        return matrixSfLeftFactor;
+    }
+
+    /**
+     * @return the matrixSfInnerCovariance
+     */
+    public Matrix getMatrixSfInnerCovariance() {
+        return matrixSfInnerCovariance;
+    }
+
+    /**
+     * Provides matrixSf as a DiagonalPlusLowRankMatrix with zero diagonal, or
+     * holding a dense matrixSf as is if no factors are available.
+     *
+     * @return null if no matrixSf
+     */
+    public DiagonalPlusLowRankMatrix getMatrixSfFactored() {
+        DiagonalPlusLowRankMatrix retVal = null;
+        if (matrixSfLeftFactor != null) {
+            retVal = new DiagonalPlusLowRankMatrix(//
+                    new double[matrixSfLeftFactor.getRowDimension()], matrixSfLeftFactor, matrixSfInnerCovariance);
+        } else if (matrixSf != null) {
+            retVal = DiagonalPlusLowRankMatrix.fromDenseMatrix(matrixSf);
+        }
+        return retVal;
     }
 
     /**
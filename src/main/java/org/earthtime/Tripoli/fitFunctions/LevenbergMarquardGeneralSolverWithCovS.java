@@ -1180,12 +1180,9 @@ public class LevenbergMarquardGeneralSolverWithCovS implements FitFunctionInterf
         public double[] calculateInterpolatedVariances(Matrix Jf, double[] timesForMatrix) {
             // Matrix Jf not used in this fitfunction
 
-            matrixSf = new Matrix(timesForMatrix.length, timesForMatrix.length, fitParameterCovarianceMatrix.get(0, 0));
-
-            double[] stdVariances = new double[matrixSf.getRowDimension()];
-            for (int i = 0; i < stdVariances.length; i++) {
-                stdVariances[i] = matrixSf.get(i, i);
-            }
+            // every entry of matrixSf is the variance of the mean, so keep it as ones * var * ones'
+            double[] stdVariances = setMatrixSfFactorsAndCalculateDiagonal(//
+                    new Matrix(timesForMatrix.length, 1, 1.0), fitParameterCovarianceMatrix.getMatrix(0, 0, 0, 0));
             return stdVariances;
         }
 
@@ -1281,12 +1278,8 @@ public class LevenbergMarquardGeneralSolverWithCovS implements FitFunctionInterf
         @Override
         public double[] calculateInterpolatedVariances(Matrix Jf, double[] timesForMatrix) {
 
-            matrixSf = Jf.times(fitParameterCovarianceMatrix.getMatrix(0, 1, 0, 1)).times(Jf.transpose());
-
-            double[] stdVariances = new double[matrixSf.getRowDimension()];
-            for (int i = 0; i < stdVariances.length; i++) {
-                stdVariances[i] = matrixSf.get(i, i);
-            }
+            // Jf is reused by the caller, so the factor is a copy
+            double[] stdVariances = setMatrixSfFactorsAndCalculateDiagonal(Jf.copy(), fitParameterCovarianceMatrix.getMatrix(0, 1, 0, 1));
 
             return stdVariances;
         }
@@ -1405,11 +1398,8 @@ public class LevenbergMarquardGeneralSolverWithCovS implements FitFunctionInterf
             double[] stdVariances = new double[0];
 
             try {
-                matrixSf = Jf.times(fitParameterCovarianceMatrix.getMatrix(0, 2, 0, 2)).times(Jf.transpose());
-                stdVariances = new double[matrixSf.getRowDimension()];
-                for (int i = 0; i < stdVariances.length; i++) {
-                    stdVariances[i] = matrixSf.get(i, i);
-                }
+                // Jf is reused by the caller, so the factor is a copy
+                stdVariances = setMatrixSfFactorsAndCalculateDiagonal(Jf.copy(), fitParameterCovarianceMatrix.getMatrix(0, 2, 0, 2));
             } catch (Exception e) {
             }
             return stdVariances;
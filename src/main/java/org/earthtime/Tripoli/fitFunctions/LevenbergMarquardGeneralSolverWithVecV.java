@@ -1228,12 +1228,9 @@ public class LevenbergMarquardGeneralSolverWithVecV implements FitFunctionInterf
         public double[] calculateInterpolatedVariances(Matrix Jf, double[] timesForMatrix) {
             // Matrix Jf not used in this fitfunction
 
-            matrixSf = new Matrix(timesForMatrix.length, timesForMatrix.length, fitParameterCovarianceMatrix.get(0, 0));
-
-            double[] stdVariances = new double[matrixSf.getRowDimension()];
-            for (int i = 0; i < stdVariances.length; i++) {
-                stdVariances[i] = matrixSf.get(i, i);
-            }
+            // every entry of matrixSf is the variance of the mean, so keep it as ones * var * ones'
+            double[] stdVariances = setMatrixSfFactorsAndCalculateDiagonal(//
+                    new Matrix(timesForMatrix.length, 1, 1.0), fitParameterCovarianceMatrix.getMatrix(0, 0, 0, 0));
             return stdVariances;
         }
 
@@ -1329,12 +1326,8 @@ public class LevenbergMarquardGeneralSolverWithVecV implements FitFunctionInterf
         @Override
         public double[] calculateInterpolatedVariances(Matrix Jf, double[] timesForMatrix) {
 
-            matrixSf = Jf.times(fitParameterCovarianceMatrix.getMatrix(0, 1, 0, 1)).times(Jf.transpose());
-
-            double[] stdVariances = new double[matrixSf.getRowDimension()];
-            for (int i = 0; i < stdVariances.length; i++) {
-                stdVariances[i] = matrixSf.get(i, i);
-            }
+            // Jf is reused by the caller, so the factor is a copy
+            double[] stdVariances = setMatrixSfFactorsAndCalculateDiagonal(Jf.copy(), fitParameterCovarianceMatrix.getMatrix(0, 1, 0, 1));
 
             return stdVariances;
         }
@@ -1451,12 +1444,8 @@ public class LevenbergMarquardGeneralSolverWithVecV implements FitFunctionInterf
                 Jf.set(i, 2, 1.0);
             }
 
-            matrixSf = Jf.times(fitParameterCovarianceMatrix.getMatrix(0, 2, 0, 2)).times(Jf.transpose());
-
-            double[] stdVariances = new double[matrixSf.getRowDimension()];
-            for (int i = 0; i < stdVariances.length; i++) {
-                stdVariances[i] = matrixSf.get(i, i);
-            }
+            // Jf is reused by the caller, so the factor is a copy
+            double[] stdVariances = setMatrixSfFactorsAndCalculateDiagonal(Jf.copy(), fitParameterCovarianceMatrix.getMatrix(0, 2, 0, 2));
 
             return stdVariances;
         }
@@ -22,7 +22,7 @@ package org.earthtime.Tripoli.fitFunctions;
 import Jama.Matrix;
 import java.io.Serializable;
 import org.earthtime.dataDictionaries.FitFunctionTypeEnum;
-import org.earthtime.statistics.NonParametricStats;
+import org.earthtime.statistics.SampleSummary;
 
 /**
  *
@@ -123,10 +123,7 @@ public class LineFitFunction implements FitFunctionInterface, Serializable {
          *  The square root of the lower right term in this matrix is the 1-sigma absolute uncertainty in the slope.
          */
 
-        NonParametricStats nonParametricStats = NonParametricStats.getInstance();
-        nonParametricStats.calculateStats( dataActiveMap, residuals );
-
-        double s = nonParametricStats.getVariance() / index;
+        double s = SampleSummary.of( dataActiveMap, residuals ).getVariance() / index;
 
         myFofX.setFitParameterCovarianceMatrix( C.inverse().times( s ) );
 
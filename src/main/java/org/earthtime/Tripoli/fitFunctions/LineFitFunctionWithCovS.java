@@ -177,12 +177,8 @@ public class LineFitFunctionWithCovS implements FitFunctionInterface, Serializab
         @Override
         public double[] calculateInterpolatedVariances(Matrix Jf, double[] timesForMatrix) {
 
-            matrixSf = Jf.times(fitParameterCovarianceMatrix.getMatrix(0, 1, 0, 1)).times(Jf.transpose());
-
-            double[] stdVariances = new double[matrixSf.getRowDimension()];
-            for (int i = 0; i < stdVariances.length; i++) {
-                stdVariances[i] = matrixSf.get(i, i);
-            }
+            // Jf is reused by the caller, so the factor is a copy
+            double[] stdVariances = setMatrixSfFactorsAndCalculateDiagonal(Jf.copy(), fitParameterCovarianceMatrix.getMatrix(0, 1, 0, 1));
 
             return stdVariances;
         }
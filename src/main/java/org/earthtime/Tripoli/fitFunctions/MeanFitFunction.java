@@ -22,7 +22,7 @@ package org.earthtime.Tripoli.fitFunctions;
 import Jama.Matrix;
 import java.io.Serializable;
 import org.earthtime.dataDictionaries.FitFunctionTypeEnum;
-import org.earthtime.statistics.NonParametricStats;
+import org.earthtime.statistics.SampleSummary;
 
 /**
  *
@@ -62,11 +62,10 @@ public class MeanFitFunction implements FitFunctionInterface, Serializable {
     @Override
     public AbstractFunctionOfX getFunctionOfX(boolean[] dataActiveMap, double[] xValues, double[] yValues, Matrix Sib, boolean calculateHatMatrix) {
 
-        NonParametricStats nonParametricStats = NonParametricStats.getInstance();
-        nonParametricStats.calculateStats(dataActiveMap, yValues);
+        SampleSummary summary = SampleSummary.of(dataActiveMap, yValues);
 
         // create function of x for mean
-        AbstractFunctionOfX myFofX = new FofX(nonParametricStats.getSampleMean());
+        AbstractFunctionOfX myFofX = new FofX(summary.getMean());
 
         // calculate sumSquaredErrors
         double sse = 0.0;
@@ -85,7 +84,7 @@ public class MeanFitFunction implements FitFunctionInterface, Serializable {
 
         // square the entry so that it serves as the variance
         myFofX.setFitParameterCovarianceMatrix(new Matrix( //
-                new double[][]{{Math.pow(nonParametricStats.getStdErrSampleMean(), 2)}}));
+                new double[][]{{Math.pow(summary.getStdErrSampleMean(), 2)}}));
 
         myFofX.setCountOfActiveData(countOfActiveData);
 
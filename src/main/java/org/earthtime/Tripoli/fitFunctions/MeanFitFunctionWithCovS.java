@@ -165,12 +165,9 @@ public class MeanFitFunctionWithCovS implements FitFunctionInterface, Serializab
         public double[] calculateInterpolatedVariances ( Matrix Jf, double[] timesForMatrix ) {
             // Matrix Jf not used in this fitfunction
 
-            matrixSf = new Matrix( timesForMatrix.length, timesForMatrix.length, fitParameterCovarianceMatrix.get( 0, 0 ) );
-
-            double[] stdVariances = new double[matrixSf.getRowDimension()];
-            for (int i = 0; i < stdVariances.length; i ++) {
-                stdVariances[i] = matrixSf.get( i, i );
-            }
+            // every entry of matrixSf is the variance of the mean, so keep it as ones * var * ones'
+            double[] stdVariances = setMatrixSfFactorsAndCalculateDiagonal(//
+                    new Matrix( timesForMatrix.length, 1, 1.0 ), fitParameterCovarianceMatrix.getMatrix( 0, 0, 0, 0 ));
             return stdVariances;
         }
 
@@ -412,12 +412,7 @@ public class SmoothingSplineWithCov implements FitFunctionInterface, Serializabl
         @Override
         public double[] calculateInterpolatedVariances(Matrix Jf, double[] timesForMatrix) {
             // timesForMatrix not used in this fitfunction
-            matrixSf = Jf.times(hatMatrix).times(Ss).times(hatMatrix.transpose()).times(Jf.transpose());
-
-            double[] stdVariances = new double[matrixSf.getRowDimension()];
-            for (int i = 0; i < stdVariances.length; i++) {
-                stdVariances[i] = matrixSf.get(i, i);
-            }
+            double[] stdVariances = setMatrixSfFactorsAndCalculateDiagonal(Jf.times(hatMatrix), Ss);
 
             return stdVariances;
         }
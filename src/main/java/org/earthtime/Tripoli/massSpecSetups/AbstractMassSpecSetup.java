@@ -20,13 +20,8 @@
 package org.earthtime.Tripoli.massSpecSetups;
 
 import Jama.Matrix;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumMap;
@@ -38,9 +33,11 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.earthtime.Tripoli.dataModels.DataModelFitFunctionInterface;
 import org.earthtime.Tripoli.dataModels.DataModelInterface;
 import org.earthtime.Tripoli.dataModels.DownholeFractionationDataModel;
+import org.earthtime.Tripoli.dataModels.FractionIntensities;
 import org.earthtime.Tripoli.dataModels.MaskingSingleton;
 import org.earthtime.Tripoli.dataModels.RawIntensityDataModel;
 import org.earthtime.Tripoli.dataModels.RawRatioDataModel;
@@ -52,12 +49,15 @@ import org.earthtime.Tripoli.dataModels.collectorModels.IonCounterCollectorModel
 import org.earthtime.Tripoli.fractions.TripoliFraction;
 import org.earthtime.UPb_Redux.valueModels.ValueModel;
 import org.earthtime.dataDictionaries.FitFunctionTypeEnum;
+import org.earthtime.dataDictionaries.FractionProcessingStagesEnum;
 import org.earthtime.dataDictionaries.IsotopeNames;
 import org.earthtime.dataDictionaries.MassSpecTypeEnum;
 import org.earthtime.dataDictionaries.RawRatioNames;
+import org.earthtime.dataDictionaries.TripoliProcessingSettingsEnum;
 import org.earthtime.isotopes.IsotopesEnum;
 import org.earthtime.ratioDataModels.AbstractRatiosDataModel;
-import org.earthtime.statistics.NonParametricStats;
+import org.earthtime.statistics.RobustStatistics;
+import org.earthtime.statistics.SampleSummary;
 
 /**
  *
@@ -69,6 +69,8 @@ public abstract class AbstractMassSpecSetup implements //
 
     // Class variables
     private static final long serialVersionUID = -7767996777129217194L;
+    private static final boolean RUNNING_UNDER_DEBUGGER = java.lang.management.ManagementFactory.getRuntimeMXBean().
+            getInputArguments().toString().indexOf("-Xdebug") > 0;
 
     /**
      *
@@ -158,7 +160,13 @@ public abstract class AbstractMassSpecSetup implements //
      *
      */
     protected boolean useConstantBackgroundFitFunction;
-    private transient boolean isFirstReport = true;
+    // settings changed since each fraction was processed
+    private FractionStageDependencyTracker stageDependencyTracker;
+    // results of the intensity stages by fraction ID, from which the stages
+    // after them are performed again; not saved, so lost with the session
+    private transient Map<String, Map<FractionProcessingStagesEnum, FractionIntensities>> fractionIntensitiesByStage;
+    // optional observers such as the standards data check report
+    private transient List<FractionProcessingObserverInterface> fractionProcessingObservers;
     // jan 2014
 
     /**
@@ -201,6 +209,7 @@ public abstract class AbstractMassSpecSetup implements //
         this.useConstantBackgroundFitFunction = false;
         this.commonLeadCorrectionHighestLevel = "NONE";
         this.virtualCollectorModelMapToFieldIndexes = new HashMap<>();
+        this.stageDependencyTracker = new FractionStageDependencyTracker();
     }
 
     /**
@@ -267,36 +276,7 @@ public abstract class AbstractMassSpecSetup implements //
      * @param ripoliFraction the value of ripoliFraction
      */
     public void reProcessFractionRawRatios(boolean usingFullPropagation, String fractionID, TripoliFraction tripoliFraction) {
-        performBackgroundFitting(usingFullPropagation);
-
-        correctOnPeakIntensitiesWithBackFitFunction();
-        if (Pb204 != null) {
-            validateOnPeakBaselineCorrectedIsotope(Pb204, fractionID);
-        }
-
-        // modification march 2014 to handle agilent see Noah email 3 mar 2014
-        // We should disregard this test if the instrument is a 'single collector ion counter', like the Agilent 7700 and Jeff's Thermo Element2.
-        if (Pb207 != null) {
-            AbstractCollectorModel collector = collectorNameToModelMap.get(Pb207.getCollectorModel().getCollectorName());//              getDataModelName());
-            if (!(massSpecType.compareTo(MassSpecTypeEnum.SINGLE) == 0) || !(collector instanceof IonCounterCollectorModel)) {
-                validateOnPeakBaselineCorrectedIsotope(Pb207, tripoliFraction.getFractionID());
-            }
-        }
-
-        adjustNonPositiveCorrectedIntensities();
-        calculateLogOnPeakCorrectedIntensities();
-
-        calculateRawAndLogRatios();
-
-        tripoliFraction.reProcessToRejectNegativeRatios();
-
-        propagateUnctInBaselineCorrOnPeakIntensities();
-
-        propagateUnctInRatios(usingFullPropagation);
-
-        performInterceptFittingToRatios(false);
-
-        cleanupUnctCalcs();
+        processFractionRawRatiosFromStage(FractionProcessingStagesEnum.BACKGROUND_FITTING, usingFullPropagation, tripoliFraction, false);
     }
 
     /**
@@ -346,7 +326,9 @@ public abstract class AbstractMassSpecSetup implements //
     public void processFractionRawRatiosII(//
             List<double[]> backgroundACFs, List<double[]> peakACFs, List<double[]> backgroundAcquisitions, List<double[]> peakAcquisitions, boolean usingFullPropagation, TripoliFraction tripoliFraction, boolean inLiveMode) {
 
-        initializeVirtualCollectorsWithData(backgroundACFs, peakACFs, backgroundAcquisitions, peakAcquisitions, virtualCollectorModelMapToFieldIndexes);
+        if (initializeVirtualCollectorsWithData(backgroundACFs, peakACFs, backgroundAcquisitions, peakAcquisitions, virtualCollectorModelMapToFieldIndexes)) {
+            getStageDependencyTracker().settingChanged(TripoliProcessingSettingsEnum.ANALOG_CORRECTION_FACTORS, tripoliFraction.getFractionID());
+        }
 
         processFractionRawRatiosStageII(usingFullPropagation, tripoliFraction, inLiveMode);
     }
@@ -368,6 +350,9 @@ public abstract class AbstractMassSpecSetup implements //
     }
 
     /**
+     * Performs the processing stages, in order, on the raw intensities already
+     * loaded into the virtual collectors, notifying any observers as each
+     * stage completes.
      *
      * @param usingFullPropagation the value of usingFullPropagation
      * @param tripoliFraction the value of tripoliFraction
@@ -375,263 +360,353 @@ public abstract class AbstractMassSpecSetup implements //
      */
     public void processFractionRawRatiosStageII(//
             boolean usingFullPropagation, TripoliFraction tripoliFraction, boolean inLiveMode) {
-        // make fresh set of rawratios with map of collector instances
-        boolean isStandard = tripoliFraction.isStandard();
 
-        String fractionID = tripoliFraction.getFractionID();
-
-        boolean isDebug = java.lang.management.ManagementFactory.getRuntimeMXBean().
-                getInputArguments().toString().indexOf("-Xdebug") > 0;
+        processFractionRawRatiosFromStage(FractionProcessingStagesEnum.RAW_INTENSITIES, usingFullPropagation, tripoliFraction, inLiveMode);
+    }
 
-        boolean writeReport = isStandard && isFirstReport & (!isDebug);
-//        boolean writeReport = isStandard && isFirstReport && (!isDebug) && tripoliFraction.getFractionID().equals("FC-5");
+    /**
+     * Performs the processing stages from firstStage onwards, relying on the
+     * results of the earlier stages still held by the fraction's models.
+     *
+     * @param firstStage
+     * @param usingFullPropagation
+     * @param tripoliFraction
+     * @param inLiveMode
+     */
+    public void processFractionRawRatiosFromStage(//
+            FractionProcessingStagesEnum firstStage, boolean usingFullPropagation, TripoliFraction tripoliFraction, boolean inLiveMode) {
 
-        PrintWriter outputWriter = null;
+        String fractionID = tripoliFraction.getFractionID();
 
-        if (writeReport) {
-            File dataValuesFile = new File("STANDARDS_DATA_CHECK_FILES" + File.separator + fractionID + ".txt");
-            try {
-                outputWriter = new PrintWriter(new FileWriter(dataValuesFile));
-                outputWriter.println("******   STANDARD " + fractionID + "  DATA CHECK ********************");
-            } catch (IOException iOException) {
+        for (FractionProcessingStagesEnum stage : FractionProcessingStagesEnum.values()) {
+            if (stage.compareTo(firstStage) >= 0) {
+                performFractionProcessingStage(stage, usingFullPropagation, tripoliFraction, inLiveMode);
             }
-            isFirstReport = false;
+        }
 
+        getStageDependencyTracker().fractionProcessed(fractionID, firstStage);
+
+        cleanupUnctCalcs();
+
+        for (FractionProcessingObserverInterface observer : getFractionProcessingObservers()) {
+            observer.fractionProcessingCompleted(fractionID);
         }
+    }
 
-        if (writeReport) {
-            if (outputWriter != null) {
-                outputWriter.println("\n\n1: Raw intensities, baseline and on-peak (as volts or cps) ********************");
-                for (DataModelInterface dm : genericIsotopeModels) {
-                    outputWriter.println(((RawIntensityDataModel) dm).outputIntensities());
-                }
+    /**
+     * Performs again, for each fraction, only the stages that depend on a
+     * setting changed since the fraction was last processed. This setup is
+     * bound to the models of each fraction in turn, and the intensities held
+     * for the fraction from the latest stage before its first stale stage are
+     * restored to them.
+     *
+     * @param tripoliFractions
+     * @param usingFullPropagation
+     * @return false, with nothing performed, if any fraction needs its raw
+     * data reloaded; true otherwise
+     */
+    public boolean reProcessStaleFractionStages(SortedSet<TripoliFraction> tripoliFractions, boolean usingFullPropagation) {
+        FractionStageDependencyTracker tracker = getStageDependencyTracker();
+        for (TripoliFraction tf : tripoliFractions) {
+            FractionProcessingStagesEnum firstStaleStage = tracker.getFirstStaleStage(tf.getFractionID());
+            if ((firstStaleStage != null)//
+                    && (tracker.isRawDataReloadRequired(tf.getFractionID())//
+                    || !hasFractionIntensitiesBefore(tf.getFractionID(), firstStaleStage)//
+                    || (fractionIsotopeModels(tf) == null))) {
+                return false;
             }
         }
 
-        convertRawIntensitiesToCountsPerSecond();
-
-        if (writeReport) {
-            outputWriter.println("\n\n2: Intensities converted to cps, baseline and on-peak ********************");
-            for (DataModelInterface dm : genericIsotopeModels) {
-                outputWriter.println(((RawIntensityDataModel) dm).outputIntensities());
+        for (TripoliFraction tf : tripoliFractions) {
+            FractionProcessingStagesEnum firstStaleStage = tracker.getFirstStaleStage(tf.getFractionID());
+            if (firstStaleStage != null) {
+                bindFractionModels(tf);
+                restoreFractionIntensities(tf.getFractionID(), firstStaleStage);
+                processFractionRawRatiosFromStage(firstStaleStage, usingFullPropagation, tf, false);
             }
         }
 
-        isotopeMappingModel.calculateAllIntensityMatrixSDiagonals();
+        return true;
+    }
 
-        if ((Hg202 != null) && (Pb204 != null)) {
-            calculateCorrectionForIsobaricInterference(Hg202, Pb204);
+    private Map<FractionProcessingStagesEnum, FractionIntensities> getFractionIntensities(String fractionID) {
+        if (fractionIntensitiesByStage == null) {
+            fractionIntensitiesByStage = new HashMap<>();
         }
+        return fractionIntensitiesByStage.computeIfAbsent(fractionID, (id) -> new EnumMap<>(FractionProcessingStagesEnum.class));
+    }
 
-        // begin fast vs slow **************************************************
-        performBackgroundFitting(usingFullPropagation);//usingFullPropagation );
-
-        correctOnPeakIntensitiesWithBackFitFunction();
+    /**
+     * The stages before background fitting replace the intensities, so they
+     * can be performed again only from intensities held from an earlier
+     * stage.
+     */
+    private boolean hasFractionIntensitiesBefore(String fractionID, FractionProcessingStagesEnum stage) {
+        return (stage.compareTo(FractionProcessingStagesEnum.BACKGROUND_FITTING) >= 0)//
+                || ((fractionIntensitiesByStage != null) && fractionIntensitiesByStage.containsKey(fractionID)//
+                && fractionIntensitiesByStage.get(fractionID).keySet().stream().anyMatch((held) -> held.compareTo(stage) < 0));
+    }
 
-        if (writeReport) {
-            outputWriter.println("\n\n3: Si ********************");
-            for (DataModelInterface dm : genericIsotopeModels) {
-                if (!dm.equals(Hg202) && !dm.equals(Hf176)) {
-                    outputWriter.println(dm.getDataModelName());
-                    Matrix Si = ((RawIntensityDataModel) dm).getMatrixSiCovarianceIntensities();
-                    if (Si != null) {
-                        Si.print(outputWriter, new DecimalFormat("0.000000E00"), 10);
-                    } else {
-                        //fast uncertainty prop
-                        Si = ((RawIntensityDataModel) dm).getVectorSviVarianceIntensities();
-                        // march 2014
-                        // print diagonal
-                        for (int i = 0; i < Si.getColumnDimension(); i++) {
-                            outputWriter.print(Si.get(i, i) + ", ");
-                        }
-                        outputWriter.println();
-                        outputWriter.println();
-                    }
-                }
+    private void restoreFractionIntensities(String fractionID, FractionProcessingStagesEnum firstStage) {
+        FractionIntensities latest = null;
+        for (Map.Entry<FractionProcessingStagesEnum, FractionIntensities> held : getFractionIntensities(fractionID).entrySet()) {
+            if (held.getKey().compareTo(firstStage) < 0) {
+                latest = held.getValue();
             }
         }
-
-        if (writeReport) {
-            outputWriter.println("\n\n4: Fit parameters for baseline (a [b, c], fitParameterCovarianceMatrix, X2) ********************");
-            for (DataModelInterface dm : genericIsotopeModels) {
-                if (!dm.equals(Hg202) && !dm.equals(Hf176)) {
-                    outputWriter.println(((RawIntensityDataModel) dm).outputBaseLineFitFunctionParameters());
-                }
-            }
+        if (latest != null) {
+            latest.applyTo(genericIsotopeModels);
         }
+    }
 
-        if (writeReport) {
-            outputWriter.println("\n\n5: peakIntensityBLcorr (baseline-corrected on-peak intensities) ********************");
-            for (DataModelInterface dm : genericIsotopeModels) {
-                if (!dm.equals(Hg202) && !dm.equals(Hf176)) {
-                    outputWriter.println(((RawIntensityDataModel) dm).outputCorrectedIntensities());
-                }
-            }
+    private Map<IsotopeNames, AbstractCollectorModel> isotopeCollectorModels() {
+        Map<IsotopeNames, AbstractCollectorModel> collectorModels = new EnumMap<>(IsotopeNames.class);
+        for (DataModelInterface dm : genericIsotopeModels) {
+            collectorModels.put(((RawIntensityDataModel) dm).getRawIsotopeModelName(), ((RawIntensityDataModel) dm).getCollectorModel());
         }
+        return collectorModels;
+    }
 
-        if (Pb204 != null) {
-            validateOnPeakBaselineCorrectedIsotope(Pb204, fractionID);
+    /**
+     * The isotope models created for the fraction when its raw data were
+     * loaded, found through its raw ratios.
+     *
+     * @param tripoliFraction
+     * @return the models by name, or null if any of the isotopes of this setup
+     * is not used by a raw ratio of the fraction
+     */
+    private Map<String, RawIntensityDataModel> fractionIsotopeModels(TripoliFraction tripoliFraction) {
+        Map<String, RawIntensityDataModel> isotopeModels = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (DataModelInterface rr : tripoliFraction.getRawRatios()) {
+            for (RawIntensityDataModel im : new RawIntensityDataModel[]{//
+                ((RawRatioDataModel) rr).getTopIsotope(), ((RawRatioDataModel) rr).getBotIsotope()}) {
+                isotopeModels.put(im.getDataModelName(), im);
+            }
         }
 
-        // modification march 2014 to handle agilent see Noah email 3 mar 2014
-        // We should disregard this test if the instrument is a 'single collector ion counter', like the Agilent 7700 and Jeff's Thermo Element2.
-        if (Pb207 != null) {
-            AbstractCollectorModel collector = collectorNameToModelMap.get(Pb207.getCollectorModel().getCollectorName());//              getDataModelName());
-            if (!(massSpecType.compareTo(MassSpecTypeEnum.SINGLE) == 0) || !(collector instanceof IonCounterCollectorModel)) {
-                validateOnPeakBaselineCorrectedIsotope(Pb207, fractionID);
+        for (DataModelInterface dm : genericIsotopeModels) {
+            if (!isotopeModels.containsKey(dm.getDataModelName())) {
+                return null;
             }
         }
+        return isotopeModels;
+    }
 
-        adjustNonPositiveCorrectedIntensities();
-
-        calculateLogOnPeakCorrectedIntensities();
-
-        calculateRawAndLogRatios();
-
-        tripoliFraction.reProcessToRejectNegativeRatios();
-
-        propagateUnctInBaselineCorrOnPeakIntensities();
-
-        if (writeReport) {
-            outputWriter.println("\n\n6: J11, J21, J22, JOnPeak, Sopbc ********************");
-            for (DataModelInterface dm : genericIsotopeModels) {
-                if (!dm.equals(Hg202) && !dm.equals(Hf176)) {
-                    try {
-                        outputWriter.println(dm.getDataModelName());
-
-                        outputWriter.println("J11:");
-                        ((RawIntensityDataModel) dm).getJ11().print(outputWriter, new DecimalFormat("0.000000E00"), 10);
-
-                        outputWriter.println("J21:");
-                        ((RawIntensityDataModel) dm).getMatrixJ21().print(outputWriter, new DecimalFormat("0.000000E00"), 10);
-
-                        outputWriter.println("J22:");
-                        ((RawIntensityDataModel) dm).getJ22().print(outputWriter, new DecimalFormat("0.000000E00"), 10);
-
-                        outputWriter.println("JOnPeak:");
-                        ((RawIntensityDataModel) dm).getJOnPeak().print(outputWriter, new DecimalFormat("0.000000E00"), 10);
+    /**
+     * Points this setup's isotope models, virtual collectors and raw ratios
+     * at those of the fraction, which are created afresh as each fraction is
+     * loaded, so that the stages of any fraction can be performed again after
+     * later fractions have been loaded.
+     *
+     * @param tripoliFraction whose isotope models are all used by its raw
+     * ratios
+     */
+    private void bindFractionModels(TripoliFraction tripoliFraction) {
+        Map<String, RawIntensityDataModel> isotopeModels = fractionIsotopeModels(tripoliFraction);
 
-                        outputWriter.println("Sopbc:");
-                        ((RawIntensityDataModel) dm).getSopbc().print(outputWriter, new DecimalFormat("0.000000E00"), 10);
-                    } catch (Exception e) {
-                    }
-                }
-            }
+        SortedSet<DataModelInterface> fractionGenericIsotopeModels = new TreeSet<>();
+        virtualCollectors = new ArrayList<>();
+        for (DataModelInterface dm : genericIsotopeModels) {
+            RawIntensityDataModel im = isotopeModels.get(dm.getDataModelName());
+            fractionGenericIsotopeModels.add(im);
+            virtualCollectors.add(im.getBackgroundVirtualCollector());
+            virtualCollectors.add(im.getOnPeakVirtualCollector());
         }
+        genericIsotopeModels = fractionGenericIsotopeModels;
+        virtualCollectors.sort((vc1, vc2) -> Integer.compare(vc1.getCollectorNumber(), vc2.getCollectorNumber()));
 
-        if (writeReport) {
-            outputWriter.println("\n\n7: below the detection limit (boolean) for 204Pb and 207Pb ********************");
-            outputWriter.println("Currently Disabled ...");
+        for (Map.Entry<IsotopesEnum, DataModelInterface> entry : isotopeToRawIntensitiesMap.entrySet()) {
+            entry.setValue(isotopeModels.get(entry.getValue().getDataModelName()));
         }
-
-        if (writeReport) {
-            outputWriter.println("\n\n8: log-intensities (on-peak baseline-corrected) ********************");
-            for (DataModelInterface dm : genericIsotopeModels) {
-                if (!dm.equals(Hg202) && !dm.equals(Hf176)) {
-                    try {
-                        outputWriter.println(((RawIntensityDataModel) dm).outputCorrectedIntensitiesAsLogs());
-                    } catch (Exception e) {
-                    }
-                }
+        if (isotopeMappingModel != null) {
+            for (Map.Entry<IsotopesEnum, DataModelInterface> entry : isotopeMappingModel.getIsotopeToRawIntensitiesMap().entrySet()) {
+                entry.setValue(isotopeModels.get(entry.getValue().getDataModelName()));
             }
         }
 
-        if (writeReport) {
-            outputWriter.println("\n\n9: Jlogr, Jmat, Sopbclr   ********************");
-            for (DataModelInterface dm : genericIsotopeModels) {
-                if (!dm.equals(Hg202) && !dm.equals(Hf176)) {
-                    try {
-                        outputWriter.println(dm.getDataModelName());
-
-                        outputWriter.println("Jlogr:");
-                        ((RawIntensityDataModel) dm).getMatrixJlogr().print(outputWriter, new DecimalFormat("0.000000E00"), 10);
+        Hf176 = fractionIsotopeModel(isotopeModels, Hf176);
+        Hg202 = fractionIsotopeModel(isotopeModels, Hg202);
+        Hg201 = fractionIsotopeModel(isotopeModels, Hg201);
+        Pb204 = fractionIsotopeModel(isotopeModels, Pb204);
+        Pb206 = fractionIsotopeModel(isotopeModels, Pb206);
+        Pb207 = fractionIsotopeModel(isotopeModels, Pb207);
+        Pb208 = fractionIsotopeModel(isotopeModels, Pb208);
+        U235 = fractionIsotopeModel(isotopeModels, U235);
+        U238 = fractionIsotopeModel(isotopeModels, U238);
+        Th232 = fractionIsotopeModel(isotopeModels, Th232);
+        Zr2O196 = fractionIsotopeModel(isotopeModels, Zr2O196);
+        ThO248 = fractionIsotopeModel(isotopeModels, ThO248);
+        UO254 = fractionIsotopeModel(isotopeModels, UO254);
+        UO270 = fractionIsotopeModel(isotopeModels, UO270);
+
+        setRawRatios(tripoliFraction.getRawRatios());
+        countOfAcquisitions = ((RawIntensityDataModel) genericIsotopeModels.first()).getOnPeakVirtualCollector().getIntensities().length;
+    }
 
-                        outputWriter.println("Jmat:");
-                        ((RawIntensityDataModel) dm).getJmat().print(outputWriter, new DecimalFormat("0.000000E00"), 10);
+    private static DataModelInterface fractionIsotopeModel(Map<String, RawIntensityDataModel> isotopeModels, DataModelInterface isotopeModel) {
+        return (isotopeModel == null) ? null : isotopeModels.get(isotopeModel.getDataModelName());
+    }
 
-                        outputWriter.println("Sopbclr:");
-                        ((RawIntensityDataModel) dm).getSopbclr().print(outputWriter, new DecimalFormat("0.000000E00"), 10);
-                    } catch (Exception e) {
-                    }
-                }
-            }
+    /**
+     * @return the tracker of settings changed since fractions were processed
+     */
+    public FractionStageDependencyTracker getStageDependencyTracker() {
+        if (stageDependencyTracker == null) {
+            // absent from setups saved before tracking was introduced
+            stageDependencyTracker = new FractionStageDependencyTracker();
         }
+        return stageDependencyTracker;
+    }
 
-        if (writeReport) {
-            outputWriter.println("\n\n10: lr206Pb_207Pb, lr206Pb_238U, lr208Pb_232Th   ********************");
-            for (DataModelInterface rr : rawRatios) {
-                if (rr.getRawRatioModelName().compareTo(RawRatioNames.r202_202w) != 0) {
-                    try {
-                        outputWriter.println(((RawRatioDataModel) rr).outputLogRatios());
-                    } catch (Exception e) {
-                    }
+    /**
+     * Performs one processing stage on the fraction whose models are currently
+     * held by this setup, then notifies any observers. The intensity stages,
+     * up to the isobaric correction, are functions of the intensities held
+     * from the stage before: each result is held for the fraction and set
+     * into its models. From background fitting on, the stages work in place
+     * on the fraction's models and read what the earlier stages left there.
+     *
+     * @param stage
+     * @param usingFullPropagation
+     * @param tripoliFraction
+     * @param inLiveMode
+     */
+    protected void performFractionProcessingStage(//
+            FractionProcessingStagesEnum stage, boolean usingFullPropagation, TripoliFraction tripoliFraction, boolean inLiveMode) {
+
+        long startTime = System.nanoTime();
+        Map<FractionProcessingStagesEnum, FractionIntensities> fractionIntensities = getFractionIntensities(tripoliFraction.getFractionID());
+        FractionIntensities stageIntensities = null;
+
+        switch (stage) {
+            case RAW_INTENSITIES:
+                // loaded by initializeVirtualCollectorsWithData
+                fractionIntensities.clear();
+                stageIntensities = FractionIntensities.of(genericIsotopeModels);
+                break;
+            case COUNTS_PER_SECOND:
+                stageIntensities = fractionIntensities.get(FractionProcessingStagesEnum.RAW_INTENSITIES)//
+                        .convertedToCountsPerSecond(isotopeCollectorModels());
+                stageIntensities.applyTo(genericIsotopeModels);
+                break;
+            case INTENSITY_MATRIX_S_DIAGONALS:
+                isotopeMappingModel.calculateAllIntensityMatrixSDiagonals();
+                break;
+            case ISOBARIC_INTERFERENCE:
+                // update dec 2012
+                // isobaric correction is across both background and onpeak
+                // the graph of intensities for Pb204 will show the original data in green and the isobaric corrected in black
+                // it is the corrected data that will be background fitted
+                // the green "old intensities" will be caluted by adding the corrections back
+                stageIntensities = fractionIntensities.get(FractionProcessingStagesEnum.COUNTS_PER_SECOND);
+                if ((Hg202 != null) && (Pb204 != null)) {
+                    stageIntensities = stageIntensities.correctedForIsobaricInterference(//
+                            ((RawIntensityDataModel) Hg202).getRawIsotopeModelName(), //
+                            ((RawIntensityDataModel) Pb204).getRawIsotopeModelName(), //
+                            r202Hg_204Hg.getValue().doubleValue());
+                    stageIntensities.applyTo(genericIsotopeModels);
                 }
-            }
+                break;
+            case BACKGROUND_FITTING:
+                performBackgroundFitting(usingFullPropagation);
+                break;
+            case BACKGROUND_CORRECTION:
+                correctOnPeakIntensitiesWithBackFitFunction();
+                break;
+            case DETECTION_LIMITS:
+                validateDetectionLimits(tripoliFraction.getFractionID());
+                break;
+            case LOG_INTENSITIES:
+                adjustNonPositiveCorrectedIntensities();
+                calculateLogOnPeakCorrectedIntensities();
+                break;
+            case RAW_RATIOS:
+                calculateRawAndLogRatios();
+                tripoliFraction.reProcessToRejectNegativeRatios();
+                break;
+            case INTENSITY_UNCERTAINTIES:
+                propagateUnctInBaselineCorrOnPeakIntensities();
+                break;
+            case RATIO_UNCERTAINTIES:
+                // needed for first pass
+                propagateUnctInRatios(usingFullPropagation);
+                break;
+            case INTERCEPT_FITTING:
+                performInterceptFittingToRatios(inLiveMode);
+                break;
+            default:
+                break;
         }
 
-        propagateUnctInRatios(usingFullPropagation);//usingFullPropagation);// needed for first pass
-
-        performInterceptFittingToRatios(inLiveMode);
-
-        if (writeReport) {
-            outputWriter.println("\n\n11: Sxyod, Slr_X_Y for the three log-ratios   ********************");
-            for (DataModelInterface rr : rawRatios) {
-                if (((RawRatioDataModel) rr).isUsedForFractionationCorrections()) {
-                    try {
-                        outputWriter.println(rr.getDataModelName());
-                    } catch (Exception e) {
-                    }
+        if (stageIntensities != null) {
+            fractionIntensities.put(stage, stageIntensities);
+        }
 
-                    outputWriter.println("Sxyod:");
+        List<FractionProcessingObserverInterface> observers = getFractionProcessingObservers();
+        if (!observers.isEmpty()) {
+            SortedSet<DataModelInterface> interferenceIsotopeModels = new TreeSet<>();
+            if (Hg202 != null) {
+                interferenceIsotopeModels.add(Hg202);
+            }
+            if (Hf176 != null) {
+                interferenceIsotopeModels.add(Hf176);
+            }
 
-                    try {
-                        ((RawRatioDataModel) rr).getMatrixSxyod().print(outputWriter, new DecimalFormat("0.000000E00"), 10);
-                    } catch (Exception e) {
-                        outputWriter.println("\tNot Calculated because not two ioncounters present");
-                    }
+            FractionStageResult stageResult = new FractionStageResult(//
+                    stage, tripoliFraction.getFractionID(), tripoliFraction.isStandard(), //
+                    genericIsotopeModels, rawRatios, interferenceIsotopeModels, stageIntensities, System.nanoTime() - startTime);
 
-                    outputWriter.println("Slr_X_Y:");
-                    try {
-                        ((RawRatioDataModel) rr).getSlogRatioX_Y(false).print(outputWriter, new DecimalFormat("0.000000E00"), 10);
-                    } catch (Exception e) {
-                    }
-                }
+            for (FractionProcessingObserverInterface observer : observers) {
+                observer.stageCompleted(stageResult);
             }
         }
+    }
 
-        if (writeReport) {
-            outputWriter.println("\n\n12: Fit parameters for three log-ratios (a [b, c], fitParameterCovarianceMatrix, X2) ********************");
-            for (DataModelInterface rr : rawRatios) {
-                if (((RawRatioDataModel) rr).isUsedForFractionationCorrections()) {
-                    try {
-                        outputWriter.println(((RawRatioDataModel) rr).outputLogRatioFitFunctionParameters());
-                    } catch (Exception e) {
-                    }
-                }
-            }
+    private void validateDetectionLimits(String fractionID) {
+        if (Pb204 != null) {
+            validateOnPeakBaselineCorrectedIsotope(Pb204, fractionID);
         }
 
-        if (writeReport) {
-            outputWriter.println("\n\n13: Y-intercept values and uncertainties for three log-ratio fits ********************");
-            for (DataModelInterface rr : rawRatios) {
-                if (((RawRatioDataModel) rr).isUsedForFractionationCorrections()) {
-                    try {
-                        outputWriter.println(((RawRatioDataModel) rr).outputLogRatioFitFunctionYInterceptData());
-                    } catch (Exception e) {
-                    }
-                }
+        // modification march 2014 to handle agilent see Noah email 3 mar 2014
+        // We should disregard this test if the instrument is a 'single collector ion counter', like the Agilent 7700 and Jeff's Thermo Element2.
+        if (Pb207 != null) {
+            AbstractCollectorModel collector = collectorNameToModelMap.get(Pb207.getCollectorModel().getCollectorName());//              getDataModelName());
+            if (!(massSpecType.compareTo(MassSpecTypeEnum.SINGLE) == 0) || !(collector instanceof IonCounterCollectorModel)) {
+                validateOnPeakBaselineCorrectedIsotope(Pb207, fractionID);
             }
         }
+    }
 
-        cleanupUnctCalcs();
-
-        if (writeReport) {
-            outputWriter.println();
-
-            outputWriter.flush();
-            outputWriter.close();
+    /**
+     * The standards data check report is written unless running under a
+     * debugger.
+     *
+     * @return the observers of fraction processing, never null
+     */
+    public List<FractionProcessingObserverInterface> getFractionProcessingObservers() {
+        if (fractionProcessingObservers == null) {
+            fractionProcessingObservers = new CopyOnWriteArrayList<>();
+            if (!RUNNING_UNDER_DEBUGGER) {
+                fractionProcessingObservers.add(new StandardsDataCheckReportWriter());
+            }
         }
+        return fractionProcessingObservers;
+    }
+
+    /**
+     *
+     * @param observer
+     */
+    public void addFractionProcessingObserver(FractionProcessingObserverInterface observer) {
+        getFractionProcessingObservers().add(observer);
+    }
 
+    /**
+     *
+     * @param observer
+     */
+    public void removeFractionProcessingObserver(FractionProcessingObserverInterface observer) {
+        getFractionProcessingObservers().remove(observer);
     }
 
     private void cleanupUnctCalcs() {
@@ -704,34 +779,28 @@ public abstract class AbstractMassSpecSetup implements //
         double[] isotopeOPBC
                 = ((RawIntensityDataModel) isotope).getOnPeakVirtualCollector().getCorrectedIntensities();
 
-        NonParametricStats nonParametricStats = NonParametricStats.getInstance();
-
-        boolean belowDetection = nonParametricStats.determineIfBelowDetectionLimitUsingTwoSigma(dataActiveMap, isotopeOPBC);
-        boolean tenPercentOrMoreAreNegative = nonParametricStats.determineIfTenPercentOrMoreAreNegative(dataActiveMap, isotopeOPBC);
+        boolean belowDetection = RobustStatistics.isBelowDetectionLimitUsingTwoSigma(dataActiveMap, isotopeOPBC);
+        boolean tenPercentOrMoreAreNegative = RobustStatistics.isTenPercentOrMoreNegative(dataActiveMap, isotopeOPBC);
 
         // new logic Nov 2014
         // */204 ratios will be post-processed
         if (!belowDetection && (((RawIntensityDataModel) isotope).getRawIsotopeModelName().compareTo(IsotopeNames.Pb204) == 0) && tenPercentOrMoreAreNegative) {
             // prepare for ratios of means
             System.out.println(isotope.getDataModelName() + "above detection with MORE than 10% neg for " + fractionID);
-            nonParametricStats.calculateStats(dataActiveMap, isotopeOPBC);
             ((RawIntensityDataModel) Pb204).setForceMeanForCommonLeadRatios(true);
-            ((RawIntensityDataModel) Pb204).setForcedMeanForCommonLeadRatios(nonParametricStats.getSampleMean());
+            ((RawIntensityDataModel) Pb204).setForcedMeanForCommonLeadRatios(SampleSummary.of(dataActiveMap, isotopeOPBC).getMean());
 
             isotopeOPBC = ((RawIntensityDataModel) Pb206).getOnPeakVirtualCollector().getCorrectedIntensities();
-            nonParametricStats.calculateStats(dataActiveMap, isotopeOPBC);
             //((RawIntensityDataModel) Pb206).setForceMeanForCommonLeadRatios(true);
-            ((RawIntensityDataModel) Pb206).setForcedMeanForCommonLeadRatios(nonParametricStats.getSampleMean());
+            ((RawIntensityDataModel) Pb206).setForcedMeanForCommonLeadRatios(SampleSummary.of(dataActiveMap, isotopeOPBC).getMean());
 
             isotopeOPBC = ((RawIntensityDataModel) Pb207).getOnPeakVirtualCollector().getCorrectedIntensities();
-            nonParametricStats.calculateStats(dataActiveMap, isotopeOPBC);
             //((RawIntensityDataModel) Pb207).setForceMeanForCommonLeadRatios(true);
-            ((RawIntensityDataModel) Pb207).setForcedMeanForCommonLeadRatios(nonParametricStats.getSampleMean());
+            ((RawIntensityDataModel) Pb207).setForcedMeanForCommonLeadRatios(SampleSummary.of(dataActiveMap, isotopeOPBC).getMean());
 
             isotopeOPBC = ((RawIntensityDataModel) Pb208).getOnPeakVirtualCollector().getCorrectedIntensities();
-            nonParametricStats.calculateStats(dataActiveMap, isotopeOPBC);
             //((RawIntensityDataModel) Pb208).setForceMeanForCommonLeadRatios(true);
-            ((RawIntensityDataModel) Pb208).setForcedMeanForCommonLeadRatios(nonParametricStats.getSampleMean());
+            ((RawIntensityDataModel) Pb208).setForcedMeanForCommonLeadRatios(SampleSummary.of(dataActiveMap, isotopeOPBC).getMean());
         }
         // turn off isotope
         ((RawIntensityDataModel) isotope).setBelowDetection(belowDetection);
@@ -816,8 +885,10 @@ public abstract class AbstractMassSpecSetup implements //
      * @param peakAcquisitions the value of peakAcquisitions
      * @param virtualCollectorModelMapToFieldIndexes the value of
      * virtualCollectorModelMapToFieldIndexes
+     * @return true if analog correction factors replaced different ones
+     * already held by the virtual collectors
      */
-    private void initializeVirtualCollectorsWithData(//
+    private boolean initializeVirtualCollectorsWithData(//
             List<double[]> backgroundACFs, List<double[]> peakACFs, List<double[]> backgroundAcquisitions, List<double[]> peakAcquisitions, Map<DataModelInterface, Integer> virtualCollectorModelMapToFieldIndexes) {
 
         int countOfBackgroundAcquisitions = backgroundAcquisitions.size();
@@ -860,6 +931,7 @@ public abstract class AbstractMassSpecSetup implements //
             }
         }
 
+        boolean analogCorrectionFactorsChanged = false;
         for (Map.Entry<DataModelInterface, Integer> vcmToIndex : virtualCollectorModelMapToFieldIndexes.entrySet()) {
             VirtualCollectorModel backgroundVCM = prepareVirtualCollector(((RawIntensityDataModel) vcmToIndex.getKey()).getBackgroundVirtualCollector(), countOfBackgroundAcquisitions);
             VirtualCollectorModel peakVCM = prepareVirtualCollector(((RawIntensityDataModel) vcmToIndex.getKey()).getOnPeakVirtualCollector(), countOfPeakAcquisitions);
@@ -874,10 +946,14 @@ public abstract class AbstractMassSpecSetup implements //
             }
 
             if (backgroundACFsMatrix != null) {
-                backgroundVCM.setAnalogCorrectionFactors(backgroundACFsMatrix.getMatrix(0, countOfBackgroundAcquisitions - 1, col, col).getColumnPackedCopy());
+                double[] isotopeBackgroundACFs = backgroundACFsMatrix.getMatrix(0, countOfBackgroundAcquisitions - 1, col, col).getColumnPackedCopy();
+                analogCorrectionFactorsChanged |= isChangeOfAnalogCorrectionFactors(backgroundVCM, isotopeBackgroundACFs);
+                backgroundVCM.setAnalogCorrectionFactors(isotopeBackgroundACFs);
             }
             if (peakACFsMatrix != null) {
-                peakVCM.setAnalogCorrectionFactors(peakACFsMatrix.getMatrix(0, countOfPeakAcquisitions - 1, col, col).getColumnPackedCopy());
+                double[] isotopePeakACFs = peakACFsMatrix.getMatrix(0, countOfPeakAcquisitions - 1, col, col).getColumnPackedCopy();
+                analogCorrectionFactorsChanged |= isChangeOfAnalogCorrectionFactors(peakVCM, isotopePeakACFs);
+                peakVCM.setAnalogCorrectionFactors(isotopePeakACFs);
             }
 
             backgroundVCM.setAquireTimes(backgroundAquireTimes);
@@ -887,6 +963,15 @@ public abstract class AbstractMassSpecSetup implements //
         for (DataModelInterface dm : genericIsotopeModels) {
             ((RawIntensityDataModel) dm).correctIntensitiesForResistor();
         }
+
+        return analogCorrectionFactorsChanged;
+    }
+
+    private static boolean isChangeOfAnalogCorrectionFactors(VirtualCollectorModel vcm, double[] analogCorrectionFactors) {
+        // none are held before the first load
+        double[] priorAnalogCorrectionFactors = vcm.getAnalogCorrectionFactors();
+        return (priorAnalogCorrectionFactors != null) && (priorAnalogCorrectionFactors.length > 0)//
+                && !Arrays.equals(priorAnalogCorrectionFactors, analogCorrectionFactors);
     }
 
     /**
@@ -1011,46 +1096,6 @@ public abstract class AbstractMassSpecSetup implements //
         }
     }
 
-    private void calculateCorrectionForIsobaricInterference(DataModelInterface Hg202, DataModelInterface Pb204) {
-
-        // update dec 2012
-        // isobaric correction is across both background and onpeak
-        // the graph of intensities for Pb204 will show the original data in green and the isobaric corrected in black
-        // it is the corrected data that will be background fitted
-        double[] Hg202BackgroundIntensities = ((RawIntensityDataModel) Hg202).getBackgroundVirtualCollector().getIntensities();
-        double[] Hg202OnPeakIntensities = ((RawIntensityDataModel) Hg202).getOnPeakVirtualCollector().getIntensities();
-
-        double[] Hg202BackgroundCorrections = new double[Hg202BackgroundIntensities.length];
-        double[] Hg202OnPeakCorrections = new double[Hg202OnPeakIntensities.length];
-
-        double[] Pb204BackgroundIntensities = ((RawIntensityDataModel) Pb204).getBackgroundVirtualCollector().getIntensities();
-        double[] Pb204OnPeakIntensities = ((RawIntensityDataModel) Pb204).getOnPeakVirtualCollector().getIntensities();
-
-        // the correction value used is natural 204/202 ratio = 4.346, 
-        // TODO: which will eventually be a user-parameter
-        for (int i = 0; i < Hg202BackgroundCorrections.length; i++) {
-            Hg202BackgroundCorrections[i] = Hg202BackgroundIntensities[i] / r202Hg_204Hg.getValue().doubleValue();
-            // now change the intensities by the correction to prepare for function fitting
-            // the green "old intensities" will be caluted by adding these back together
-            Pb204BackgroundIntensities[i] -= Hg202BackgroundCorrections[i];
-        }
-
-        for (int i = 0; i < Hg202OnPeakCorrections.length; i++) {
-            Hg202OnPeakCorrections[i] = Hg202OnPeakIntensities[i] / r202Hg_204Hg.getValue().doubleValue();
-            // now change the intensities by the correction to prepare for function fitting
-            // the green "old intensities" will be caluted by adding these back together
-            Pb204OnPeakIntensities[i] -= Hg202OnPeakCorrections[i];
-        }
-
-        // Pb204 background
-        ((RawIntensityDataModel) Pb204).getBackgroundVirtualCollector().setIntensityCorrections(Arrays.copyOf(Hg202BackgroundCorrections, Hg202BackgroundCorrections.length));
-        ((RawIntensityDataModel) Pb204).getBackgroundVirtualCollector().setIntensities(Arrays.copyOf(Pb204BackgroundIntensities, Pb204BackgroundIntensities.length));
-        // Pb204 onPeak
-        ((RawIntensityDataModel) Pb204).getOnPeakVirtualCollector().setIntensityCorrections(Arrays.copyOf(Hg202OnPeakCorrections, Hg202OnPeakCorrections.length));
-        ((RawIntensityDataModel) Pb204).getOnPeakVirtualCollector().setIntensities(Arrays.copyOf(Pb204OnPeakIntensities, Pb204OnPeakIntensities.length));
-
-    }
-
     /**
      *
      */
@@ -1078,7 +1123,11 @@ public abstract class AbstractMassSpecSetup implements //
 
             AbstractCollectorModel collector = collectorNameToModelMap.get(key);
             if (collector != null) {
+                BigDecimal priorRelativeGain = collector.getRelativeGain().getValue();
                 collector.setRelativeGain(collectorNameToRelativeGainsMap.get(key));
+                if (priorRelativeGain.compareTo(collector.getRelativeGain().getValue()) != 0) {
+                    getStageDependencyTracker().settingChanged(TripoliProcessingSettingsEnum.RELATIVE_GAINS);
+                }
             }
         }
 
@@ -1097,7 +1146,11 @@ public abstract class AbstractMassSpecSetup implements //
 
             AbstractCollectorModel collector = collectorNameToModelMap.get(key);
             if (collector != null) {
+                BigDecimal priorRelativeGainUnct = collector.getRelativeGain().getOneSigma();
                 collector.setRelativeGainUnct(collectorNameToRelativeGainsUnctMap.get(key));
+                if (priorRelativeGainUnct.compareTo(collector.getRelativeGain().getOneSigma()) != 0) {
+                    getStageDependencyTracker().settingChanged(TripoliProcessingSettingsEnum.RELATIVE_GAIN_UNCERTAINTIES);
+                }
             }
         }
     }
@@ -1116,7 +1169,11 @@ public abstract class AbstractMassSpecSetup implements //
 
             AbstractCollectorModel collector = collectorNameToModelMap.get(key);
             if (collector != null) {
+                BigDecimal priorDeadTime = ((IonCounterCollectorModel) collector).getDeadTime().getValue();
                 ((IonCounterCollectorModel) collector).setDeadTime(collectorNameToDeadTimesMap.get(key));
+                if (priorDeadTime.compareTo(((IonCounterCollectorModel) collector).getDeadTime().getValue()) != 0) {
+                    getStageDependencyTracker().settingChanged(TripoliProcessingSettingsEnum.DEAD_TIMES);
+                }
             }
         }
 
@@ -1135,7 +1192,11 @@ public abstract class AbstractMassSpecSetup implements //
 
             AbstractCollectorModel collector = collectorNameToModelMap.get(key);
             if (collector != null) {
+                BigDecimal priorDeadTimeUnct = ((IonCounterCollectorModel) collector).getDeadTime().getOneSigma();
                 ((IonCounterCollectorModel) collector).setDeadTimeUnct(collectorNameToDeadTimesUnctMap.get(key));
+                if (priorDeadTimeUnct.compareTo(((IonCounterCollectorModel) collector).getDeadTime().getOneSigma()) != 0) {
+                    getStageDependencyTracker().settingChanged(TripoliProcessingSettingsEnum.DEAD_TIMES);
+                }
             }
         }
     }
@@ -1152,7 +1213,10 @@ public abstract class AbstractMassSpecSetup implements //
 
         while (isotopeNameIterator.hasNext()) {
             IsotopesEnum key = isotopeNameIterator.next();
-            isotopeToIntegrationTimeMap.put(key, isotopeNameToIntegrationTimesMap.get(key));
+            Double priorIntegrationTime = isotopeToIntegrationTimeMap.put(key, isotopeNameToIntegrationTimesMap.get(key));
+            if ((priorIntegrationTime != null) && !priorIntegrationTime.equals(isotopeNameToIntegrationTimesMap.get(key))) {
+                getStageDependencyTracker().settingChanged(TripoliProcessingSettingsEnum.INTEGRATION_TIMES);
+            }
         }
     }
 
@@ -1169,8 +1233,12 @@ public abstract class AbstractMassSpecSetup implements //
 
             AbstractCollectorModel collector = collectorNameToModelMap.get(key);
             if (collector != null) {
+                FaradayCollectorModel.ResistorEnum priorResistor = ((FaradayCollectorModel) collector).getResistor();
                 ((FaradayCollectorModel) collector).setResistor(//
                         collectorNameToResistorMap.get(key));
+                if (priorResistor != collectorNameToResistorMap.get(key)) {
+                    getStageDependencyTracker().settingChanged(TripoliProcessingSettingsEnum.RESISTORS);
+                }
             }
         }
     }
@@ -1188,7 +1256,11 @@ public abstract class AbstractMassSpecSetup implements //
 
             AbstractCollectorModel collector = collectorNameToModelMap.get(key);
             if (collector != null) {
+                double priorAmplifierNoiseVariance = ((FaradayCollectorModel) collector).getAmplifierNoiseVariance();
                 ((FaradayCollectorModel) collector).setAmplifierNoiseVariance(collectorNameToAmpNoiseMap.get(key));
+                if (priorAmplifierNoiseVariance != ((FaradayCollectorModel) collector).getAmplifierNoiseVariance()) {
+                    getStageDependencyTracker().settingChanged(TripoliProcessingSettingsEnum.AMPLIFIER_NOISE);
+                }
             }
         }
     }
@@ -1392,6 +1464,13 @@ public abstract class AbstractMassSpecSetup implements //
         return Hg202;
     }
 
+    /**
+     * @return the r202Hg_204Hg
+     */
+    public ValueModel getR202Hg_204Hg() {
+        return r202Hg_204Hg;
+    }
+
     /**
      * @return the Pb204
      */
@@ -0,0 +1,41 @@
+/*
+ * FractionProcessingObserverInterface.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.massSpecSetups;
+
+/**
+ * Optional observer of the per-fraction processing stages of an
+ * <code>AbstractMassSpecSetup</code>, such as a diagnostic report writer.
+ * Observers are called on the processing thread, must not modify the models
+ * they are shown, and see those models only as they stand at each call.
+ *
+ * @author James F. Bowring
+ */
+public interface FractionProcessingObserverInterface {
+
+    /**
+     *
+     * @param stageResult
+     */
+    void stageCompleted(FractionStageResult stageResult);
+
+    /**
+     *
+     * @param fractionID
+     */
+    void fractionProcessingCompleted(String fractionID);
+}
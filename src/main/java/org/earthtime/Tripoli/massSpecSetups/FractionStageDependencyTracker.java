@@ -0,0 +1,212 @@
+/*
+ * FractionStageDependencyTracker.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.massSpecSetups;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.earthtime.dataDictionaries.FractionProcessingStagesEnum;
+import org.earthtime.dataDictionaries.TripoliProcessingSettingsEnum;
+
+/**
+ * Records which processing settings have changed since each fraction, and
+ * the session fits, were last processed, so that only the stages downstream
+ * of a change need be performed again. Each change is stamped with a
+ * generation number; a fraction is stale from the earliest stage affected by
+ * any change newer than the generation at which it was last processed.
+ * Fractions never seen by the tracker are taken as processed at generation
+ * zero.
+ *
+ * @author James F. Bowring
+ */
+public class FractionStageDependencyTracker implements Serializable {
+
+    // Class variables
+    private static final long serialVersionUID = 4418203395372256610L;
+    /**
+     * the earliest stage that can be performed again without reloading the
+     * raw data, from the intensities held for a fraction by its mass spec
+     * setup; settings affecting the raw intensities require a reload
+     */
+    public static final FractionProcessingStagesEnum FIRST_REPEATABLE_STAGE = FractionProcessingStagesEnum.COUNTS_PER_SECOND;
+    // instance variables
+    private long generation;
+    private final List<SettingChange> settingChanges;
+    private final Map<String, Long> processedGenerations;
+    private long sessionFitGeneration;
+
+    /**
+     *
+     */
+    public FractionStageDependencyTracker() {
+        this.generation = 0;
+        this.settingChanges = new ArrayList<>();
+        this.processedGenerations = new HashMap<>();
+        this.sessionFitGeneration = 0;
+    }
+
+    /**
+     * Records a change of setting that applies to every fraction.
+     *
+     * @param setting
+     */
+    public synchronized void settingChanged(TripoliProcessingSettingsEnum setting) {
+        settingChanged(setting, null);
+    }
+
+    /**
+     * Records a change of setting that applies to one fraction, such as its
+     * background fit function.
+     *
+     * @param setting
+     * @param fractionID null for all fractions
+     */
+    public synchronized void settingChanged(TripoliProcessingSettingsEnum setting, String fractionID) {
+        generation++;
+        settingChanges.add(new SettingChange(generation, setting, fractionID));
+    }
+
+    /**
+     * Records that fractionID has been processed from firstStage onwards. The
+     * fraction becomes up to date only if firstStage covers every pending
+     * change; otherwise it stays stale from its earliest stale stage.
+     *
+     * @param fractionID
+     * @param firstStage
+     */
+    public synchronized void fractionProcessed(String fractionID, FractionProcessingStagesEnum firstStage) {
+        FractionProcessingStagesEnum firstStaleStage = getFirstStaleStage(fractionID);
+        if ((firstStaleStage == null) || (firstStage.compareTo(firstStaleStage) <= 0)) {
+            processedGenerations.put(fractionID, generation);
+        }
+    }
+
+    /**
+     * Records that the session fits have been recalculated.
+     */
+    public synchronized void sessionFitted() {
+        sessionFitGeneration = generation;
+    }
+
+    /**
+     *
+     * @param fractionID
+     * @return the earliest stage of fractionID that depends on a changed
+     * setting, or null if none does
+     */
+    public synchronized FractionProcessingStagesEnum getFirstStaleStage(String fractionID) {
+        long processedGeneration = processedGenerations.getOrDefault(fractionID, 0L);
+
+        FractionProcessingStagesEnum firstStaleStage = null;
+        for (SettingChange change : settingChanges) {
+            if ((change.generation > processedGeneration)//
+                    && ((change.fractionID == null) || change.fractionID.equals(fractionID))) {
+                FractionProcessingStagesEnum stage = change.setting.getFirstAffectedStage();
+                if ((stage != null) && ((firstStaleStage == null) || (stage.compareTo(firstStaleStage) < 0))) {
+                    firstStaleStage = stage;
+                }
+            }
+        }
+
+        return firstStaleStage;
+    }
+
+    /**
+     *
+     * @param fractionID
+     * @return true if a stale stage of fractionID precedes
+     * FIRST_REPEATABLE_STAGE
+     */
+    public synchronized boolean isRawDataReloadRequired(String fractionID) {
+        FractionProcessingStagesEnum firstStaleStage = getFirstStaleStage(fractionID);
+        return (firstStaleStage != null) && (firstStaleStage.compareTo(FIRST_REPEATABLE_STAGE) < 0);
+    }
+
+    /**
+     * @return true if any setting has changed since the session fits were
+     * last recalculated
+     */
+    public synchronized boolean isSessionFitStale() {
+        return generation > sessionFitGeneration;
+    }
+
+    /**
+     * @return the settings changed since the session fits were last
+     * recalculated
+     */
+    public synchronized List<TripoliProcessingSettingsEnum> getChangedSettings() {
+        List<TripoliProcessingSettingsEnum> changedSettings = new ArrayList<>();
+        for (SettingChange change : settingChanges) {
+            if ((change.generation > sessionFitGeneration) && !changedSettings.contains(change.setting)) {
+                changedSettings.add(change.setting);
+            }
+        }
+        return changedSettings;
+    }
+
+    /**
+     * Marks everything up to date, typically after the raw data have been
+     * reloaded and fully processed.
+     */
+    public synchronized void reset() {
+        settingChanges.clear();
+        processedGenerations.clear();
+        generation = 0;
+        sessionFitGeneration = 0;
+    }
+
+    /**
+     * Marks everything up to date, clearing the record of changes, if no
+     * fraction of fractionIDs is stale and the session fits are current, so
+     * that the record, which is saved with the project, does not grow across
+     * reprocessing.
+     *
+     * @param fractionIDs every fraction of the session
+     * @return true if the record was cleared
+     */
+    public synchronized boolean resetIfUpToDate(Collection<String> fractionIDs) {
+        if (isSessionFitStale()) {
+            return false;
+        }
+        for (String fractionID : fractionIDs) {
+            if (getFirstStaleStage(fractionID) != null) {
+                return false;
+            }
+        }
+
+        reset();
+        return true;
+    }
+
+    private static class SettingChange implements Serializable {
+
+        private static final long serialVersionUID = -6405315628125104093L;
+        private final long generation;
+        private final TripoliProcessingSettingsEnum setting;
+        private final String fractionID;
+
+        SettingChange(long generation, TripoliProcessingSettingsEnum setting, String fractionID) {
+            this.generation = generation;
+            this.setting = setting;
+            this.fractionID = fractionID;
+        }
+    }
+}
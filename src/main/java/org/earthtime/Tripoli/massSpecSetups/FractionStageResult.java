@@ -0,0 +1,133 @@
+/*
+ * FractionStageResult.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.massSpecSetups;
+
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.earthtime.Tripoli.dataModels.DataModelInterface;
+import org.earthtime.Tripoli.dataModels.FractionIntensities;
+import org.earthtime.dataDictionaries.FractionProcessingStagesEnum;
+
+/**
+ * Notice of one completed processing stage of one fraction, handed to each
+ * <code>FractionProcessingObserverInterface</code>. The isotope and ratio sets
+ * are unmodifiable copies of the sets held by the mass spec setup, but their
+ * members are the live models of the fraction rather than snapshots: later
+ * stages go on to change them in place, so an observer must read whatever it
+ * needs from a stage before returning from <code>stageCompleted</code>. The
+ * intensity stages also give their own immutable result.
+ *
+ * @author James F. Bowring
+ */
+public final class FractionStageResult {
+
+    private final FractionProcessingStagesEnum stage;
+    private final String fractionID;
+    private final boolean standard;
+    private final SortedSet<DataModelInterface> isotopeModels;
+    private final SortedSet<DataModelInterface> rawRatios;
+    private final SortedSet<DataModelInterface> interferenceIsotopeModels;
+    private final FractionIntensities intensities;
+    private final long elapsedNanos;
+
+    /**
+     *
+     * @param stage
+     * @param fractionID
+     * @param standard
+     * @param isotopeModels
+     * @param rawRatios
+     * @param interferenceIsotopeModels isotopes such as 202Hg that are used
+     * only to correct other isotopes
+     * @param intensities the result of an intensity stage, or null
+     * @param elapsedNanos time taken by the stage
+     */
+    public FractionStageResult(//
+            FractionProcessingStagesEnum stage, String fractionID, boolean standard, //
+            SortedSet<DataModelInterface> isotopeModels, SortedSet<DataModelInterface> rawRatios, //
+            SortedSet<DataModelInterface> interferenceIsotopeModels, FractionIntensities intensities, long elapsedNanos) {
+        this.stage = stage;
+        this.fractionID = fractionID;
+        this.standard = standard;
+        this.isotopeModels = Collections.unmodifiableSortedSet(new TreeSet<>(isotopeModels));
+        this.rawRatios = Collections.unmodifiableSortedSet(new TreeSet<>(rawRatios));
+        this.interferenceIsotopeModels = Collections.unmodifiableSortedSet(new TreeSet<>(interferenceIsotopeModels));
+        this.intensities = intensities;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the stage
+     */
+    public FractionProcessingStagesEnum getStage() {
+        return stage;
+    }
+
+    /**
+     * @return the fractionID
+     */
+    public String getFractionID() {
+        return fractionID;
+    }
+
+    /**
+     * @return true if the fraction is a primary reference material
+     */
+    public boolean isStandard() {
+        return standard;
+    }
+
+    /**
+     * @return the isotope models
+     */
+    public SortedSet<DataModelInterface> getIsotopeModels() {
+        return isotopeModels;
+    }
+
+    /**
+     * @return the raw ratios
+     */
+    public SortedSet<DataModelInterface> getRawRatios() {
+        return rawRatios;
+    }
+
+    /**
+     *
+     * @param isotopeModel
+     * @return true if isotopeModel is used only to correct other isotopes
+     */
+    public boolean isInterferenceIsotope(DataModelInterface isotopeModel) {
+        return interferenceIsotopeModels.contains(isotopeModel);
+    }
+
+    /**
+     * @return the intensities after an intensity stage, or null after any
+     * other stage
+     */
+    public FractionIntensities getIntensities() {
+        return intensities;
+    }
+
+    /**
+     * @return the elapsedNanos
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * StandardsDataCheckReportWriter.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.massSpecSetups;
+
+import Jama.Matrix;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.DecimalFormat;
+import org.earthtime.Tripoli.dataModels.DataModelInterface;
+import org.earthtime.Tripoli.dataModels.RawIntensityDataModel;
+import org.earthtime.Tripoli.dataModels.RawRatioDataModel;
+import org.earthtime.dataDictionaries.FractionProcessingStagesEnum;
+import org.earthtime.dataDictionaries.RawRatioNames;
+
+/**
+ * Writes the data check report for the first primary standard processed into
+ * STANDARDS_DATA_CHECK_FILES, section by section as the processing stages
+ * complete.
+ *
+ * @author James F. Bowring
+ */
+public class StandardsDataCheckReportWriter implements FractionProcessingObserverInterface {
+
+    private static final String REPORT_FOLDER = "STANDARDS_DATA_CHECK_FILES";
+    private boolean isFirstReport;
+    private String reportFractionID;
+    private PrintWriter outputWriter;
+
+    /**
+     *
+     */
+    public StandardsDataCheckReportWriter() {
+        this.isFirstReport = true;
+        this.reportFractionID = null;
+        this.outputWriter = null;
+    }
+
+    @Override
+    public void stageCompleted(FractionStageResult stageResult) {
+        if (isFirstReport && stageResult.isStandard()//
+                && (stageResult.getStage().compareTo(FractionProcessingStagesEnum.RAW_INTENSITIES) == 0)) {
+            openReport(stageResult.getFractionID());
+        }
+
+        if ((outputWriter == null) || !stageResult.getFractionID().equals(reportFractionID)) {
+            return;
+        }
+
+        switch (stageResult.getStage()) {
+            case RAW_INTENSITIES:
+                outputWriter.println("\n\n1: Raw intensities, baseline and on-peak (as volts or cps) ********************");
+                for (DataModelInterface dm : stageResult.getIsotopeModels()) {
+                    outputWriter.println(((RawIntensityDataModel) dm).outputIntensities());
+                }
+                break;
+            case COUNTS_PER_SECOND:
+                outputWriter.println("\n\n2: Intensities converted to cps, baseline and on-peak ********************");
+                for (DataModelInterface dm : stageResult.getIsotopeModels()) {
+                    outputWriter.println(((RawIntensityDataModel) dm).outputIntensities());
+                }
+                break;
+            case BACKGROUND_CORRECTION:
+                writeBackgroundCorrectionSections(stageResult);
+                break;
+            case INTENSITY_UNCERTAINTIES:
+                writeIntensityUncertaintySections(stageResult);
+                break;
+            case INTERCEPT_FITTING:
+                writeInterceptFittingSections(stageResult);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void fractionProcessingCompleted(String fractionID) {
+        if ((outputWriter != null) && fractionID.equals(reportFractionID)) {
+            outputWriter.println();
+
+            outputWriter.flush();
+            outputWriter.close();
+            outputWriter = null;
+        }
+    }
+
+    private void openReport(String fractionID) {
+        isFirstReport = false;
+        reportFractionID = fractionID;
+
+        File dataValuesFile = new File(REPORT_FOLDER + File.separator + fractionID + ".txt");
+        try {
+            outputWriter = new PrintWriter(new FileWriter(dataValuesFile));
+            outputWriter.println("******   STANDARD " + fractionID + "  DATA CHECK ********************");
+        } catch (IOException iOException) {
+            outputWriter = null;
+        }
+    }
+
+    private void printMatrix(Matrix matrix) {
+        matrix.print(outputWriter, new DecimalFormat("0.000000E00"), 10);
+    }
+
+    private void writeBackgroundCorrectionSections(FractionStageResult stageResult) {
+        outputWriter.println("\n\n3: Si ********************");
+        for (DataModelInterface dm : stageResult.getIsotopeModels()) {
+            if (!stageResult.isInterferenceIsotope(dm)) {
+                outputWriter.println(dm.getDataModelName());
+                Matrix Si = ((RawIntensityDataModel) dm).getMatrixSiCovarianceIntensities();
+                if (Si != null) {
+                    printMatrix(Si);
+                } else {
+                    //fast uncertainty prop
+                    Si = ((RawIntensityDataModel) dm).getVectorSviVarianceIntensities();
+                    // march 2014
+                    // print diagonal
+                    for (int i = 0; i < Si.getColumnDimension(); i++) {
+                        outputWriter.print(Si.get(i, i) + ", ");
+                    }
+                    outputWriter.println();
+                    outputWriter.println();
+                }
+            }
+        }
+
+        outputWriter.println("\n\n4: Fit parameters for baseline (a [b, c], fitParameterCovarianceMatrix, X2) ********************");
+        for (DataModelInterface dm : stageResult.getIsotopeModels()) {
+            if (!stageResult.isInterferenceIsotope(dm)) {
+                outputWriter.println(((RawIntensityDataModel) dm).outputBaseLineFitFunctionParameters());
+            }
+        }
+
+        outputWriter.println("\n\n5: peakIntensityBLcorr (baseline-corrected on-peak intensities) ********************");
+        for (DataModelInterface dm : stageResult.getIsotopeModels()) {
+            if (!stageResult.isInterferenceIsotope(dm)) {
+                outputWriter.println(((RawIntensityDataModel) dm).outputCorrectedIntensities());
+            }
+        }
+    }
+
+    private void writeIntensityUncertaintySections(FractionStageResult stageResult) {
+        outputWriter.println("\n\n6: J11, J21, J22, JOnPeak, Sopbc ********************");
+        for (DataModelInterface dm : stageResult.getIsotopeModels()) {
+            if (!stageResult.isInterferenceIsotope(dm)) {
+                try {
+                    outputWriter.println(dm.getDataModelName());
+
+                    outputWriter.println("J11:");
+                    printMatrix(((RawIntensityDataModel) dm).getJ11());
+
+                    outputWriter.println("J21:");
+                    printMatrix(((RawIntensityDataModel) dm).getMatrixJ21());
+
+                    outputWriter.println("J22:");
+                    printMatrix(((RawIntensityDataModel) dm).getJ22());
+
+                    outputWriter.println("JOnPeak:");
+                    printMatrix(((RawIntensityDataModel) dm).getJOnPeak());
+
+                    outputWriter.println("Sopbc:");
+                    printMatrix(((RawIntensityDataModel) dm).getSopbc());
+                } catch (Exception e) {
+                }
+            }
+        }
+
+        outputWriter.println("\n\n7: below the detection limit (boolean) for 204Pb and 207Pb ********************");
+        outputWriter.println("Currently Disabled ...");
+
+        outputWriter.println("\n\n8: log-intensities (on-peak baseline-corrected) ********************");
+        for (DataModelInterface dm : stageResult.getIsotopeModels()) {
+            if (!stageResult.isInterferenceIsotope(dm)) {
+                try {
+                    outputWriter.println(((RawIntensityDataModel) dm).outputCorrectedIntensitiesAsLogs());
+                } catch (Exception e) {
+                }
+            }
+        }
+
+        outputWriter.println("\n\n9: Jlogr, Jmat, Sopbclr   ********************");
+        for (DataModelInterface dm : stageResult.getIsotopeModels()) {
+            if (!stageResult.isInterferenceIsotope(dm)) {
+                try {
+                    outputWriter.println(dm.getDataModelName());
+
+                    outputWriter.println("Jlogr:");
+                    printMatrix(((RawIntensityDataModel) dm).getMatrixJlogr());
+
+                    outputWriter.println("Jmat:");
+                    printMatrix(((RawIntensityDataModel) dm).getJmat());
+
+                    outputWriter.println("Sopbclr:");
+                    printMatrix(((RawIntensityDataModel) dm).getSopbclr());
+                } catch (Exception e) {
+                }
+            }
+        }
+
+        outputWriter.println("\n\n10: lr206Pb_207Pb, lr206Pb_238U, lr208Pb_232Th   ********************");
+        for (DataModelInterface rr : stageResult.getRawRatios()) {
+            if (rr.getRawRatioModelName().compareTo(RawRatioNames.r202_202w) != 0) {
+                try {
+                    outputWriter.println(((RawRatioDataModel) rr).outputLogRatios());
+                } catch (Exception e) {
+                }
+            }
+        }
+    }
+
+    private void writeInterceptFittingSections(FractionStageResult stageResult) {
+        outputWriter.println("\n\n11: Sxyod, Slr_X_Y for the three log-ratios   ********************");
+        for (DataModelInterface rr : stageResult.getRawRatios()) {
+            if (((RawRatioDataModel) rr).isUsedForFractionationCorrections()) {
+                try {
+                    outputWriter.println(rr.getDataModelName());
+                } catch (Exception e) {
+                }
+
+                outputWriter.println("Sxyod:");
+
+                try {
+                    printMatrix(((RawRatioDataModel) rr).getMatrixSxyod());
+                } catch (Exception e) {
+                    outputWriter.println("\tNot Calculated because not two ioncounters present");
+                }
+
+                outputWriter.println("Slr_X_Y:");
+                try {
+                    printMatrix(((RawRatioDataModel) rr).getSlogRatioX_Y(false));
+                } catch (Exception e) {
+                }
+            }
+        }
+
+        outputWriter.println("\n\n12: Fit parameters for three log-ratios (a [b, c], fitParameterCovarianceMatrix, X2) ********************");
+        for (DataModelInterface rr : stageResult.getRawRatios()) {
+            if (((RawRatioDataModel) rr).isUsedForFractionationCorrections()) {
+                try {
+                    outputWriter.println(((RawRatioDataModel) rr).outputLogRatioFitFunctionParameters());
+                } catch (Exception e) {
+                }
+            }
+        }
+
+        outputWriter.println("\n\n13: Y-intercept values and uncertainties for three log-ratio fits ********************");
+        for (DataModelInterface rr : stageResult.getRawRatios()) {
+            if (((RawRatioDataModel) rr).isUsedForFractionationCorrections()) {
+                try {
+                    outputWriter.println(((RawRatioDataModel) rr).outputLogRatioFitFunctionYInterceptData());
+                } catch (Exception e) {
+                }
+            }
+        }
+    }
+}
@@ -29,19 +29,24 @@ import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import org.earthtime.Tripoli.dataModels.AcquisitionColumnStore;
 import org.earthtime.Tripoli.dataModels.DataModelFitFunctionInterface;
 import org.earthtime.Tripoli.dataModels.DataModelInterface;
 import org.earthtime.Tripoli.dataModels.DownholeFractionationDataModel;
 import org.earthtime.Tripoli.dataModels.MaskingSingleton;
+import org.earthtime.Tripoli.dataModels.RawIntensityDataModel;
 import org.earthtime.Tripoli.dataModels.RawRatioDataModel;
 import org.earthtime.Tripoli.dataModels.collectorModels.IonCounterCollectorModel;
 import org.earthtime.Tripoli.dataModels.sessionModels.AbstractSessionForStandardDataModel;
@@ -51,6 +56,7 @@ import org.earthtime.Tripoli.dataModels.sessionModels.SessionForStandardDataMode
 import org.earthtime.Tripoli.fitFunctions.AbstractFunctionOfX;
 import org.earthtime.Tripoli.fractions.TripoliFraction;
 import org.earthtime.Tripoli.massSpecSetups.AbstractMassSpecSetup;
+import org.earthtime.Tripoli.massSpecSetups.FractionStageDependencyTracker;
 import org.earthtime.Tripoli.rawDataFiles.handlers.AbstractRawDataFileHandler;
 import org.earthtime.Tripoli.rawDataFiles.handlers.shrimp.ShrimpFileHandler;
 import org.earthtime.Tripoli.samples.AbstractTripoliSample;
@@ -67,6 +73,7 @@ import org.earthtime.dataDictionaries.IncludedTypeEnum;
 import org.earthtime.dataDictionaries.MineralStandardUPbConcentrationsPPMEnum;
 import org.earthtime.dataDictionaries.RadRatios;
 import org.earthtime.dataDictionaries.RawRatioNames;
+import org.earthtime.dataDictionaries.TripoliProcessingSettingsEnum;
 import org.earthtime.fractions.ETFractionInterface;
 import org.earthtime.ratioDataModels.AbstractRatiosDataModel;
 import org.earthtime.ratioDataModels.initialPbModelsET.StaceyKramersInitialPbModelET;
@@ -74,6 +81,7 @@ import org.earthtime.ratioDataModels.initialPbModelsET.commonLeadLossCorrectionS
 import org.earthtime.ratioDataModels.mineralStandardModels.MineralStandardUPbModel;
 import org.earthtime.ratioDataModels.physicalConstantsModels.PhysicalConstantsModel;
 import org.earthtime.reduxLabData.ReduxLabData;
+import org.earthtime.utilities.jamaHelpers.DiagonalPlusLowRankMatrix;
 
 /**
  *
@@ -116,6 +124,8 @@ public class TripoliSession implements
     private boolean fitFunctionsUpToDate;
     // June 2016
     private boolean refMaterialSessionFittedForLiveMode;
+    // holds the acquisition arrays of processed fractions
+    private AcquisitionColumnStore columnStore;
 
     /**
      *
@@ -161,6 +171,11 @@ public class TripoliSession implements
         this.fitFunctionsUpToDate = false;
 
         this.refMaterialSessionFittedForLiveMode = false;
+
+        this.columnStore = null;
+
+        // every fraction of a new session has just been processed from its raw data
+        rawDataFileHandler.getMassSpec().getStageDependencyTracker().reset();
     }
 
     /**
@@ -180,6 +195,39 @@ public class TripoliSession implements
         });
     }
 
+    /**
+     * Packs the per-fraction acquisition arrays of every isotope not yet
+     * packed into the session-wide column store, which is then held in memory
+     * and in the saved project in place of the arrays. Called once the raw
+     * data has been processed; isotopes changed by later processing are
+     * unpacked by their setters and packed again here. When more than half of
+     * the store has been released by such changes, everything is repacked
+     * into a new store.
+     */
+    @Override
+    public void packRawDataColumns() {
+        if (tripoliFractions != null) {
+            if ((columnStore == null) || (columnStore.getReleasedSizeInDoubles() > columnStore.getSizeInDoubles() / 2)) {
+                columnStore = new AcquisitionColumnStore();
+            }
+            Set<RawIntensityDataModel> packedIsotopes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            for (TripoliFraction tf : tripoliFractions) {
+                for (DataModelInterface rr : tf.getRawRatios()) {
+                    RawIntensityDataModel[] isotopes = new RawIntensityDataModel[]{//
+                        ((RawRatioDataModel) rr).getTopIsotope(), ((RawRatioDataModel) rr).getBotIsotope()};
+                    for (RawIntensityDataModel isotope : isotopes) {
+                        if ((isotope != null) && packedIsotopes.add(isotope)) {
+                            isotope.packColumns(columnStore);
+                        }
+                    }
+                }
+            }
+
+            columnStore.trimToSize();
+        }
+    }
+
     @Override
     public void prepareFractionTimeStamps() {
         //create zero-based time stamp for fractions to use in session view
@@ -298,11 +346,33 @@ public class TripoliSession implements
             }
 
             dataProcessed = true;
+            packRawDataColumns();
         } else {
             dataProcessed = false;
         }
     }
 
+    @Override
+    public boolean reProcessStaleStages(boolean usingFullPropagation) {
+        AbstractMassSpecSetup massSpec = getMassSpec();
+        FractionStageDependencyTracker tracker = massSpec.getStageDependencyTracker();
+
+        boolean reProcessed = massSpec.reProcessStaleFractionStages(tripoliFractions, usingFullPropagation);
+        if (reProcessed) {
+            // the session fits are left to the caller
+            List<TripoliProcessingSettingsEnum> changedSettings = tracker.getChangedSettings();
+            if (changedSettings.contains(TripoliProcessingSettingsEnum.PRIMARY_STANDARD_MODEL)//
+                    || changedSettings.contains(TripoliProcessingSettingsEnum.FRACTIONATION_TECHNIQUE)) {
+                // also packs the columns
+                processRawData(false);
+            } else {
+                packRawDataColumns();
+            }
+        }
+
+        return reProcessed;
+    }
+
     @Override
     public void postProcessDataForCommonLeadLossPreparation() {
         // nov 2014 post processing of */204 ratios to remove negative value from active data
@@ -379,6 +449,15 @@ public class TripoliSession implements
             if (!inLiveMode) {
                 applyCorrections(inLiveMode);
             }
+
+            FractionStageDependencyTracker tracker = getMassSpec().getStageDependencyTracker();
+            tracker.sessionFitted();
+
+            List<String> fractionIDs = new ArrayList<>();
+            for (TripoliFraction tf : tripoliFractions) {
+                fractionIDs.add(tf.getFractionID());
+            }
+            tracker.resetIfUpToDate(fractionIDs);
         }
     }
 
@@ -1092,58 +1171,15 @@ public class TripoliSession implements
                     sessionFofX.calculateInterpolatedVariances(matrixJfUnknownsActiveStandards, timesForStandards);
                 }
 
-                Matrix matrixSf = sessionFofX.getMatrixSf();
-                if (matrixSf != null) {
+                if (sessionFofX.hasMatrixSf()) {
 
-                    Matrix selectedFractionsAnalyticalCovarianceSu = new Matrix(countOfSelectedFractions, countOfSelectedFractions);
-                    double[] dLrInt_dDt_SelectedFractions = new double[countOfSelectedFractions];
                     Map<String, Integer> selectedFractionIDs = new HashMap<>();
-
-                    int index = 0;
-
-                    Iterator<TripoliFraction> selectedFractionIterator = selectedFractions.iterator();
-                    while (selectedFractionIterator.hasNext()) {
-                        TripoliFraction tf = selectedFractionIterator.next();
-
-                        selectedFractionIDs.put(tf.getFractionID(), index);
-
-                        AbstractFunctionOfX FofX = ((DataModelFitFunctionInterface) tf.getRawRatioDataModelByName(rrName)).getSelectedFitFunction();
-
-                        if (FofX != null) {
-                            selectedFractionsAnalyticalCovarianceSu.set(index, index, FofX.getYInterceptVariance() + sessionFofX.getOverDispersion());
-
-                            dLrInt_dDt_SelectedFractions[index] = ((DataModelFitFunctionInterface) tf.getRawRatioDataModelByName(rrName)).getSelectedFitFunction().getdLrInt_dDt();
-                        }
-
-                        index++;
-                    }
-
-                    selectedFractionsAnalyticalCovarianceSu.plusEquals(matrixSf);
-
-                    // check for identical ioncounters
-                    if (((RawRatioDataModel) selectedFractions.first().getRawRatioDataModelByName(rrName)).hasTwoIdenticalIonCounters()) {
-
-                        double deadTimeOneSigmaAbsSqr = ((IonCounterCollectorModel) ((RawRatioDataModel) selectedFractions.first().getRawRatioDataModelByName(rrName)).getBotIsotope()//
-                                .getCollectorModel()).getDeadTime().getOneSigmaAbs().movePointLeft(0).pow(2).doubleValue();
-
-                        Matrix matrixdLrInt_dDt_Unkowns = new Matrix(dLrInt_dDt_SelectedFractions, dLrInt_dDt_SelectedFractions.length);
-
-                        Matrix matrixSuod = matrixdLrInt_dDt_Unkowns.times(matrixdLrInt_dDt_Unkowns.transpose().times(deadTimeOneSigmaAbsSqr));
-
-                        // zero diagonal
-                        for (int i = 0; i < countOfSelectedFractions; i++) {
-                            matrixSuod.set(i, i, 0.0);
-                        }
-
-                        selectedFractionsAnalyticalCovarianceSu.plusEquals(matrixSuod);
-                    }
+                    DiagonalPlusLowRankMatrix selectedFractionsAnalyticalCovarianceSu//
+                            = calculateSelectedFractionsAnalyticalCovarianceSu(selectedFractions, sessionFofX, rrName, selectedFractionIDs);
 
                     // nov 2014 finally the math to calculate the rhos and Pbc correction uncertainties.
                     // save Matrix selectedFractionsAnalyticalCovarianceSu DIAGONAL for use in common lead corrections etc
-                    double[] diagonalOfSessionUnknownsAnalyticalCovarianceSu = new double[countOfSelectedFractions];
-                    for (int i = 0; i < countOfSelectedFractions; i++) {
-                        diagonalOfSessionUnknownsAnalyticalCovarianceSu[i] = selectedFractionsAnalyticalCovarianceSu.get(i, i);
-                    }
+                    double[] diagonalOfSessionUnknownsAnalyticalCovarianceSu = selectedFractionsAnalyticalCovarianceSu.getFullDiagonal();
 
                     if (fractionSelectionTypeEnum.compareTo(FractionSelectionTypeEnum.UNKNOWN) == 0) {
                         sessionFofX.setDiagonalOfSessionUnknownsAnalyticalCovarianceSu(diagonalOfSessionUnknownsAnalyticalCovarianceSu);
@@ -1180,6 +1216,69 @@ public class TripoliSession implements
         }
     }
 
+    /**
+     * Assembles the analytical covariance Su of the selected fractions as the
+     * diagonal of their intercept variances plus session overdispersion, plus
+     * the session fit covariance Sf, plus the dead time term when the ratio
+     * uses two identical ion counters. Su is kept in factored form so that
+     * its size grows linearly with the count of fractions.
+     *
+     * @param selectedFractions
+     * @param sessionFofX
+     * @param rrName
+     * @param selectedFractionIDs populated with the index of each fraction
+     * @return Su
+     */
+    private DiagonalPlusLowRankMatrix calculateSelectedFractionsAnalyticalCovarianceSu(//
+            SortedSet<TripoliFraction> selectedFractions, AbstractFunctionOfX sessionFofX, RawRatioNames rrName, Map<String, Integer> selectedFractionIDs) {
+
+        int countOfSelectedFractions = selectedFractions.size();
+        double[] interceptVariances = new double[countOfSelectedFractions];
+        double[] dLrInt_dDt_SelectedFractions = new double[countOfSelectedFractions];
+
+        int index = 0;
+
+        Iterator<TripoliFraction> selectedFractionIterator = selectedFractions.iterator();
+        while (selectedFractionIterator.hasNext()) {
+            TripoliFraction tf = selectedFractionIterator.next();
+
+            selectedFractionIDs.put(tf.getFractionID(), index);
+
+            AbstractFunctionOfX FofX = ((DataModelFitFunctionInterface) tf.getRawRatioDataModelByName(rrName)).getSelectedFitFunction();
+
+            if (FofX != null) {
+                interceptVariances[index] = FofX.getYInterceptVariance() + sessionFofX.getOverDispersion();
+
+                dLrInt_dDt_SelectedFractions[index] = FofX.getdLrInt_dDt();
+            }
+
+            index++;
+        }
+
+        DiagonalPlusLowRankMatrix selectedFractionsAnalyticalCovarianceSu = sessionFofX.getMatrixSfFactored().plusDiagonal(interceptVariances);
+
+        // check for identical ioncounters
+        if (((RawRatioDataModel) selectedFractions.first().getRawRatioDataModelByName(rrName)).hasTwoIdenticalIonCounters()) {
+
+            double deadTimeOneSigmaAbsSqr = ((IonCounterCollectorModel) ((RawRatioDataModel) selectedFractions.first().getRawRatioDataModelByName(rrName)).getBotIsotope()//
+                    .getCollectorModel()).getDeadTime().getOneSigmaAbs().movePointLeft(0).pow(2).doubleValue();
+
+            Matrix matrixdLrInt_dDt_Unkowns = new Matrix(dLrInt_dDt_SelectedFractions, dLrInt_dDt_SelectedFractions.length);
+
+            // Suod = dLrInt_dDt * deadTimeVariance * dLrInt_dDt' with zero diagonal
+            double[] zeroedDiagonalOfSuod = new double[countOfSelectedFractions];
+            for (int i = 0; i < countOfSelectedFractions; i++) {
+                zeroedDiagonalOfSuod[i] = -deadTimeOneSigmaAbsSqr * dLrInt_dDt_SelectedFractions[i] * dLrInt_dDt_SelectedFractions[i];
+            }
+
+            selectedFractionsAnalyticalCovarianceSu = selectedFractionsAnalyticalCovarianceSu//
+                    .plusLowRank(matrixdLrInt_dDt_Unkowns, new Matrix(1, 1, deadTimeOneSigmaAbsSqr))//
+                    .plusDiagonal(zeroedDiagonalOfSuod);
+        }
+
+        return selectedFractionsAnalyticalCovarianceSu;
+    }
+
     /**
      *
      * @param fractionSelectionTypeEnum the value of fractionSelectionTypeEnum
@@ -1194,7 +1293,7 @@ public class TripoliSession implements
      */
     private void applyInterceptFractionationCorrectionToUnknownRatios(//
             FractionSelectionTypeEnum fractionSelectionTypeEnum, AbstractFunctionOfX sessionFofX, //
-            Map<String, Integer> unknownFractionIDs, int countOfUnknowns, Matrix unknownsAnalyticalCovarianceSu, double sessionStandardValue, RawRatioNames rrName, String standardRatioName) {
+            Map<String, Integer> unknownFractionIDs, int countOfUnknowns, DiagonalPlusLowRankMatrix unknownsAnalyticalCovarianceSu, double sessionStandardValue, RawRatioNames rrName, String standardRatioName) {
 
         Matrix unknownsLogRatioMeans = new Matrix(countOfUnknowns, 1);
 
@@ -1371,58 +1470,15 @@ public class TripoliSession implements
                     sessionFofX.calculateInterpolatedVariances(matrixJfUnknownsActiveStandards, timesForStandards);
                 }
 
-                Matrix matrixSf = sessionFofX.getMatrixSf();
-                if (matrixSf != null) {
+                if (sessionFofX.hasMatrixSf()) {
 
-                    Matrix selectedFractionsAnalyticalCovarianceSu = new Matrix(countOfSelectedFractions, countOfSelectedFractions);
-                    double[] dLrInt_dDt_SelectedFractions = new double[countOfSelectedFractions];
                     Map<String, Integer> selectedFractionIDs = new HashMap<>();
-
-                    int index = 0;
-
-                    Iterator<TripoliFraction> selectedFractionIterator = selectedFractions.iterator();
-                    while (selectedFractionIterator.hasNext()) {
-                        TripoliFraction tf = selectedFractionIterator.next();
-
-                        selectedFractionIDs.put(tf.getFractionID(), index);
-
-                        AbstractFunctionOfX FofX = ((DataModelFitFunctionInterface) tf.getRawRatioDataModelByName(rrName)).getSelectedFitFunction();
-
-                        if (FofX != null) {
-                            selectedFractionsAnalyticalCovarianceSu.set(index, index, FofX.getYInterceptVariance() + sessionFofX.getOverDispersion());
-
-                            dLrInt_dDt_SelectedFractions[index] = ((DataModelFitFunctionInterface) tf.getRawRatioDataModelByName(rrName)).getSelectedFitFunction().getdLrInt_dDt();
-                        }
-
-                        index++;
-                    }
-
-                    selectedFractionsAnalyticalCovarianceSu.plusEquals(matrixSf);
-
-                    // check for identical ioncounters
-                    if (((RawRatioDataModel) selectedFractions.first().getRawRatioDataModelByName(rrName)).hasTwoIdenticalIonCounters()) {
-
-                        double deadTimeOneSigmaAbsSqr = ((IonCounterCollectorModel) ((RawRatioDataModel) selectedFractions.first().getRawRatioDataModelByName(rrName)).getBotIsotope()//
-                                .getCollectorModel()).getDeadTime().getOneSigmaAbs().movePointLeft(0).pow(2).doubleValue();
-
-                        Matrix matrixdLrInt_dDt_Unkowns = new Matrix(dLrInt_dDt_SelectedFractions, dLrInt_dDt_SelectedFractions.length);
-
-                        Matrix matrixSuod = matrixdLrInt_dDt_Unkowns.times(matrixdLrInt_dDt_Unkowns.transpose().times(deadTimeOneSigmaAbsSqr));
-
-                        // zero diagonal
-                        for (int i = 0; i < countOfSelectedFractions; i++) {
-                            matrixSuod.set(i, i, 0.0);
-                        }
-
-                        selectedFractionsAnalyticalCovarianceSu.plusEquals(matrixSuod);
-                    }
+                    DiagonalPlusLowRankMatrix selectedFractionsAnalyticalCovarianceSu//
+                            = calculateSelectedFractionsAnalyticalCovarianceSu(selectedFractions, sessionFofX, rrName, selectedFractionIDs);
 
                     // nov 2014 finally the math to calculate the rhos and Pbc correction uncertainties.
                     // save Matrix selectedFractionsAnalyticalCovarianceSu DIAGONAL for use in common lead corrections etc
-                    double[] diagonalOfSessionUnknownsAnalyticalCovarianceSu = new double[countOfSelectedFractions];
-                    for (int i = 0; i < countOfSelectedFractions; i++) {
-                        diagonalOfSessionUnknownsAnalyticalCovarianceSu[i] = selectedFractionsAnalyticalCovarianceSu.get(i, i);
-                    }
+                    double[] diagonalOfSessionUnknownsAnalyticalCovarianceSu = selectedFractionsAnalyticalCovarianceSu.getFullDiagonal();
 
                     if (fractionSelectionTypeEnum.compareTo(FractionSelectionTypeEnum.UNKNOWN) == 0) {
                         sessionFofX.setDiagonalOfSessionUnknownsAnalyticalCovarianceSu(diagonalOfSessionUnknownsAnalyticalCovarianceSu);
@@ -1445,7 +1501,7 @@ public class TripoliSession implements
 
     private void applyDownholeFractionationCorrectionToUnknownRatios(//
             FractionSelectionTypeEnum fractionSelectionTypeEnum, AbstractFunctionOfX sessionFofX, //
-            Map<String, Integer> unknownFractionIDs, int countOfUnknowns, Matrix unknownsAnalyticalCovarianceSu, double sessionStandardValue, RawRatioNames rrName, String standardRatioName) {
+            Map<String, Integer> unknownFractionIDs, int countOfUnknowns, DiagonalPlusLowRankMatrix unknownsAnalyticalCovarianceSu, double sessionStandardValue, RawRatioNames rrName, String standardRatioName) {
 
         Matrix unknownsLogRatioMeans = new Matrix(countOfUnknowns, 1);
 
@@ -1755,6 +1811,9 @@ public class TripoliSession implements
      */
     @Override
     public void setPrimaryMineralStandard(AbstractRatiosDataModel primaryMineralStandard) {
+        if ((rawDataFileHandler != null) && (this.primaryMineralStandard != null) && (this.primaryMineralStandard != primaryMineralStandard)) {
+            getMassSpec().getStageDependencyTracker().settingChanged(TripoliProcessingSettingsEnum.PRIMARY_STANDARD_MODEL);
+        }
         this.primaryMineralStandard = primaryMineralStandard;
         // dec 2014
         if (tripoliSamples.size() > 0) {// != null) {
@@ -1775,6 +1834,9 @@ public class TripoliSession implements
      */
     @Override
     public void setFractionationTechnique(FractionationTechniquesEnum fractionationTechnique) {
+        if ((rawDataFileHandler != null) && (this.fractionationTechnique != null) && (this.fractionationTechnique != fractionationTechnique)) {
+            getMassSpec().getStageDependencyTracker().settingChanged(TripoliProcessingSettingsEnum.FRACTIONATION_TECHNIQUE);
+        }
         this.fractionationTechnique = fractionationTechnique;
     }
 
@@ -167,6 +167,22 @@ public interface TripoliSessionInterface extends TripoliSessionFractionationCalc
      */
     void processRawData(boolean updateOnly);
 
+    /**
+     * Performs again only the fraction processing stages that depend on
+     * settings changed since they were last performed, leaving the session
+     * fits to the caller.
+     *
+     * @param usingFullPropagation
+     * @return false, with nothing performed, if the raw data must be reloaded
+     */
+    boolean reProcessStaleStages(boolean usingFullPropagation);
+
+    /**
+     * Packs the acquisition arrays of fractions processed since the last
+     * packing into the session column store.
+     */
+    void packRawDataColumns();
+
     void postProcessDataForCommonLeadLossPreparation();
 
     /**
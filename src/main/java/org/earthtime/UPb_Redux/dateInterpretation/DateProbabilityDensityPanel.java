@@ -39,28 +39,22 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
-import java.io.Writer;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.Vector;
 import javax.swing.JLayeredPane;
 import org.apache.batik.apps.rasterizer.SVGConverter;
 import org.apache.batik.apps.rasterizer.SVGConverterException;
-import org.apache.batik.dom.GenericDOMImplementation;
-import org.apache.batik.svggen.SVGGraphics2D;
-import org.apache.batik.svggen.SVGGraphics2DIOException;
 import org.earthtime.UPb_Redux.beans.ReduxSuppressComponentEventsI;
 import org.earthtime.UPb_Redux.dateInterpretation.concordia.GraphPanelModeChangeI;
 import org.earthtime.UPb_Redux.dateInterpretation.concordia.PlottingDetailsDisplayInterface;
@@ -74,10 +68,11 @@ import org.earthtime.aliquots.ReduxAliquotInterface;
 import org.earthtime.dataDictionaries.RadDates;
 import org.earthtime.fractions.ETFractionInterface;
 import org.earthtime.plots.PlotAxesSetupInterface;
+import org.earthtime.plots.PlotLayers;
+import org.earthtime.plots.PlotPreparer;
+import org.earthtime.plots.StreamingSVGGraphics2D;
 import org.earthtime.samples.SampleInterface;
 import org.earthtime.utilities.TicGeneratorForAxes;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
 
 /**
  *
@@ -110,17 +105,42 @@ public class DateProbabilityDensityPanel extends JLayeredPane
      */
     protected double[] activeStackedKernels;
     /**
-     *
+     * density of the whole sample at pdfPoints
      */
-    protected double[][] stackedAliquotKernels;
+    protected double[] sampleDensity;
     /**
      *
      */
     protected double[] activeStackedAliquotKernels;
     /**
-     *
+     * the density grid merged with the dates of the selected fractions
+     */
+    protected double[] pdfPoints;
+    private boolean[] isDatePoint;
+    private double[] sortedDates;
+    private double[] sampleDensityAtDates;
+    private double maxSampleDensity;
+    private static final double[] DENSITY_GRID = new double[4001];
+
+    static {
+        for (int i = 0; i < DENSITY_GRID.length; i++) {
+            DENSITY_GRID[i] = i;
+        }
+    }
+    private transient ProbabilityDensityEngine densityEngine;
+    private transient IncrementalHistogram dateHistogram;
+    // updated only by preparations, which publish copies of them to paint from
+    private transient ProbabilityDensityEngine workingDensityEngine;
+    private transient IncrementalHistogram workingDateHistogram;
+    private transient PlotPreparer<DensityModel> densityPreparer;
+    /**
+     * peaks less prominent than this fraction of the highest density are not
+     * labelled
      */
-    protected ArrayList<Double> pdfPoints;
+    public final static double DEFAULT_PEAK_PROMINENCE_FRACTION = 0.01;
+    private double peakProminenceFraction = DEFAULT_PEAK_PROMINENCE_FRACTION;
+    private String densityEngineDateName;
+    private final transient Map<CurveKey, double[][]> curveCache = new HashMap<>();
     private double minX;
     private double maxX;
     private double minY;
@@ -155,7 +175,11 @@ public class DateProbabilityDensityPanel extends JLayeredPane
     private double[] pdfOfKDE;
     private double[] timescale;
     private double maxKDE;
+    // reused so the transform tables and buffers survive across recalculations; not thread-safe,
+    // so used only by preparations, which the plot preparer runs one at a time
+    private final KDE kde = new KDE();
     private GraphPanelModeChangeI graphPanelModeChanger;
+    private transient PlotLayers plotLayers;
     protected transient AliquotInterface curAliquot;
 
     /**
@@ -181,7 +205,11 @@ public class DateProbabilityDensityPanel extends JLayeredPane
 
         stackedKernels = new double[0];
         activeStackedKernels = new double[0];
-        stackedAliquotKernels = new double[0][0];
+        sampleDensity = new double[0];
+        pdfPoints = new double[0];
+        sortedDates = new double[0];
+        sampleDensityAtDates = new double[0];
+        maxSampleDensity = 0.0;
         activeStackedAliquotKernels = new double[0];
 
         minX = DEFAULT_DISPLAY_MINX;
@@ -214,6 +242,12 @@ public class DateProbabilityDensityPanel extends JLayeredPane
         maxima = new HashMap<>();
         maximaShown = new TreeMap<>();
 
+        densityPreparer = new PlotPreparer<>(this::publishDensityModel);
+
+        plotLayers = new PlotLayers();
+        plotLayers.addLayer("densities", (Graphics2D g2d) -> paint(g2d));
+        plotLayers.setOverlay(this::paintCursor);
+
         addMouseListener(this);
         addMouseMotionListener(this);
     }
@@ -226,7 +260,48 @@ public class DateProbabilityDensityPanel extends JLayeredPane
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        paint((Graphics2D) g);
+        plotLayers.paint((Graphics2D) g, getWidth(), getHeight());
+    }
+
+    /**
+     * Every repaint but those of the cursor redraws the densities.
+     *
+     * @param tm
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        // also called by the superclass constructor, before the layers exist
+        if (plotLayers != null) {
+            plotLayers.repaintRequested();
+        }
+        super.repaint(tm, x, y, width, height);
+    }
+
+    private void paintCursor(Graphics2D g2d) {
+        double cursorAge = ((cursorBar.getX1() - leftMargin) * getRangeX_Display() / getGraphWidth()) + getMinX_Display();
+        if ((maxSampleDensity > 0) && cursorAge > getMinX_Display() && cursorAge < 4000) {
+            g2d.setClip(0, getTopMargin(), getGraphWidth(), getGraphHeight() + 15);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setFont(new Font(
+                    "SansSerif",
+                    Font.PLAIN,
+                    10));
+
+            // draw cursor
+            g2d.setPaint(Color.red);
+            g2d.draw(cursorBar);
+            g2d.setPaint(Color.white);
+            g2d.fill(cursorLabel);
+            g2d.setPaint(Color.red);
+            g2d.draw(cursorLabel);
+
+            g2d.drawString(Integer.toString((int) Math.round(cursorAge)),//
+                    (float) cursorLabel.getX() + 2, (float) cursorLabel.getY() + 10);
+        }
     }
 
     /**
@@ -243,7 +318,7 @@ public class DateProbabilityDensityPanel extends JLayeredPane
         rh.put(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         g2d.setRenderingHints(rh);
 
-        if (stackedAliquotKernels[0][pdfPoints.size()] > 0) {
+        if (maxSampleDensity > 0) {
             g2d.setFont(new Font(
                     "SansSerif",
                     Font.PLAIN,
@@ -253,10 +328,13 @@ public class DateProbabilityDensityPanel extends JLayeredPane
             Path2D sampleProbabilities = new Path2D.Double(Path2D.WIND_NON_ZERO);
             Path2D sampleKDE = new Path2D.Double(Path2D.WIND_NON_ZERO);
 
-            // handle zoom
+            // handle zoom: when the stored grid is too coarse for the visible range, draw from a finer one
+            double[][] sampleCurve = visibleCurve(0, Collections.emptySet());
+            double[] curvePoints = sampleCurve[0];
+
             int startX = 0;
-            for (int i = 0; i < pdfPoints.size(); i++) {
-                if (mapX(pdfPoints.get(i)) <= 0.0) {
+            for (int i = 0; i < curvePoints.length; i++) {
+                if (mapX(curvePoints[i]) <= 0.0) {
                     startX++;
                 } else {
                     break;
@@ -264,8 +342,8 @@ public class DateProbabilityDensityPanel extends JLayeredPane
             }
 
             int endX = startX;
-            for (int i = startX; i < pdfPoints.size(); i++) {
-                if (mapX(pdfPoints.get(i)) <= (getGraphWidth()) + (double) getLeftMargin()) {
+            for (int i = startX; i < curvePoints.length; i++) {
+                if (mapX(curvePoints[i]) <= (getGraphWidth()) + (double) getLeftMargin()) {
                     endX++;
                 } else {
                     break;
@@ -273,33 +351,38 @@ public class DateProbabilityDensityPanel extends JLayeredPane
             }
             endX--;
 
-//            sampleProbabilities.moveTo( mapX( getMinX_Display() ), mapY( 0.01 ) );
-            sampleProbabilities.moveTo(Math.max(leftMargin, mapX(pdfPoints.get(startX))), mapY(0.01));
-            sampleKDE.moveTo(Math.max(leftMargin, mapX(timescale[startX])), mapY(0.01));
+            sampleProbabilities.moveTo(Math.max(leftMargin, mapX(curvePoints[startX])), mapY(0.01));
 
             double scale = 0.96/*
                      * 8
-                     */ * maxY / stackedAliquotKernels[0][pdfPoints.size()];
-
-            double scaleKDE = 0.96 / maxKDE;
+                     */ * maxY / maxSampleDensity;
 
             // startx and endx bound the viewport and hence the data points for which we want histograms
             for (int i = startX; i <= endX; i++) {
                 sampleProbabilities.lineTo(//
-                        Math.max(leftMargin, mapX(pdfPoints.get(i))),//
-                        mapY(stackedAliquotKernels[0][i] * scale + .01));
-
-                try {
-                    sampleKDE.lineTo(//
-                            Math.max(leftMargin, mapX(timescale[i])),//
-                            mapY(pdfOfKDE[i] * scaleKDE + .01));
-                } catch (Exception e) {
-                }
+                        Math.max(leftMargin, mapX(curvePoints[i])),//
+                        mapY(sampleCurve[1][i] * scale + .01));
             }
 
-            sampleProbabilities.lineTo(mapX(pdfPoints.get(endX)), mapY(0.01));
+            sampleProbabilities.lineTo(mapX(curvePoints[endX]), mapY(0.01));
             // sampleProbabilities.moveTo( mapX( 4000.0 ), mapY( 0.01 ) );
 
+            try {
+                double scaleKDE = 0.96 / maxKDE;
+                boolean started = false;
+                for (int i = 0; i < timescale.length; i++) {
+                    if ((timescale[i] >= getMinX_Display()) && (timescale[i] <= getMaxX_Display())) {
+                        if (started) {
+                            sampleKDE.lineTo(mapX(timescale[i]), mapY(pdfOfKDE[i] * scaleKDE + .01));
+                        } else {
+                            sampleKDE.moveTo(Math.max(leftMargin, mapX(timescale[i])), mapY(0.01));
+                            started = true;
+                        }
+                    }
+                }
+            } catch (Exception e) {
+            }
+
             if (selectedAliquotNumber > 0) {
                 // paint sample semi-transparent
                 Composite originalComposite = g2d.getComposite();
@@ -315,12 +398,13 @@ public class DateProbabilityDensityPanel extends JLayeredPane
                 selectedAliquotProbabilities.moveTo(mapX(getMinX_Display()), mapY(0.01));
                 // selectedAliquotProbabilities.moveTo( mapX( 0.0 ), mapY( 0.01 ) );
 
+                double[] aliquotDensity = visibleCurve(selectedAliquotNumber, Collections.emptySet())[1];
                 for (int i = startX; i <= endX; i++) {//int i = 0; i < pdfPoints.size(); i ++) {
                     selectedAliquotProbabilities.lineTo(//
-                            mapX(pdfPoints.get(i)), mapY(stackedAliquotKernels[selectedAliquotNumber][i] * scale + .01));
+                            mapX(curvePoints[i]), mapY(aliquotDensity[i] * scale + .01));
                 }
 
-                selectedAliquotProbabilities.lineTo(mapX(pdfPoints.get(endX)), mapY(0.01));
+                selectedAliquotProbabilities.lineTo(mapX(curvePoints[endX]), mapY(0.01));
                 // selectedAliquotProbabilities.moveTo( mapX( 4000.0 ), mapY( 0.01 ) );
 
                 // determine aliquot for colors etc.
@@ -351,18 +435,11 @@ public class DateProbabilityDensityPanel extends JLayeredPane
                     g2d.setComposite(originalComposite);
 
                     // now remove the deselected fractions
-                    activeStackedAliquotKernels = stackedAliquotKernels[selectedAliquotNumber].clone();
+                    Set<String> deSelectedKeys = new HashSet<>();
                     for (ETFractionInterface f : deSelectedFractions) {
-                        // April 2016 remove primary and secondary reference materials
-                        if (!f.isStandard() && !f.isSecondaryStandard()) {
-                            ValueModel date = f.getRadiogenicIsotopeDateByName(getChosenDateName());
-                            KernelF myKernel = new KernelF(date);
-                            for (int i = 0; i < pdfPoints.size(); i++) {
-                                double eval = evalKernelAt(myKernel, pdfPoints.get(i));
-                                activeStackedAliquotKernels[i] -= eval;
-                            }
-                        }
+                        deSelectedKeys.add(f.getFractionID());
                     }
+                    activeStackedAliquotKernels = visibleCurve(selectedAliquotNumber, deSelectedKeys)[1];
 
                     Path2D selectedFractionProbabilities = new Path2D.Double(Path2D.WIND_NON_ZERO);
 
@@ -371,10 +448,10 @@ public class DateProbabilityDensityPanel extends JLayeredPane
 
                     for (int i = startX; i <= endX; i++) {//for (int i = 0; i < pdfPoints.size(); i ++) {
                         selectedFractionProbabilities.lineTo(//
-                                mapX(pdfPoints.get(i)), mapY(activeStackedAliquotKernels[i] * scale + .01));
+                                mapX(curvePoints[i]), mapY(activeStackedAliquotKernels[i] * scale + .01));
                     }
 
-                    selectedFractionProbabilities.lineTo(mapX(pdfPoints.get(endX)), mapY(0.01));
+                    selectedFractionProbabilities.lineTo(mapX(curvePoints[endX]), mapY(0.01));
                     // selectedFractionProbabilities.moveTo( mapX( 4000.0 ), mapY( 0.01 ) );
 
                     // paint the active fractions full color
@@ -399,18 +476,19 @@ public class DateProbabilityDensityPanel extends JLayeredPane
 // May 2014 turn off                g2d.draw(sampleKDE);
             }
             // mark data points and collect them for histogram in visibleSample
-            List visibleSample = new ArrayList<>();
+            List<Double> visibleSample = new ArrayList<>();
 
             g2d.setPaint(Color.red);
-            for (int i = startX; i <= endX; i++) {
-                // test for actual data point
-                if (((pdfPoints.get(i) - Math.floor(pdfPoints.get(i))) > 0.0)//
+            double minVisibleDate = curvePoints[startX];
+            double maxVisibleDate = curvePoints[endX];
+            for (int i = 0; i < sortedDates.length; i++) {
+                if ((sortedDates[i] >= minVisibleDate) && (sortedDates[i] <= maxVisibleDate)//
                         &&//
-                        (mapX(pdfPoints.get(i)) >= leftMargin)) {
+                        (mapX(sortedDates[i]) >= leftMargin)) {
                     Ellipse2D selectedPoint = new Ellipse2D.Double( //
-                            mapX(pdfPoints.get(i)), mapY(stackedAliquotKernels[0][i] * scale + .01), 2, 2);
+                            mapX(sortedDates[i]), mapY(sampleDensityAtDates[i] * scale + .01), 2, 2);
 
-                    visibleSample.add(pdfPoints.get(i));
+                    visibleSample.add(sortedDates[i]);
                     g2d.fill(selectedPoint);
                 }
             }
@@ -422,21 +500,6 @@ public class DateProbabilityDensityPanel extends JLayeredPane
                 drawHistograms(g2d, visibleSample);
             }
 
-            double cursorAge = ((cursorBar.getX1() - leftMargin) * getRangeX_Display() / getGraphWidth()) + getMinX_Display();
-            if (cursorAge > getMinX_Display() && cursorAge < 4000) {
-                // draw cursor
-                g2d.setPaint(Color.red);
-                g2d.draw(cursorBar);
-                g2d.setPaint(Color.white);
-                g2d.fill(cursorLabel);
-                g2d.setPaint(Color.red);
-                g2d.draw(cursorLabel);
-
-                g2d.drawString(Integer.toString((int) Math.round(cursorAge)),//
-                        (float) cursorLabel.getX() + 2, (float) cursorLabel.getY() + 10);
-
-            }
-
             // april 2012 print local maxima labels after Victor Valencia request
             Iterator<Integer> maximaIterator = maxima.keySet().iterator();
             while (maximaIterator.hasNext()) {
@@ -553,27 +616,12 @@ public class DateProbabilityDensityPanel extends JLayeredPane
         if (countOfBins < 0) {
             countOfBins = 0;
         }
-        int[] histogram = new int[countOfBins];
+        // counts come from the sorted dates, so only the bin edges are searched
+        int[] histogram = dateHistogram.getCounts(//
+                visibleSample.get(0), getAdjustedScottsBinWidth(), countOfBins, visibleSample.get(visibleSample.size() - 1));
         int maxBinPopulation = 0;
-
-        for (int i = 0; i < visibleSample.size(); i += 1) {
-            int binNumber
-                    = //
-                    (int) Math.floor( //
-                            (visibleSample.get(i) - visibleSample.get(0)) / getAdjustedScottsBinWidth());
-
-//            System.out.println( "BIN = " + binNumber + "  " + (visibleSample.get( i ) - visibleSample.get( 0 )) / adjustedScottsBinWidth );
-            // catch last entry
-//            if ((binNumber == countOfBins) && (binNumber > 0)) {
-////                binNumber --;
-//            }
-            try {
-                histogram[binNumber]++;
-                if (histogram[binNumber] > maxBinPopulation) {
-                    maxBinPopulation = histogram[binNumber];
-                }
-            } catch (Exception e) {
-            }
+        for (int i = 0; i < histogram.length; i++) {
+            maxBinPopulation = Math.max(maxBinPopulation, histogram[i]);
         }
 
         selectedHistogramBinCount = countOfBins;
@@ -726,14 +774,6 @@ public class DateProbabilityDensityPanel extends JLayeredPane
         repaint();
     }
 
-    /**
-     *
-     */
-    public void prepareAndPaintPanel() {
-        preparePanel(true, false);
-        repaint();
-    }
-
     /**
      *
      * @param doReScale the value of doReScale
@@ -750,43 +790,46 @@ public class DateProbabilityDensityPanel extends JLayeredPane
         } catch (Exception e) {
         }
 
-        // modified to include actual measured data
-        // there is one point for each of 0 to 4000 inclusive plus a point for each of the actual data
-        pdfPoints = new ArrayList<>();
-        for (double i = 0; i < 4001; i++) {
-            pdfPoints.add(i);
-        }
-        for (ETFractionInterface f : selectedFractions) {
-            // nov 2011 add in tiny amount so that grapher can distinguish between annum and dates based on aaaa.0  vs aaaa.0000001
-            // April 2016 remove primary and secondary reference materials
-            if (!f.isStandard() && !f.isSecondaryStandard()) {
-                pdfPoints.add(f.getRadiogenicIsotopeDateByName(getChosenDateName()).getValue().movePointLeft(6).doubleValue() + 0.0000001);
-            }
+        densityPreparer.prepareNow(densityPreparation());
+    }
+
+    /**
+     * Prepares the densities in the background and repaints with them when
+     * they are ready; a later call supersedes one still in preparation.
+     */
+    public void prepareAndPaintPanel() {
+        this.removeAll();
+
+        try {
+            externalBinCountIntegerSpinner.setValueWithNoEvents(selectedHistogramBinCount);
+        } catch (Exception e) {
         }
-        Collections.sort(pdfPoints);
 
-        // one row for each aliquot even though some may be dummy aliquots, based on count
-        // row zero for sample totals and [0][size -+ 1] stores max for plotting scale
-        //stackedAliquotKernels = new double[sample.getAliquots().size() + 1][pdfPoints.size() + 1];
-        // aug 2016 hack to fix project problem
-        stackedAliquotKernels = new double[Math.max(sample.getAliquots().size(), 9) + 1][pdfPoints.size() + 1];
+        densityPreparer.prepare(densityPreparation());
+    }
+
+    /**
+     * Gathers the dates of the selected fractions, on the event dispatch
+     * thread, for a preparation of the densities that may run in the
+     * background.
+     *
+     * @return the preparation
+     */
+    private PlotPreparer.Preparation<DensityModel> densityPreparation() {
+        final String dateName = chosenDateName;
+        final int groupCount = Math.max(sample.getAliquots().size(), 9) + 1;
+        final double prominenceFraction = peakProminenceFraction;
 
         // June 2013 experiment with Vermeesch KDE
-        ArrayList<Double> X = new ArrayList<>();
-        ArrayList<Double> Y = new ArrayList<>();
-        ArrayList<Double> Z = new ArrayList<>();
-
-        // 4096 = 2^12
-        timescale = new double[4096];
-        for (int i = 0; i < timescale.length; i++) {
-            timescale[i] = i;
-        }
-        // end June 2013 experiment with Vermeesch KDE
+        final ArrayList<Double> X = new ArrayList<>();
+        final ArrayList<Double> Y = new ArrayList<>();
+        final ArrayList<Double> Z = new ArrayList<>();
 
+        final List<SelectedKernel> kernels = new ArrayList<>();
         for (ETFractionInterface f : selectedFractions) {
             // April 2016 remove primary standard
             if (!f.isStandard() && !f.isSecondaryStandard()) {
-                ValueModel date = f.getRadiogenicIsotopeDateByName(chosenDateName);
+                ValueModel date = f.getRadiogenicIsotopeDateByName(dateName);
 
                 // June 2013 experiment with Vermeesch KDE
                 X.add(date.getValue().movePointLeft(6).doubleValue());
@@ -794,78 +837,188 @@ public class DateProbabilityDensityPanel extends JLayeredPane
                 Z.add(Double.NaN);
                 // end June 2013 experiment with Vermeesch KDE
 
-                int aliquotNumber = f.getAliquotNumber();
                 KernelF myKernel = new KernelF(date);
-                for (int i = 0; i < pdfPoints.size(); i++) {
-                    double eval = evalKernelAt(myKernel, pdfPoints.get(i));
-                    stackedAliquotKernels[0][i] += eval;
-                    stackedAliquotKernels[aliquotNumber][i] += eval;
+                if ((myKernel.variance > 0.0) && !Double.isNaN(myKernel.meanDate)) {
+                    kernels.add(new SelectedKernel(f.getFractionID(), myKernel.meanDate, myKernel.variance, f.getAliquotNumber()));
                 }
             }
         }
 
-        // more vermeesch ************************
-        try {
-            OtherData otherData = new OtherData(X, Y, Z, new Preferences(true));
-            double[][] ae = otherData.getDataErrArray(otherData.preferences.logarithmic());
+        return (PlotPreparer.Cancellation cancellation) -> {
+            // there is one grid point for each of 0 to 4000 inclusive; the actual data are merged in below
+            // kernels are cached per fraction, so only those whose date or aliquot changed are re-evaluated
+            if ((workingDensityEngine == null) || !dateName.equals(densityEngineDateName)) {
+                workingDensityEngine = new ProbabilityDensityEngine(DENSITY_GRID, groupCount);
+                workingDateHistogram = new IncrementalHistogram();
+                densityEngineDateName = dateName;
+            }
 
-            KDE kde = new KDE();
-            pdfOfKDE = kde.pdf(ae[0], timescale, true);
+            DensityModel model = new DensityModel();
 
-            maxKDE = 0.0;
-            for (int i = 0; i < pdfOfKDE.length; i++) {
-                maxKDE = Math.max(maxKDE, pdfOfKDE[i]);
+            // 4096 = 2^12
+            model.timescale = new double[4096];
+            for (int i = 0; i < model.timescale.length; i++) {
+                model.timescale[i] = i;
             }
 
-        } catch (Exception ex) {
-        }
-        // end vermeesch ************************
+            Set<String> selectedKeys = new HashSet<>();
+            for (SelectedKernel kernel : kernels) {
+                selectedKeys.add(kernel.key);
+                if (!workingDensityEngine.contains(kernel.key, kernel.meanDate, kernel.variance, kernel.aliquotNumber)) {
+                    workingDensityEngine.add(kernel.key, kernel.meanDate, kernel.variance, kernel.aliquotNumber);
+                }
+                workingDateHistogram.add(kernel.key, kernel.meanDate);
+            }
+            workingDensityEngine.retainAll(selectedKeys);
+            workingDateHistogram.retainAll(selectedKeys);
 
-        double maxDateProb = 0.0;
-        for (int i = 0; i < pdfPoints.size(); i++) {
-            if (stackedAliquotKernels[0][i] > maxDateProb) {
-                maxDateProb = stackedAliquotKernels[0][i];
+            if (cancellation.isCancelled()) {
+                return null;
             }
-        }
-        stackedAliquotKernels[0][pdfPoints.size()] = maxDateProb;
 
-        // april 2012 experiment to detect maxima on curve
-        // this simplistic technique leverages what we know about this pdf
-        maxima = new HashMap<>();
-        maximaShown = new TreeMap<>();
+            // more vermeesch ************************
+            try {
+                OtherData otherData = new OtherData(X, Y, Z, new Preferences(true));
+                double[][] ae = otherData.getDataErrArray(otherData.preferences.logarithmic());
 
-        int currentMaxIndex = 0;
-        int currentMinIndex = 0;
-        boolean uphill = true;
-        for (int i = 1; i < pdfPoints.size(); i++) {
-            if (uphill) {
-                if (stackedAliquotKernels[0][i] < stackedAliquotKernels[0][currentMaxIndex]) {
-//                    System.out.println( //
-//                            "PEAK = " //
-//                            + (int) Math.round( pdfPoints.get( currentMaxIndex ) ) );
-
-                    maxima.put( //
-                            (int) Math.round(pdfPoints.get(currentMaxIndex)),//
-                            stackedAliquotKernels[0][currentMaxIndex]);
-                    maximaShown.put(//
-                            (int) Math.round(pdfPoints.get(currentMaxIndex)),//
-                            true);
-
-                    uphill = false;
-                    currentMinIndex = i;
-                } else {
-                    currentMaxIndex++;
+                model.pdfOfKDE = kde.pdf(ae[0], model.timescale, true);
+
+                for (int i = 0; i < model.pdfOfKDE.length; i++) {
+                    model.maxKDE = Math.max(model.maxKDE, model.pdfOfKDE[i]);
                 }
 
-            } else // downhill
-             if (stackedAliquotKernels[0][i] > stackedAliquotKernels[0][currentMinIndex]) {
-                    uphill = true;
-                    currentMaxIndex = i;
-                } else {
-                    currentMinIndex++;
+            } catch (Exception ex) {
+            }
+            // end vermeesch ************************
+
+            if (cancellation.isCancelled()) {
+                return null;
+            }
+
+            // merge the data into the grid so that the curve passes through each date
+            model.densityEngine = new ProbabilityDensityEngine(workingDensityEngine);
+            model.dateHistogram = new IncrementalHistogram(workingDateHistogram);
+            model.sortedDates = model.densityEngine.getSortedMeans();
+            model.sampleDensityAtDates = model.densityEngine.evaluate(model.sortedDates, 0, Collections.emptySet());
+            model.isDatePoint = new boolean[DENSITY_GRID.length + model.sortedDates.length];
+            model.pdfPoints = mergeDates(DENSITY_GRID, model.sortedDates, model.isDatePoint);
+            model.sampleDensity = mergeDensities(model.densityEngine.getDensity(0), model.sampleDensityAtDates, model.isDatePoint);
+
+            double maxDateProb = 0.0;
+            for (int i = 0; i < model.pdfPoints.length; i++) {
+                if (model.sampleDensity[i] > maxDateProb) {
+                    maxDateProb = model.sampleDensity[i];
                 }
+            }
+            model.maxSampleDensity = maxDateProb;
+
+            // april 2012 label local maxima; peaks are ranked by persistence so small wiggles can be dropped
+            model.maxima = new HashMap<>();
+            model.maximaShown = new TreeMap<>();
+
+            List<DensityPeakFinder.Peak> peaks = DensityPeakFinder.findPeaks(//
+                    model.pdfPoints, model.sampleDensity, prominenceFraction * maxDateProb);
+            for (DensityPeakFinder.Peak peak : peaks) {
+                model.maxima.put((int) Math.round(peak.getLocation()), peak.getHeight());
+                model.maximaShown.put((int) Math.round(peak.getLocation()), true);
+            }
+
+            return model;
+        };
+    }
+
+    /**
+     * Swaps the prepared densities into the panel, on the event dispatch
+     * thread.
+     *
+     * @param model
+     */
+    private void publishDensityModel(DensityModel model) {
+        densityEngine = model.densityEngine;
+        dateHistogram = model.dateHistogram;
+        timescale = model.timescale;
+        if (model.pdfOfKDE != null) {
+            pdfOfKDE = model.pdfOfKDE;
+            maxKDE = model.maxKDE;
+        }
+        sortedDates = model.sortedDates;
+        sampleDensityAtDates = model.sampleDensityAtDates;
+        isDatePoint = model.isDatePoint;
+        pdfPoints = model.pdfPoints;
+        sampleDensity = model.sampleDensity;
+        maxSampleDensity = model.maxSampleDensity;
+        maxima = model.maxima;
+        maximaShown = model.maximaShown;
+        curveCache.clear();
+
+        repaint();
+    }
+
+    private static double[] mergeDates(double[] grid, double[] sortedDates, boolean[] isDate) {
+        double[] merged = new double[grid.length + sortedDates.length];
+        int g = 0;
+        int d = 0;
+        for (int i = 0; i < merged.length; i++) {
+            isDate[i] = (d < sortedDates.length) && ((g == grid.length) || (sortedDates[d] < grid[g]));
+            merged[i] = isDate[i] ? sortedDates[d++] : grid[g++];
+        }
+        return merged;
+    }
+
+    private static double[] mergeDensities(double[] gridDensity, double[] dateDensity, boolean[] isDate) {
+        double[] merged = new double[isDate.length];
+        int g = 0;
+        int d = 0;
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = isDate[i] ? dateDensity[d++] : gridDensity[g++];
+        }
+        return merged;
+    }
+
+    /**
+     * The points and density of a curve across the visible range. The stored
+     * grid is used until zooming leaves fewer than one grid point per two
+     * pixels, after which the density is evaluated on a grid of one point per
+     * pixel. Results are cached until the data or the view change.
+     *
+     * @param group 0 for the sample, else the aliquot number
+     * @param excludedKeys fractions to leave out
+     * @return {points, density}
+     */
+    private double[][] visibleCurve(int group, Set<String> excludedKeys) {
+        double minDate = getMinX_Display();
+        double maxDate = getMaxX_Display();
+        int visibleGridPoints = ProbabilityDensityEngine.lowerBoundIndex(DENSITY_GRID, maxDate)//
+                - ProbabilityDensityEngine.lowerBoundIndex(DENSITY_GRID, minDate);
+        boolean refine = visibleGridPoints < (getGraphWidth() / 2);
+
+        CurveKey cacheKey = refine//
+                ? new CurveKey(group, excludedKeys, minDate, maxDate, getGraphWidth())//
+                : new CurveKey(group, excludedKeys, 0.0, 0.0, 0);
+        double[][] curve = curveCache.get(cacheKey);
+        if (curve == null) {
+            if (refine) {
+                double[] points = ProbabilityDensityEngine.buildRefinedGrid(//
+                        minDate, maxDate, Math.max(2, getGraphWidth() + 1), sortedDates);
+                curve = new double[][]{points, densityEngine.evaluate(points, group, excludedKeys)};
+            } else if ((group == 0) && excludedKeys.isEmpty()) {
+                curve = new double[][]{pdfPoints, sampleDensity};
+            } else {
+                double[] gridDensity = excludedKeys.isEmpty()//
+                        ? densityEngine.getDensity(group)//
+                        : densityEngine.getDensityExcluding(group, excludedKeys);
+                curve = new double[][]{pdfPoints, mergeDensities(//
+                    gridDensity, densityEngine.evaluate(sortedDates, group, excludedKeys), isDatePoint)};
+            }
+
+            // refined curves follow the view, so keep only the latest few
+            if (curveCache.size() > 8) {
+                curveCache.clear();
+            }
+            curveCache.put(cacheKey, curve);
         }
 
+        return curve;
     }
 
     /**
@@ -874,16 +1027,16 @@ public class DateProbabilityDensityPanel extends JLayeredPane
     public void showTight() {
         refreshPanel(true, false);
 
-        for (int i = 0; i < pdfPoints.size(); i++) {
-            if (stackedAliquotKernels[0][i] > 0.01) {
-                minX = Math.max(i - 100, DEFAULT_DISPLAY_MINX);
+        for (int i = 0; i < pdfPoints.length; i++) {
+            if (sampleDensity[i] > 0.01) {
+                minX = Math.max(pdfPoints[i] - 100, DEFAULT_DISPLAY_MINX);
                 break;
             }
         }
 
-        for (int i = pdfPoints.size() - 1; i > -1; i--) {
-            if (stackedAliquotKernels[0][i] > 0.01) {
-                maxX = Math.min(i + 100, DEFAULT_DISPLAY_MAXX);
+        for (int i = pdfPoints.length - 1; i > -1; i--) {
+            if (sampleDensity[i] > 0.01) {
+                maxX = Math.min(pdfPoints[i] + 100, DEFAULT_DISPLAY_MAXX);
                 break;
             }
         }
@@ -891,6 +1044,21 @@ public class DateProbabilityDensityPanel extends JLayeredPane
         repaint();
     }
 
+    /**
+     * @return the peakProminenceFraction
+     */
+    public double getPeakProminenceFraction() {
+        return peakProminenceFraction;
+    }
+
+    /**
+     * @param peakProminenceFraction the fraction of the highest density below
+     * which peaks are not labelled
+     */
+    public void setPeakProminenceFraction(double peakProminenceFraction) {
+        this.peakProminenceFraction = peakProminenceFraction;
+    }
+
     /**
      * @return the showHistogram
      */
@@ -1037,6 +1205,86 @@ public class DateProbabilityDensityPanel extends JLayeredPane
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
+    /**
+     * The kernel of a selected fraction, gathered for a preparation.
+     */
+    private static class SelectedKernel {
+
+        private final String key;
+        private final double meanDate;
+        private final double variance;
+        private final int aliquotNumber;
+
+        SelectedKernel(String key, double meanDate, double variance, int aliquotNumber) {
+            this.key = key;
+            this.meanDate = meanDate;
+            this.variance = variance;
+            this.aliquotNumber = aliquotNumber;
+        }
+    }
+
+    /**
+     * Identifies a cached curve by its group, its own copy of the excluded
+     * fractions and, for a refined curve, the view it was evaluated for.
+     */
+    private static class CurveKey {
+
+        private final int group;
+        private final Set<String> excludedKeys;
+        private final double minDate;
+        private final double maxDate;
+        private final int graphWidth;
+
+        CurveKey(int group, Set<String> excludedKeys, double minDate, double maxDate, int graphWidth) {
+            this.group = group;
+            this.excludedKeys = new HashSet<>(excludedKeys);
+            this.minDate = minDate;
+            this.maxDate = maxDate;
+            this.graphWidth = graphWidth;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof CurveKey)) {
+                return false;
+            }
+            CurveKey curveKey = (CurveKey) other;
+            return (group == curveKey.group)//
+                    && (Double.compare(minDate, curveKey.minDate) == 0)//
+                    && (Double.compare(maxDate, curveKey.maxDate) == 0)//
+                    && (graphWidth == curveKey.graphWidth)//
+                    && excludedKeys.equals(curveKey.excludedKeys);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 31 * group + excludedKeys.hashCode();
+            hash = 31 * hash + Double.hashCode(minDate);
+            hash = 31 * hash + Double.hashCode(maxDate);
+            return 31 * hash + graphWidth;
+        }
+    }
+
+    /**
+     * The densities of a preparation, swapped into the panel whole.
+     */
+    private static class DensityModel {
+
+        private ProbabilityDensityEngine densityEngine;
+        private IncrementalHistogram dateHistogram;
+        private double[] timescale;
+        private double[] pdfOfKDE;
+        private double maxKDE;
+        private double[] sortedDates;
+        private double[] sampleDensityAtDates;
+        private boolean[] isDatePoint;
+        private double[] pdfPoints;
+        private double[] sampleDensity;
+        private double maxSampleDensity;
+        private Map<Integer, Double> maxima;
+        private Map<Integer, Boolean> maximaShown;
+    }
+
     class KernelF implements Comparable<KernelF> {
 
         protected double meanDate;
@@ -1057,13 +1305,6 @@ public class DateProbabilityDensityPanel extends JLayeredPane
         }
     }
 
-    private double evalKernelAt(KernelF k, double x) {
-        double retval = (1.0 / Math.sqrt(2.0 * Math.PI * k.variance)) //
-                * Math.exp(-1.0 * Math.pow((x - k.meanDate), 2) / (2 * k.variance));
-
-        return retval;
-    }
-
     /**
      * @return the minX
      */
@@ -1262,7 +1503,7 @@ public class DateProbabilityDensityPanel extends JLayeredPane
         cursorBar = new Line2D.Double();
         cursorLabel = new Rectangle2D.Double();
         this.setToolTipText(null);
-        repaint();
+        plotLayers.repaintOverlay(this);
 
     }
 
@@ -1312,7 +1553,7 @@ public class DateProbabilityDensityPanel extends JLayeredPane
 
             cursorLabel = new Rectangle2D.Double(e.getX() - 13, e.getY() - 12, 26, 12);
 
-            repaint();
+            plotLayers.repaintOverlay(this);
         }
     }
 
@@ -1340,34 +1581,23 @@ public class DateProbabilityDensityPanel extends JLayeredPane
      * @param file
      */
     public void outputToSVG(File file) {
-
-        // Get a DOMImplementation.
-        DOMImplementation domImpl
-                = GenericDOMImplementation.getDOMImplementation();
-
-        // Create an instance of org.w3c.dom.Document.
-        String svgNS = "http://www.w3.org/2000/svg";
-        Document document = domImpl.createDocument(svgNS, "svg", null);
-
-        // Create an instance of the SVG Generator.
-        SVGGraphics2D svgGenerator = new SVGGraphics2D(document);
-
-        // Ask the test to render into the SVG Graphics2D implementation.
-        paint(svgGenerator);
-
-        // Finally, stream out SVG to the standard output using
-        // UTF-8 encoding.
-        boolean useCSS = true; // we want to use CSS style attributes
-
-        Writer out = null;
         try {
-            out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
-        } catch (FileNotFoundException fileNotFoundException) {
-        } catch (UnsupportedEncodingException unsupportedEncodingException) {
+            writeSVG(file);
+        } catch (IOException iOException) {
+            System.out.println(iOException.getMessage());
         }
-        try {
-            svgGenerator.stream(out, useCSS);
-        } catch (SVGGraphics2DIOException sVGGraphics2DIOException) {
+    }
+
+    /**
+     * As outputToSVG, but reports a failure to write.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeSVG(File file) throws IOException {
+        // streamed element by element rather than built as a document in memory
+        try (StreamingSVGGraphics2D svgGraphics = new StreamingSVGGraphics2D(file, getWidth(), getHeight())) {
+            paint(svgGraphics);
         }
     }
 
@@ -1463,6 +1693,7 @@ public class DateProbabilityDensityPanel extends JLayeredPane
      */
     public void setDeSelectedFractions(Vector<ETFractionInterface> deSelectedFractions) {
         this.deSelectedFractions = deSelectedFractions;
+        curveCache.clear();
     }
 
     /**
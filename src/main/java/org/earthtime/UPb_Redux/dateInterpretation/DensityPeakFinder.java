@@ -0,0 +1,165 @@
+/*
+ * DensityPeakFinder.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the peaks of a sampled density and ranks them by persistence. Points
+ * are visited from highest to lowest density while the connected runs of
+ * visited points are tracked; when two runs meet at a saddle the one with the
+ * lower summit ends, and its persistence, or prominence, is its summit less
+ * the saddle. The highest peak persists down to the lowest density. Small
+ * wiggles have small persistence and can be dropped with a minimum
+ * prominence, however many analyses make up the density.
+ *
+ * @author James F. Bowring
+ */
+public final class DensityPeakFinder {
+
+    private DensityPeakFinder() {
+    }
+
+    /**
+     *
+     * @param points the abscissae, ascending
+     * @param density the density at points
+     * @param minimumProminence peaks with less prominence are omitted, as
+     * are flat stretches with none
+     * @return the peaks in decreasing order of prominence
+     */
+    public static List<Peak> findPeaks(double[] points, double[] density, double minimumProminence) {
+        int n = density.length;
+        List<Peak> peaks = new ArrayList<>();
+        if (n == 0) {
+            return peaks;
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        // highest first; ties by position so plateaus resolve to their left end
+        Arrays.sort(order, (Integer a, Integer b) -> {
+            int comparison = Double.compare(density[b], density[a]);
+            return (comparison != 0) ? comparison : Integer.compare(a, b);
+        });
+
+        // union-find over visited points, each root recording the summit of its run
+        int[] parent = new int[n];
+        int[] summit = new int[n];
+        boolean[] visited = new boolean[n];
+
+        for (int index : order) {
+            visited[index] = true;
+            parent[index] = index;
+            summit[index] = index;
+
+            int left = (index > 0 && visited[index - 1]) ? find(parent, index - 1) : -1;
+            int right = (index < n - 1 && visited[index + 1]) ? find(parent, index + 1) : -1;
+
+            if ((left >= 0) && (right >= 0)) {
+                // a saddle: the run with the lower summit ends here
+                int higher = (isHigher(density, summit[left], summit[right])) ? left : right;
+                int lower = (higher == left) ? right : left;
+                double prominence = density[summit[lower]] - density[index];
+                if ((prominence > 0.0) && (prominence >= minimumProminence)) {
+                    peaks.add(new Peak(summit[lower], points[summit[lower]], density[summit[lower]], prominence));
+                }
+                parent[lower] = higher;
+                parent[index] = higher;
+            } else if (left >= 0) {
+                parent[index] = left;
+            } else if (right >= 0) {
+                parent[index] = right;
+            }
+        }
+
+        // the global maximum persists down to the global minimum
+        int globalSummit = order[0];
+        double globalProminence = density[globalSummit] - density[order[n - 1]];
+        if ((globalProminence > 0.0) && (globalProminence >= minimumProminence)) {
+            peaks.add(new Peak(globalSummit, points[globalSummit], density[globalSummit], globalProminence));
+        }
+
+        Collections.sort(peaks, (Peak a, Peak b) -> Double.compare(b.getProminence(), a.getProminence()));
+        return peaks;
+    }
+
+    private static boolean isHigher(double[] density, int a, int b) {
+        return (density[a] > density[b]) || ((density[a] == density[b]) && (a < b));
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * A local maximum of the density and its prominence.
+     */
+    public static class Peak {
+
+        private final int index;
+        private final double location;
+        private final double height;
+        private final double prominence;
+
+        Peak(int index, double location, double height, double prominence) {
+            this.index = index;
+            this.location = location;
+            this.height = height;
+            this.prominence = prominence;
+        }
+
+        /**
+         * @return the index of the summit in the density array
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the abscissa of the summit
+         */
+        public double getLocation() {
+            return location;
+        }
+
+        /**
+         * @return the density at the summit
+         */
+        public double getHeight() {
+            return height;
+        }
+
+        /**
+         * @return the height of the summit above the saddle at which it
+         * merges with a higher peak
+         */
+        public double getProminence() {
+            return prominence;
+        }
+    }
+}
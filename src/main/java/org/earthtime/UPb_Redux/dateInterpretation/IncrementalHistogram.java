@@ -0,0 +1,218 @@
+/*
+ * IncrementalHistogram.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Histogram of named values kept as a sorted primitive array, so that
+ * toggling an analysis is a single insertion or removal and bin counts for
+ * any origin, bin width and bin count follow from two binary searches per
+ * bin rather than a pass over the data. The last set of counts is cached
+ * until the values or the binning change.
+ *
+ * @author James F. Bowring
+ */
+public class IncrementalHistogram {
+
+    private final Map<String, Double> values;
+    private double[] sortedValues;
+    private int size;
+    private long version;
+    // cache of the last binning
+    private long cachedVersion;
+    private double cachedOrigin;
+    private double cachedBinWidth;
+    private double cachedMaximum;
+    private int[] cachedCounts;
+
+    /**
+     *
+     */
+    public IncrementalHistogram() {
+        this.values = new HashMap<>();
+        this.sortedValues = new double[16];
+        this.size = 0;
+        this.version = 0;
+        this.cachedVersion = -1;
+        this.cachedCounts = null;
+    }
+
+    /**
+     * A copy of histogram that changes independently of it, as for painting
+     * while the original is updated in the background.
+     *
+     * @param histogram
+     */
+    public IncrementalHistogram(IncrementalHistogram histogram) {
+        this.values = new HashMap<>(histogram.values);
+        this.sortedValues = histogram.sortedValues.clone();
+        this.size = histogram.size;
+        this.version = histogram.version;
+        this.cachedVersion = -1;
+        this.cachedCounts = null;
+    }
+
+    /**
+     * Adds, or replaces, the value named key.
+     *
+     * @param key
+     * @param value
+     */
+    public void add(String key, double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Value must be a number for " + key + ".");
+        }
+        Double previous = values.get(key);
+        if ((previous != null) && (previous == value)) {
+            return;
+        }
+        remove(key);
+        values.put(key, value);
+
+        if (size == sortedValues.length) {
+            sortedValues = Arrays.copyOf(sortedValues, 2 * size);
+        }
+        int insertion = lowerBound(value);
+        System.arraycopy(sortedValues, insertion, sortedValues, insertion + 1, size - insertion);
+        sortedValues[insertion] = value;
+        size++;
+        version++;
+    }
+
+    /**
+     *
+     * @param key
+     * @return true if key was present
+     */
+    public boolean remove(String key) {
+        Double value = values.remove(key);
+        if (value == null) {
+            return false;
+        }
+        int index = lowerBound(value);
+        System.arraycopy(sortedValues, index + 1, sortedValues, index, size - index - 1);
+        size--;
+        version++;
+        return true;
+    }
+
+    /**
+     * Removes every value whose key is not in keys.
+     *
+     * @param keys
+     */
+    public void retainAll(Collection<String> keys) {
+        String[] presentKeys = values.keySet().toArray(new String[values.size()]);
+        for (String key : presentKeys) {
+            if (!keys.contains(key)) {
+                remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *
+     * @param minimum
+     * @param maximum
+     * @return the number of values in [minimum, maximum]
+     */
+    public int countInRange(double minimum, double maximum) {
+        return lowerBound(Math.nextUp(maximum)) - lowerBound(minimum);
+    }
+
+    /**
+     *
+     * @param minimum
+     * @param maximum
+     * @return the sorted values in [minimum, maximum]
+     */
+    public double[] getValuesInRange(double minimum, double maximum) {
+        return Arrays.copyOfRange(sortedValues, lowerBound(minimum), lowerBound(Math.nextUp(maximum)));
+    }
+
+    /**
+     * Counts values into binCount bins of binWidth starting at origin; bin i
+     * holds [origin + i * binWidth, origin + (i + 1) * binWidth).
+     *
+     * @param origin
+     * @param binWidth must be positive
+     * @param binCount
+     * @return the counts, which must not be modified
+     */
+    public int[] getCounts(double origin, double binWidth, int binCount) {
+        return getCounts(origin, binWidth, binCount, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * As getCounts, counting only values no greater than maximum.
+     *
+     * @param origin
+     * @param binWidth must be positive
+     * @param binCount
+     * @param maximum
+     * @return the counts, which must not be modified
+     */
+    public int[] getCounts(double origin, double binWidth, int binCount, double maximum) {
+        binCount = Math.max(0, binCount);
+        if ((cachedCounts != null) && (cachedVersion == version) && (cachedOrigin == origin)//
+                && (cachedBinWidth == binWidth) && (cachedMaximum == maximum) && (cachedCounts.length == binCount)) {
+            return cachedCounts;
+        }
+
+        int[] counts = new int[binCount];
+        int end = lowerBound(Math.nextUp(maximum));
+        int lower = Math.min(lowerBound(origin), end);
+        for (int i = 0; i < binCount; i++) {
+            int upper = Math.min(lowerBound(origin + (i + 1) * binWidth), end);
+            counts[i] = upper - lower;
+            lower = upper;
+        }
+
+        cachedVersion = version;
+        cachedOrigin = origin;
+        cachedBinWidth = binWidth;
+        cachedMaximum = maximum;
+        cachedCounts = counts;
+        return counts;
+    }
+
+    private int lowerBound(double value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
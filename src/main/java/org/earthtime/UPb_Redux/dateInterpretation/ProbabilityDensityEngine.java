@@ -0,0 +1,399 @@
+/*
+ * ProbabilityDensityEngine.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sum of Gaussian kernels, one per analysis, evaluated on a fixed sorted grid
+ * of dates and held as primitive arrays. Kernels are truncated at
+ * TRUNCATION_SIGMAS and each keeps its own contribution to the grid, so that
+ * adding or removing an analysis costs only the width of its kernel. Every
+ * kernel belongs to a group (e.g. an aliquot number); group 0 is the sum over
+ * all kernels.
+ *
+ * Densities at arbitrary sorted points, such as a finer grid across the
+ * visible range, are evaluated by a sweep over the kernels sorted by their
+ * lower bounds.
+ *
+ * @author James F. Bowring
+ */
+public class ProbabilityDensityEngine {
+
+    /**
+     * kernels are evaluated within this many standard deviations of their mean
+     */
+    public static final double TRUNCATION_SIGMAS = 6.0;
+    /**
+     * updates between rebuilds of the grid densities from the retained
+     * contributions
+     */
+    public static final int REACCUMULATION_INTERVAL = 1024;
+    private final double[] grid;
+    private double[][] densities;
+    private final Map<String, Kernel> kernels;
+    private int updatesSinceReaccumulation;
+    private long version;
+    // kernels sorted by lower bound, rebuilt on demand after changes
+    private Kernel[] sortedKernels;
+
+    /**
+     *
+     * @param grid sorted dates at which densities are kept
+     * @param groupCount one more than the largest expected group number; grown
+     * as needed
+     */
+    public ProbabilityDensityEngine(double[] grid, int groupCount) {
+        this.grid = grid.clone();
+        this.densities = new double[Math.max(1, groupCount)][grid.length];
+        this.kernels = new HashMap<>();
+        this.updatesSinceReaccumulation = 0;
+        this.version = 0;
+        this.sortedKernels = null;
+    }
+
+    /**
+     * A copy of engine that changes independently of it, as for painting
+     * while the original is updated in the background. Kernels do not change
+     * once added, so they are shared.
+     *
+     * @param engine
+     */
+    public ProbabilityDensityEngine(ProbabilityDensityEngine engine) {
+        this.grid = engine.grid;
+        this.densities = new double[engine.densities.length][];
+        for (int g = 0; g < densities.length; g++) {
+            densities[g] = engine.densities[g].clone();
+        }
+        this.kernels = new HashMap<>(engine.kernels);
+        this.updatesSinceReaccumulation = engine.updatesSinceReaccumulation;
+        this.version = engine.version;
+        this.sortedKernels = null;
+    }
+
+    /**
+     * Adds, or replaces, the kernel named key.
+     *
+     * @param key
+     * @param mean
+     * @param variance must be positive
+     * @param group at least 1; the kernel is also counted in group 0
+     */
+    public void add(String key, double mean, double variance, int group) {
+        if (!(variance > 0.0)) {
+            throw new IllegalArgumentException("Variance must be positive for " + key + ".");
+        }
+        remove(key);
+
+        if (group >= densities.length) {
+            densities = Arrays.copyOf(densities, group + 1);
+            for (int g = 0; g < densities.length; g++) {
+                if (densities[g] == null) {
+                    densities[g] = new double[grid.length];
+                }
+            }
+        }
+
+        Kernel kernel = new Kernel(key, mean, variance, group);
+        kernel.firstIndex = lowerBoundIndex(grid, kernel.lowerBound);
+        int lastIndex = lowerBoundIndex(grid, Math.nextUp(kernel.upperBound));
+        kernel.values = new double[Math.max(0, lastIndex - kernel.firstIndex)];
+        for (int i = 0; i < kernel.values.length; i++) {
+            kernel.values[i] = kernel.evaluate(grid[kernel.firstIndex + i]);
+        }
+
+        kernels.put(key, kernel);
+        accumulate(kernel, 1.0);
+        countUpdate();
+    }
+
+    /**
+     *
+     * @param key
+     * @return true if key was present
+     */
+    public boolean remove(String key) {
+        Kernel kernel = kernels.remove(key);
+        if (kernel == null) {
+            return false;
+        }
+        accumulate(kernel, -1.0);
+        countUpdate();
+        return true;
+    }
+
+    /**
+     * Removes every kernel whose key is not in keys.
+     *
+     * @param keys
+     */
+    public void retainAll(Collection<String> keys) {
+        String[] presentKeys = kernels.keySet().toArray(new String[kernels.size()]);
+        for (String key : presentKeys) {
+            if (!keys.contains(key)) {
+                remove(key);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param key
+     * @param mean
+     * @param variance
+     * @param group
+     * @return true if the kernel named key is present with exactly these
+     * parameters
+     */
+    public boolean contains(String key, double mean, double variance, int group) {
+        Kernel kernel = kernels.get(key);
+        return (kernel != null) && (kernel.mean == mean) && (kernel.variance == variance) && (kernel.group == group);
+    }
+
+    /**
+     * @return the number of kernels
+     */
+    public int size() {
+        return kernels.size();
+    }
+
+    /**
+     * @return a count of changes, for use as a cache key
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the grid, which must not be modified
+     */
+    public double[] getGrid() {
+        return grid;
+    }
+
+    /**
+     *
+     * @param group
+     * @return the density on the grid, which must not be modified
+     */
+    public double[] getDensity(int group) {
+        if (group >= densities.length) {
+            return new double[grid.length];
+        }
+        return densities[group];
+    }
+
+    /**
+     *
+     * @param group
+     * @param excludedKeys kernels to leave out; keys not present are ignored
+     * @return a new array of the density on the grid without the excluded
+     * kernels
+     */
+    public double[] getDensityExcluding(int group, Collection<String> excludedKeys) {
+        double[] density = getDensity(group).clone();
+        for (String key : excludedKeys) {
+            Kernel kernel = kernels.get(key);
+            if ((kernel != null) && ((group == 0) || (kernel.group == group))) {
+                for (int i = 0; i < kernel.values.length; i++) {
+                    density[kernel.firstIndex + i] = Math.max(0.0, density[kernel.firstIndex + i] - kernel.values[i]);
+                }
+            }
+        }
+        return density;
+    }
+
+    /**
+     * @return the sorted means of all kernels
+     */
+    public double[] getSortedMeans() {
+        double[] means = new double[kernels.size()];
+        int i = 0;
+        for (Kernel kernel : kernels.values()) {
+            means[i++] = kernel.mean;
+        }
+        Arrays.sort(means);
+        return means;
+    }
+
+    /**
+     * Evaluates the density at arbitrary points, summing only those kernels
+     * whose truncated support covers each point.
+     *
+     * @param sortedPoints ascending
+     * @param group
+     * @param excludedKeys kernels to leave out; may be empty
+     * @return
+     */
+    public double[] evaluate(double[] sortedPoints, int group, Collection<String> excludedKeys) {
+        double[] density = new double[sortedPoints.length];
+        if (sortedPoints.length == 0) {
+            return density;
+        }
+
+        double lastPoint = sortedPoints[sortedPoints.length - 1];
+        for (Kernel kernel : getSortedKernels()) {
+            if (kernel.lowerBound > lastPoint) {
+                break;
+            }
+            if (((group != 0) && (kernel.group != group)) || excludedKeys.contains(kernel.key)) {
+                continue;
+            }
+            for (int i = lowerBoundIndex(sortedPoints, kernel.lowerBound); //
+                    (i < sortedPoints.length) && (sortedPoints[i] <= kernel.upperBound); i++) {
+                density[i] += kernel.evaluate(sortedPoints[i]);
+            }
+        }
+
+        return density;
+    }
+
+    /**
+     * Builds a uniform grid of pointCount points across [minimum, maximum]
+     * merged with the given sorted dates that fall inside it, for drawing the
+     * visible range at a resolution independent of the stored grid.
+     *
+     * @param minimum
+     * @param maximum
+     * @param pointCount at least 2
+     * @param sortedDates
+     * @return
+     */
+    public static double[] buildRefinedGrid(double minimum, double maximum, int pointCount, double[] sortedDates) {
+        int first = lowerBoundIndex(sortedDates, minimum);
+        int last = lowerBoundIndex(sortedDates, Math.nextUp(maximum));
+        double[] refined = new double[pointCount + Math.max(0, last - first)];
+
+        double step = (maximum - minimum) / (pointCount - 1);
+        int uniform = 0;
+        int date = first;
+        for (int i = 0; i < refined.length; i++) {
+            double uniformPoint = (uniform < pointCount) ? (minimum + uniform * step) : Double.POSITIVE_INFINITY;
+            if ((date < last) && (sortedDates[date] < uniformPoint)) {
+                refined[i] = sortedDates[date++];
+            } else {
+                refined[i] = uniformPoint;
+                uniform++;
+            }
+        }
+        return refined;
+    }
+
+    /**
+     *
+     * @param sorted ascending
+     * @param value
+     * @return the index of the first entry not less than value
+     */
+    static int lowerBoundIndex(double[] sorted, double value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Kernel[] getSortedKernels() {
+        if (sortedKernels == null) {
+            sortedKernels = kernels.values().toArray(new Kernel[kernels.size()]);
+            Arrays.sort(sortedKernels, (Kernel a, Kernel b) -> Double.compare(a.lowerBound, b.lowerBound));
+        }
+        return sortedKernels;
+    }
+
+    private void accumulate(Kernel kernel, double sign) {
+        double[] all = densities[0];
+        double[] groupDensity = densities[kernel.group];
+        for (int i = 0; i < kernel.values.length; i++) {
+            double value = sign * kernel.values[i];
+            all[kernel.firstIndex + i] += value;
+            if (kernel.group != 0) {
+                groupDensity[kernel.firstIndex + i] += value;
+            }
+        }
+    }
+
+    private void countUpdate() {
+        version++;
+        sortedKernels = null;
+        updatesSinceReaccumulation++;
+        if (updatesSinceReaccumulation >= REACCUMULATION_INTERVAL) {
+            reaccumulate();
+        }
+    }
+
+    /**
+     * Rebuilds the grid densities from the retained contributions, removing
+     * rounding left by removals.
+     */
+    public void reaccumulate() {
+        updatesSinceReaccumulation = 0;
+        for (double[] density : densities) {
+            Arrays.fill(density, 0.0);
+        }
+        for (Kernel kernel : kernels.values()) {
+            accumulate(kernel, 1.0);
+        }
+    }
+
+    /**
+     * @return the keys of the kernels, unmodifiable
+     */
+    public Collection<String> getKeys() {
+        return Collections.unmodifiableSet(kernels.keySet());
+    }
+
+    private static class Kernel {
+
+        private final String key;
+        private final double mean;
+        private final double variance;
+        private final int group;
+        private final double normalization;
+        private final double lowerBound;
+        private final double upperBound;
+        private int firstIndex;
+        private double[] values;
+
+        Kernel(String key, double mean, double variance, int group) {
+            this.key = key;
+            this.mean = mean;
+            this.variance = variance;
+            this.group = group;
+            this.normalization = 1.0 / Math.sqrt(2.0 * Math.PI * variance);
+            double halfWidth = TRUNCATION_SIGMAS * Math.sqrt(variance);
+            this.lowerBound = mean - halfWidth;
+            this.upperBound = mean + halfWidth;
+        }
+
+        double evaluate(double x) {
+            double d = x - mean;
+            return normalization * Math.exp(-d * d / (2.0 * variance));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * SampleDateModelsScheduler.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.SwingUtilities;
+import org.earthtime.UPb_Redux.valueModels.SampleDateModel;
+import org.earthtime.UPb_Redux.valueModels.ValueModel;
+import org.earthtime.aliquots.AliquotInterface;
+
+/**
+ * Calculates the sample date models of the aliquots of a sample in analysis
+ * mode on a shared pool of background threads, one task per aliquot that
+ * calculates its models in turn, and publishes each aliquot's models to the
+ * subscriber on the event dispatch thread as its task completes.
+ *
+ * A task calculates copies of the models, so the models themselves are only
+ * read and written on the event dispatch thread, where the results are copied
+ * back; the lower intercept copy is calculated by the upper intercept copy in
+ * the same task. A result is dropped if the fractions of its model were
+ * changed in the meantime. Scheduling a new run cancels the current one, and
+ * results of a cancelled run are never published.
+ *
+ * The models of samples in compilation mode are still calculated in place.
+ *
+ * @author James F. Bowring
+ */
+public class SampleDateModelsScheduler {
+
+    private static final ExecutorService SAMPLE_DATE_MODELS_EXECUTOR
+            = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), (Runnable runnable) -> {
+                Thread thread = new Thread(runnable, "Sample date models");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final SampleDateModelsSubscribeInterface subscriber;
+    private final AtomicLong currentRun;
+    private final List<Future<?>> pendingCalculations;
+
+    /**
+     *
+     * @param subscriber
+     */
+    public SampleDateModelsScheduler(SampleDateModelsSubscribeInterface subscriber) {
+        this.subscriber = subscriber;
+        this.currentRun = new AtomicLong(0);
+        this.pendingCalculations = new ArrayList<>();
+    }
+
+    /**
+     * Calculates the sample date models of each aliquot; called on the event
+     * dispatch thread.
+     *
+     * @param aliquots
+     */
+    public synchronized void scheduleForAliquots(List<AliquotInterface> aliquots) {
+        cancel();
+        final long run = currentRun.get();
+
+        List<List<SampleDateModelCalculation>> aliquotsCalculations = new ArrayList<>();
+        for (AliquotInterface aliquot : aliquots) {
+            ValueModel lowerInterceptModel = aliquot.getASampleDateModelByName("lower intercept");
+            SampleDateModel lowerInterceptCopy = null;
+            if (lowerInterceptModel instanceof SampleDateModel) {
+                ((SampleDateModel) lowerInterceptModel).setAliquot(aliquot);
+                lowerInterceptCopy = ((SampleDateModel) lowerInterceptModel).copyForCalculation();
+            }
+
+            List<SampleDateModelCalculation> calculations = new ArrayList<>();
+            for (ValueModel sam : aliquot.getSampleDateModels()) {
+                SampleDateModel sampleDateModel = (SampleDateModel) sam;
+                if (!isCalculatedByUpperIntercept(sampleDateModel)) {
+                    sampleDateModel.setAliquot(aliquot);
+                    calculations.add(new SampleDateModelCalculation(//
+                            sampleDateModel, //
+                            sampleDateModel.copyForCalculation(), //
+                            lowerInterceptModel, //
+                            lowerInterceptCopy));
+                }
+            }
+            if (!calculations.isEmpty()) {
+                aliquotsCalculations.add(calculations);
+            }
+        }
+
+        if (aliquotsCalculations.isEmpty()) {
+            SwingUtilities.invokeLater(() -> {
+                if (currentRun.get() == run) {
+                    subscriber.publishCompletionOfSampleDateModels();
+                }
+            });
+        }
+
+        AtomicInteger remainingAliquots = new AtomicInteger(aliquotsCalculations.size());
+        for (List<SampleDateModelCalculation> calculations : aliquotsCalculations) {
+            pendingCalculations.add(SAMPLE_DATE_MODELS_EXECUTOR.submit(() -> {
+                for (SampleDateModelCalculation calculation : calculations) {
+                    if (currentRun.get() != run) {
+                        return;
+                    }
+                    try {
+                        calculation.sampleDateModelCopy.CalculateDateInterpretationForAliquot(calculation.lowerInterceptCopy);
+                    } catch (Exception e) {
+                        // as when calculated in place, a failed model keeps its zeroed values
+                    }
+                }
+
+                SwingUtilities.invokeLater(() -> {
+                    if (currentRun.get() == run) {
+                        for (SampleDateModelCalculation calculation : calculations) {
+                            publish(calculation);
+                        }
+                        if (remainingAliquots.decrementAndGet() == 0) {
+                            subscriber.publishCompletionOfSampleDateModels();
+                        }
+                    }
+                });
+            }));
+        }
+    }
+
+    /**
+     * Cancels the current run, if any.
+     */
+    public synchronized void cancel() {
+        currentRun.incrementAndGet();
+        for (Future<?> pendingCalculation : pendingCalculations) {
+            pendingCalculation.cancel(false);
+        }
+        pendingCalculations.clear();
+    }
+
+    /**
+     * @return true if the current run has calculations not yet started or
+     * still in progress
+     */
+    public synchronized boolean isCalculating() {
+        for (Future<?> pendingCalculation : pendingCalculations) {
+            if (!pendingCalculation.isDone()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCalculatedByUpperIntercept(SampleDateModel sampleDateModel) {
+        return sampleDateModel.getMethodName().equalsIgnoreCase("LowerIntercept");
+    }
+
+    private void publish(SampleDateModelCalculation calculation) {
+        SampleDateModel sampleDateModel = calculation.sampleDateModel;
+        if (!sampleDateModel.getIncludedFractionIDsVector().equals(calculation.sampleDateModelCopy.getIncludedFractionIDsVector())) {
+            // recalculated in place since this run began
+            return;
+        }
+
+        sampleDateModel.copyCalculatedValuesFrom(calculation.sampleDateModelCopy);
+        subscriber.publishSampleDateModel(sampleDateModel);
+
+        if (sampleDateModel.getMethodName().equalsIgnoreCase("UpperIntercept")//
+                && (calculation.lowerInterceptModel instanceof SampleDateModel)) {
+            SampleDateModel lowerInterceptModel = (SampleDateModel) calculation.lowerInterceptModel;
+            lowerInterceptModel.setIncludedFractionIDsVector(sampleDateModel.getIncludedFractionIDsVector());
+            lowerInterceptModel.copyCalculatedValuesFrom(calculation.lowerInterceptCopy);
+            subscriber.publishSampleDateModel(lowerInterceptModel);
+        }
+    }
+
+    private static class SampleDateModelCalculation {
+
+        private final SampleDateModel sampleDateModel;
+        private final SampleDateModel sampleDateModelCopy;
+        private final ValueModel lowerInterceptModel;
+        private final SampleDateModel lowerInterceptCopy;
+
+        SampleDateModelCalculation(SampleDateModel sampleDateModel, SampleDateModel sampleDateModelCopy, //
+                ValueModel lowerInterceptModel, SampleDateModel lowerInterceptCopy) {
+            this.sampleDateModel = sampleDateModel;
+            this.sampleDateModelCopy = sampleDateModelCopy;
+            this.lowerInterceptModel = lowerInterceptModel;
+            this.lowerInterceptCopy = lowerInterceptCopy;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * SampleDateModelsSubscribeInterface.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation;
+
+import org.earthtime.UPb_Redux.valueModels.SampleDateModel;
+
+/**
+ * Receives the results of a SampleDateModelsScheduler run. Both methods are
+ * called on the event dispatch thread, and only for the current run.
+ *
+ * @author James F. Bowring
+ */
+public interface SampleDateModelsSubscribeInterface {
+
+    /**
+     * called as each sample date model is calculated
+     *
+     * @param sampleDateModel
+     */
+    public void publishSampleDateModel(SampleDateModel sampleDateModel);
+
+    /**
+     * called once every sample date model of the run has been published
+     */
+    public void publishCompletionOfSampleDateModels();
+}
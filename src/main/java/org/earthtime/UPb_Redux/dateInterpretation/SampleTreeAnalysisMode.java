@@ -57,7 +57,7 @@ import org.earthtime.samples.SampleInterface;
  *
  * @author James F. Bowring
  */
-public class SampleTreeAnalysisMode extends JTree implements SampleTreeI {
+public class SampleTreeAnalysisMode extends JTree implements SampleTreeI, SampleDateModelsSubscribeInterface {
 
     // instance variables
     private SampleInterface sample;
@@ -67,6 +67,7 @@ public class SampleTreeAnalysisMode extends JTree implements SampleTreeI {
     private int selRow;
     private int selRowX;
     private int selRowY;
+    private final SampleDateModelsScheduler sampleDateModelsScheduler;
 
     /**
      * Creates a new instance of SampleTreeAnalysisMode
@@ -74,6 +75,7 @@ public class SampleTreeAnalysisMode extends JTree implements SampleTreeI {
     public SampleTreeAnalysisMode() {
         super();
         sample = null;
+        sampleDateModelsScheduler = new SampleDateModelsScheduler(this);
     }
 
     /**
@@ -83,6 +85,7 @@ public class SampleTreeAnalysisMode extends JTree implements SampleTreeI {
     public SampleTreeAnalysisMode(SampleInterface mySample) {
         super(new DefaultMutableTreeNode(mySample));
         sample = mySample;
+        sampleDateModelsScheduler = new SampleDateModelsScheduler(this);
 
         CheckBoxNodeRenderer renderer = new CheckBoxNodeRenderer();
         setCellRenderer(renderer);
@@ -184,9 +187,6 @@ public class SampleTreeAnalysisMode extends JTree implements SampleTreeI {
                     // give sample Date interpretation a value for aliquot
                     ((SampleDateModel) tempAliquot.getSampleDateModels().get(index)).//
                             setAliquot(tempAliquot);
-                    // calculate sample age
-                    ((SampleDateModel) tempAliquot.getSampleDateModels().get(index)).//
-                            CalculateDateInterpretationForAliquot();
 
                     populateSampleDateModel(
                             activeFractionIDs,
@@ -222,6 +222,57 @@ public class SampleTreeAnalysisMode extends JTree implements SampleTreeI {
         // set sample as default selection
         setSelectionRow(0);
 
+        // calculate sample ages in the background; nodes update as each completes
+        sampleDateModelsScheduler.scheduleForAliquots(sample.getActiveAliquots());
+    }
+
+    /**
+     * Refreshes the date and MSWD nodes of sampleDateModel.
+     *
+     * @param sampleDateModel
+     */
+    @Override
+    public void publishSampleDateModel(SampleDateModel sampleDateModel) {
+        DefaultTreeModel treeModel = (DefaultTreeModel) getModel();
+        DefaultMutableTreeNode rootNode = (DefaultMutableTreeNode) treeModel.getRoot();
+        for (int i = 0; i < rootNode.getChildCount(); i++) {
+            DefaultMutableTreeNode aliquotNode = (DefaultMutableTreeNode) rootNode.getChildAt(i);
+            for (int j = 0; j < aliquotNode.getChildCount(); j++) {
+                DefaultMutableTreeNode sampleDateModelNode = (DefaultMutableTreeNode) aliquotNode.getChildAt(j);
+                if ((sampleDateModelNode.getUserObject() == sampleDateModel) && (sampleDateModelNode.getChildCount() > 1)) {
+                    DefaultMutableTreeNode sampleDateValue = (DefaultMutableTreeNode) sampleDateModelNode.getChildAt(0);
+                    sampleDateValue.setUserObject(sampleDateModel.ShowCustomDateNode());
+                    treeModel.nodeChanged(sampleDateValue);
+
+                    DefaultMutableTreeNode sampleDateMSWD = (DefaultMutableTreeNode) sampleDateModelNode.getChildAt(1);
+                    sampleDateMSWD.setUserObject(sampleDateModel.ShowCustomMSWDwithN());
+                    treeModel.nodeChanged(sampleDateMSWD);
+
+                    treeModel.nodeChanged(sampleDateModelNode);
+                }
+            }
+        }
+
+        if (sampleTreeChange != null) {
+            sampleTreeChange.sampleTreeDateModelCalculated(sampleDateModel);
+        }
+    }
+
+    /**
+     * Saves the sample once all of its sample date models are calculated.
+     */
+    @Override
+    public void publishCompletionOfSampleDateModels() {
+        repaint();
+        SampleInterface.saveSampleAsSerializedReduxFile(sample);
+    }
+
+    /**
+     *
+     */
+    @Override
+    public void cancelSampleDateModels() {
+        sampleDateModelsScheduler.cancel();
     }
 
     @Override
@@ -21,6 +21,8 @@
 
 package org.earthtime.UPb_Redux.dateInterpretation;
 
+import org.earthtime.UPb_Redux.valueModels.SampleDateModel;
+
 /**
  *
  * @author James F. Bowring
@@ -38,4 +40,13 @@ public interface SampleTreeChangeI {
      * @param nodeInfo
      */
     abstract void sampleTreeChangeCompilationMode(Object nodeInfo);
+
+    /**
+     * called on the event dispatch thread when the tree has been updated with
+     * a sample date model calculated in the background
+     *
+     * @param sampleDateModel
+     */
+    default void sampleTreeDateModelCalculated(SampleDateModel sampleDateModel) {
+    }
 }
@@ -36,6 +36,13 @@ public interface SampleTreeI extends MouseListener, TreeSelectionListener {
      */
     void buildTree();
 
+    /**
+     * Cancels any sample date models still being calculated in the background
+     * for this tree.
+     */
+    default void cancelSampleDateModels() {
+    }
+
     /**
      *
      * @param value
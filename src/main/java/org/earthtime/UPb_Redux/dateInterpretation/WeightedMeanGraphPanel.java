@@ -39,12 +39,7 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
-import java.io.Writer;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -56,9 +51,6 @@ import java.util.Vector;
 import javax.swing.JPanel;
 import org.apache.batik.apps.rasterizer.SVGConverter;
 import org.apache.batik.apps.rasterizer.SVGConverterException;
-import org.apache.batik.dom.GenericDOMImplementation;
-import org.apache.batik.svggen.SVGGraphics2D;
-import org.apache.batik.svggen.SVGGraphics2DIOException;
 import org.apache.commons.math3.special.Gamma;
 import org.earthtime.UPb_Redux.ReduxConstants;
 import org.earthtime.UPb_Redux.dateInterpretation.concordia.PlottingDetailsDisplayInterface;
@@ -70,10 +62,9 @@ import org.earthtime.aliquots.ReduxAliquotInterface;
 import org.earthtime.dataDictionaries.MSWDCoordinates;
 import org.earthtime.fractions.ETFractionInterface;
 import org.earthtime.plots.PlotAxesSetupInterface;
+import org.earthtime.plots.StreamingSVGGraphics2D;
 import org.earthtime.samples.SampleInterface;
 import org.earthtime.utilities.TicGeneratorForAxes;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
 
 /**
  *
@@ -1060,34 +1051,23 @@ public class WeightedMeanGraphPanel extends JPanel
      * @param file
      */
     public void outputToSVG(File file) {
-
-        // Get a DOMImplementation.
-        DOMImplementation domImpl
-                = GenericDOMImplementation.getDOMImplementation();
-
-        // Create an instance of org.w3c.dom.Document.
-        String svgNS = "http://www.w3.org/2000/svg";
-        Document document = domImpl.createDocument(svgNS, "svg", null);
-
-        // Create an instance of the SVG Generator.
-        SVGGraphics2D svgGenerator = new SVGGraphics2D(document);
-
-        // Ask the test to render into the SVG Graphics2D implementation.
-        paint(svgGenerator);
-
-        // Finally, stream out SVG to the standard output using
-        // UTF-8 encoding.
-        boolean useCSS = true; // we want to use CSS style attributes
-
-        Writer out = null;
         try {
-            out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
-        } catch (FileNotFoundException fileNotFoundException) {
-        } catch (UnsupportedEncodingException unsupportedEncodingException) {
+            writeSVG(file);
+        } catch (IOException iOException) {
+            System.out.println(iOException.getMessage());
         }
-        try {
-            svgGenerator.stream(out, useCSS);
-        } catch (SVGGraphics2DIOException sVGGraphics2DIOException) {
+    }
+
+    /**
+     * As outputToSVG, but reports a failure to write.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeSVG(File file) throws IOException {
+        // streamed element by element rather than built as a document in memory
+        try (StreamingSVGGraphics2D svgGraphics = new StreamingSVGGraphics2D(file, getWidth(), getHeight())) {
+            paint(svgGraphics);
         }
     }
 
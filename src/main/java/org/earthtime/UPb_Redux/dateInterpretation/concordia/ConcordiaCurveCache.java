@@ -0,0 +1,226 @@
+/*
+ * ConcordiaCurveCache.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation.concordia;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Concordia curves and their decay constant uncertainty envelopes, kept in
+ * data coordinates for each flavor and set of decay constants so that
+ * repaints, other panels and other samples with the same constants reuse
+ * them. A curve depends on the display only through the view it is clipped
+ * to, so each is built for the view enlarged by OVERSCAN on every side and is
+ * reused while the view stays inside it and has not zoomed in too far for its
+ * resolution; panning and zooming along the concordia then rebuild it only
+ * occasionally.
+ *
+ * @author James F. Bowring
+ */
+public class ConcordiaCurveCache {
+
+    /**
+     * how far beyond each side of the view, as a fraction of its range, a
+     * curve is built
+     */
+    public static final double OVERSCAN = 0.5;
+    // a curve built for a range more than this many times the view's is rebuilt to keep its resolution
+    private static final double MAX_ZOOM_REUSE = 4.0;
+    private static final int MAX_CURVES = 16;
+
+    private static final ConcordiaCurveCache SHARED_INSTANCE = new ConcordiaCurveCache();
+
+    private final Map<String, Curve> curves;
+
+    /**
+     *
+     */
+    public ConcordiaCurveCache() {
+        this.curves = new LinkedHashMap<String, Curve>(MAX_CURVES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Curve> eldest) {
+                return size() > MAX_CURVES;
+            }
+        };
+    }
+
+    /**
+     *
+     * @return the cache shared by all concordia panels
+     */
+    public static ConcordiaCurveCache getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     *
+     * @param flavor the concordia flavor, as "C", "T-W" or "Th"
+     * @param decayConstants the values and one sigma uncertainties of the
+     * decay constants the curve and its envelope are built from
+     * @return the key of the curve
+     */
+    public static String curveKey(String flavor, double... decayConstants) {
+        StringBuilder key = new StringBuilder(flavor);
+        for (double decayConstant : decayConstants) {
+            key.append(':').append(decayConstant);
+        }
+        return key.toString();
+    }
+
+    /**
+     * The curve for key covering the view, built by builder for the view
+     * enlarged by OVERSCAN unless a cached one will do. A curve that cannot
+     * be built for the enlarged view, as when it would reach past the end of
+     * concordia, is built for the view itself.
+     *
+     * @param key
+     * @param minX
+     * @param minY
+     * @param maxX
+     * @param maxY
+     * @param builder
+     * @return the curve
+     */
+    public synchronized Curve getCurve(String key, double minX, double minY, double maxX, double maxY, CurveBuilder builder) {
+        Curve curve = curves.get(key);
+        if ((curve == null) || !curve.covers(minX, minY, maxX, maxY)) {
+            double marginX = OVERSCAN * (maxX - minX);
+            double marginY = OVERSCAN * (maxY - minY);
+            curve = builder.build(lowerBound(minX, marginX), lowerBound(minY, marginY), maxX + marginX, maxY + marginY);
+            if (!curve.isFinite()) {
+                curve = builder.build(minX, minY, maxX, maxY);
+            }
+            curves.put(key, curve);
+        }
+        return curve;
+    }
+
+    /**
+     *
+     */
+    public synchronized void clear() {
+        curves.clear();
+    }
+
+    /**
+     *
+     * @return the number of cached curves
+     */
+    public synchronized int size() {
+        return curves.size();
+    }
+
+    // ratios are not enlarged past zero
+    private static double lowerBound(double min, double margin) {
+        return (min > 0.0) ? Math.max(min - margin, min / 2.0) : min;
+    }
+
+    /**
+     * Builds the curve clipped to a view, in data coordinates.
+     */
+    public interface CurveBuilder {
+
+        /**
+         *
+         * @param minX
+         * @param minY
+         * @param maxX
+         * @param maxY
+         * @return the curve
+         */
+        Curve build(double minX, double minY, double maxX, double maxY);
+    }
+
+    /**
+     * A concordia curve and its uncertainty envelope in data coordinates,
+     * with the view they were built for.
+     */
+    public static class Curve {
+
+        private final double minX;
+        private final double minY;
+        private final double maxX;
+        private final double maxY;
+        private final Path2D concordia;
+        private final Path2D upperEnvelope;
+        private final Path2D lowerEnvelope;
+
+        /**
+         *
+         * @param minX
+         * @param minY
+         * @param maxX
+         * @param maxY
+         * @param concordia
+         * @param upperEnvelope
+         * @param lowerEnvelope
+         */
+        public Curve(double minX, double minY, double maxX, double maxY, //
+                Path2D concordia, Path2D upperEnvelope, Path2D lowerEnvelope) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.concordia = concordia;
+            this.upperEnvelope = upperEnvelope;
+            this.lowerEnvelope = lowerEnvelope;
+        }
+
+        /**
+         *
+         * @param dataToDisplay
+         * @return a new path of the curve in display coordinates
+         */
+        public Path2D getConcordiaPath(AffineTransform dataToDisplay) {
+            return new Path2D.Double(concordia, dataToDisplay);
+        }
+
+        /**
+         *
+         * @param dataToDisplay
+         * @return a new closed path of the uncertainty envelope in display
+         * coordinates
+         */
+        public Path2D getErrorEnvelopePath(AffineTransform dataToDisplay) {
+            Path2D errorEnvelope = new Path2D.Double(upperEnvelope);
+            errorEnvelope.append(lowerEnvelope, true);
+            errorEnvelope.closePath();
+            errorEnvelope.transform(dataToDisplay);
+            return errorEnvelope;
+        }
+
+        boolean covers(double viewMinX, double viewMinY, double viewMaxX, double viewMaxY) {
+            return (minX <= viewMinX) && (maxX >= viewMaxX) && (minY <= viewMinY) && (maxY >= viewMaxY)//
+                    && ((maxX - minX) <= MAX_ZOOM_REUSE * (viewMaxX - viewMinX))//
+                    && ((maxY - minY) <= MAX_ZOOM_REUSE * (viewMaxY - viewMinY));
+        }
+
+        boolean isFinite() {
+            return isFinite(concordia) && isFinite(upperEnvelope) && isFinite(lowerEnvelope);
+        }
+
+        private static boolean isFinite(Path2D path) {
+            Rectangle2D bounds = path.getBounds2D();
+            return Double.isFinite(bounds.getMinX()) && Double.isFinite(bounds.getMaxX())//
+                    && Double.isFinite(bounds.getMinY()) && Double.isFinite(bounds.getMaxY());
+        }
+    }
+}
@@ -20,7 +20,6 @@
  */
 package org.earthtime.UPb_Redux.dateInterpretation.concordia;
 
-import Jama.Matrix;
 import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
@@ -29,6 +28,7 @@ import java.awt.Cursor;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.event.ActionEvent;
@@ -37,19 +37,17 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Path2D;
 import java.awt.geom.Rectangle2D;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
-import java.io.Writer;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Vector;
 import javax.swing.JDialog;
@@ -59,9 +57,6 @@ import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import org.apache.batik.apps.rasterizer.SVGConverter;
 import org.apache.batik.apps.rasterizer.SVGConverterException;
-import org.apache.batik.dom.GenericDOMImplementation;
-import org.apache.batik.svggen.SVGGraphics2D;
-import org.apache.batik.svggen.SVGGraphics2DIOException;
 import org.earthtime.UPb_Redux.ReduxConstants;
 import org.earthtime.UPb_Redux.aliquots.UPbReduxAliquot;
 import org.earthtime.UPb_Redux.dateInterpretation.graphPersistence.DateInterpretationBoxPanel;
@@ -83,13 +78,14 @@ import org.earthtime.dataDictionaries.Lambdas;
 import org.earthtime.dataDictionaries.RadRatiosPbcCorrected;
 import org.earthtime.exceptions.ETWarningDialog;
 import org.earthtime.fractions.ETFractionInterface;
+import org.earthtime.plots.EllipseDensityRaster;
 import org.earthtime.plots.PlotAxesSetupInterface;
 import org.earthtime.plots.PlotInterface;
+import org.earthtime.plots.PlotLayers;
+import org.earthtime.plots.StreamingSVGGraphics2D;
 import org.earthtime.reduxLabData.ReduxLabData;
 import org.earthtime.reportViews.ReportUpdaterInterface;
 import org.earthtime.samples.SampleInterface;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
 
 /**
  *
@@ -159,6 +155,12 @@ public class ConcordiaGraphPanel extends JLayeredPane
     protected transient AliquotInterface curAliquot;
     private transient boolean changingBestDateDivider;
     private transient ReportUpdaterInterface reportUpdater;
+    private transient ErrorEllipseCache errorEllipseCache;
+    private transient AffineTransform dataToDisplayTransform;
+    private transient EllipseDensityRaster excludedDensityRaster;
+    private transient PlotLayers plotLayers;
+    // the level of detail applies to the screen alone, never to exports
+    private transient boolean paintingOnScreen;
 
     /**
      * Creates a new instance of ConcordiaGraphPanel
@@ -189,6 +191,11 @@ public class ConcordiaGraphPanel extends JLayeredPane
         this.display_PbcCorr = false;
 
         this.yorkLineFit = null;
+        this.errorEllipseCache = new ErrorEllipseCache();
+        this.excludedDensityRaster = new EllipseDensityRaster();
+        this.plotLayers = new PlotLayers();
+        plotLayers.addLayer("plot", this::paintOnScreen);
+        plotLayers.setOverlay(this::paintZoomBox);
 
         concordiaCursor = Cursor.getDefaultCursor();
         this.imageMode = "PAN";
@@ -244,7 +251,48 @@ public class ConcordiaGraphPanel extends JLayeredPane
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        paint((Graphics2D) g, false);
+        plotLayers.paint((Graphics2D) g, getWidth(), getHeight());
+    }
+
+    /**
+     * Every repaint but those of the zoom box redraws the plot.
+     *
+     * @param tm
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        // also called by the superclass constructor, before the layers exist
+        if (plotLayers != null) {
+            plotLayers.repaintRequested();
+        }
+        super.repaint(tm, x, y, width, height);
+    }
+
+    private void paintOnScreen(Graphics2D g2d) {
+        paintingOnScreen = true;
+        try {
+            paint(g2d, false);
+        } finally {
+            paintingOnScreen = false;
+        }
+    }
+
+    private void paintZoomBox(Graphics2D g2d) {
+        // draw zoom box if in use
+        if (getImageMode().equalsIgnoreCase("ZOOM")
+                && (Math.abs(getZoomMaxX() - getZoomMinX()) * Math.abs(getZoomMinY() - getZoomMaxY())) > 0) {
+            g2d.setStroke(new BasicStroke(2.0f));
+            g2d.setColor(Color.red);
+            g2d.drawRect(//
+                    Math.min(getZoomMinX(), getZoomMaxX()),
+                    Math.min(getZoomMaxY(), getZoomMinY()),
+                    Math.abs(getZoomMaxX() - getZoomMinX()),
+                    Math.abs(getZoomMinY() - getZoomMaxY()));
+        }
     }
 
     private double mapX(double x) {
@@ -323,6 +371,7 @@ public class ConcordiaGraphPanel extends JLayeredPane
             g2d.drawString("Axis ratios must be > 0 and rho must be in [-1,...,1].", 200, 330);
             return; // need to paint no data warning
         }
+        dataToDisplayTransform = getCurrentPlotAxesSetup().getDataToDisplayTransform();
         // setup painting parameters
         double ellipseSize = 2.0f;
         String ellipseLabelFont = "Monospaced";
@@ -441,73 +490,43 @@ public class ConcordiaGraphPanel extends JLayeredPane
 
         g2d.setFont(new Font("Monospaced", Font.BOLD, 14));
 
-        ConcordiaLine myConcordiaLine = null;
-
-        if (getConcordiaFlavor().equalsIgnoreCase("T-W")) {
-            myConcordiaLine = buildTerraWasserburgLine();
-
-            drawConcordiaLineSegments(//
-                    g2d,
-                    myConcordiaLine,
-                    concordiaErrorStyle,
-                    concordiaLineColor,
-                    concordiaLineWeight);
+        ConcordiaCurveCache.Curve concordiaCurve = getConcordiaCurve();
 
-            ((GraphAxesSetup) currentGraphAxesSetup).setLambda235(lambda235.getValue().doubleValue());
-            ((GraphAxesSetup) currentGraphAxesSetup).plotConcordiaTicMarks(//
-                    g2d,
-                    myConcordiaLine,
-                    concordiaLabelFont,
-                    concordiaLabelFontSize,
-                    concordiaTicShape,
-                    (float) concordiaTicHalfWeight,
-                    concordiaLineWeight);
-
-        } else if (getConcordiaFlavor().equalsIgnoreCase("Th")) {
-            // concordia line building ********************************************
-            myConcordiaLine = buildConcordiaLineThorium();
-            //   }
-            drawConcordiaLineSegments(//
-                    g2d,
-                    myConcordiaLine,
-                    concordiaErrorStyle,
-                    concordiaLineColor,
-                    concordiaLineWeight);
+        drawConcordiaLineSegments(//
+                g2d,
+                concordiaCurve,
+                concordiaErrorStyle,
+                concordiaLineColor,
+                concordiaLineWeight);
 
+        if (getConcordiaFlavor().equalsIgnoreCase("Th")) {
             ((GraphAxesSetup) currentGraphAxesSetup).setLambda235(lambda232.getValue().doubleValue());
-            ((GraphAxesSetup) currentGraphAxesSetup).plotConcordiaTicMarks(//
-                    g2d,
-                    myConcordiaLine,
-                    concordiaLabelFont,
-                    concordiaLabelFontSize,
-                    concordiaTicShape,
-                    (float) concordiaTicHalfWeight,
-                    concordiaLineWeight);
         } else {
-            // concordia line building ********************************************
-            myConcordiaLine = buildConcordiaLine();
-
-            drawConcordiaLineSegments(//
-                    g2d,
-                    myConcordiaLine,
-                    concordiaErrorStyle,
-                    concordiaLineColor,
-                    concordiaLineWeight);
-
             ((GraphAxesSetup) currentGraphAxesSetup).setLambda235(lambda235.getValue().doubleValue());
-            ((GraphAxesSetup) currentGraphAxesSetup).plotConcordiaTicMarks(//
-                    g2d,
-                    myConcordiaLine,
-                    concordiaLabelFont,
-                    concordiaLabelFontSize,
-                    concordiaTicShape,
-                    (float) concordiaTicHalfWeight,
-                    concordiaLineWeight);
         }
+        ((GraphAxesSetup) currentGraphAxesSetup).plotConcordiaTicMarks(//
+                g2d,
+                getMinT(),
+                getMaxT(),
+                concordiaLabelFont,
+                concordiaLabelFontSize,
+                concordiaTicShape,
+                (float) concordiaTicHalfWeight,
+                concordiaLineWeight);
+
+        // first pass, generate ellipsePaths; on screen, above the level of detail the excluded fractions are drawn as their density
+        Collection<ETFractionInterface> includedFractions = showFilteredEllipses ? getFilteredFractions() : selectedFractions;
+        boolean excludedAsDensity = showExcludedEllipses//
+                && (generateEllipsePaths(excludedFractions, ellipseSize, paintingOnScreen ? excludedDensityRaster : null)//
+                > EllipseDensityRaster.LEVEL_OF_DETAIL_ELLIPSE_COUNT);
+        generateEllipsePaths(includedFractions, ellipseSize, null);
+        Rectangle graphBounds = new Rectangle(getLeftMargin(), getTopMargin(), (int) getGraphWidth(), (int) getGraphHeight());
 
         // paint de-selected fractions first 
         // paint fills first
-        if (showExcludedEllipses) {
+        if (excludedAsDensity) {
+            excludedDensityRaster.paint(g2d, graphBounds, densityColor(excludedFractions, "excludedBorderColor"));
+        } else if (showExcludedEllipses) {
             for (ETFractionInterface f : excludedFractions) {
                 if (!f.isRejected() && !(isDisplay_PbcCorr() && !((UPbFractionI) f).isCommonLeadLossCorrected())) {
                     // determine aliquot for colors etc.
@@ -526,11 +545,6 @@ public class ConcordiaGraphPanel extends JLayeredPane
                         excludedFillTransparencyPCT = Float.valueOf(myAliquotOptions.get("excludedFillTransparencyPCT"));
                     }
 
-                    // first pass, generate ellipsePath
-                    generateEllipsePathIII(//
-                            f,
-                            ellipseSize);
-
                     if (f.getErrorEllipsePath() != null) {
                         plotAFractionFillOnly(
                                 g2d,
@@ -545,7 +559,7 @@ public class ConcordiaGraphPanel extends JLayeredPane
         }
 
         // repeat for excluded fractions the borders etc
-        if (showExcludedEllipses) {
+        if (showExcludedEllipses && !excludedAsDensity) {
             for (ETFractionInterface f : excludedFractions) {
                 if (!f.isRejected() && !(isDisplay_PbcCorr() && !((UPbFractionI) f).isCommonLeadLossCorrected())) {
                     // determine aliquot for colors etc.
@@ -594,7 +608,7 @@ public class ConcordiaGraphPanel extends JLayeredPane
         }// END excluded FRACTIONS *************************************
 
         // selected fractions fill only 
-        for (ETFractionInterface f : showFilteredEllipses ? getFilteredFractions() : selectedFractions) {
+        for (ETFractionInterface f : includedFractions) {
             if (!f.isRejected() && !(isDisplay_PbcCorr() && !((UPbFractionI) f).isCommonLeadLossCorrected())) {
                 // determine aliquot for colors etc.
                 String aliquotName = sample.getNameOfAliquotFromSample(f.getAliquotNumber());
@@ -617,11 +631,6 @@ public class ConcordiaGraphPanel extends JLayeredPane
                     includedFillTransparencyPCT = Float.valueOf(myAliquotOptions.get("includedFillTransparencyPCT"));
                 }
 
-                // first pass, generate ellipsePath
-                generateEllipsePathIII(//
-                        f,
-                        ellipseSize);
-
                 if (f.getErrorEllipsePath() != null) {
                     plotAFractionFillOnly(
                             g2d,
@@ -634,7 +643,7 @@ public class ConcordiaGraphPanel extends JLayeredPane
             }
         }
 
-        for (ETFractionInterface f : showFilteredEllipses ? getFilteredFractions() : selectedFractions) {
+        for (ETFractionInterface f : includedFractions) {
             if (!f.isRejected() && !(isDisplay_PbcCorr() && !((UPbFractionI) f).isCommonLeadLossCorrected())) {
                 // determine aliquot for colors etc.
                 String aliquotName = sample.getNameOfAliquotFromSample(f.getAliquotNumber());
@@ -754,17 +763,6 @@ public class ConcordiaGraphPanel extends JLayeredPane
                 axesLabelFont,
                 axesLabelFontSize);
 
-        // draw zoom box if in use
-        if (getImageMode().equalsIgnoreCase("ZOOM")
-                && (Math.abs(getZoomMaxX() - getZoomMinX()) * Math.abs(getZoomMinY() - getZoomMaxY())) > 0) {
-            g2d.setStroke(new BasicStroke(2.0f));
-            g2d.setColor(Color.red);
-            g2d.drawRect(//
-                    Math.min(getZoomMinX(), getZoomMaxX()),
-                    Math.min(getZoomMaxY(), getZoomMinY()),
-                    Math.abs(getZoomMaxX() - getZoomMinX()),
-                    Math.abs(getZoomMinY() - getZoomMaxY()));
-        }
 
         // may 2014
         if (showingSingleAliquot && showBestDateDivider206_238) {
@@ -829,64 +827,88 @@ public class ConcordiaGraphPanel extends JLayeredPane
 
     }
 
-    private ConcordiaLine buildTerraWasserburgLine() {
-        // note here that min and max refer to the x and y axis values
-        // as the corresponding dates for x-axis are high for minx
+    private ConcordiaCurveCache.Curve getConcordiaCurve() {
+        String flavor = getConcordiaFlavor().equalsIgnoreCase("T-W") ? "T-W" //
+                : (getConcordiaFlavor().equalsIgnoreCase("Th") ? "Th" : "C");
+        ValueModel lambdaX = flavor.equals("Th") ? lambda232 : lambda235;
 
-        double minX_t
-                = (Math.log1p(getMaxX_Display()) //
-                - Math.log(getMaxX_Display())) //
-                / lambda238.getValue().doubleValue();
+        double[] dates = calculateConcordiaDates(flavor, lambdaX, //
+                getMinX_Display(), getMinY_Display(), getMaxX_Display(), getMaxY_Display());
+        setMinT(dates[0]);
+        setMaxT(dates[1]);
 
-        ValueModel tempDate207_206r = new Age207_206r(lambda235, lambda238);
-        double minY_t = ((Age207_206r) tempDate207_206r).calculateDate(//
-                137.88, getMinY_Display(), 0.0);// may 2010 was plain min
+        // the segment classes hold the decay constants statically for the tic marks, so set them for this panel
+        createConcordiaStartSegment(flavor, lambdaX, getMinT(), getMaxT());
 
-        setMinT(Math.max(minX_t, minY_t));// switched min max june 2010
+        String key = ConcordiaCurveCache.curveKey(flavor, //
+                lambdaX.getValue().doubleValue(), lambdaX.getOneSigmaAbs().doubleValue(), //
+                lambda238.getValue().doubleValue(), lambda238.getOneSigmaAbs().doubleValue());
+        return ConcordiaCurveCache.getSharedInstance().getCurve(//
+                key, getMinX_Display(), getMinY_Display(), getMaxX_Display(), getMaxY_Display(), //
+                (double minX, double minY, double maxX, double maxY)//
+                -> buildConcordiaCurve(flavor, lambdaX, minX, minY, maxX, maxY));
+    }
 
-        double maxX_t
-                = (Math.log1p(getMinX_Display()) //
-                - Math.log(getMinX_Display())) //
-                / lambda238.getValue().doubleValue();
-        double maxY_t = ((Age207_206r) tempDate207_206r).calculateDate(//
-                137.88, getMaxY_Display(), 0.0);// may 2010 was plain max
+    private double[] calculateConcordiaDates(String flavor, ValueModel lambdaX, //
+            double minX, double minY, double maxX, double maxY) {
+        double minT;
+        double maxT;
+        if (flavor.equals("T-W")) {
+            // note here that min and max refer to the x and y axis values
+            // as the corresponding dates for x-axis are high for minx
+            double minX_t
+                    = (Math.log1p(maxX) //
+                    - Math.log(maxX)) //
+                    / lambda238.getValue().doubleValue();
 
-        setMaxT(Math.min(maxX_t, maxY_t));
+            ValueModel tempDate207_206r = new Age207_206r(lambda235, lambda238);
+            double minY_t = ((Age207_206r) tempDate207_206r).calculateDate(//
+                    137.88, minY, 0.0);// may 2010 was plain min
 
-        ConcordiaLine myConcordiaLine
-                = new ConcordiaLine(new TeraWasserburgLineSegment(//
-                        lambda235, lambda238, null, minT, maxT), ((GraphAxesSetup) currentGraphAxesSetup));
+            minT = Math.max(minX_t, minY_t);// switched min max june 2010
 
-        // curve the line
-        myConcordiaLine.RefineLineByRecursiveHalving(5);//7 ); //10);
+            double maxX_t
+                    = (Math.log1p(minX) //
+                    - Math.log(minX)) //
+                    / lambda238.getValue().doubleValue();
+            double maxY_t = ((Age207_206r) tempDate207_206r).calculateDate(//
+                    137.88, maxY, 0.0);// may 2010 was plain max
 
-        // Jan 2011 looks like aspect ratio already handled with transform from Concordia
-        double aspectRatio = 1.0;//(double) ((getRangeY_Display() / getGraphHeight()) / (getRangeX_Display() / getGraphWidth()));
-        //System.out.println("A S P E C T =  " + aspectRatio);
+            maxT = Math.min(maxX_t, maxY_t);
+        } else {
+            // determine the starting and ending coordinates of the concordia curve
+            double minX_t = Math.log1p(minX) / lambdaX.getValue().doubleValue();
+            double minY_t = Math.log1p(minY) / lambda238.getValue().doubleValue();
+            // calculate the min x and y for concordia by finding max T
+            minT = Math.max(minX_t, minY_t);
+
+            double maxX_t = Math.log1p(maxX) / lambdaX.getValue().doubleValue();
+            double maxY_t = Math.log1p(maxY) / lambda238.getValue().doubleValue();
+            // calculate the max x and y for concordia by finding min T
+            maxT = Math.min(maxX_t, maxY_t);
+        }
 
-        myConcordiaLine.calcUpperUnctEnvelopeTW(aspectRatio, getMinX_Display(), getMinY_Display(), getMaxX_Display(), getMaxY_Display());
-        myConcordiaLine.calcLowerUnctEnvelopeTW(aspectRatio, getMinX_Display(), getMinY_Display(), getMaxX_Display(), getMaxY_Display());
+        return new double[]{Math.max(0.0, minT), maxT};
+    }
 
-        return myConcordiaLine;
+    private ParametricCurveSegmentI createConcordiaStartSegment(String flavor, ValueModel lambdaX, double minT, double maxT) {
+        ParametricCurveSegmentI startSegment;
+        if (flavor.equals("T-W")) {
+            startSegment = new TeraWasserburgLineSegment(lambda235, lambda238, null, minT, maxT);
+        } else {
+            startSegment = new ConcordiaLineSegment(lambdaX, lambda238, minT, maxT);
+        }
+        return startSegment;
     }
 
-    private ConcordiaLine buildConcordiaLine() {
+    private ConcordiaCurveCache.Curve buildConcordiaCurve(String flavor, ValueModel lambdaX, //
+            double minX, double minY, double maxX, double maxY) {
         // start concordia experiment http://java.sun.com/developer/technicalArticles/GUI/java2d/java2dpart1.html
-        // determine the starting and ending coordinates of the concordia curve
-        // and create a ConcordiaLine
-        double minX_t = Math.log1p(getMinX_Display()) / lambda235.getValue().doubleValue();
-        double minY_t = Math.log1p(getMinY_Display()) / lambda238.getValue().doubleValue();
-        // calculate the min x and y for concordia by finding max T
-        setMinT(Math.max(minX_t, minY_t));
-
-        double maxX_t = Math.log1p(getMaxX_Display()) / lambda235.getValue().doubleValue();
-        double maxY_t = Math.log1p(getMaxY_Display()) / lambda238.getValue().doubleValue();
-        // calculate the max x and y for concordia by finding min T
-        setMaxT(Math.min(maxX_t, maxY_t));
+        double[] dates = calculateConcordiaDates(flavor, lambdaX, minX, minY, maxX, maxY);
 
         ConcordiaLine myConcordiaLine
-                = new ConcordiaLine(new ConcordiaLineSegment( //
-                        lambda235, lambda238, minT, maxT), ((GraphAxesSetup) currentGraphAxesSetup));
+                = new ConcordiaLine(createConcordiaStartSegment(flavor, lambdaX, dates[0], dates[1]), //
+                        ((GraphAxesSetup) currentGraphAxesSetup));
 
         // curve the line
         // may 2010 bezier curve approach added
@@ -894,91 +916,70 @@ public class ConcordiaGraphPanel extends JLayeredPane
 
         // Jan 2011 looks like aspect ratio already handled with transform from Concordia
         double aspectRatio = 1.0;//(double) ((getRangeY_Display() / getGraphHeight()) / (getRangeX_Display() / getGraphWidth()));
-        //System.out.println("A S P E C T =  " + aspectRatio);
 
-        myConcordiaLine.calcUpperUnctEnvelopeC(aspectRatio, getMinX_Display(), getMinY_Display(), getMaxX_Display(), getMaxY_Display());
-        myConcordiaLine.calcLowerUnctEnvelopeC(aspectRatio, getMinX_Display(), getMinY_Display(), getMaxX_Display(), getMaxY_Display());
+        if (flavor.equals("T-W")) {
+            myConcordiaLine.calcUpperUnctEnvelopeTW(aspectRatio, minX, minY, maxX, maxY);
+            myConcordiaLine.calcLowerUnctEnvelopeTW(aspectRatio, minX, minY, maxX, maxY);
+        } else {
+            myConcordiaLine.calcUpperUnctEnvelopeC(aspectRatio, minX, minY, maxX, maxY);
+            myConcordiaLine.calcLowerUnctEnvelopeC(aspectRatio, minX, minY, maxX, maxY);
+        }
 
-        return myConcordiaLine;
-    }
+        // the concordia segments, in data coordinates
+        ParametricCurveSegmentI myWorkingSeg = myConcordiaLine.getStartSeg();
 
-    private ConcordiaLine buildConcordiaLineThorium() {
-        // start concordia experiment http://java.sun.com/developer/technicalArticles/GUI/java2d/java2dpart1.html
-        // determine the starting and ending coordinates of the concordia curve
-        // and create a ConcordiaLine
-        double minX_t = Math.log1p(getMinX_Display()) / lambda232.getValue().doubleValue();
-        double minY_t = Math.log1p(getMinY_Display()) / lambda238.getValue().doubleValue();
-        // calculate the min x and y for concordia by finding max T
-        setMinT(Math.max(minX_t, minY_t));
-
-        double maxX_t = Math.log1p(getMaxX_Display()) / lambda232.getValue().doubleValue();
-        double maxY_t = Math.log1p(getMaxY_Display()) / lambda238.getValue().doubleValue();
-        // calculate the max x and y for concordia by finding min T
-        setMaxT(Math.min(maxX_t, maxY_t));
+        Path2D curvedP = new Path2D.Double(Path2D.WIND_NON_ZERO);
+        // start at bottom left of concordia
+        curvedP.moveTo(myWorkingSeg.minX(), myWorkingSeg.minY());
 
-        ConcordiaLine myConcordiaLine
-                = new ConcordiaLine(new ConcordiaLineSegment( //
-                        lambda232, lambda238, minT, maxT), ((GraphAxesSetup) currentGraphAxesSetup));
+        curvedP.curveTo(//
+                myWorkingSeg.minX(),
+                myWorkingSeg.minY(),
+                myWorkingSeg.controlX(),
+                myWorkingSeg.controlY(),
+                myWorkingSeg.maxX(),
+                myWorkingSeg.maxY());
 
-        // curve the line
-        // may 2010 bezier curve approach added
-        myConcordiaLine.RefineLineByRecursiveHalving(5);
+        myWorkingSeg = myWorkingSeg.getRightSeg();
 
-        // Jan 2011 looks like aspect ratio already handled with transform from Concordia
-        double aspectRatio = 1.0;//(double) ((getRangeY_Display() / getGraphHeight()) / (getRangeX_Display() / getGraphWidth()));
-        //System.out.println("A S P E C T =  " + aspectRatio);
+        while ((myWorkingSeg != null) && (myWorkingSeg.getLeftSeg() != null)) { // stops traversal to fake upper envelope
+            curvedP.curveTo(//
+                    myWorkingSeg.minX(), //
+                    myWorkingSeg.minY(), //
+                    myWorkingSeg.controlX(), //
+                    myWorkingSeg.controlY(), //
+                    myWorkingSeg.maxX(), //
+                    myWorkingSeg.maxY());
 
-        myConcordiaLine.calcUpperUnctEnvelopeC(aspectRatio, getMinX_Display(), getMinY_Display(), getMaxX_Display(), getMaxY_Display());
-        myConcordiaLine.calcLowerUnctEnvelopeC(aspectRatio, getMinX_Display(), getMinY_Display(), getMaxX_Display(), getMaxY_Display());
+            myWorkingSeg = myWorkingSeg.getRightSeg();
+        }
 
-        return myConcordiaLine;
+        // the envelopes are built in display coordinates
+        Path2D upperEnvelope = new Path2D.Double();
+        Path2D lowerEnvelope = new Path2D.Double();
+        try {
+            AffineTransform displayToData = currentGraphAxesSetup.getDataToDisplayTransform().createInverse();
+            upperEnvelope = new Path2D.Double(myConcordiaLine.getUpperUnctEnvelope(), displayToData);
+            lowerEnvelope = new Path2D.Double(myConcordiaLine.getLowerUnctEnvelope(), displayToData);
+        } catch (NoninvertibleTransformException e) {
+            // an empty axis range; there is no envelope to draw
+        }
+
+        return new ConcordiaCurveCache.Curve(minX, minY, maxX, maxY, curvedP, upperEnvelope, lowerEnvelope);
     }
 
     private void drawConcordiaLineSegments(
             Graphics2D g2d,//
-            ConcordiaLine myConcordiaLine,
+            ConcordiaCurveCache.Curve concordiaCurve,
             String concordiaErrorStyle,
             Color concordiaLineColor,
             float concordiaLineWeight) {
 
         // draw the concordia segments
-        ParametricCurveSegmentI myWorkingSeg = myConcordiaLine.getStartSeg();
-        ParametricCurveSegmentI myWorkingSegSaved = myWorkingSeg;
-
-        Path2D curvedP = new Path2D.Double(Path2D.WIND_NON_ZERO);
-        // start at bottom left of concordia
-        curvedP.moveTo(
-                (float) mapX(myWorkingSeg.minX()),
-                (float) mapY(myWorkingSeg.minY()));
-
-        curvedP.curveTo(//
-                (float) mapX(myWorkingSeg.minX()),
-                (float) mapY(myWorkingSeg.minY()),
-                (float) mapX(myWorkingSeg.controlX()),
-                (float) mapY(myWorkingSeg.controlY()),
-                (float) mapX(myWorkingSeg.maxX()),
-                (float) mapY(myWorkingSeg.maxY()));
-
-        myWorkingSegSaved = myWorkingSeg;
-        myWorkingSeg = myWorkingSeg.getRightSeg();
-
-        while ((myWorkingSeg != null) && (myWorkingSeg.getLeftSeg() != null)) { // stops traversal to fake upper envelope
-            curvedP.curveTo(//
-                    mapX(myWorkingSeg.minX()), //
-                    mapY(myWorkingSeg.minY()), //
-                    mapX(myWorkingSeg.controlX()), //
-                    mapY(myWorkingSeg.controlY()), //
-                    mapX(myWorkingSeg.maxX()), //
-                    mapY(myWorkingSeg.maxY()));
-
-            myWorkingSegSaved = myWorkingSeg;
-            myWorkingSeg = myWorkingSeg.getRightSeg();
-        }
+        Path2D curvedP = concordiaCurve.getConcordiaPath(dataToDisplayTransform);
 
         if (isShowConcordiaErrorBars()) {// && getConcordiaFlavor().equalsIgnoreCase( "C" ) ) {
-            Path2D errorEnvelope = myConcordiaLine.getUpperUnctEnvelope();
-            errorEnvelope.append(myConcordiaLine.getLowerUnctEnvelope(), true);
-            errorEnvelope.closePath();
+            Path2D errorEnvelope = concordiaCurve.getErrorEnvelopePath(dataToDisplayTransform);
 
             if (concordiaErrorStyle.equalsIgnoreCase("shaded")) {
                 g2d.setColor(ReduxConstants.myNotEditingGreyColor);
@@ -1259,6 +1260,52 @@ public class ConcordiaGraphPanel extends JLayeredPane
 
     }
 
+    /**
+     * Generates the ellipse paths of the fractions to be plotted and gathers
+     * those in view into densityRaster, when given.
+     *
+     * @return the number of ellipses in view gathered into densityRaster
+     */
+    private int generateEllipsePaths(
+            Collection<ETFractionInterface> fractions,
+            double ellipseSize,
+            EllipseDensityRaster densityRaster) {
+
+        int inViewCount = 0;
+        if (densityRaster != null) {
+            densityRaster.clear(ellipseSize);
+        }
+        for (ETFractionInterface f : fractions) {
+            if (!f.isRejected() && !(isDisplay_PbcCorr() && !((UPbFractionI) f).isCommonLeadLossCorrected())) {
+                generateEllipsePathIII(//
+                        f,
+                        ellipseSize);
+
+                if ((densityRaster != null) && (f.getErrorEllipsePath() != null) && densityRaster.addEllipsePath(f.getErrorEllipsePath())) {
+                    inViewCount++;
+                }
+            }
+        }
+
+        // crosses have no density
+        return useUncertaintyCrosses ? 0 : inViewCount;
+    }
+
+    private Color densityColor(Collection<ETFractionInterface> fractions, String borderColorOption) {
+        Color densityColor = new Color(0, 0, 0);
+        for (ETFractionInterface f : fractions) {
+            if (f.getErrorEllipsePath() != null) {
+                Map<String, String> myAliquotOptions//
+                        = getAliquotOptions().get(sample.getNameOfAliquotFromSample(f.getAliquotNumber()));
+                if (myAliquotOptions.containsKey(borderColorOption)) {
+                    densityColor = buildRGBColor(myAliquotOptions.get(borderColorOption).split(","));
+                }
+                break;
+            }
+        }
+        return densityColor;
+    }
+
     private void generateEllipsePathIII(
             ETFractionInterface f,
             double ellipseSize) {
@@ -1332,37 +1379,19 @@ public class ConcordiaGraphPanel extends JLayeredPane
 
         Path2D ellipse = new Path2D.Double(Path2D.WIND_NON_ZERO);// null;
 
-        double aspectRatio = ((getRangeY_Display() / (double) getGraphHeight()) / (getRangeX_Display() / (double) getGraphWidth()));
-
         if ((correlationCoefficient.getValue().doubleValue() >= -1.0)
                 && (correlationCoefficient.getValue().doubleValue() <= 1.0)) {
             if (!useUncertaintyCrosses) {
-                ErrorEllipse ee = new ErrorEllipse(
-                        xAxisRatio,
-                        yAxisRatio,
-                        correlationCoefficient,
-                        aspectRatio,
-                        ellipseSize);
-
-                int pointCount = 13;
-
-                Matrix ellipseXY = ee.getEllipseControlPoints();
-
-                //ellipse = new Path2D.Double ( Path2D.WIND_NON_ZERO );
-                ellipse.moveTo(
-                        mapX(ellipseXY.get(0, 0)),
-                        mapY(ellipseXY.get(0, 1)));
-
-                for (int i = 1; i < pointCount; i += 3) {
-                    ellipse.curveTo(
-                            mapX(ellipseXY.get(i, 0)),
-                            mapY(ellipseXY.get(i, 1)),
-                            mapX(ellipseXY.get(i + 1, 0)),
-                            mapY(ellipseXY.get(i + 1, 1)),
-                            mapX(ellipseXY.get(i + 2, 0)),
-                            mapY(ellipseXY.get(i + 2, 1)));
-                }
-                ellipse.closePath();
+                // the control points are independent of the view, so only a change of values rebuilds them
+                ellipse = errorEllipseCache.getDisplayPath(//
+                        f.getAliquotNumber() + ":" + f.getFractionID(),
+                        xAxisRatio.getValue().doubleValue(),
+                        yAxisRatio.getValue().doubleValue(),
+                        xAxisRatio.getOneSigmaAbs().doubleValue(),
+                        yAxisRatio.getOneSigmaAbs().doubleValue(),
+                        correlationCoefficient.getValue().doubleValue(),
+                        ellipseSize,
+                        dataToDisplayTransform);
 
             } else {
 
@@ -1902,38 +1931,24 @@ public class ConcordiaGraphPanel extends JLayeredPane
      * @param file
      */
     public void outputToSVG(File file) {
-
-        // Get a DOMImplementation.
-        DOMImplementation domImpl
-                = GenericDOMImplementation.getDOMImplementation();
-
-        // Create an instance of org.w3c.dom.Document.
-        String svgNS = "http://www.w3.org/2000/svg";
-        Document document = domImpl.createDocument(svgNS, "svg", null);
-
-        // Create an instance of the SVG Generator.
-        SVGGraphics2D svgGenerator = new SVGGraphics2D(document);
-
-        // Ask the test to render into the SVG Graphics2D implementation.
-        paint(svgGenerator, false);
-
-        // Finally, stream out SVG to the standard output using
-        // UTF-8 encoding.
-        boolean useCSS = true; // we want to use CSS style attributes
-
-        Writer out = null;
-        try {
-            out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
-        } catch (FileNotFoundException | UnsupportedEncodingException fileNotFoundException) {
-        }
         try {
-            svgGenerator.stream(out, useCSS);
-        } catch (SVGGraphics2DIOException sVGGraphics2DIOException) {
-            System.out.println(sVGGraphics2DIOException.getMessage());
+            writeSVG(file);
+        } catch (IOException iOException) {
+            System.out.println(iOException.getMessage());
         }
+    }
 
-        // aug 2013
-        // read svg file back in to add clip size to comments
+    /**
+     * As outputToSVG, but reports a failure to write.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeSVG(File file) throws IOException {
+        // streamed element by element rather than built as a document in memory
+        try (StreamingSVGGraphics2D svgGraphics = new StreamingSVGGraphics2D(file, getWidth(), getHeight())) {
+            paint(svgGraphics, false);
+        }
     }
 
     /**
@@ -2027,6 +2042,7 @@ public class ConcordiaGraphPanel extends JLayeredPane
      */
     public void setSample(SampleInterface sample) {
         this.sample = sample;
+        errorEllipseCache.clear();
     }
 
     /**
@@ -2675,7 +2691,11 @@ public class ConcordiaGraphPanel extends JLayeredPane
             }
         }
 
-        repaint();
+        if (getImageMode().equalsIgnoreCase("ZOOM") && !changingBestDateDivider) {
+            plotLayers.repaintOverlay(this);
+        } else {
+            repaint();
+        }
     }
 
     /**
@@ -3028,6 +3048,7 @@ public class ConcordiaGraphPanel extends JLayeredPane
      */
     public void setConcordiaFlavor(String concordiaFlavor) {
         this.concordiaFlavor = concordiaFlavor;
+        errorEllipseCache.clear();
         if (concordiaFlavor.equalsIgnoreCase("T-W")) {
             setCurrentGraphAxesSetup(sample.getTerraWasserburgGraphAxesSetup());
         } else {
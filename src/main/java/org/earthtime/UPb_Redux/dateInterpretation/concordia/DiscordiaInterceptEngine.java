@@ -0,0 +1,259 @@
+/*
+ * DiscordiaInterceptEngine.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation.concordia;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import org.earthtime.UPb_Redux.ReduxConstants;
+
+/**
+ * Intercepts of a discordia line y = a + b * x with the Wetherill concordia
+ * x = exp(lambda235 * t) - 1, y = exp(lambda238 * t) - 1, computed on
+ * primitive values, plus a seeded, parallel, case-resampling bootstrap of the
+ * York fit, by YorkRegressionEngine, and both intercepts for overdispersed
+ * arrays.
+ *
+ * For a positive slope, f(t) = a + b * (exp(lambda235 * t) - 1) -
+ * (exp(lambda238 * t) - 1) has a single stationary point t*, which separates
+ * the lower intercept from the upper. Each is found by Newton's method
+ * safeguarded by bisection within its bracket, so it always converges when
+ * the intercept exists and returns NaN when it does not.
+ *
+ * @author James F. Bowring
+ */
+public final class DiscordiaInterceptEngine {
+
+    /**
+     * the earliest date searched for a lower intercept, in annum
+     */
+    public static final double MINIMUM_INTERCEPT_ANNUM = -ReduxConstants.MAX_DATE_ANNUM;
+    /**
+     * the latest date searched for an upper intercept, in annum
+     */
+    public static final double MAXIMUM_INTERCEPT_ANNUM = 2.0 * ReduxConstants.MAX_DATE_ANNUM;
+    private static final int MAXIMUM_ITERATIONS = 200;
+    private static final double DATE_TOLERANCE_ANNUM = 1e-3;
+
+    private DiscordiaInterceptEngine() {
+    }
+
+    /**
+     *
+     * @param yIntercept a
+     * @param slope b
+     * @param lambda235
+     * @param lambda238
+     * @return {upper intercept, lower intercept} in annum; either is NaN if
+     * the line does not cross concordia there
+     */
+    public static double[] solveIntercepts(double yIntercept, double slope, double lambda235, double lambda238) {
+        double[] intercepts = new double[]{Double.NaN, Double.NaN};
+        if (!(slope > 0.0) || Double.isNaN(yIntercept)) {
+            return intercepts;
+        }
+
+        // f'(t*) = 0 where slope * lambda235 * exp(lambda235 * t*) = lambda238 * exp(lambda238 * t*)
+        double stationaryDate = Math.log(lambda238 / (slope * lambda235)) / (lambda235 - lambda238);
+        stationaryDate = Math.max(MINIMUM_INTERCEPT_ANNUM, Math.min(MAXIMUM_INTERCEPT_ANNUM, stationaryDate));
+
+        intercepts[0] = solveBracketed(yIntercept, slope, lambda235, lambda238, stationaryDate, MAXIMUM_INTERCEPT_ANNUM);
+        intercepts[1] = solveBracketed(yIntercept, slope, lambda235, lambda238, MINIMUM_INTERCEPT_ANNUM, stationaryDate);
+
+        return intercepts;
+    }
+
+    private static double discordiaMinusConcordia(double yIntercept, double slope, double lambda235, double lambda238, double t) {
+        return yIntercept + slope * Math.expm1(lambda235 * t) - Math.expm1(lambda238 * t);
+    }
+
+    private static double solveBracketed(//
+            double yIntercept, double slope, double lambda235, double lambda238, double low, double high) {
+
+        double fLow = discordiaMinusConcordia(yIntercept, slope, lambda235, lambda238, low);
+        double fHigh = discordiaMinusConcordia(yIntercept, slope, lambda235, lambda238, high);
+        if (fLow == 0.0) {
+            return low;
+        }
+        if (fHigh == 0.0) {
+            return high;
+        }
+        if ((fLow > 0.0) == (fHigh > 0.0)) {
+            return Double.NaN;
+        }
+
+        // orient so that f(low) < 0
+        if (fLow > 0.0) {
+            double temp = low;
+            low = high;
+            high = temp;
+        }
+
+        double t = 0.5 * (low + high);
+        for (int i = 0; i < MAXIMUM_ITERATIONS; i++) {
+            double expLambda235t = Math.exp(lambda235 * t);
+            double expLambda238t = Math.exp(lambda238 * t);
+            double f = yIntercept + slope * (expLambda235t - 1.0) - (expLambda238t - 1.0);
+            double fPrime = slope * lambda235 * expLambda235t - lambda238 * expLambda238t;
+
+            if (f < 0.0) {
+                low = t;
+            } else {
+                high = t;
+            }
+
+            double tNext = t - f / fPrime;
+            // take the Newton step only if it stays inside the bracket
+            if (!((tNext - low) * (tNext - high) < 0.0)) {
+                tNext = 0.5 * (low + high);
+            }
+
+            if ((Math.abs(tNext - t) < DATE_TOLERANCE_ANNUM) || (Math.abs(high - low) < DATE_TOLERANCE_ANNUM)) {
+                return tNext;
+            }
+            t = tNext;
+        }
+
+        return t;
+    }
+
+    /**
+     * Resamples the points with replacement replicateCount times, refits the
+     * York line and solves both intercepts for each replicate, in parallel.
+     * Replicate r draws from its own generator seeded from seed, so results
+     * do not depend on the number of threads.
+     *
+     * @param X
+     * @param Y
+     * @param sigmaX
+     * @param sigmaY
+     * @param rho
+     * @param lambda235
+     * @param lambda238
+     * @param replicateCount
+     * @param seed
+     * @return
+     */
+    public static BootstrapResult bootstrapIntercepts(//
+            double[] X, double[] Y, double[] sigmaX, double[] sigmaY, double[] rho,
+            double lambda235, double lambda238, int replicateCount, long seed) {
+
+        int pointCount = X.length;
+        double[] upperIntercepts = new double[replicateCount];
+        double[] lowerIntercepts = new double[replicateCount];
+
+        SplittableRandom seeds = new SplittableRandom(seed);
+        long[] replicateSeeds = new long[replicateCount];
+        for (int r = 0; r < replicateCount; r++) {
+            replicateSeeds[r] = seeds.nextLong();
+        }
+
+        IntStream.range(0, replicateCount).parallel().forEach((int r) -> {
+            SplittableRandom random = new SplittableRandom(replicateSeeds[r]);
+            double[] replicateX = new double[pointCount];
+            double[] replicateY = new double[pointCount];
+            double[] replicateSigmaX = new double[pointCount];
+            double[] replicateSigmaY = new double[pointCount];
+            double[] replicateRho = new double[pointCount];
+            for (int j = 0; j < pointCount; j++) {
+                int i = random.nextInt(pointCount);
+                replicateX[j] = X[i];
+                replicateY[j] = Y[i];
+                replicateSigmaX[j] = sigmaX[i];
+                replicateSigmaY[j] = sigmaY[i];
+                replicateRho[j] = rho[i];
+            }
+
+            YorkRegressionEngine.Solution line = new YorkRegressionEngine(//
+                    replicateX, replicateY, replicateSigmaX, replicateSigmaY, replicateRho).fit();
+            double[] intercepts = solveIntercepts(line.getYIntercept(), line.getSlope(), lambda235, lambda238);
+            upperIntercepts[r] = intercepts[0];
+            lowerIntercepts[r] = intercepts[1];
+        });
+
+        return new BootstrapResult(upperIntercepts, lowerIntercepts);
+    }
+
+    /**
+     * The intercepts of each bootstrap replicate, NaN where a replicate line
+     * does not cross concordia.
+     */
+    public static class BootstrapResult {
+
+        private final double[] upperIntercepts;
+        private final double[] lowerIntercepts;
+
+        BootstrapResult(double[] upperIntercepts, double[] lowerIntercepts) {
+            this.upperIntercepts = upperIntercepts;
+            this.lowerIntercepts = lowerIntercepts;
+        }
+
+        /**
+         * @return the upperIntercepts
+         */
+        public double[] getUpperIntercepts() {
+            return upperIntercepts.clone();
+        }
+
+        /**
+         * @return the lowerIntercepts
+         */
+        public double[] getLowerIntercepts() {
+            return lowerIntercepts.clone();
+        }
+
+        /**
+         *
+         * @param confidenceLevel e.g. 0.95
+         * @return {lower bound, upper bound} of the percentile interval of the
+         * upper intercept
+         */
+        public double[] getUpperInterceptInterval(double confidenceLevel) {
+            return percentileInterval(upperIntercepts, confidenceLevel);
+        }
+
+        /**
+         *
+         * @param confidenceLevel e.g. 0.95
+         * @return {lower bound, upper bound} of the percentile interval of the
+         * lower intercept
+         */
+        public double[] getLowerInterceptInterval(double confidenceLevel) {
+            return percentileInterval(lowerIntercepts, confidenceLevel);
+        }
+
+        private static double[] percentileInterval(double[] values, double confidenceLevel) {
+            double[] finiteValues = Arrays.stream(values).filter((double v) -> !Double.isNaN(v)).sorted().toArray();
+            if (finiteValues.length == 0) {
+                return new double[]{Double.NaN, Double.NaN};
+            }
+            double tail = 0.5 * (1.0 - confidenceLevel);
+            return new double[]{quantile(finiteValues, tail), quantile(finiteValues, 1.0 - tail)};
+        }
+
+        private static double quantile(double[] sortedValues, double probability) {
+            double position = probability * (sortedValues.length - 1);
+            int index = (int) Math.floor(position);
+            if (index >= sortedValues.length - 1) {
+                return sortedValues[sortedValues.length - 1];
+            }
+            double fraction = position - index;
+            return sortedValues[index] + fraction * (sortedValues[index + 1] - sortedValues[index]);
+        }
+    }
+}
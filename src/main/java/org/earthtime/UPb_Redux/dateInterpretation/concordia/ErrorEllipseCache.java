@@ -0,0 +1,200 @@
+/*
+ * ErrorEllipseCache.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation.concordia;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Error ellipses as the 13 Bezier control points of ErrorEllipse, kept in
+ * data coordinates for each named fraction together with the values they were
+ * built from. Since a Bezier curve maps onto itself under an affine
+ * transform, panning and zooming only transform the cached points; the
+ * Cholesky factor is recomputed only when a fraction's ratios, uncertainties,
+ * correlation or the ellipse size change, as after a reduction. The display
+ * path for the last transform is also kept, so repaints that do not move the
+ * view reuse it outright.
+ *
+ * @author James F. Bowring
+ */
+public class ErrorEllipseCache {
+
+    /**
+     * the number of control points, starting and ending at the same point
+     */
+    public static final int CONTROL_POINT_COUNT = 13;
+    private static final double[] UNIT_CONTROL_POINTS;
+
+    static {
+        double k = 4.0 / 3.0 * (Math.sqrt(2.0) - 1.0);
+        UNIT_CONTROL_POINTS = new double[]{
+            1.0, 0.0,
+            1.0, k,
+            k, 1.0,
+            0.0, 1.0,
+            -k, 1.0,
+            -1.0, k,
+            -1.0, 0.0,
+            -1.0, -k,
+            -k, -1.0,
+            0.0, -1.0,
+            k, -1.0,
+            1.0, -k,
+            1.0, 0.0
+        };
+    }
+
+    private final Map<String, Entry> entries;
+
+    /**
+     *
+     */
+    public ErrorEllipseCache() {
+        this.entries = new HashMap<>();
+    }
+
+    /**
+     * Control points of the ellipse of ellipseSize sigma about (x, y), as
+     * ErrorEllipse computes them: the unit circle's points times the
+     * transposed Cholesky factor of the covariance matrix.
+     *
+     * @param x
+     * @param y
+     * @param xOneSigmaAbs
+     * @param yOneSigmaAbs
+     * @param rho
+     * @param ellipseSize
+     * @return x0, y0, x1, y1, ... in data coordinates
+     */
+    public static double[] controlPoints(double x, double y, double xOneSigmaAbs, double yOneSigmaAbs, double rho, double ellipseSize) {
+        // R = transpose of the lower Cholesky factor of the covariance matrix, as from Jama
+        double r00 = Math.abs(xOneSigmaAbs);
+        double r01 = rho * yOneSigmaAbs * Math.signum(xOneSigmaAbs);
+        double r11 = Math.sqrt(Math.max(0.0, yOneSigmaAbs * yOneSigmaAbs - r01 * r01));
+
+        double[] points = new double[2 * CONTROL_POINT_COUNT];
+        for (int i = 0; i < CONTROL_POINT_COUNT; i++) {
+            double u = ellipseSize * UNIT_CONTROL_POINTS[2 * i];
+            double v = ellipseSize * UNIT_CONTROL_POINTS[2 * i + 1];
+            points[2 * i] = x + u * r00;
+            points[2 * i + 1] = y + u * r01 + v * r11;
+        }
+        return points;
+    }
+
+    /**
+     * The ellipse in display coordinates, rebuilt only if the values differ
+     * from those cached under key and re-transformed only if the transform
+     * differs from the last one used.
+     *
+     * @param key identifies the fraction and the pair of ratios plotted
+     * @param x
+     * @param y
+     * @param xOneSigmaAbs
+     * @param yOneSigmaAbs
+     * @param rho
+     * @param ellipseSize in sigma
+     * @param dataToDisplay
+     * @return a path that must not be modified
+     */
+    public Path2D getDisplayPath(String key, double x, double y, double xOneSigmaAbs, double yOneSigmaAbs, double rho, //
+            double ellipseSize, AffineTransform dataToDisplay) {
+
+        Entry entry = entries.get(key);
+        if ((entry == null) || !entry.matches(x, y, xOneSigmaAbs, yOneSigmaAbs, rho, ellipseSize)) {
+            entry = new Entry(x, y, xOneSigmaAbs, yOneSigmaAbs, rho, ellipseSize);
+            entries.put(key, entry);
+        }
+
+        if ((entry.displayPath == null) || !dataToDisplay.equals(entry.displayTransform)) {
+            double[] displayPoints = new double[2 * CONTROL_POINT_COUNT];
+            dataToDisplay.transform(entry.controlPoints, 0, displayPoints, 0, CONTROL_POINT_COUNT);
+
+            Path2D ellipse = new Path2D.Double(Path2D.WIND_NON_ZERO, 6);
+            ellipse.moveTo(displayPoints[0], displayPoints[1]);
+            for (int i = 1; i < CONTROL_POINT_COUNT; i += 3) {
+                ellipse.curveTo(
+                        displayPoints[2 * i], displayPoints[2 * i + 1],
+                        displayPoints[2 * i + 2], displayPoints[2 * i + 3],
+                        displayPoints[2 * i + 4], displayPoints[2 * i + 5]);
+            }
+            ellipse.closePath();
+
+            entry.displayPath = ellipse;
+            entry.displayTransform = new AffineTransform(dataToDisplay);
+        }
+
+        return entry.displayPath;
+    }
+
+    /**
+     * Drops the ellipses of keys not in keys.
+     *
+     * @param keys
+     */
+    public void retainAll(Collection<String> keys) {
+        entries.keySet().retainAll(keys);
+    }
+
+    /**
+     * Drops every ellipse.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return the number of cached ellipses
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+
+        private final double x;
+        private final double y;
+        private final double xOneSigmaAbs;
+        private final double yOneSigmaAbs;
+        private final double rho;
+        private final double ellipseSize;
+        private final double[] controlPoints;
+        private AffineTransform displayTransform;
+        private Path2D displayPath;
+
+        Entry(double x, double y, double xOneSigmaAbs, double yOneSigmaAbs, double rho, double ellipseSize) {
+            this.x = x;
+            this.y = y;
+            this.xOneSigmaAbs = xOneSigmaAbs;
+            this.yOneSigmaAbs = yOneSigmaAbs;
+            this.rho = rho;
+            this.ellipseSize = ellipseSize;
+            this.controlPoints = controlPoints(x, y, xOneSigmaAbs, yOneSigmaAbs, rho, ellipseSize);
+            this.displayTransform = null;
+            this.displayPath = null;
+        }
+
+        boolean matches(double x, double y, double xOneSigmaAbs, double yOneSigmaAbs, double rho, double ellipseSize) {
+            return (this.x == x) && (this.y == y) && (this.xOneSigmaAbs == xOneSigmaAbs)//
+                    && (this.yOneSigmaAbs == yOneSigmaAbs) && (this.rho == rho) && (this.ellipseSize == ellipseSize);
+        }
+    }
+}
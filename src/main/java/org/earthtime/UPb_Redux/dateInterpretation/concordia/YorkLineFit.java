@@ -88,146 +88,19 @@ public class YorkLineFit {
         setMSWD(0.0);
 
         // York et al - Am. J Phys 72 (3) March 2004
-        // setup working variables
-        double slopeSaved = 0.0;
-
-        double maximumX = 0.0;
-        double maximumY = 0.0;
-        // the isotopic ratios are usually < 1E2
-        double minimumX = 1E10;
-        double minimumY = 1E10;
-
-        int pointCount = X.length;
-
-        // weighted data
-        double[] wX = new double[pointCount];
-        double[] wY = new double[pointCount];
-        double[] W = new double[pointCount];
-
-        double[] alpha = new double[pointCount];
-        double[] beta = new double[pointCount];
-
-        double Xbar = 0.0;
-        double Ybar = 0.0;
-        double sumW = 0.0;
-
-        double[] x = new double[pointCount];
-        double[] y = new double[pointCount];
-        double xBar = 0.0;
-        double yBar = 0.0;
-        double[] u = new double[pointCount];
-        double[] v = new double[pointCount];
-        double sumWx = 0.0;
-        double sumWy = 0.0;
-        double sumWuu = 0.0;
-
-        double sumMSWDnumerator = 0.0;
-
-        if (pointCount > 1) {
-            // initialize arrays
-            for (int i = 0; i < pointCount; i++) {
-
-                maximumX = Math.max(maximumX, X[i]);
-                maximumY = Math.max(maximumY, Y[i]);
-
-                minimumX = Math.min(minimumX, X[i]);
-                minimumY = Math.min(minimumY, Y[i]);
-
-                wX[i] = 1.0 / sigmaX[i] / sigmaX[i];
-                wY[i] = 1.0 / sigmaY[i] / sigmaY[i];
-
-                alpha[i] = Math.sqrt(wX[i] * wY[i]);
-            }
-
-            // estimate a starting slope
-            try {
-                slope = (maximumY - minimumY) / (maximumX - minimumX);
-            } catch (Exception e) {
-            }
-
-            // iteratively solve for slope
-            while (Math.abs(slope - slopeSaved) > 1E-8) {
-                slopeSaved = slope;
-
-                double[] U = new double[pointCount];
-                double[] V = new double[pointCount];
-                double sumWX = 0.0;
-                double sumWY = 0.0;
-                double sumWbetaV = 0.0;
-                double sumWbetaU = 0.0;
-                sumW = 0.0;
-
-                for (int i = 0; i < pointCount; i++) {
-                    W[i] = (wX[i] * wY[i]) //
-                            / (wX[i] + (slopeSaved * slopeSaved * wY[i]) - (2.0 * slopeSaved * rho[i] * alpha[i]));
-                    sumWX += W[i] * X[i];
-                    sumWY += W[i] * Y[i];
-                    sumW += W[i];
-                }
-
-                try {
-                    Xbar = sumWX / sumW;
-                    Ybar = sumWY / sumW;
-                } catch (Exception e) {
-                }
-
-                for (int i = 0; i < pointCount; i++) {
-                    U[i] = X[i] - Xbar;
-                    V[i] = Y[i] - Ybar;
-                    try {
-                        beta[i] = //
-                                W[i] //
-                                * (U[i] / wY[i] //
-                                + slopeSaved * V[i] / wX[i] //
-                                - (slopeSaved * U[i] + V[i]) * rho[i] / alpha[i]);
-                    } catch (Exception e) {
-                    }
-
-                    sumWbetaV += W[i] * beta[i] * V[i];
-                    sumWbetaU += W[i] * beta[i] * U[i];
-                }
-
-                try {
-                    slope = sumWbetaV / sumWbetaU;
-                } catch (Exception e) {
-                }
-            }// end while iteration
-
-            for (int i = 0; i < pointCount; i++) {
-                x[i] = Xbar + beta[i];
-                y[i] = Ybar + slope * beta[i];
-
-                sumWx += (W[i] * x[i]);
-                sumWy += (W[i] * y[i]);
-            }
-
-            xBar = sumWx / sumW;
-            yBar = sumWy / sumW;
-
-            setYIntercept(Ybar - slope * Xbar);
-
-            for (int i = 0; i < pointCount; i++) {
-                u[i] += x[i] - xBar;
-                v[i] += y[i] - yBar;
-
-                sumWuu += W[i] * u[i] * u[i];
-
-                sumMSWDnumerator += W[i] * (Y[i] - slope * X[i] - yIntercept) * (Y[i] - slope * X[i] - yIntercept);
-            }
-
-            setSlopeVariance(1.0 / sumWuu);
-            setYInterceptVariance(1.0 / sumW + xBar * xBar * slopeVariance);
+        if (X.length > 1) {
+            YorkRegressionEngine.Solution solution = new YorkRegressionEngine(X, Y, sigmaX, sigmaY, rho).fit();
+
+            setSlope(solution.getSlope());
+            setYIntercept(solution.getYIntercept());
+            setSlopeVariance(solution.getSlopeVariance());
+            setYInterceptVariance(solution.getYInterceptVariance());
             setOneSigmaYIntercept(Math.sqrt(yInterceptVariance));
             setOneSigmaSlope(Math.sqrt(slopeVariance));
-            setCovYIntercept__slope(-1.0 * xBar * oneSigmaSlope * oneSigmaSlope);
-            setRhoYIntercept__slope(-1.0 * xBar * oneSigmaSlope / oneSigmaYIntercept);
-
-            if (pointCount > 2) {
-                setMSWD(sumMSWDnumerator / (double) (pointCount - 2));
-            }
-
+            setCovYIntercept__slope(solution.getCovYIntercept__slope());
+            setRhoYIntercept__slope(solution.getRhoYIntercept__slope());
+            setMSWD(solution.getMSWD());
         }
-
     }
 
     /**
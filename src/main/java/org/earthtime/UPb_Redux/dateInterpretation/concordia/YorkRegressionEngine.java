@@ -0,0 +1,424 @@
+/*
+ * YorkRegressionEngine.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation.concordia;
+
+import java.util.Arrays;
+
+/**
+ * York regression of a line y = a + b * x through points with correlated
+ * errors in x and y (York et al., Am. J. Phys. 72 (3) 2004), which in two
+ * dimensions is the maximum likelihood line of McLean et al. (2011).
+ *
+ * The data and their weights are held in primitive arrays that are set once;
+ * points are then included or excluded individually and the fit is repeated
+ * starting from the previous slope, which typically converges in a few
+ * iterations after a single toggle. Coordinates are centred on the mean of
+ * the data so that ratios far from the origin do not lose precision. The
+ * slope and intercept variances and their covariance are York's expressions
+ * from the analytic derivatives of the solution with respect to the data.
+ *
+ * Not thread-safe; each plot should keep its own engine.
+ *
+ * @author James F. Bowring
+ */
+public class YorkRegressionEngine {
+
+    private static final int MAXIMUM_ITERATIONS = 500;
+    // well above the rounding noise of the slope, which a tighter tolerance may never get under
+    private static final double RELATIVE_TOLERANCE = 1e-10;
+    private final int pointCount;
+    // the data, as given, for recognizing unchanged data
+    private final double[] x;
+    private final double[] y;
+    private final double[] sigmaX;
+    private final double[] sigmaY;
+    private final double[] rho;
+    // centred coordinates and cached weights
+    private final double xOrigin;
+    private final double yOrigin;
+    private final double[] xc;
+    private final double[] yc;
+    private final double[] wX;
+    private final double[] wY;
+    private final double[] alpha;
+    private final boolean[] included;
+    private int includedCount;
+    // iteration buffers
+    private final double[] W;
+    private final double[] beta;
+    // warm start and cache
+    private double previousSlope;
+    private Solution solution;
+
+    /**
+     * All points start included.
+     *
+     * @param x
+     * @param y
+     * @param sigmaX one-sigma absolute
+     * @param sigmaY one-sigma absolute
+     * @param rho correlation coefficients of the x and y errors
+     */
+    public YorkRegressionEngine(double[] x, double[] y, double[] sigmaX, double[] sigmaY, double[] rho) {
+        this.pointCount = x.length;
+        if ((y.length != pointCount) || (sigmaX.length != pointCount) || (sigmaY.length != pointCount) || (rho.length != pointCount)) {
+            throw new IllegalArgumentException("Regression arrays must have the same length.");
+        }
+        this.x = x.clone();
+        this.y = y.clone();
+        this.sigmaX = sigmaX.clone();
+        this.sigmaY = sigmaY.clone();
+        this.rho = rho.clone();
+
+        double sumX = 0.0;
+        double sumY = 0.0;
+        for (int i = 0; i < pointCount; i++) {
+            sumX += x[i];
+            sumY += y[i];
+        }
+        this.xOrigin = (pointCount > 0) ? sumX / pointCount : 0.0;
+        this.yOrigin = (pointCount > 0) ? sumY / pointCount : 0.0;
+
+        this.xc = new double[pointCount];
+        this.yc = new double[pointCount];
+        this.wX = new double[pointCount];
+        this.wY = new double[pointCount];
+        this.alpha = new double[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            xc[i] = x[i] - xOrigin;
+            yc[i] = y[i] - yOrigin;
+            wX[i] = 1.0 / (sigmaX[i] * sigmaX[i]);
+            wY[i] = 1.0 / (sigmaY[i] * sigmaY[i]);
+            alpha[i] = Math.sqrt(wX[i] * wY[i]);
+        }
+
+        this.included = new boolean[pointCount];
+        Arrays.fill(included, true);
+        this.includedCount = pointCount;
+
+        this.W = new double[pointCount];
+        this.beta = new double[pointCount];
+        this.previousSlope = Double.NaN;
+        this.solution = null;
+    }
+
+    /**
+     *
+     * @param x
+     * @param y
+     * @param sigmaX
+     * @param sigmaY
+     * @param rho
+     * @return true if this engine holds exactly these data, so that only
+     * inclusion needs updating
+     */
+    public boolean hasData(double[] x, double[] y, double[] sigmaX, double[] sigmaY, double[] rho) {
+        return Arrays.equals(this.x, x) && Arrays.equals(this.y, y) && Arrays.equals(this.sigmaX, sigmaX)//
+                && Arrays.equals(this.sigmaY, sigmaY) && Arrays.equals(this.rho, rho);
+    }
+
+    /**
+     * @return the number of points, included or not
+     */
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * @return the number of included points
+     */
+    public int getIncludedCount() {
+        return includedCount;
+    }
+
+    /**
+     *
+     * @param index
+     * @return
+     */
+    public boolean isIncluded(int index) {
+        return included[index];
+    }
+
+    /**
+     *
+     * @param index
+     * @param include
+     */
+    public void setIncluded(int index, boolean include) {
+        if (included[index] != include) {
+            included[index] = include;
+            includedCount += include ? 1 : -1;
+            solution = null;
+        }
+    }
+
+    /**
+     *
+     * @param include one flag per point
+     */
+    public void setIncluded(boolean[] include) {
+        for (int i = 0; i < pointCount; i++) {
+            setIncluded(i, include[i]);
+        }
+    }
+
+    /**
+     * Fits the included points, starting from the previous slope when there
+     * is one. The result is cached until inclusion changes.
+     *
+     * @return the solution, whose values are NaN when fewer than two points
+     * are included or the slope is not finite; a fit that does not converge
+     * returns its last iterate, flagged as not converged
+     */
+    public Solution fit() {
+        if (solution == null) {
+            solution = solve();
+            if (solution.isValid()) {
+                previousSlope = solution.slope;
+            }
+        }
+        return solution;
+    }
+
+    private Solution solve() {
+        if (includedCount < 2) {
+            return new Solution(Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, includedCount, 0, false);
+        }
+
+        double slope = Double.isNaN(previousSlope) ? startingSlope() : previousSlope;
+        double xBar = 0.0;
+        double yBar = 0.0;
+        double sumW = 0.0;
+        int iterations = 0;
+        boolean converged = false;
+
+        while (!converged && (iterations < MAXIMUM_ITERATIONS) && !Double.isNaN(slope) && !Double.isInfinite(slope)) {
+            iterations++;
+            double slopeSaved = slope;
+
+            double sumWX = 0.0;
+            double sumWY = 0.0;
+            sumW = 0.0;
+            for (int i = 0; i < pointCount; i++) {
+                if (included[i]) {
+                    W[i] = (wX[i] * wY[i]) //
+                            / (wX[i] + (slopeSaved * slopeSaved * wY[i]) - (2.0 * slopeSaved * rho[i] * alpha[i]));
+                    sumWX += W[i] * xc[i];
+                    sumWY += W[i] * yc[i];
+                    sumW += W[i];
+                }
+            }
+            xBar = sumWX / sumW;
+            yBar = sumWY / sumW;
+
+            double sumWbetaV = 0.0;
+            double sumWbetaU = 0.0;
+            for (int i = 0; i < pointCount; i++) {
+                if (included[i]) {
+                    double U = xc[i] - xBar;
+                    double V = yc[i] - yBar;
+                    beta[i] = W[i] * (U / wY[i] + slopeSaved * V / wX[i] - (slopeSaved * U + V) * rho[i] / alpha[i]);
+                    sumWbetaV += W[i] * beta[i] * V;
+                    sumWbetaU += W[i] * beta[i] * U;
+                }
+            }
+            slope = sumWbetaV / sumWbetaU;
+
+            converged = Math.abs(slope - slopeSaved) <= RELATIVE_TOLERANCE * Math.max(1.0, Math.abs(slope));
+        }
+
+        if (Double.isNaN(slope) || Double.isInfinite(slope)) {
+            return new Solution(Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, includedCount, iterations, false);
+        }
+
+        // least-squares adjusted points x = Xbar + beta lie on the line; their weighted mean gives the variances
+        double sumWbeta = 0.0;
+        for (int i = 0; i < pointCount; i++) {
+            if (included[i]) {
+                sumWbeta += W[i] * beta[i];
+            }
+        }
+        double adjustedMeanOfBeta = sumWbeta / sumW;
+        double sumWuu = 0.0;
+        double sumMSWDnumerator = 0.0;
+        double yInterceptCentred = yBar - slope * xBar;
+        for (int i = 0; i < pointCount; i++) {
+            if (included[i]) {
+                double u = beta[i] - adjustedMeanOfBeta;
+                sumWuu += W[i] * u * u;
+                double residual = yc[i] - slope * xc[i] - yInterceptCentred;
+                sumMSWDnumerator += W[i] * residual * residual;
+            }
+        }
+
+        double slopeVariance = 1.0 / sumWuu;
+        // the mean adjusted x in the original coordinates
+        double adjustedXBar = xOrigin + xBar + adjustedMeanOfBeta;
+        double yInterceptVariance = 1.0 / sumW + adjustedXBar * adjustedXBar * slopeVariance;
+        double covariance = -adjustedXBar * slopeVariance;
+        double yIntercept = (yOrigin + yBar) - slope * (xOrigin + xBar);
+        double mswd = (includedCount > 2) ? sumMSWDnumerator / (includedCount - 2) : 0.0;
+
+        return new Solution(slope, yIntercept, slopeVariance, yInterceptVariance, covariance, mswd, includedCount, iterations, converged);
+    }
+
+    /**
+     * Weighted ordinary least squares of y on x, a starting point close to
+     * the York slope for most data.
+     */
+    private double startingSlope() {
+        double sumW = 0.0;
+        double sumWX = 0.0;
+        double sumWY = 0.0;
+        for (int i = 0; i < pointCount; i++) {
+            if (included[i]) {
+                sumW += wY[i];
+                sumWX += wY[i] * xc[i];
+                sumWY += wY[i] * yc[i];
+            }
+        }
+        double xMean = sumWX / sumW;
+        double yMean = sumWY / sumW;
+        double sxy = 0.0;
+        double sxx = 0.0;
+        for (int i = 0; i < pointCount; i++) {
+            if (included[i]) {
+                sxy += wY[i] * (xc[i] - xMean) * (yc[i] - yMean);
+                sxx += wY[i] * (xc[i] - xMean) * (xc[i] - xMean);
+            }
+        }
+        return sxy / sxx;
+    }
+
+    /**
+     * A fitted line and its uncertainties.
+     */
+    public static class Solution {
+
+        private final double slope;
+        private final double yIntercept;
+        private final double slopeVariance;
+        private final double yInterceptVariance;
+        private final double covYIntercept__slope;
+        private final double mswd;
+        private final int count;
+        private final int iterations;
+        private final boolean converged;
+
+        Solution(double slope, double yIntercept, double slopeVariance, double yInterceptVariance, //
+                double covYIntercept__slope, double mswd, int count, int iterations, boolean converged) {
+            this.slope = slope;
+            this.yIntercept = yIntercept;
+            this.slopeVariance = slopeVariance;
+            this.yInterceptVariance = yInterceptVariance;
+            this.covYIntercept__slope = covYIntercept__slope;
+            this.mswd = mswd;
+            this.count = count;
+            this.iterations = iterations;
+            this.converged = converged;
+        }
+
+        /**
+         * @return true if the fit has finite values, converged or not
+         */
+        public boolean isValid() {
+            return !Double.isNaN(slope) && !Double.isInfinite(slope) && !Double.isNaN(yIntercept);
+        }
+
+        /**
+         * @return the slope
+         */
+        public double getSlope() {
+            return slope;
+        }
+
+        /**
+         * @return the yIntercept
+         */
+        public double getYIntercept() {
+            return yIntercept;
+        }
+
+        /**
+         * @return the slopeVariance
+         */
+        public double getSlopeVariance() {
+            return slopeVariance;
+        }
+
+        /**
+         * @return the yInterceptVariance
+         */
+        public double getYInterceptVariance() {
+            return yInterceptVariance;
+        }
+
+        /**
+         * @return the covariance of the yIntercept and slope
+         */
+        public double getCovYIntercept__slope() {
+            return covYIntercept__slope;
+        }
+
+        /**
+         * @return the correlation coefficient of the yIntercept and slope
+         */
+        public double getRhoYIntercept__slope() {
+            return covYIntercept__slope / Math.sqrt(slopeVariance * yInterceptVariance);
+        }
+
+        /**
+         * @return the mswd, zero for two points
+         */
+        public double getMSWD() {
+            return mswd;
+        }
+
+        /**
+         * @return the number of points fitted
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return true if the slope settled within the tolerance; otherwise
+         * the values are those of the last iteration
+         */
+        public boolean isConverged() {
+            return converged;
+        }
+
+        /**
+         * @return the number of iterations taken
+         */
+        public int getIterations() {
+            return iterations;
+        }
+
+        /**
+         * @return the covariance matrix of {yIntercept, slope}
+         */
+        public double[][] getCovarianceMatrix() {
+            return new double[][]{
+                {yInterceptVariance, covYIntercept__slope},
+                {covYIntercept__slope, slopeVariance}};
+        }
+    }
+}
@@ -156,14 +156,46 @@ public class GraphAxesSetup implements
             float concordiaTicHalfWeight,
             float concordiaLineWeight) {
 
+        plotConcordiaTicMarks(//
+                g2d,
+                myConcordiaLine.getStartSeg().getMinT(),
+                myConcordiaLine.getEndSeg().getMaxT(),
+                concordiaLabelFont,
+                concordiaLabelFontSize,
+                concordiaTicShape,
+                concordiaTicHalfWeight,
+                concordiaLineWeight);
+    }
+
+    /**
+     *
+     * @param g2d
+     * @param minT the date at the lower end of the visible concordia
+     * @param maxT the date at the upper end of the visible concordia
+     * @param concordiaLabelFont
+     * @param concordiaLabelFontSize
+     * @param concordiaTicShape
+     * @param concordiaTicHalfWeight
+     * @param concordiaLineWeight
+     */
+    public void plotConcordiaTicMarks(//
+            Graphics2D g2d,//
+            double minT,
+            double maxT,
+            String concordiaLabelFont,
+            String concordiaLabelFontSize,
+            String concordiaTicShape,
+            float concordiaTicHalfWeight,
+            float concordiaLineWeight) {
+
         // plot the Concordia tic marks on the concordia
         g2d.setFont(new Font(
                 concordiaLabelFont,
                 Font.BOLD,
                 Integer.parseInt(concordiaLabelFontSize)));
 
-        setMin_T(myConcordiaLine.getStartSeg().getMinT());
-        setMax_T(myConcordiaLine.getEndSeg().getMaxT());
+        setMin_T(minT);
+        setMax_T(maxT);
 
         // all rebuild with tic generator nov 2011
         BigDecimal[] tics = TicGeneratorForAxes.generateTics(min_T / 1e6, max_T / 1e6, 12);   //minCtic, maxCtic, 20 );
@@ -5,6 +5,9 @@ import java.util.Arrays;
 // based on Zdravko Botev's kde.m Matlab function from MATLAB Central
 
 /**
+ * Each instance keeps its transform and scratch buffers between calls, so an
+ * instance is not thread-safe; DateProbabilityDensityPanel shares one across
+ * its preparations only because its PlotPreparer never runs two at once.
  *
  * @author James F. Bowring
  */
@@ -62,14 +65,6 @@ public class KDE {
         this.bandwidth = bandwidth;
     }
 
-    private static Complex[] real2complex(double[] in) throws Exception {
-        Complex[] out = new Complex[in.length];
-        for (int i=0; i<in.length; i++){
-            out[i] = new Complex(in[i],0);
-        }
-        return out;
-    }
-
     private static double[] get_a_t(double[] a, int n, double tstar) throws Exception {
         double[] a_t = new double[n];
         for (int i=0; i<n; i++){
@@ -100,23 +95,6 @@ public class KDE {
         return out;
     }
 
-    private static Complex[] arrayMultiply(Complex[] array1, Complex[] array2) throws Exception {
-        Complex[] out = new Complex[array1.length];
-        for (int i=0; i<array1.length; i++){
-            out[i] = array1[i].times(array2[i]);
-        }
-        return out;
-    }
-
-    private static double[] arrayReal(Complex[] array) throws Exception {
-        int n = array.length;
-        double[] out = new double[n];
-        for (int i=0; i<n; i++){
-            out[i] = array[i].re();
-        }
-        return out;
-    }
-
     private static double[] histc(double[] data, double[] xmesh) throws Exception {
         int ii, n = xmesh.length;
         double min = xmesh[0], max = xmesh[n-1];
@@ -209,56 +187,66 @@ public class KDE {
         return 2*Math.pow(Math.PI,2*l)*sum;
     }
 
-    private static double[] dct1d(double[] data) throws Exception {
+    private void preparePlan(int n) {
+        // the transform tables and buffers are kept for as long as the mesh size is unchanged
+        if (fft == null || fft.getLength() != n){
+            fft = new PrimitiveFFT(n);
+            reordered = new double[n];
+            spectrum = new double[2*n];
+            weightCos = new double[n];
+            weightSin = new double[n];
+            for (int i=0; i<n; i++){
+                double gamma = i*Math.PI/(2*n);
+                weightCos[i] = Math.cos(gamma);
+                weightSin[i] = Math.sin(gamma);
+            }
+        }
+    }
+
+    private double[] dct1d(double[] data) throws Exception {
         // computes the discrete cosine transform of the column vector data
         int n = data.length;
-        double gamma = 0d;
-        Complex[] data2 = new Complex[n];
-        // Compute weights to multiply DFT coefficients
-        Complex[] weight = new Complex[n];
-        weight[0] = new Complex(1,0);
-        for (int i=1; i<n; i++){
-            gamma = -i*Math.PI/(2*n);
-            weight[i] = new Complex(2*Math.cos(gamma),2*Math.sin(gamma));
-        }
+        preparePlan(n);
         // Re-order the elements of the columns of x
         for (int i=0; i<n/2; i++){
-            data2[i] = new Complex(data[2*i],0);
-            data2[n/2+i] = new Complex(data[n-1-2*i],0);
+            reordered[i] = data[2*i];
+            reordered[n/2+i] = data[n-1-2*i];
         }
-        // Multiply FFT by weights:
-        Complex[] fft = FFT.fft(data2);
-        Complex[] weightedData = arrayMultiply(weight,fft);
-        return arrayReal(weightedData);
+        // Multiply FFT by weights 2*exp(-i*pi*k/(2n)), except 1 at k = 0, keeping the real part
+        fft.fftReal(reordered, spectrum);
+        double[] out = new double[n];
+        out[0] = spectrum[0];
+        for (int i=1; i<n; i++){
+            out[i] = 2*weightCos[i]*spectrum[2*i] + 2*weightSin[i]*spectrum[2*i+1];
+        }
+        return out;
     }
 
-    private static double[] idct1d(double[] data) throws Exception {
+    private double[] idct1d(double[] data) throws Exception {
         // computes the inverse discrete cosine transform
         // Reference: A. K. Jain, "Fundamentals of Digital Image Processing", pp. 150-153
         int n = data.length;
-        double gamma = 0d;
-        // Compute weights
-        Complex[] weight = new Complex[n];
-        for (int i=0; i<n; i++){
-            gamma = i*Math.PI/(2*n);
-            weight[i] = new Complex(n*Math.cos(gamma),n*Math.sin(gamma));
-        }
-        // Compute x tilde using equation (5.93) in Jain
-        Complex[] data2 = real2complex(data);
-        Complex[] weightsXdata = arrayMultiply(weight,data2);
-        Complex[] ifft = FFT.ifft(weightsXdata);
+        preparePlan(n);
+        // Compute x tilde using equation (5.93) in Jain, with weights n*exp(i*pi*k/(2n))
         for (int i=0; i<n; i++){
-            data[i] = ifft[i].re();
+            spectrum[2*i] = n*weightCos[i]*data[i];
+            spectrum[2*i+1] = n*weightSin[i]*data[i];
         }
+        fft.ifft(spectrum);
         // Re-order elements of each column according to equations (5.93) and (5.94) in Jain
         double[] out = new double[n];
         for (int i=0; i<n/2; i++){
-            out[2*i] = data[i];
-            out[1+2*i] = data[n-i-1];
+            out[2*i] = spectrum[2*i];
+            out[1+2*i] = spectrum[2*(n-i-1)];
         }
         return out;
     }
 
     private double bandwidth;
+    private PrimitiveFFT fft;
+    private double[] reordered;
+    private double[] spectrum;
+    private double[] weightCos;
+    private double[] weightSin;
 
 }
@@ -0,0 +1,193 @@
+/*
+ * PrimitiveFFT.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation.vermeeschKDE;
+
+/**
+ * Iterative, in-place radix-2 FFT of fixed length N on interleaved
+ * (re, im, re, im, ...) double arrays, with the twiddle factors and
+ * bit-reversal permutations computed once per instance. Gives the same
+ * results as FFT.fft and FFT.ifft without allocating a Complex per element.
+ *
+ * Instances hold scratch space and are not thread-safe.
+ *
+ * @author James F. Bowring
+ */
+public class PrimitiveFFT {
+
+    private final int n;
+    // exp(-2 pi i k / N) for k < N/2
+    private final double[] cosTable;
+    private final double[] sinTable;
+    private final int[] bitReversal;
+    private final int[] halfBitReversal;
+    private final double[] halfBuffer;
+
+    /**
+     *
+     * @param n the transform length, a power of 2
+     */
+    public PrimitiveFFT(int n) {
+        if ((n < 1) || ((n & (n - 1)) != 0)) {
+            throw new RuntimeException("N is not a power of 2");
+        }
+        this.n = n;
+
+        cosTable = new double[Math.max(1, n / 2)];
+        sinTable = new double[Math.max(1, n / 2)];
+        for (int k = 0; k < n / 2; k++) {
+            double kth = -2 * k * Math.PI / n;
+            cosTable[k] = Math.cos(kth);
+            sinTable[k] = Math.sin(kth);
+        }
+
+        bitReversal = bitReversalPermutation(n);
+        halfBitReversal = bitReversalPermutation(Math.max(1, n / 2));
+        halfBuffer = new double[Math.max(2, n)];
+    }
+
+    /**
+     * @return N
+     */
+    public int getLength() {
+        return n;
+    }
+
+    private static int[] bitReversalPermutation(int m) {
+        int[] reversal = new int[m];
+        int bits = Integer.numberOfTrailingZeros(m);
+        for (int i = 0; i < m; i++) {
+            reversal[i] = (bits == 0) ? 0 : (Integer.reverse(i) >>> (32 - bits));
+        }
+        return reversal;
+    }
+
+    /**
+     * Forward transform, in place.
+     *
+     * @param data N complex values, interleaved, length 2N
+     */
+    public void fft(double[] data) {
+        transform(data, n, bitReversal, false);
+    }
+
+    /**
+     * Inverse transform, in place, scaled by 1/N as in FFT.ifft.
+     *
+     * @param data N complex values, interleaved, length 2N
+     */
+    public void ifft(double[] data) {
+        transform(data, n, bitReversal, true);
+        double scale = 1.0 / n;
+        for (int i = 0; i < 2 * n; i++) {
+            data[i] *= scale;
+        }
+    }
+
+    /**
+     * Forward transform of real input, computed as a complex transform of
+     * length N/2 on the even and odd samples and then split.
+     *
+     * @param real N real values
+     * @param spectrum the full N complex values, interleaved, length 2N
+     */
+    public void fftReal(double[] real, double[] spectrum) {
+        if (n == 1) {
+            spectrum[0] = real[0];
+            spectrum[1] = 0.0;
+            return;
+        }
+
+        int h = n / 2;
+        System.arraycopy(real, 0, halfBuffer, 0, n);
+        transform(halfBuffer, h, halfBitReversal, false);
+
+        for (int k = 0; k <= h / 2; k++) {
+            int j = (h - k) % h;
+            double zkRe = halfBuffer[2 * k];
+            double zkIm = halfBuffer[2 * k + 1];
+            double zjRe = halfBuffer[2 * j];
+            double zjIm = halfBuffer[2 * j + 1];
+
+            // even and odd spectra at k and at h - k
+            double ekRe = 0.5 * (zkRe + zjRe);
+            double ekIm = 0.5 * (zkIm - zjIm);
+            double okRe = 0.5 * (zkIm + zjIm);
+            double okIm = -0.5 * (zkRe - zjRe);
+
+            splitInto(spectrum, k, ekRe, ekIm, okRe, okIm);
+            if (j != k) {
+                splitInto(spectrum, h - k, ekRe, -ekIm, okRe, -okIm);
+            }
+        }
+    }
+
+    // X_k = E_k + W^k O_k and X_{k+N/2} = E_k - W^k O_k, with X_{N-k} = conj(X_k)
+    private void splitInto(double[] spectrum, int k, double eRe, double eIm, double oRe, double oIm) {
+        int h = n / 2;
+        double wRe = (k < h) ? cosTable[k] : -1.0;
+        double wIm = (k < h) ? sinTable[k] : 0.0;
+        double woRe = wRe * oRe - wIm * oIm;
+        double woIm = wRe * oIm + wIm * oRe;
+
+        spectrum[2 * k] = eRe + woRe;
+        spectrum[2 * k + 1] = eIm + woIm;
+        if (k == 0) {
+            spectrum[n] = eRe - woRe;
+            spectrum[n + 1] = eIm - woIm;
+        } else {
+            spectrum[2 * (n - k)] = eRe + woRe;
+            spectrum[2 * (n - k) + 1] = -(eIm + woIm);
+        }
+    }
+
+    // radix 2 Cooley-Tukey on the first m complex values, m dividing N
+    private void transform(double[] data, int m, int[] reversal, boolean inverse) {
+        for (int i = 0; i < m; i++) {
+            int j = reversal[i];
+            if (j > i) {
+                double tempRe = data[2 * i];
+                double tempIm = data[2 * i + 1];
+                data[2 * i] = data[2 * j];
+                data[2 * i + 1] = data[2 * j + 1];
+                data[2 * j] = tempRe;
+                data[2 * j + 1] = tempIm;
+            }
+        }
+
+        double sign = inverse ? -1.0 : 1.0;
+        for (int size = 2; size <= m; size <<= 1) {
+            int half = size >> 1;
+            int stride = n / size;
+            for (int start = 0; start < m; start += size) {
+                for (int k = 0; k < half; k++) {
+                    double wRe = cosTable[k * stride];
+                    double wIm = sign * sinTable[k * stride];
+                    int even = 2 * (start + k);
+                    int odd = 2 * (start + k + half);
+
+                    double tRe = wRe * data[odd] - wIm * data[odd + 1];
+                    double tIm = wRe * data[odd + 1] + wIm * data[odd];
+                    data[odd] = data[even] - tRe;
+                    data[odd + 1] = data[even + 1] - tIm;
+                    data[even] += tRe;
+                    data[even + 1] += tIm;
+                }
+            }
+        }
+    }
+}
@@ -67,6 +67,7 @@ import org.earthtime.UPb_Redux.ReduxConstants;
 import org.earthtime.UPb_Redux.dialogs.projectManagers.ProjectManagerSubscribeInterface;
 import org.earthtime.beans.ET_JButton;
 import org.earthtime.dataDictionaries.AcquisitionTypesEnum;
+import org.earthtime.dataDictionaries.TripoliProcessingSettingsEnum;
 import org.earthtime.dialogs.DialogEditor;
 import org.earthtime.isotopes.IsotopesEnum;
 import org.earthtime.projects.ProjectInterface;
@@ -702,6 +703,10 @@ public abstract class AbstractProjectParametersManager extends JLayeredPane {
         repropagateButton.setBounds(leftMargin + 125 + 225 + 225, 525, 150, 25);
         repropagateButton.addActionListener((ActionEvent ae) -> {
             // dec 2014
+            if (rawDataFileHandler.getAcquisitionModel().isUsingFullPropagation() != fullPropagationRB.isSelected()) {
+                rawDataFileHandler.getMassSpec().getStageDependencyTracker()//
+                        .settingChanged(TripoliProcessingSettingsEnum.UNCERTAINTY_PROPAGATION);
+            }
             rawDataFileHandler.getAcquisitionModel().setUsingFullPropagation(fullPropagationRB.isSelected());
             projectManager.reProcessFractionRawRatios(fullPropagationRB.isSelected());
             projectManager.updateDataChangeStatus(true);
@@ -447,15 +447,12 @@ public abstract class AbstractProjectManagerForRawData extends DialogEditor impl
      */
     @Override
     public void reProcessFractionRawRatios(boolean usingFullPropagation) {
-        AbstractMassSpecSetup myMassSpec = project.getTripoliSession().getMassSpec();
-
-        SortedSet<TripoliFraction> tripoliFractions = project.getTripoliSession().getTripoliFractions();
-
-        Iterator<TripoliFraction> tripoliFractionsIterator = tripoliFractions.iterator();
-        while (tripoliFractionsIterator.hasNext()) {
-            TripoliFraction tf = tripoliFractionsIterator.next();
-            myMassSpec.setRawRatios(tf.getRawRatios());
-            myMassSpec.reProcessFractionRawRatios(usingFullPropagation, tf.getFractionID(), tf);
+        // only the stages depending on settings changed since they were performed
+        if (!project.getTripoliSession().reProcessStaleStages(usingFullPropagation)) {
+            // a changed setting needs the raw data, so reload them
+            fireLoadDataTask();
+            manageButtons(true, true, true);
+            return;
         }
 
         tripoliSession.calculateSessionFitFunctionsForPrimaryStandard(false);
@@ -638,19 +638,15 @@ public class ProjectManagerFor_LAICPMS_FromRawData extends DialogEditor implemen
      */
     @Override
     public void reProcessFractionRawRatios(boolean usingFullPropagation) {
-        AbstractMassSpecSetup myMassSpec = project.getTripoliSession().getMassSpec();
-
-        SortedSet<TripoliFraction> tripoliFractions = project.getTripoliSession().getTripoliFractions();
-
-        Iterator<TripoliFraction> tripoliFractionsIterator = tripoliFractions.iterator();
-        while (tripoliFractionsIterator.hasNext()) {
-            TripoliFraction tf = tripoliFractionsIterator.next();
-            myMassSpec.setRawRatios(tf.getRawRatios());
-            myMassSpec.reProcessFractionRawRatios(usingFullPropagation, tf.getFractionID(), tf);
+        // only the stages depending on settings changed since they were performed
+        if (!project.getTripoliSession().reProcessStaleStages(usingFullPropagation)) {
+            // a changed setting needs the raw data, so reload them
+            fireLoadDataTask();
+            manageButtons(true, true, true);
+            return;
         }
 
-        tripoliSession.calculateSessionFitFunctionsForPrimaryStandard(false);
-        // jan 2015 moved to calcualte sessionfittripoliSession.applyCorrections();
+        // the session fits are calculated by initializeSessionManager below
 
         try {
             uPbReduxFrame.updateReportTable(true, false, "");
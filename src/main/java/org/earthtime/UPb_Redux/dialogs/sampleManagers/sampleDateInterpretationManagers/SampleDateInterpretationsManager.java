@@ -1167,6 +1167,8 @@ public class SampleDateInterpretationsManager extends DialogEditor
     @Override
     public void close() {
 
+        dateTreeByAliquot.cancelSampleDateModels();
+
         if (evolutionPlotPanel != null) {
             ((EvolutionPlotPanel) evolutionPlotPanel).cancelFXThread();
             evolutionPlotPanel = null;
@@ -3219,6 +3221,18 @@ private void lockUnlockHistogramBinsMouseEntered (java.awt.event.MouseEvent evt)
         this.concordiaGraphPanel = concordiaGraphPanel;
     }
 
+    /**
+     * Repaints the graphs that show sample date models as each is calculated
+     * in the background.
+     *
+     * @param sampleDateModel
+     */
+    @Override
+    public void sampleTreeDateModelCalculated(SampleDateModel sampleDateModel) {
+        concordiaGraphPanel.repaint();
+        weightedMeanGraphPanel.repaint();
+    }
+
     /**
      *
      * @param node
@@ -3570,6 +3584,8 @@ private void lockUnlockHistogramBinsMouseEntered (java.awt.event.MouseEvent evt)
                             ToggleAliquotFractionByName(//
                                     temp[0].trim()));//,
 
+            // recalculated here, so any background calculation is stale
+            dateTreeByAliquot.cancelSampleDateModels();
             SampleInterface.updateAndSaveSampleDateModelsByAliquot(sample);
 
             if (graphPanels_TabbedPane.getSelectedIndex() == graphPanels_TabbedPane.indexOfTab("Concordia")) {
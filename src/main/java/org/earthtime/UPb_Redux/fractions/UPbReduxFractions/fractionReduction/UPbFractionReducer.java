@@ -142,12 +142,16 @@ import org.earthtime.ratioDataModels.physicalConstantsModels.PhysicalConstantsMo
 import org.earthtime.reduxLabData.ReduxLabData;
 
 /**
+ * Reduces fractions and calculates dates from ratios. Each reduction and
+ * date calculation works in a new reducer holding its partial derivative
+ * terms and decay constants; the shared instance holds only the session
+ * summaries.
  *
  * @author James F. Bowring
  */
 public class UPbFractionReducer extends FractionReducer {
 
-    private static UPbFractionReducer instance;
+    private static final UPbFractionReducer instance = new UPbFractionReducer();
     // Instance variablesInOrder
 //    // 0. lab constants
 //    private static ValueModel lambda230;
@@ -164,126 +168,126 @@ public class UPbFractionReducer extends FractionReducer {
 //    private static ValueModel gmol238;
     // 1. Pb
     // 1a. tracer *****************************************************
-    private static ValueModel alphaPb;
-    private static ValueModel molPb205t;
+    private ValueModel alphaPb;
+    private ValueModel molPb205t;
     // 1b. Pb  Blank *************************************************
-    private static ValueModel r204_205fc;
-    private static ValueModel molPb204tc;
-    private static ValueModel molPb204b;
-    private static ValueModel molPb206b;
-    private static ValueModel molPb207b;
-    private static ValueModel molPb208b;
-    private static ValueModel molPb204c;
-    private static ValueModel molPb206c;
-    private static ValueModel molPb207c;
-    private static ValueModel molPb208c;
-    private static ValueModel blankPbGramsMol;
-    private static ValueModel blankPbMass;
+    private ValueModel r204_205fc;
+    private ValueModel molPb204tc;
+    private ValueModel molPb204b;
+    private ValueModel molPb206b;
+    private ValueModel molPb207b;
+    private ValueModel molPb208b;
+    private ValueModel molPb204c;
+    private ValueModel molPb206c;
+    private ValueModel molPb207c;
+    private ValueModel molPb208c;
+    private ValueModel blankPbGramsMol;
+    private ValueModel blankPbMass;
     // 1c radiogenic Pb, sample Pb *******************************************
-    private static ValueModel molPb206r;
-    private static ValueModel molPb207r;
-    private static ValueModel molPb208r;
-    private static ValueModel molPb206s;
-    private static ValueModel molPb207s;
-    private static ValueModel molPb208s;
+    private ValueModel molPb206r;
+    private ValueModel molPb207r;
+    private ValueModel molPb208r;
+    private ValueModel molPb206s;
+    private ValueModel molPb207s;
+    private ValueModel molPb208s;
     // 2. U *******************************************************************
     //  private static ValueModel r270_265m;
     // 2a. tracer
-    private static ValueModel molU235b;
-    private static ValueModel molU238b;
-    private static ValueModel molU235t;
-    private static ValueModel molU236t;
-    private static ValueModel molU238t;
+    private ValueModel molU235b;
+    private ValueModel molU238b;
+    private ValueModel molU235t;
+    private ValueModel molU236t;
+    private ValueModel molU238t;
     // 2b. sample U *********************************************************
-    private static ValueModel molU233t;
-    private static ValueModel molU235s;
-    private static ValueModel molU238s;
+    private ValueModel molU233t;
+    private ValueModel molU235s;
+    private ValueModel molU238s;
     // 3. Ages
     // 3a. radiogenic isotope ratios
-    private static ValueModel r206_238r;
-    private static ValueModel r207_235r;
-    private static ValueModel r207_206r;
-    private static ValueModel r206_204r;
-    private static ValueModel r208_206r;
-    private static ValueModel r208_232r;
-    private static ValueModel r206_238r_Th;
+    private ValueModel r206_238r;
+    private ValueModel r207_235r;
+    private ValueModel r207_206r;
+    private ValueModel r206_204r;
+    private ValueModel r208_206r;
+    private ValueModel r208_232r;
+    private ValueModel r206_238r_Th;
     // 3b. radiogenic isotope ages ********************************************
-    private static ValueModel age206_238r;
-    private static ValueModel age207_235r;
-    private static ValueModel age207_206r;
-    private static ValueModel age208_232r;
+    private ValueModel age206_238r;
+    private ValueModel age207_235r;
+    private ValueModel age207_206r;
+    private ValueModel age208_232r;
     // 3c. Th and Pa correction ***********************************************
-    private static ValueModel age206_238r_Th;
-    private static ValueModel molTh232s;
-    private static ValueModel molPb206r_Th;
-    private static ValueModel r207_206r_Th;
-    private static ValueModel age207_206r_Th;
-    private static ValueModel age207_235r_Pa;
-    private static ValueModel molPb207r_Pa;
-    private static ValueModel r207_206r_Pa;
-    private static ValueModel r207_235r_Pa;
-    private static ValueModel age207_206r_Pa;
-    private static ValueModel r207_206r_ThPa;
-    private static ValueModel age207_206r_ThPa;
-    private static ValueModel molsU;
+    private ValueModel age206_238r_Th;
+    private ValueModel molTh232s;
+    private ValueModel molPb206r_Th;
+    private ValueModel r207_206r_Th;
+    private ValueModel age207_206r_Th;
+    private ValueModel age207_235r_Pa;
+    private ValueModel molPb207r_Pa;
+    private ValueModel r207_206r_Pa;
+    private ValueModel r207_235r_Pa;
+    private ValueModel age207_206r_Pa;
+    private ValueModel r207_206r_ThPa;
+    private ValueModel age207_206r_ThPa;
+    private ValueModel molsU;
     // 4. Isochron Ratios ********************************************
-    private static ValueModel r206_204tfc;
-    private static ValueModel r204_206s;
-    private static ValueModel r238_204s;
-    private static ValueModel rhoR238_204s__r206_204s;
-    private static ValueModel r235_204s;
-    private static ValueModel r204_207s;
-    private static ValueModel rhoR235_204s__r207_204s;
-    private static ValueModel r232_204s;
-    private static ValueModel r208_204s;
-    private static ValueModel rhoR202_204s__r208_204s;
-    private static ValueModel r238_206s;
-    private static ValueModel r207_206s;
-    private static ValueModel rhoR238_206s__r207_206s;
-    private static ValueModel rhoR207_206s__r204_206s;
-    private static ValueModel r238_207s;
-    private static ValueModel r235_207s;
+    private ValueModel r206_204tfc;
+    private ValueModel r204_206s;
+    private ValueModel r238_204s;
+    private ValueModel rhoR238_204s__r206_204s;
+    private ValueModel r235_204s;
+    private ValueModel r204_207s;
+    private ValueModel rhoR235_204s__r207_204s;
+    private ValueModel r232_204s;
+    private ValueModel r208_204s;
+    private ValueModel rhoR202_204s__r208_204s;
+    private ValueModel r238_206s;
+    private ValueModel r207_206s;
+    private ValueModel rhoR238_206s__r207_206s;
+    private ValueModel rhoR207_206s__r204_206s;
+    private ValueModel r238_207s;
+    private ValueModel r235_207s;
     // 5. Outputs **********************************************************
     // 5a. Pb Calculations // 5b. U calculations
-    private static ValueModel initCommonPbMass;
-    private static ValueModel totCommonPbMass;
-    private static ValueModel radToCommonPb206;
-    private static ValueModel radToCommonPb207;
-    private static ValueModel radToCommonPb208;
-    private static ValueModel percentDiscordance;
-    private static ValueModel alphaU;
-    private static ValueModel massU;
-    private static ValueModel concU;
-    private static ValueModel concTh;
-    private static ValueModel rTh_Usample;
-    private static ValueModel massPb_rib;
-    private static ValueModel concPb_rib;
-    private static ValueModel concPb_r;
-    private static ValueModel concPb_i;
-    private static ValueModel concPb_ib;
-    private static ValueModel concPb206_rib;
-    private static ValueModel concPb206_r;
-    private static ValueModel concPb206_ib;
-    private static ValueModel radToCommonTotal;
+    private ValueModel initCommonPbMass;
+    private ValueModel totCommonPbMass;
+    private ValueModel radToCommonPb206;
+    private ValueModel radToCommonPb207;
+    private ValueModel radToCommonPb208;
+    private ValueModel percentDiscordance;
+    private ValueModel alphaU;
+    private ValueModel massU;
+    private ValueModel concU;
+    private ValueModel concTh;
+    private ValueModel rTh_Usample;
+    private ValueModel massPb_rib;
+    private ValueModel concPb_rib;
+    private ValueModel concPb_r;
+    private ValueModel concPb_i;
+    private ValueModel concPb_ib;
+    private ValueModel concPb206_rib;
+    private ValueModel concPb206_r;
+    private ValueModel concPb206_ib;
+    private ValueModel radToCommonTotal;
     // 6. helpers
 //    private static Map<String, String> outputTable;
     private final static MathContext mathContext15 = ReduxConstants.mathContext15;
     // temp partial results for new oxidation correction
-    private static ValueModel r238_235oc;
-    private static ValueModel r233_235oc;
+    private ValueModel r238_235oc;
+    private ValueModel r233_235oc;
     // jan 2011 for tracer type 236
-    private static ValueModel r238_236oc;
-    private static ValueModel r233_236oc;
-    private static ValueModel totRadiogenicPbMass;// intermediate
+    private ValueModel r238_236oc;
+    private ValueModel r233_236oc;
+    private ValueModel totRadiogenicPbMass;// intermediate
     // store partial derivatives
     private static ConcurrentMap<String, BigDecimal> parDerivTerms;
     private static Map<String, BigDecimal> coVariances;
     private static Map<String, BigDecimal> inputVariances;
     private static SortedMap<Integer, ValueModel> variablesInOrder;
     private static SortedMap<Integer, ValueModel> specialInputVariablesInOrder;
-    private static boolean treatFractionAsZircon;
+    private boolean treatFractionAsZircon;
     // march 2013 modernizing approach to encapsulate what is sent to redux
-    private SortedMap<RadRatios, SessionCorrectedUnknownsSummary> sessionCorrectedUnknownsSummaries;
+    private volatile SortedMap<RadRatios, SessionCorrectedUnknownsSummary> sessionCorrectedUnknownsSummaries;
 
     private UPbFractionReducer() {
     }
@@ -293,9 +297,6 @@ public class UPbFractionReducer extends FractionReducer {
      * @return
      */
     public static UPbFractionReducer getInstance() {
-        if (instance == null) {
-            instance = new UPbFractionReducer();
-        }
         return instance;
     }
 
@@ -306,7 +307,10 @@ public class UPbFractionReducer extends FractionReducer {
      */
     public static void fullFractionReduce(
             FractionI fraction, boolean calculateCovariances) {
+        new UPbFractionReducer().reduce(fraction, calculateCovariances);
+    }
 
+    private void reduce(FractionI fraction, boolean calculateCovariances) {
         if (fraction instanceof UPbFraction) {
             fullFractionReduce_IDTIMS(fraction, calculateCovariances);
         } else if (fraction instanceof UPbLAICPMSFraction) {
@@ -329,12 +333,22 @@ public class UPbFractionReducer extends FractionReducer {
         }
     }
 
+    /**
+     * A reducer for date calculations outside a reduction.
+     */
+    private static UPbFractionReducer forDates(AbstractRatiosDataModel physicalConstantsModel) {
+        UPbFractionReducer reducer = new UPbFractionReducer();
+        reducer.initializeDecayConstants(physicalConstantsModel);
+        reducer.parDerivTerms = new ConcurrentHashMap<>();
+        return reducer;
+    }
+
     /**
      *
      * @param fraction the value of fraction
      * @param calculateCovariances the value of calculateCovariances
      */
-    private static void fullFractionReduce_LAICPMS(
+    private void fullFractionReduce_LAICPMS(
             ETFractionInterface fraction, boolean calculateCovariances) {
 //        System.out.println( "LAICPMS REDUCER" );
         /*
@@ -736,13 +750,17 @@ public class UPbFractionReducer extends FractionReducer {
 
     /**
      *
+     * @param physicalConstantsModel supplies the decay constants
      * @param date206_238r
      * @param ratio
      * @param ratioPlustwoSigma
      * @return
      */
-    public static ValueModel calculateDate206_238r(ValueModel date206_238r, double ratio, double ratioPlustwoSigma) {
+    public static ValueModel calculateDate206_238r(AbstractRatiosDataModel physicalConstantsModel, ValueModel date206_238r, double ratio, double ratioPlustwoSigma) {
+        return forDates(physicalConstantsModel).calculateDate206_238r(date206_238r, ratio, ratioPlustwoSigma);
+    }
 
+    private ValueModel calculateDate206_238r(ValueModel date206_238r, double ratio, double ratioPlustwoSigma) {
         date206_238r.calculateValue(
                 new ValueModel[]{
                     new ValueModel("r206_238r", new BigDecimal(ratio), "ABS", BigDecimal.ZERO, BigDecimal.ZERO),
@@ -767,13 +785,17 @@ public class UPbFractionReducer extends FractionReducer {
 
     /**
      *
+     * @param physicalConstantsModel supplies the decay constants
      * @param date208_232r
      * @param ratio
      * @param ratioPlustwoSigma
      * @return
      */
-    public static ValueModel calculateDate208_232r(ValueModel date208_232r, double ratio, double ratioPlustwoSigma) {
+    public static ValueModel calculateDate208_232r(AbstractRatiosDataModel physicalConstantsModel, ValueModel date208_232r, double ratio, double ratioPlustwoSigma) {
+        return forDates(physicalConstantsModel).calculateDate208_232r(date208_232r, ratio, ratioPlustwoSigma);
+    }
 
+    private ValueModel calculateDate208_232r(ValueModel date208_232r, double ratio, double ratioPlustwoSigma) {
         date208_232r.calculateValue(
                 new ValueModel[]{
                     new ValueModel("r208_232r", new BigDecimal(ratio), "ABS", BigDecimal.ZERO, BigDecimal.ZERO),
@@ -798,13 +820,17 @@ public class UPbFractionReducer extends FractionReducer {
 
     /**
      *
+     * @param physicalConstantsModel supplies the decay constants
      * @param date207_235r
      * @param ratio
      * @param ratioPlustwoSigma
      * @return
      */
-    public static ValueModel calculateDate207_235r(ValueModel date207_235r, double ratio, double ratioPlustwoSigma) {
+    public static ValueModel calculateDate207_235r(AbstractRatiosDataModel physicalConstantsModel, ValueModel date207_235r, double ratio, double ratioPlustwoSigma) {
+        return forDates(physicalConstantsModel).calculateDate207_235r(date207_235r, ratio, ratioPlustwoSigma);
+    }
 
+    private ValueModel calculateDate207_235r(ValueModel date207_235r, double ratio, double ratioPlustwoSigma) {
         date207_235r.calculateValue(
                 new ValueModel[]{
                     new ValueModel("r207_235r", new BigDecimal(ratio), "ABS", BigDecimal.ZERO, BigDecimal.ZERO),
@@ -829,6 +855,7 @@ public class UPbFractionReducer extends FractionReducer {
 
     /**
      *
+     * @param physicalConstantsModel supplies the decay constants
      * @param r238_235s
      * @param date207_206r
      * @param date206_238r
@@ -836,8 +863,11 @@ public class UPbFractionReducer extends FractionReducer {
      * @param ratioPlustwoSigma
      * @return
      */
-    public static ValueModel calculateDate207_206r(ValueModel r238_235s, ValueModel date207_206r, ValueModel date206_238r, double ratio, double ratioPlustwoSigma) {
+    public static ValueModel calculateDate207_206r(AbstractRatiosDataModel physicalConstantsModel, ValueModel r238_235s, ValueModel date207_206r, ValueModel date206_238r, double ratio, double ratioPlustwoSigma) {
+        return forDates(physicalConstantsModel).calculateDate207_206r(r238_235s, date207_206r, date206_238r, ratio, ratioPlustwoSigma);
+    }
 
+    private ValueModel calculateDate207_206r(ValueModel r238_235s, ValueModel date207_206r, ValueModel date206_238r, double ratio, double ratioPlustwoSigma) {
         date207_206r.calculateValue(
                 new ValueModel[]{
                     r238_235s,
@@ -866,7 +896,7 @@ public class UPbFractionReducer extends FractionReducer {
         return date207_206r;
     }
 
-    private static void fullFractionReduce_IDTIMS(
+    private void fullFractionReduce_IDTIMS(
             FractionI fraction,
             boolean calculateCovariances) {
 
@@ -964,7 +994,7 @@ public class UPbFractionReducer extends FractionReducer {
         }
     }
 
-    private static void evaluateVariablesInOrderI(ETFractionInterface fraction) {
+    private void evaluateVariablesInOrderI(ETFractionInterface fraction) {
 
         AbstractRatiosDataModel fractionTracer = ((UPbFractionI) fraction).getTracer();
 
@@ -1014,7 +1044,7 @@ public class UPbFractionReducer extends FractionReducer {
 
     }
 
-    private static void evaluateVariablesInOrderII(ETFractionInterface fraction) {
+    private void evaluateVariablesInOrderII(ETFractionInterface fraction) {
 
         AbstractRatiosDataModel fractionTracer = ((UPbFractionI) fraction).getTracer();
         String tracerType = ((UPbFraction) fraction).getTracerType().trim();
@@ -1852,7 +1882,7 @@ public class UPbFractionReducer extends FractionReducer {
 
     } // end evaluateVariablesInOrderII
 
-    private static void initializeAndEvalSpecialInputVariablesInOrder(ETFractionInterface fraction) {
+    private void initializeAndEvalSpecialInputVariablesInOrder(ETFractionInterface fraction) {
 
         specialInputVariablesInOrder = new TreeMap<>();
 
@@ -1902,7 +1932,7 @@ public class UPbFractionReducer extends FractionReducer {
 
     }
 
-    private static void initializeVariablesInOrder(ETFractionInterface fraction) {
+    private void initializeVariablesInOrder(ETFractionInterface fraction) {
 
         variablesInOrder = new TreeMap<>();
         int index = 0;
@@ -2251,7 +2281,7 @@ public class UPbFractionReducer extends FractionReducer {
 
     }
 
-    private static void initializeInputVariances(ETFractionInterface fraction) {
+    private void initializeInputVariances(ETFractionInterface fraction) {
         inputVariances = new HashMap<>();
 
         // June 2012 
@@ -2299,7 +2329,7 @@ public class UPbFractionReducer extends FractionReducer {
         }
     }
 
-    private static void calculateCovariancesMap(ETFractionInterface fraction) {
+    private void calculateCovariancesMap(ETFractionInterface fraction) {
         coVariances = new HashMap<>();
 
         //***********************************************************************
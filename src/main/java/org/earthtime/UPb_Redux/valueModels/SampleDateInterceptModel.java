@@ -89,6 +89,25 @@ public class SampleDateInterceptModel extends SampleDateModel implements
         setOneSigma( oneSigma );
     }
 
+    @Override
+    public SampleDateModel copyForCalculation() {
+        return copyForCalculationInto(new SampleDateInterceptModel());
+    }
+
+    @Override
+    public void copyCalculatedValuesFrom(SampleDateModel calculatedModel) {
+        super.copyCalculatedValuesFrom(calculatedModel);
+        if (calculatedModel instanceof SampleDateInterceptModel) {
+            SampleDateInterceptModel calculatedInterceptModel = (SampleDateInterceptModel) calculatedModel;
+            plusInternalTwoSigmaUnct = calculatedInterceptModel.plusInternalTwoSigmaUnct;
+            minusInternalTwoSigmaUnct = calculatedInterceptModel.minusInternalTwoSigmaUnct;
+            plusInternalTwoSigmaUnctWithTracerCalibrationUnct = calculatedInterceptModel.plusInternalTwoSigmaUnctWithTracerCalibrationUnct;
+            minusInternalTwoSigmaUnctWithTracerCalibrationUnct = calculatedInterceptModel.minusInternalTwoSigmaUnctWithTracerCalibrationUnct;
+            plusInternalTwoSigmaUnctWithTracerCalibrationAndDecayConstantUnct = calculatedInterceptModel.plusInternalTwoSigmaUnctWithTracerCalibrationAndDecayConstantUnct;
+            minusInternalTwoSigmaUnctWithTracerCalibrationAndDecayConstantUnct = calculatedInterceptModel.minusInternalTwoSigmaUnctWithTracerCalibrationAndDecayConstantUnct;
+        }
+    }
+
     /**
      * @return the plusInternalTwoSigmaUnct
      */
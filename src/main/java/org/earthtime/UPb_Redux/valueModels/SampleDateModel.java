@@ -51,6 +51,7 @@ import org.cirdles.mcLeanRegression.core.McLeanRegressionLineInterface;
 import org.earthtime.Tripoli.dataModels.sessionModels.SessionCorrectedUnknownsSummary;
 import org.earthtime.UPb_Redux.ReduxConstants;
 import org.earthtime.UPb_Redux.aliquots.UPbReduxAliquot;
+import org.earthtime.UPb_Redux.dateInterpretation.concordia.DiscordiaInterceptEngine;
 import org.earthtime.UPb_Redux.dateInterpretation.concordia.YorkLineFit;
 import org.earthtime.UPb_Redux.fractions.FractionI;
 import org.earthtime.UPb_Redux.fractions.UPbReduxFractions.UPbFraction;
@@ -82,6 +83,9 @@ import org.earthtime.plots.isochrons.IsochronModel;
 import org.earthtime.ratioDataModels.AbstractRatiosDataModel;
 import org.earthtime.reduxLabData.ReduxLabData;
 import org.earthtime.samples.SampleInterface;
+import org.earthtime.utilities.jamaHelpers.DiagonalPlusLowRankMatrix;
+import org.earthtime.utilities.jamaHelpers.GeneralizedWeightedMean;
+import org.earthtime.utilities.jamaHelpers.IncrementalWeightedMean;
 
 /**
  * A
@@ -100,6 +104,8 @@ public class SampleDateModel extends ValueModel implements
      * identifies object in binary serialization
      */
     private static final long serialVersionUID = -7739770267101115814L;
+    // above this count the dense weighted mean covariance matrices are not written out
+    private static final int MAXIMUM_FRACTIONS_FOR_WEIGHTED_MEAN_MATRIX_FILE = 100;
     // Instance variables
     /**
      * name of the method to be invoked via reflection
@@ -162,12 +168,18 @@ public class SampleDateModel extends ValueModel implements
     private SampleInterface sample;
     // aliquot is used in analysis mode
     private AliquotInterface aliquot;
-    private transient YorkLineFit yorkLineFit = null;
+    // replaced whole by a calculation and read by the plots, so volatile
+    private transient volatile YorkLineFit yorkLineFit = null;
     // feb 2013
     // allows to differentiate among types so LAICPMS can use log-based analysis until we fully transition
     private SampleAnalysisTypesEnum sampleAnalysisType;
     // Feb 2017
     private transient McLeanRegressionLineInterface mcLeanRegressionLine;
+    // sufficient statistics of the log-ratio weighted mean for the summary they came from;
+    // guarded by this model's lock, as they are only used by its calculations
+    private transient IncrementalWeightedMean logRatioAccumulator;
+    private transient SessionCorrectedUnknownsSummary logRatioAccumulatorSummary;
+    private transient DiagonalPlusLowRankMatrix logRatioAccumulatorSu;
     private static String unitsForYears = "Ma";
     private SortedSet<IsochronModel> isochronModels;
 
@@ -266,6 +278,60 @@ public class SampleDateModel extends ValueModel implements
         return retModel;
     }
 
+    /**
+     * Returns a copy of this model, of the same class and bound to the same
+     * aliquot or sample, that SampleDateModelsScheduler calculates away from
+     * the event dispatch thread while this model is painted; the results are
+     * then brought back with copyCalculatedValuesFrom.
+     *
+     * @return the copy
+     */
+    public SampleDateModel copyForCalculation() {
+        return copyForCalculationInto(new SampleDateModel());
+    }
+
+    /**
+     *
+     * @param retModel an empty model of this model's class
+     * @return retModel with the fields a calculation reads
+     */
+    protected SampleDateModel copyForCalculationInto(SampleDateModel retModel) {
+        retModel.setName(getName());
+        retModel.setMethodName(getMethodName());
+        retModel.setDateName(getDateName());
+        retModel.setUncertaintyType(getUncertaintyType());
+        retModel.setIncludedFractionIDsVector(new Vector<>(getIncludedFractionIDsVector()));
+        retModel.setSampleAnalysisType(getSampleAnalysisType());
+        retModel.setAliquot(aliquot);
+        retModel.setSample(sample);
+
+        return retModel;
+    }
+
+    /**
+     * Takes the results of a calculation from a copy made by
+     * copyForCalculation; called on the event dispatch thread.
+     *
+     * @param calculatedModel
+     */
+    public void copyCalculatedValuesFrom(SampleDateModel calculatedModel) {
+        setValue(calculatedModel.getValue());
+        setOneSigma(calculatedModel.getOneSigma());
+        setMeanSquaredWeightedDeviation(calculatedModel.getMeanSquaredWeightedDeviation());
+        setInternalTwoSigmaUnct(calculatedModel.getInternalTwoSigmaUnct());
+        setInternalTwoSigmaUnctWithStandardRatioVarUnct(calculatedModel.getInternalTwoSigmaUnctWithStandardRatioVarUnct());
+        setInternalTwoSigmaUnctWithTracerCalibrationUnct(calculatedModel.getInternalTwoSigmaUnctWithTracerCalibrationUnct());
+        setInternalTwoSigmaUnctWithTracerCalibrationAndDecayConstantUnct(calculatedModel.getInternalTwoSigmaUnctWithTracerCalibrationAndDecayConstantUnct());
+        setYorkLineFit(calculatedModel.getYorkLineFit());
+        setMcLeanRegressionLine(calculatedModel.getMcLeanRegressionLine());
+
+        synchronized (this) {
+            logRatioAccumulator = calculatedModel.logRatioAccumulator;
+            logRatioAccumulatorSummary = calculatedModel.logRatioAccumulatorSummary;
+            logRatioAccumulatorSu = calculatedModel.logRatioAccumulatorSu;
+        }
+    }
+
     /**
      * compares this <code>SampleDateModel</code>'s <code>name</code> and      <code>
      * preferred</code> fields to those of argument
@@ -760,7 +826,19 @@ public class SampleDateModel extends ValueModel implements
      * <code>aliquot</code> whose name is listed in
      * <code>includedFractionIDsVector</code>
      */
-    public void CalculateDateInterpretationForAliquot() {
+    public synchronized void CalculateDateInterpretationForAliquot() {
+        CalculateDateInterpretationForAliquot(null);
+    }
+
+    /**
+     * As CalculateDateInterpretationForAliquot, but an upper intercept sets
+     * the given lower intercept model rather than its aliquot's, as when
+     * SampleDateModelsScheduler calculates copies of an aliquot's models.
+     *
+     * @param lowerInterceptModel the lower intercept, or null for the
+     * aliquot's own
+     */
+    public synchronized void CalculateDateInterpretationForAliquot(ValueModel lowerInterceptModel) {
         // http://java.sun.com/developer/technicalArticles/ALT/Reflection/index.html
 
         // check to make sure there are fractions with positive dates
@@ -774,7 +852,7 @@ public class SampleDateModel extends ValueModel implements
             // special case to detect upper/lower intercept
             if (methodName.equalsIgnoreCase("UpperIntercept")) {
                 UpperIntercept(includedFractions, //
-                        aliquot.getASampleDateModelByName("lower intercept"));
+                        (lowerInterceptModel != null) ? lowerInterceptModel : aliquot.getASampleDateModelByName("lower intercept"));
             } else {
                 try {
                     Method meth
@@ -794,7 +872,7 @@ public class SampleDateModel extends ValueModel implements
     /**
      *
      */
-    public void CalculateDateInterpretationForSample() {
+    public synchronized void CalculateDateInterpretationForSample() {
         // http://java.sun.com/developer/technicalArticles/ALT/Reflection/index.html
 
         // check to make sure there are fractions with positive dates
@@ -1138,58 +1216,21 @@ public class SampleDateModel extends ValueModel implements
                         =//
                         sessionCorrectedUnknownsSummaries.get(ratioName);
 
-                Matrix unknownsAnalyticalCovarianceSu = sessionCorrectedUnknownsSummary.getUnknownsAnalyticalCovarianceSu();
+                DiagonalPlusLowRankMatrix unknownsAnalyticalCovarianceSu = sessionCorrectedUnknownsSummary.getUnknownsAnalyticalCovarianceSu();
                 Map<String, Integer> unknownFractionIDs = sessionCorrectedUnknownsSummary.getUnknownFractionIDs();
                 Matrix unknownsLogRatioMeans = sessionCorrectedUnknownsSummary.getUnknownsLogRatioMeans();
                 //ValueModel standardRatio = sessionCorrectedUnknownsSummary.getStandardRatio();
                 double varianceOfStandardLogRatio = sessionCorrectedUnknownsSummary.getVarianceOfStandardLogRatio();
 
                 // we are given a list of fractions to use in weighted mean, so we need to extract them from the matrices
-                ArrayList<Integer> activeFractionIndices = new ArrayList<>();
-                ArrayList<ETFractionInterface> activeFractions = new ArrayList<>();
-
+                Map<String, Integer> activeFractionIDs = new HashMap<>();
                 for (int i = 0; i < myFractions.size(); i++) {
-                    if (unknownFractionIDs.containsKey(myFractions.get(i).getFractionID().trim())) {
-                        activeFractionIndices.add(unknownFractionIDs.get(myFractions.get(i).getFractionID().trim()));
-                        activeFractions.add(myFractions.get(i));
+                    String fractionID = myFractions.get(i).getFractionID().trim();
+                    if (unknownFractionIDs.containsKey(fractionID)) {
+                        activeFractionIDs.put(fractionID, unknownFractionIDs.get(fractionID));
                     }
                 }
 
-                // need to sort and use toarryay
-                int[] activeIndices = new int[activeFractionIndices.size()];
-                for (int i = 0; i < activeFractionIndices.size(); i++) {
-                    activeIndices[i] = activeFractionIndices.get(i);
-                }
-
-                Matrix logRatios = unknownsLogRatioMeans.getMatrix(activeIndices, 0, 0);
-                Matrix Su = unknownsAnalyticalCovarianceSu.getMatrix(activeIndices, activeIndices);
-
-//            System.out.println( "Su" );
-//            Su.print( matF, 15 );
-//
-//            System.out.println( "logRatios" );
-//            logRatios.print( matF, 15 );
-                Matrix onesV = new Matrix(activeIndices.length, 1, 1.0);
-
-                // SECTION A
-                double logRatioMean = onesV.transpose().times(Su.solve(logRatios)).get(0, 0) //
-                        / (onesV.transpose().times(Su.solve(onesV))).get(0, 0);
-
-                logWMresults.setLogRatioMean(logRatioMean);
-
-                double logRatioMeanOneSigmaAnalytical = Math.sqrt(1.0 / (onesV.transpose().times(Su.solve(onesV)).get(0, 0)));
-
-                logWMresults.setLogRatioMeanOneSigmaAnalytical(logRatioMeanOneSigmaAnalytical);
-
-                Matrix logRationResiduals = logRatios.copy();
-                for (int i = 0; i < logRatios.getRowDimension(); i++) {
-                    logRationResiduals.set(i, 0, logRatios.get(i, 0) - logRatioMean);
-                }
-
-                double logRatioMSWD = 1.0 / (activeIndices.length - 1) * logRationResiduals.transpose().times(Su.solve(logRationResiduals)).get(0, 0);
-
-                logWMresults.setMSWD(logRatioMSWD);
-                // Section B
                 //TODO: provide lab data with values of ratio variability for each ratio
                 // for now all = 2%
                 // feb 2016 finally!
@@ -1198,25 +1239,65 @@ public class SampleDateModel extends ValueModel implements
                         ReduxLabData.getInstance().getDefaultInterReferenceMaterialReproducibilityMap()//
                                 .get(RadRatios.valueOf(radiogenicIsotopeDateName.replace("age", "r"))).getValue().doubleValue();
 
-                Matrix SuInterStd = Su.plus(new Matrix(Su.getRowDimension(), Su.getColumnDimension(),//
-                        interReferenceMaterialReproducibility * interReferenceMaterialReproducibility));
+                // the inter-standard and standard terms are rank-one in the ones vector
+                double interStdVariance = interReferenceMaterialReproducibility * interReferenceMaterialReproducibility;
+                double interStdPlusStdVariance = interStdVariance + varianceOfStandardLogRatio;
+
+                GeneralizedWeightedMean logRatioWM;
+                double logRatioMeanOneSigmaAnalyticalPlusInterStd;
+                double logRatioMeanOneSigmaAnalyticalPlusInterStdPlusStd;
+
+                IncrementalWeightedMean accumulator = updateLogRatioAccumulator(sessionCorrectedUnknownsSummary, activeFractionIDs);
+                if (accumulator != null) {
+                    // Su = D + U * C * U', so all three covariances share the
+                    // factor [U 1] and differ only in the inner matrix
+                    int rank = unknownsAnalyticalCovarianceSu.getRank();
+                    Matrix innerMatrixA = new Matrix(rank + 1, rank + 1);
+                    if (rank > 0) {
+                        innerMatrixA.setMatrix(0, rank - 1, 0, rank - 1, unknownsAnalyticalCovarianceSu.getInnerMatrix());
+                    }
+                    Matrix innerMatrixB = innerMatrixA.copy();
+                    innerMatrixB.set(rank, rank, interStdVariance);
+                    Matrix innerMatrixC = innerMatrixB.copy();
+                    innerMatrixC.set(rank, rank, interStdPlusStdVariance);
+
+                    logRatioWM = accumulator.getWeightedMean(innerMatrixA);
+                    logRatioMeanOneSigmaAnalyticalPlusInterStd = accumulator.getWeightedMean(innerMatrixB).getOneSigma();
+                    logRatioMeanOneSigmaAnalyticalPlusInterStdPlusStd = accumulator.getWeightedMean(innerMatrixC).getOneSigma();
+                } else {
+                    int[] activeIndices = new int[activeFractionIDs.size()];
+                    int index = 0;
+                    for (Integer activeIndex : activeFractionIDs.values()) {
+                        activeIndices[index] = activeIndex;
+                        index++;
+                    }
 
-                double logRatioMeanOneSigmaAnalyticalPlusInterStd = Math.sqrt(1.0 / (onesV.transpose().times(SuInterStd.solve(onesV)).get(0, 0)));
+                    double[] logRatios = unknownsLogRatioMeans.getMatrix(activeIndices, 0, 0).getColumnPackedCopy();
+                    DiagonalPlusLowRankMatrix Su = unknownsAnalyticalCovarianceSu.getPrincipalSubMatrix(activeIndices);
+                    Matrix onesV = new Matrix(activeIndices.length, 1, 1.0);
 
-                logWMresults.setLogRatioMeanOneSigmaAnalyticalPlusInterStd(logRatioMeanOneSigmaAnalyticalPlusInterStd);
+                    logRatioWM = GeneralizedWeightedMean.fromStructuredCovariance(logRatios, Su);
+                    logRatioMeanOneSigmaAnalyticalPlusInterStd
+                            = //
+                            GeneralizedWeightedMean.fromStructuredCovariance(logRatios, //
+                                    Su.plusLowRank(onesV, new Matrix(1, 1, interStdVariance))).getOneSigma();
+                    logRatioMeanOneSigmaAnalyticalPlusInterStdPlusStd
+                            = //
+                            GeneralizedWeightedMean.fromStructuredCovariance(logRatios, //
+                                    Su.plusLowRank(onesV, new Matrix(1, 1, interStdPlusStdVariance))).getOneSigma();
+                }
 
-                // section C
-//            double logMeanPlusOneSigma = Math.log( standardRatio.getValue().doubleValue() + standardRatio.getOneSigmaAbs().doubleValue() );
-//            double logMean = Math.log( standardRatio.getValue().doubleValue() );
-//            double logMeanMinusOneSigma = Math.log( standardRatio.getValue().doubleValue() - standardRatio.getOneSigmaAbs().doubleValue() );
-//
-//            double maxDelta = Math.max( Math.abs( logMeanPlusOneSigma - logMean ), Math.abs( logMean - logMeanMinusOneSigma ) );
-//
-//            
-                Matrix SuInterStdPlusStd = SuInterStd.plus(new Matrix(Su.getRowDimension(), Su.getColumnDimension(), varianceOfStandardLogRatio));
+                // SECTION A
+                logWMresults.setLogRatioMean(logRatioWM.getMean());
+
+                logWMresults.setLogRatioMeanOneSigmaAnalytical(logRatioWM.getOneSigma());
+
+                logWMresults.setMSWD(logRatioWM.getMSWD());
 
-                double logRatioMeanOneSigmaAnalyticalPlusInterStdPlusStd = Math.sqrt(1.0 / (onesV.transpose().times(SuInterStdPlusStd.solve(onesV)).get(0, 0)));
+                // Section B
+                logWMresults.setLogRatioMeanOneSigmaAnalyticalPlusInterStd(logRatioMeanOneSigmaAnalyticalPlusInterStd);
 
+                // section C
                 logWMresults.setLogRatioMeanOneSigmaAnalyticalPlusInterStdPlusStd(logRatioMeanOneSigmaAnalyticalPlusInterStdPlusStd);
 
 //////            // section D
@@ -1299,6 +1380,82 @@ public class SampleDateModel extends ValueModel implements
         return logWMresults;
     }
 
+    /**
+     * Brings the log-ratio accumulator into line with the active fractions by
+     * adding and removing only those that changed since the last call, so
+     * that toggling one fraction costs O(1) in the weighted mean itself. The
+     * accumulator is rebuilt whenever the session summary is replaced, and
+     * whether Su can be accumulated at all is decided once per summary. Holds
+     * this model's lock, which the calculations already hold, so the
+     * accumulator is never updated by two threads at once.
+     *
+     * @param sessionCorrectedUnknownsSummary
+     * @param activeFractionIDs map of fractionID to its index in the summary
+     * @return the accumulator, or null if Su cannot be accumulated
+     */
+    private synchronized IncrementalWeightedMean updateLogRatioAccumulator(
+            SessionCorrectedUnknownsSummary sessionCorrectedUnknownsSummary,
+            Map<String, Integer> activeFractionIDs) {
+
+        DiagonalPlusLowRankMatrix unknownsAnalyticalCovarianceSu = sessionCorrectedUnknownsSummary.getUnknownsAnalyticalCovarianceSu();
+        if ((logRatioAccumulatorSummary != sessionCorrectedUnknownsSummary)//
+                || (logRatioAccumulatorSu != unknownsAnalyticalCovarianceSu)) {
+            logRatioAccumulatorSummary = sessionCorrectedUnknownsSummary;
+            logRatioAccumulatorSu = unknownsAnalyticalCovarianceSu;
+            logRatioAccumulator = isAccumulable(unknownsAnalyticalCovarianceSu)//
+                    ? new IncrementalWeightedMean(unknownsAnalyticalCovarianceSu.getRank() + 1) : null;
+        }
+        if (logRatioAccumulator == null) {
+            return null;
+        }
+
+        for (String fractionID : new ArrayList<>(logRatioAccumulator.keySet())) {
+            if (!activeFractionIDs.containsKey(fractionID)) {
+                logRatioAccumulator.remove(fractionID);
+            }
+        }
+
+        int rank = unknownsAnalyticalCovarianceSu.getRank();
+        double[] diagonal = null;
+        double[][] leftFactor = unknownsAnalyticalCovarianceSu.getLeftFactor().getArray();
+        Matrix unknownsLogRatioMeans = sessionCorrectedUnknownsSummary.getUnknownsLogRatioMeans();
+        for (Map.Entry<String, Integer> entry : activeFractionIDs.entrySet()) {
+            if (!logRatioAccumulator.contains(entry.getKey())) {
+                if (diagonal == null) {
+                    diagonal = unknownsAnalyticalCovarianceSu.getDiagonal();
+                }
+                int index = entry.getValue();
+                double[] factorRow = new double[rank + 1];
+                System.arraycopy(leftFactor[index], 0, factorRow, 0, rank);
+                factorRow[rank] = 1.0;
+
+                logRatioAccumulator.add(entry.getKey(), unknownsLogRatioMeans.get(index, 0), diagonal[index], factorRow);
+            }
+        }
+
+        return logRatioAccumulator;
+    }
+
+    /**
+     * Su can be accumulated only in factored form, with a low rank and a
+     * positive analytical variance for every fraction; otherwise it is solved
+     * directly.
+     */
+    private static boolean isAccumulable(DiagonalPlusLowRankMatrix unknownsAnalyticalCovarianceSu) {
+        // an older session's Su has no factors to accumulate
+        boolean retVal = !unknownsAnalyticalCovarianceSu.isDense()//
+                && (unknownsAnalyticalCovarianceSu.getRank() < unknownsAnalyticalCovarianceSu.getDimension());
+        if (retVal) {
+            for (double variance : unknownsAnalyticalCovarianceSu.getDiagonal()) {
+                if (!(variance > 0.0)) {
+                    retVal = false;
+                    break;
+                }
+            }
+        }
+        return retVal;
+    }
+
     private void calculateWeightedMeansWithMSWDforRatioBasedData(
             Vector<ETFractionInterface> myFractions,
             String radiogenicIsotopeDateName) //
@@ -1329,25 +1486,25 @@ public class SampleDateModel extends ValueModel implements
         int countOfFractions = myFractions.size();
 
         // build vector of date values for specified date with one for each fraction
-        Matrix vectorXBar = new Matrix(countOfFractions, 1);
+        double[] vectorXBar = new double[countOfFractions];
         for (int i = 0; i < countOfFractions; i++) {
-            vectorXBar.set(//
-                    i, //
-                    0, //
-                    myFractions.get(i).getRadiogenicIsotopeDateByName(radiogenicIsotopeDateName).//
-                            getValue().doubleValue());
+            vectorXBar[i] = myFractions.get(i).getRadiogenicIsotopeDateByName(radiogenicIsotopeDateName).//
+                    getValue().doubleValue();
         }
 
-        Matrix sAnalyticalXbar = new Matrix(countOfFractions, countOfFractions);
-        Matrix sTracerXbar = new Matrix(countOfFractions, countOfFractions);
-        Matrix sLambdaXbar = new Matrix(countOfFractions, countOfFractions);
+        // the three covariance matrices are held as diagonal plus low rank
+        // so that the weighted means cost O(n) rather than O(n^3)
+        DiagonalPlusLowRankMatrix sAnalyticalXbar = null;
+        DiagonalPlusLowRankMatrix sTracerXbar = null;
+        DiagonalPlusLowRankMatrix sLambdaXbar = null;
 
         if (analyticalOnly) { // generally the case for legacy data
             // populate the diagonal with the square of oneSigma abs = variance
+            double[] analyticalVars = new double[countOfFractions];
             for (int i = 0; i < countOfFractions; i++) {
-                double analyticalVar = fractionVarianceForThisDate(myFractions.get(i));
-                sAnalyticalXbar.set(i, i, analyticalVar);
+                analyticalVars[i] = fractionVarianceForThisDate(myFractions.get(i));
             }
+            sAnalyticalXbar = new DiagonalPlusLowRankMatrix(analyticalVars);
         } else {
             /*
              * To take a weighed mean of several isotopic dates that includes
@@ -1843,20 +2000,8 @@ public class SampleDateModel extends ValueModel implements
              * matrix transposes are switched for the Jacobian derivatives
              * because of the way I?ve derived them here.
              */
-            // sAnalyticalXbar is defined as square zeroes matrix
-            sAnalyticalXbar = new Matrix(countOfFractions, countOfFractions, 0.0);
-
-            sTracerXbar
-                    = //
-                    jacobianTracerOnlySensitivityMatrix.getMatrix().//
-                            times(tracerSystematicCovMat.//
-                                    times(jacobianTracerOnlySensitivityMatrix.getMatrix().transpose()));
-
-            sLambdaXbar
-                    = //
-                    jacobianTracerAndLambdaSensitivityMatrix.getMatrix().//
-                            times(systematicCovMatModel.getMatrix().//
-                                    times(jacobianTracerAndLambdaSensitivityMatrix.getMatrix().transpose()));
+            // sAnalyticalXbar is the diagonal alone
+            sAnalyticalXbar = new DiagonalPlusLowRankMatrix(fractionAnalyticalDateCovariances);
 
             /**
              * 4
@@ -1869,136 +2014,85 @@ public class SampleDateModel extends ValueModel implements
              * matrix SIGMAts . These affect only the individual fractions, so
              * they contribute to the diagonal terms in the covariance matrix.
              * All the off-diagonal terms in SIGMA are the same as in SIGMAts .
-             * The diagonal terms in ?SIGMA can found in the ?date covariance
-             * matrix? for each fraction: for the 206 Pb/ 238 U date, this is
-             * the variance term in the first row and first column, for the
-             * Th-corrected 206 Pb/ 238 U date it is the variance term in the
-             * second row and second column, etc. The value of each fraction?s
-             * date variance can be replaced in SIGMAts with the new value to
-             * effectively replace the diagonal of SIGMAts to create SIGMA. It
-             * is SIGMA that is used to calculate the generalized weighed mean
-             * of the fractions in U-Pb Redux.
+             *
+             * Since SIGMAts = Jt X SIGMAs X Jt(transpose) has rank at most the
+             * number of systematic variables, SIGMA is kept in the factored
+             * form diag(analytical) + Jt X SIGMAs X Jt(transpose) and never
+             * multiplied out.
              */
-            //sigma-a = sanalyticalxbar = square of zeros with diagonal
-            for (int f = 0; f < countOfFractions; f++) {
-                // analytical
-                sAnalyticalXbar.set(f, f, fractionAnalyticalDateCovariances[f]);
-
-                // analytical plus tracer
-                sTracerXbar.set(f, f, sTracerXbar.get(f, f) + fractionAnalyticalDateCovariances[f]);
-                // all sources
-                sLambdaXbar.set(f, f, sLambdaXbar.get(f, f) + fractionAnalyticalDateCovariances[f]);
-            }
+            sTracerXbar
+                    = //
+                    new DiagonalPlusLowRankMatrix(//
+                            fractionAnalyticalDateCovariances, //
+                            jacobianTracerOnlySensitivityMatrix.getMatrix(), //
+                            tracerSystematicCovMat);
 
-            // setup utility model for printing
-            AbstractMatrixModel utilityCovMatModel = new CovarianceMatrixModel();
-            utilityCovMatModel.setRows(fractionIDs);
-            utilityCovMatModel.setCols(utilityCovMatModel.getRows());
+            sLambdaXbar
+                    = //
+                    new DiagonalPlusLowRankMatrix(//
+                            fractionAnalyticalDateCovariances, //
+                            jacobianTracerAndLambdaSensitivityMatrix.getMatrix(), //
+                            systematicCovMatModel.getMatrix());
 
-            matrixFile = new File("WEIGHTED_MEAN_MATRIX_FILE_" + dateName + ".txt");
+            // the dense matrices are written out only when small enough to read
+            if (countOfFractions <= MAXIMUM_FRACTIONS_FOR_WEIGHTED_MEAN_MATRIX_FILE) {
+                // setup utility model for printing
+                AbstractMatrixModel utilityCovMatModel = new CovarianceMatrixModel();
+                utilityCovMatModel.setRows(fractionIDs);
+                utilityCovMatModel.setCols(utilityCovMatModel.getRows());
 
-            try {
-                matrixWriter = new PrintWriter(new FileWriter(matrixFile));
-                matrixWriter.println("\n\n******   WEIGHTED MEAN " + dateName + "   ********************\n\n");
+                matrixFile = new File("WEIGHTED_MEAN_MATRIX_FILE_" + dateName + ".txt");
 
-                utilityCovMatModel.setLevelName("SigmaA " + radiogenicIsotopeDateName + " ");
-                utilityCovMatModel.setMatrix(sAnalyticalXbar);
-                matrixWriter.println(utilityCovMatModel.ToStringWithLabels());
+                try {
+                    matrixWriter = new PrintWriter(new FileWriter(matrixFile));
+                    matrixWriter.println("\n\n******   WEIGHTED MEAN " + dateName + "   ********************\n\n");
 
-                utilityCovMatModel.setLevelName("SigmaT " + radiogenicIsotopeDateName + " ");
-                utilityCovMatModel.setMatrix(sTracerXbar);
-                matrixWriter.println(utilityCovMatModel.ToStringWithLabels());
+                    utilityCovMatModel.setLevelName("SigmaA " + radiogenicIsotopeDateName + " ");
+                    utilityCovMatModel.setMatrix(sAnalyticalXbar.toMatrix());
+                    matrixWriter.println(utilityCovMatModel.ToStringWithLabels());
 
-                utilityCovMatModel.setLevelName("SigmaL " + radiogenicIsotopeDateName + " ");
-                utilityCovMatModel.setMatrix(sLambdaXbar);
-                matrixWriter.println(utilityCovMatModel.ToStringWithLabels());
+                    utilityCovMatModel.setLevelName("SigmaT " + radiogenicIsotopeDateName + " ");
+                    utilityCovMatModel.setMatrix(sTracerXbar.toMatrix());
+                    matrixWriter.println(utilityCovMatModel.ToStringWithLabels());
 
-                matrixWriter.close();
+                    utilityCovMatModel.setLevelName("SigmaL " + radiogenicIsotopeDateName + " ");
+                    utilityCovMatModel.setMatrix(sLambdaXbar.toMatrix());
+                    matrixWriter.println(utilityCovMatModel.ToStringWithLabels());
 
-            } catch (IOException iOException) {
+                    matrixWriter.close();
+
+                } catch (IOException iOException) {
+                }
             }
         }// end of case where more than analytical uncertainties are being considered
 
-        // calculate alpha matrices for each of XYZ uncertainties
-        Matrix sLambdaXbarInverse;
-        Matrix U = new Matrix(countOfFractions, 1, 1.0);
-        Matrix sAnalyticalXbarInverseU = null;
+        // calculate generalized weighted means for each of XYZ uncertainties
+        GeneralizedWeightedMean analyticalWM;
         try {
-            sAnalyticalXbarInverseU = sAnalyticalXbar.solve(U);
+            analyticalWM = GeneralizedWeightedMean.fromStructuredCovariance(vectorXBar, sAnalyticalXbar);
         } catch (Exception e) {
             throw new ETException(//
                     null,//
                     new String[]{"Date Uncertainties are ZERO ... Cannot calculate weighted mean.",});
         }
 
-        Matrix alphaAnalytical
-                =//
-                sAnalyticalXbarInverseU.//
-                        times(1.0 / U.transpose().times(sAnalyticalXbarInverseU).get(0, 0));
-        Matrix alphaTracer = null;
-        Matrix alphaLambda = null;
-        if (!analyticalOnly) {
-            Matrix sTracerXbarInverseU = sTracerXbar.solve(U);
-            alphaTracer
-                    =//
-                    sTracerXbarInverseU.//
-                            times(1.0 / U.transpose().times(sTracerXbarInverseU).get(0, 0));
-
-            sLambdaXbarInverse = sLambdaXbar.inverse();
-            alphaLambda
-                    =//
-                    sLambdaXbarInverse.times(U).//
-                            times(1.0 / U.transpose().times(sLambdaXbarInverse).times(U).get(0, 0));
-        }
-        // dot products
-        double analyticalWM = 0.0;
-        for (int f = 0;
-                f < countOfFractions;
-                f++) {
-            analyticalWM += vectorXBar.get(f, 0) * alphaAnalytical.get(f, 0);
-        }
-        double analyticalOneSigma
-                = //
-                Math.sqrt(//
-                        alphaAnalytical.transpose().//
-                                times(sAnalyticalXbar).//
-                                times(alphaAnalytical).get(0, 0));
-        Matrix analyticalR = vectorXBar.minus(new Matrix(countOfFractions, 1, analyticalWM));
-        Matrix sAnalyticalXbarInvR = sAnalyticalXbar.solve(analyticalR);
-        double analyticalMSWD
-                = //
-                analyticalR.transpose().//
-                        times(sAnalyticalXbarInvR).get(0, 0)//
-                / (double) (countOfFractions - 1);
         if (!analyticalOnly) {
+            GeneralizedWeightedMean tracerWM = GeneralizedWeightedMean.fromStructuredCovariance(vectorXBar, sTracerXbar);
+            GeneralizedWeightedMean lambdaWM = GeneralizedWeightedMean.fromStructuredCovariance(vectorXBar, sLambdaXbar);
 
-            double tracerOneSigma
-                    = //
-                    Math.sqrt(//
-                            alphaTracer.transpose().//
-                                    times(sTracerXbar).//
-                                    times(alphaTracer).get(0, 0));
-
-            double lambdaOneSigma
-                    = //
-                    Math.sqrt(//
-                            alphaLambda.transpose().//
-                                    times(sLambdaXbar).//
-                                    times(alphaLambda).get(0, 0));
-
-            setInternalTwoSigmaUnctWithTracerCalibrationUnct(new BigDecimal(2.0 * tracerOneSigma));
-            setInternalTwoSigmaUnctWithTracerCalibrationAndDecayConstantUnct(new BigDecimal(2.0 * lambdaOneSigma));
+            setInternalTwoSigmaUnctWithTracerCalibrationUnct(new BigDecimal(2.0 * tracerWM.getOneSigma()));
+            setInternalTwoSigmaUnctWithTracerCalibrationAndDecayConstantUnct(new BigDecimal(2.0 * lambdaWM.getOneSigma()));
 
         }
 
-        setValue(new BigDecimal(analyticalWM));
+        setValue(new BigDecimal(analyticalWM.getMean()));
         setOneSigma(
-                new BigDecimal(analyticalOneSigma));
+                new BigDecimal(analyticalWM.getOneSigma()));
         setInternalTwoSigmaUnct(
-                new BigDecimal(2.0 * analyticalOneSigma));
+                new BigDecimal(2.0 * analyticalWM.getOneSigma()));
 
         setMeanSquaredWeightedDeviation(
-                new BigDecimal(analyticalMSWD));
+                new BigDecimal(analyticalWM.getMSWD()));
 
     }
 
@@ -2096,6 +2190,7 @@ public class SampleDateModel extends ValueModel implements
             //we have a post feb 2013 logratio solution
             ValueModel meanDate = UPbFractionReducer//
                     .calculateDate206_238r( //
+                            myFractions.get(0).getPhysicalConstantsModel(),
                             new Age206_238r(),
                             Math.exp(logWMresults.getLogRatioMean()),
                             Math.exp(logWMresults.getLogRatioMean() + logWMresults.getLogRatioMeanOneSigmaAnalytical() * 2.0));
@@ -2107,6 +2202,7 @@ public class SampleDateModel extends ValueModel implements
             // Section B
             meanDate = UPbFractionReducer//
                     .calculateDate206_238r( //
+                            myFractions.get(0).getPhysicalConstantsModel(),
                             new Age206_238r(),
                             Math.exp(logWMresults.getLogRatioMean()),
                             Math.exp(logWMresults.getLogRatioMean() + logWMresults.getLogRatioMeanOneSigmaAnalyticalPlusInterStd() * 2.0));
@@ -2116,6 +2212,7 @@ public class SampleDateModel extends ValueModel implements
             // Section C
             meanDate = UPbFractionReducer//
                     .calculateDate206_238r( //
+                            myFractions.get(0).getPhysicalConstantsModel(),
                             new Age206_238r(),
                             Math.exp(logWMresults.getLogRatioMean()),
                             Math.exp(logWMresults.getLogRatioMean() + logWMresults.getLogRatioMeanOneSigmaAnalyticalPlusInterStdPlusStd() * 2.0));
@@ -2163,6 +2260,7 @@ public class SampleDateModel extends ValueModel implements
             //we have a post feb 2013 logratio solution
             ValueModel meanDate = UPbFractionReducer//
                     .calculateDate207_235r( //
+                            myFractions.get(0).getPhysicalConstantsModel(),
                             new Age207_235r(),
                             Math.exp(logWMresults.getLogRatioMean()),
                             Math.exp(logWMresults.getLogRatioMean() + logWMresults.getLogRatioMeanOneSigmaAnalytical() * 2.0));
@@ -2199,6 +2297,7 @@ public class SampleDateModel extends ValueModel implements
             //we have a post feb 2013 logratio solution
             ValueModel meanDate = UPbFractionReducer//
                     .calculateDate207_206r( //
+                            myFractions.get(0).getPhysicalConstantsModel(),
                             ReduxLabData.getInstance().getDefaultR238_235s(),
                             new Age207_206r(),
                             myFractions.get(0).getRadiogenicIsotopeDateByName(RadDates.age206_238r),
@@ -2232,6 +2331,7 @@ public class SampleDateModel extends ValueModel implements
             //we have a post feb 2013 logratio solution
             ValueModel meanDate = UPbFractionReducer//
                     .calculateDate208_232r( //
+                            myFractions.get(0).getPhysicalConstantsModel(),
                             new Age208_232r(),
                             Math.exp(logWMresults.getLogRatioMean()),
                             Math.exp(logWMresults.getLogRatioMean() + logWMresults.getLogRatioMeanOneSigmaAnalytical() * 2.0));
@@ -2243,6 +2343,7 @@ public class SampleDateModel extends ValueModel implements
             // Section B
             meanDate = UPbFractionReducer//
                     .calculateDate208_232r( //
+                            myFractions.get(0).getPhysicalConstantsModel(),
                             new Age208_232r(),
                             Math.exp(logWMresults.getLogRatioMean()),
                             Math.exp(logWMresults.getLogRatioMean() + logWMresults.getLogRatioMeanOneSigmaAnalyticalPlusInterStd() * 2.0));
@@ -2252,6 +2353,7 @@ public class SampleDateModel extends ValueModel implements
             // Section C
             meanDate = UPbFractionReducer//
                     .calculateDate208_232r( //
+                            myFractions.get(0).getPhysicalConstantsModel(),
                             new Age208_232r(),
                             Math.exp(logWMresults.getLogRatioMean()),
                             Math.exp(logWMresults.getLogRatioMean() + logWMresults.getLogRatioMeanOneSigmaAnalyticalPlusInterStdPlusStd() * 2.0));
@@ -2387,11 +2489,23 @@ public class SampleDateModel extends ValueModel implements
 
             AbstractRatiosDataModel myPhysicalConstants = myFractions.get(0).getPhysicalConstantsModel();
 
+            // bracketed intercepts; NaN falls back to the legacy Newton iteration
+            double[] intercepts = new double[]{Double.NaN, Double.NaN};
+            try {
+                intercepts = DiscordiaInterceptEngine.solveIntercepts(//
+                        getYorkLineFit().getYIntercept(), getYorkLineFit().getSlope(),//
+                        myPhysicalConstants.getDatumByName(Lambdas.lambda235.getName()).getValue().doubleValue(),//
+                        myPhysicalConstants.getDatumByName(Lambdas.lambda238.getName()).getValue().doubleValue());
+            } catch (Exception e) {
+            }
+
             // calculate upper intercept date
             try {
-                setValue(new BigDecimal(DiscordiaInterceptNewtonMethod(/*
+                setValue(new BigDecimal(Double.isNaN(intercepts[0])//
+                        ? DiscordiaInterceptNewtonMethod(/*
                          * 4.5E9
-                         */ReduxConstants.MAX_DATE_ANNUM, myPhysicalConstants)));
+                         */ReduxConstants.MAX_DATE_ANNUM, myPhysicalConstants)//
+                        : intercepts[0]));
                 setMeanSquaredWeightedDeviation(
                         new BigDecimal(getYorkLineFit().getMSWD()));
             } catch (Exception e) {
@@ -2417,42 +2531,48 @@ public class SampleDateModel extends ValueModel implements
             } catch (Exception e) {
             }
 
-            // lower intercept
-            try {
-                ((SampleDateModel) lowerInterceptModel).setIncludedFractionIDsVector(getIncludedFractionIDsVector());
-            } catch (Exception e) {
-            }
-            try {
-                ((SampleDateModel) lowerInterceptModel).setYorkLineFit(getYorkLineFit());
-            } catch (Exception e) {
-            }
-            // calculate lower intercept date
-            try {
-                lowerInterceptModel.setValue(//
-                        new BigDecimal(DiscordiaInterceptNewtonMethod(0.0, myPhysicalConstants)));
+            // lower intercept, under its own lock as it is another model
+            if (lowerInterceptModel != null) {
+                synchronized (lowerInterceptModel) {
+                    try {
+                        ((SampleDateModel) lowerInterceptModel).setIncludedFractionIDsVector(getIncludedFractionIDsVector());
+                    } catch (Exception e) {
+                    }
+                    try {
+                        ((SampleDateModel) lowerInterceptModel).setYorkLineFit(getYorkLineFit());
+                    } catch (Exception e) {
+                    }
+                    // calculate lower intercept date
+                    try {
+                        lowerInterceptModel.setValue(//
+                                new BigDecimal(Double.isNaN(intercepts[1])//
+                                        ? DiscordiaInterceptNewtonMethod(0.0, myPhysicalConstants)//
+                                        : intercepts[1]));
 
-                ((SampleDateModel) lowerInterceptModel).setMeanSquaredWeightedDeviation(//
-                        new BigDecimal(getYorkLineFit().getMSWD()));
+                        ((SampleDateModel) lowerInterceptModel).setMeanSquaredWeightedDeviation(//
+                                new BigDecimal(getYorkLineFit().getMSWD()));
 
-            } catch (Exception e) {
-            }
+                    } catch (Exception e) {
+                    }
 
-            // + uncertainty in lower intercept
-            try {
-                ((SampleDateInterceptModel) lowerInterceptModel).setPlusInternalTwoSigmaUnct(//
-                        new BigDecimal(//
-                                DiscordiaUncertaintyInterceptNewtonMethod(//
-                                        lowerInterceptModel.getValue().doubleValue(), +1, myPhysicalConstants) - lowerInterceptModel.getValue().doubleValue()));
-            } catch (Exception e) {
-            }
+                    // + uncertainty in lower intercept
+                    try {
+                        ((SampleDateInterceptModel) lowerInterceptModel).setPlusInternalTwoSigmaUnct(//
+                                new BigDecimal(//
+                                        DiscordiaUncertaintyInterceptNewtonMethod(//
+                                                lowerInterceptModel.getValue().doubleValue(), +1, myPhysicalConstants) - lowerInterceptModel.getValue().doubleValue()));
+                    } catch (Exception e) {
+                    }
 
-            // - uncertainty in lower intercept
-            try {
-                ((SampleDateInterceptModel) lowerInterceptModel).setMinusInternalTwoSigmaUnct(//
-                        new BigDecimal(//
-                                DiscordiaUncertaintyInterceptNewtonMethod(//
-                                        lowerInterceptModel.getValue().doubleValue(), -1, myPhysicalConstants) - lowerInterceptModel.getValue().doubleValue()));
-            } catch (Exception e) {
+                    // - uncertainty in lower intercept
+                    try {
+                        ((SampleDateInterceptModel) lowerInterceptModel).setMinusInternalTwoSigmaUnct(//
+                                new BigDecimal(//
+                                        DiscordiaUncertaintyInterceptNewtonMethod(//
+                                                lowerInterceptModel.getValue().doubleValue(), -1, myPhysicalConstants) - lowerInterceptModel.getValue().doubleValue()));
+                    } catch (Exception e) {
+                    }
+                }
             }
         }
     }
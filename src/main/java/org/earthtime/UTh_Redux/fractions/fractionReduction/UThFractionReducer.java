@@ -121,11 +121,11 @@ import org.earthtime.dataDictionaries.UThCompositionalMeasures;
 public class UThFractionReducer extends FractionReducer {
 
     private static UThFractionReducer instance = new UThFractionReducer();
-    private static Matrix exponentialA;
-    private static Matrix exponentialQUTh;
-    private static Matrix exponentialQinvUTh;
-    private static Matrix numberAtomsTimeT;
-    private static double r230_238InitialT;
+    private Matrix exponentialA;
+    private Matrix exponentialQUTh;
+    private Matrix exponentialQinvUTh;
+    private Matrix numberAtomsTimeT;
+    private double r230_238InitialT;
 
     private UThFractionReducer() {
     }
@@ -139,6 +139,10 @@ public class UThFractionReducer extends FractionReducer {
     }
 
     public static void reduceFraction(UThLegacyFractionI fraction, boolean isIgneous) {
+        new UThFractionReducer().reduce(fraction, isIgneous);
+    }
+
+    private void reduce(UThLegacyFractionI fraction, boolean isIgneous) {
         initializeDecayConstants(fraction.getPhysicalConstantsModel());
         initializeAtomicMolarMasses(fraction.getPhysicalConstantsModel());
 
@@ -149,7 +153,7 @@ public class UThFractionReducer extends FractionReducer {
         }
     }
 
-    private static void calculateDatesFromLegacyData(UThLegacyFractionI fraction) {
+    private void calculateDatesFromLegacyData(UThLegacyFractionI fraction) {
 
         // matlab code meas
         ValueModel r234U_238Ufc = fraction.getRadiogenicIsotopeRatioByName(UThFractionationCorrectedIsotopicRatios.r234U_238Ufc.getName());
@@ -647,7 +651,7 @@ public class UThFractionReducer extends FractionReducer {
         }
     }
 
-    private static Matrix exponentialGUTh(Double t) {
+    private Matrix exponentialGUTh(Double t) {
         //mxp.GUTh = @(t) diag([exp(-lambda.U238*t) exp(-lambda.U234*t) exp(-lambda.Th230*t)]);
         Matrix exponentialGUTh = new Matrix(3, 3, 0.);
         exponentialGUTh.set(0, 0, Math.exp(-lambda238D * t));
@@ -657,37 +661,37 @@ public class UThFractionReducer extends FractionReducer {
         return exponentialGUTh;
     }
 
-    private static Matrix exponentialUTh(double t) {
+    private Matrix exponentialUTh(double t) {
         // mxp.UTh = @(t) mxp.QUTh*mxp.GUTh(t)*mxp.QinvUTh;
         return exponentialQUTh.times(exponentialGUTh(t)).times(exponentialQinvUTh);
     }
 
-    private static Matrix exponentialUTh_0(double t) {
+    private Matrix exponentialUTh_0(double t) {
         // mxp.UTh_0 = @(t) mxp.QUTh(3,:)*mxp.GUTh(t)*mxp.QinvUTh; % For the 230 concentration only (to solve for root)
         return exponentialQUTh.getMatrix(2, 2, 0, 2).times(exponentialGUTh(t)).times(exponentialQinvUTh);
     }
 
-    private static double ft(double t) {
+    private double ft(double t) {
         // ft   = @(t) mxp.UTh_0(-t)*nt;
         return exponentialUTh_0(-t).times(numberAtomsTimeT).get(0, 0);
     }
 
-    private static double fpt(double t) {
+    private double fpt(double t) {
         // fpt  = @(t) -mxp.A(3,:)*mxp.UTh(-t)*nt;
         return -exponentialA.getMatrix(2, 2, 0, 2).times(exponentialUTh(-t)).times(numberAtomsTimeT).get(0, 0);
     }
 
-    private static double dft(double t) {
+    private double dft(double t) {
         // dft  = @(t) mxp.UTh_0(-t)*nt - init.r08it*exp(lambda.Th232*t);
         return ft(t) - r230_238InitialT * Math.exp(lambda232D * t);
     }
 
-    private static double dfpt(double t) {
+    private double dfpt(double t) {
         // dfpt = @(t) -mxp.A(3,:)*mxp.UTh(-t)*nt - lambda.Th232*init.r08it*exp(lambda.Th232*t);
         return fpt(t) - lambda232D * r230_238InitialT * Math.exp(lambda232D * t);
     }
 
-    private static void calculateActivityRatios(UThLegacyFractionI fraction) {
+    private void calculateActivityRatios(UThLegacyFractionI fraction) {
         // July 2017 add in activity ratios for concentrations
         fraction.getCompositionalMeasureByName(UThCompositionalMeasures.arConc238U.getName())
                 .setValue(fraction.getCompositionalMeasureByName(UThCompositionalMeasures.conc238U.getName()).getValue()
@@ -859,10 +863,6 @@ public class UThFractionReducer extends FractionReducer {
         BigDecimal myLambda234Value = fraction.getLambda234Legacy().getValue();
         BigDecimal myLambda238Value = fraction.getLambda238Legacy().getValue();
 
-        if (lambda238 == null) {
-            initializeDecayConstants(fraction.getPhysicalConstantsModel());
-        }
-
         // check for gravimetric vs secular equilibrium for tracer
         // UThFractionationCorrectedIsotopicRatios.r232Th_238Ufc was read in directly from csv file
         // turning into atom ratios ar = activity ratios and a = atom ratios
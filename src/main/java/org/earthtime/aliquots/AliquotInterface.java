@@ -359,6 +359,22 @@ public interface AliquotInterface {
      *
      */
     public default void updateSampleDateModels() {
+        prepareSampleDateModels();
+
+        for (ValueModel SAM : getSampleDateModels()) {
+            // oct 2014 per Matt Rioux email report
+            try {
+                ((SampleDateModel) SAM).CalculateDateInterpretationForAliquot();
+            } catch (Exception e) {
+            }
+        }
+    }
+
+    /**
+     * Removes missing fractions from the sample date models and binds them to
+     * this aliquot, without calculating them; see SampleDateModelsScheduler.
+     */
+    public default void prepareSampleDateModels() {
         // Nov 2008
         // process all sampleDateModels' included fraction vectors to remove missing fractions
         Vector<String> includedFractionIDs = ((ReduxAliquotInterface) this).getAliquotFractionIDs();
@@ -380,12 +396,7 @@ public interface AliquotInterface {
                 existsPreferredDate = true;
             }
 
-            // oct 2014 per Matt Rioux email report
-            try {
-                ((SampleDateModel) SAM).setAliquot(this);
-                ((SampleDateModel) SAM).CalculateDateInterpretationForAliquot();
-            } catch (Exception e) {
-            }
+            ((SampleDateModel) SAM).setAliquot(this);
         }
 
         // guarantee preferred date model
@@ -0,0 +1,90 @@
+/*
+ * FractionProcessingStagesEnum.java
+ *
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.dataDictionaries;
+
+/**
+ * The stages of processing the raw data of one Tripoli fraction, in the order
+ * they are performed.
+ *
+ * @author James F. Bowring
+ */
+public enum FractionProcessingStagesEnum {
+
+    /**
+     * raw intensities loaded into the virtual collectors
+     */
+    RAW_INTENSITIES("Raw intensities"),
+    /**
+     * intensities converted to counts per second
+     */
+    COUNTS_PER_SECOND("Counts per second"),
+    /**
+     * diagonals of the intensity covariance matrices
+     */
+    INTENSITY_MATRIX_S_DIAGONALS("Intensity Si diagonals"),
+    /**
+     * 202Hg correction of 204Pb
+     */
+    ISOBARIC_INTERFERENCE("Isobaric interference"),
+    /**
+     * fitting of the baseline intensities
+     */
+    BACKGROUND_FITTING("Background fitting"),
+    /**
+     * on-peak intensities corrected by the baseline fit
+     */
+    BACKGROUND_CORRECTION("Background correction"),
+    /**
+     * detection limit tests of 204Pb and 207Pb
+     */
+    DETECTION_LIMITS("Detection limits"),
+    /**
+     * logs of the corrected on-peak intensities
+     */
+    LOG_INTENSITIES("Log intensities"),
+    /**
+     * raw and log ratios
+     */
+    RAW_RATIOS("Raw ratios"),
+    /**
+     * uncertainty propagated into the corrected on-peak intensities
+     */
+    INTENSITY_UNCERTAINTIES("Intensity uncertainties"),
+    /**
+     * uncertainty propagated into the log ratios
+     */
+    RATIO_UNCERTAINTIES("Ratio uncertainties"),
+    /**
+     * fitting of the log ratios for the intercept technique
+     */
+    INTERCEPT_FITTING("Intercept fitting");
+
+    private final String name;
+
+    private FractionProcessingStagesEnum(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+}
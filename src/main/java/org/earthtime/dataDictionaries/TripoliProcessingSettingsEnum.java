@@ -0,0 +1,97 @@
+/*
+ * TripoliProcessingSettingsEnum.java
+ *
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.dataDictionaries;
+
+/**
+ * The user choices that affect the processing of Tripoli raw data, each with
+ * the first fraction processing stage that depends on it. Settings with no
+ * such stage affect only the session fits.
+ *
+ * @author James F. Bowring
+ */
+public enum TripoliProcessingSettingsEnum {
+
+    /**
+     *
+     */
+    RESISTORS("Resistors", FractionProcessingStagesEnum.RAW_INTENSITIES),
+    /**
+     *
+     */
+    ANALOG_CORRECTION_FACTORS("Analog correction factors", FractionProcessingStagesEnum.RAW_INTENSITIES),
+    /**
+     *
+     */
+    RELATIVE_GAINS("Relative gains", FractionProcessingStagesEnum.COUNTS_PER_SECOND),
+    /**
+     *
+     */
+    INTEGRATION_TIMES("Integration times", FractionProcessingStagesEnum.INTENSITY_MATRIX_S_DIAGONALS),
+    /**
+     *
+     */
+    AMPLIFIER_NOISE("Amplifier noise", FractionProcessingStagesEnum.INTENSITY_MATRIX_S_DIAGONALS),
+    /**
+     *
+     */
+    RELATIVE_GAIN_UNCERTAINTIES("Relative gain uncertainties", FractionProcessingStagesEnum.BACKGROUND_FITTING),
+    /**
+     *
+     */
+    DEAD_TIMES("Dead times", FractionProcessingStagesEnum.BACKGROUND_FITTING),
+    /**
+     *
+     */
+    BACKGROUND_FIT_FUNCTION("Background fit function", FractionProcessingStagesEnum.BACKGROUND_FITTING),
+    /**
+     *
+     */
+    UNCERTAINTY_PROPAGATION("Uncertainty propagation", FractionProcessingStagesEnum.BACKGROUND_FITTING),
+    /**
+     *
+     */
+    PRIMARY_STANDARD_MODEL("Primary standard model", null),
+    /**
+     *
+     */
+    FRACTIONATION_TECHNIQUE("Fractionation technique", null);
+
+    private final String name;
+    private final FractionProcessingStagesEnum firstAffectedStage;
+
+    private TripoliProcessingSettingsEnum(String name, FractionProcessingStagesEnum firstAffectedStage) {
+        this.name = name;
+        this.firstAffectedStage = firstAffectedStage;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the first fraction processing stage that depends on this
+     * setting, or null if only the session fits do
+     */
+    public FractionProcessingStagesEnum getFirstAffectedStage() {
+        return firstAffectedStage;
+    }
+}
@@ -23,42 +23,44 @@ import org.earthtime.ratioDataModels.AbstractRatiosDataModel;
 import org.earthtime.ratioDataModels.physicalConstantsModels.PhysicalConstantsModel;
 
 /**
+ * The working state of one reduction. Each reduction and date calculation
+ * creates its own reducer, so those on different threads share nothing.
  *
  * @author James F. Bowring <bowring at gmail.com>
  */
 public abstract class FractionReducer {
 
     // 0. lab constants
-    protected static AbstractRatiosDataModel currentPhysicalConstantsModel;
-    protected static ValueModel lambda226;
-    protected static ValueModel lambda230;
-    protected static ValueModel lambda231;
-    protected static ValueModel lambda232;
-    protected static ValueModel lambda234;
-    protected static ValueModel lambda235;
-    protected static ValueModel lambda238;
-    protected static double lambda226D;
-    protected static double lambda230D;
-    protected static double lambda231D;
-    protected static double lambda232D;
-    protected static double lambda234D;
-    protected static double lambda235D;
-    protected static double lambda238D;
-    protected static ValueModel gmol204;
-    protected static ValueModel gmol205;
-    protected static ValueModel gmol206;
-    protected static ValueModel gmol207;
-    protected static ValueModel gmol208;
-    protected static ValueModel gmol230;
-    protected static ValueModel gmol232;
-    protected static ValueModel gmol235;
-    protected static ValueModel gmol238;
+    protected AbstractRatiosDataModel currentPhysicalConstantsModel;
+    protected ValueModel lambda226;
+    protected ValueModel lambda230;
+    protected ValueModel lambda231;
+    protected ValueModel lambda232;
+    protected ValueModel lambda234;
+    protected ValueModel lambda235;
+    protected ValueModel lambda238;
+    protected double lambda226D;
+    protected double lambda230D;
+    protected double lambda231D;
+    protected double lambda232D;
+    protected double lambda234D;
+    protected double lambda235D;
+    protected double lambda238D;
+    protected ValueModel gmol204;
+    protected ValueModel gmol205;
+    protected ValueModel gmol206;
+    protected ValueModel gmol207;
+    protected ValueModel gmol208;
+    protected ValueModel gmol230;
+    protected ValueModel gmol232;
+    protected ValueModel gmol235;
+    protected ValueModel gmol238;
 
     /**
      *
      * @param physicalConstantsModel the value of physicalConstantsModel
      */
-    protected static void initializeDecayConstants(
+    protected void initializeDecayConstants(
             AbstractRatiosDataModel physicalConstantsModel) {
 
         if (!physicalConstantsModel.equals(currentPhysicalConstantsModel)) {
@@ -83,7 +85,7 @@ public abstract class FractionReducer {
         }
     }
 
-    protected static void initializeAtomicMolarMasses(
+    protected void initializeAtomicMolarMasses(
             AbstractRatiosDataModel physicalConstants) {
 
         gmol204 = ((PhysicalConstantsModel) physicalConstants).getAtomicMolarMassByName("gmol204");
@@ -27,6 +27,7 @@ import java.awt.Cursor;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.event.MouseEvent;
@@ -36,21 +37,14 @@ import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
-import java.io.Writer;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Vector;
 import javax.swing.JLayeredPane;
 import javax.swing.JPanel;
 import org.apache.batik.apps.rasterizer.SVGConverter;
 import org.apache.batik.apps.rasterizer.SVGConverterException;
-import org.apache.batik.dom.GenericDOMImplementation;
-import org.apache.batik.svggen.SVGGraphics2D;
-import org.apache.batik.svggen.SVGGraphics2DIOException;
 import org.cirdles.mcLeanRegression.core.McLeanRegressionLineInterface;
 import org.earthtime.UPb_Redux.dateInterpretation.concordia.*;
 import org.earthtime.UPb_Redux.dateInterpretation.graphPersistence.AxisSetup;
@@ -65,8 +59,6 @@ import org.earthtime.aliquots.ReduxAliquotInterface;
 import org.earthtime.fractions.ETFractionInterface;
 import org.earthtime.reportViews.ReportUpdaterInterface;
 import org.earthtime.samples.SampleInterface;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
 
 /**
  *
@@ -125,6 +117,12 @@ public abstract class AbstractPlot extends JLayeredPane
     protected String nameOfXaxisSourceValueModel;
     protected String nameOfYaxisSourceValueModel;
     private McLeanRegressionLineInterface mcLeanRegressionLine;
+    // retained between fits so that toggling a fraction refits from the last slope
+    private transient YorkRegressionEngine regressionEngine;
+    private transient EllipseDensityRaster excludedDensityRaster;
+    private transient PlotLayers plotLayers;
+    // the level of detail applies to the screen alone, never to exports
+    private transient boolean paintingOnScreen;
     protected boolean showEquiline;
     protected boolean showRegressionLine;
     protected boolean showRegressionLineUnct;
@@ -152,6 +150,10 @@ public abstract class AbstractPlot extends JLayeredPane
         this.showFilteredEllipses = false;
 
         this.yorkLineFit = null;
+        this.excludedDensityRaster = new EllipseDensityRaster();
+        this.plotLayers = new PlotLayers();
+        plotLayers.addLayer("plot", this::paintOnScreen);
+        plotLayers.setOverlay(this::paintZoomBox);
 
         concordiaCursor = Cursor.getDefaultCursor();
         this.imageMode = "PAN";
@@ -207,7 +209,48 @@ public abstract class AbstractPlot extends JLayeredPane
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        paint((Graphics2D) g, false);
+        plotLayers.paint((Graphics2D) g, getWidth(), getHeight());
+    }
+
+    /**
+     * Every repaint but those of the zoom box redraws the plot.
+     *
+     * @param tm
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        // also called by the superclass constructor, before the layers exist
+        if (plotLayers != null) {
+            plotLayers.repaintRequested();
+        }
+        super.repaint(tm, x, y, width, height);
+    }
+
+    private void paintOnScreen(Graphics2D g2d) {
+        paintingOnScreen = true;
+        try {
+            paint(g2d, false);
+        } finally {
+            paintingOnScreen = false;
+        }
+    }
+
+    private void paintZoomBox(Graphics2D g2d) {
+        // draw zoom box if in use
+        if (getImageMode().equalsIgnoreCase("ZOOM")
+                && (Math.abs(getZoomMaxX() - getZoomMinX()) * Math.abs(getZoomMinY() - getZoomMaxY())) > 0) {
+            g2d.setStroke(new BasicStroke(2.0f));
+            g2d.setColor(Color.red);
+            g2d.drawRect(//
+                    Math.min(getZoomMinX(), getZoomMaxX()),
+                    Math.min(getZoomMaxY(), getZoomMinY()),
+                    Math.abs(getZoomMaxX() - getZoomMinX()),
+                    Math.abs(getZoomMinY() - getZoomMaxY()));
+        }
     }
 
     protected double mapX(double x) {
@@ -354,9 +397,19 @@ public abstract class AbstractPlot extends JLayeredPane
 
         g2d.setFont(new Font("Monospaced", Font.BOLD, 14));
 
+        // first pass, generate ellipsePaths; on screen, above the level of detail the excluded fractions are drawn as their density
+        Collection<ETFractionInterface> includedFractions = showFilteredEllipses ? getFilteredFractions() : selectedFractions;
+        boolean excludedAsDensity = showExcludedEllipses//
+                && (generateEllipsePaths(excludedFractions, ellipseSize, paintingOnScreen ? excludedDensityRaster : null)//
+                > EllipseDensityRaster.LEVEL_OF_DETAIL_ELLIPSE_COUNT);
+        generateEllipsePaths(includedFractions, ellipseSize, null);
+        Rectangle graphBounds = new Rectangle(getLeftMargin(), getTopMargin(), (int) getGraphWidth(), (int) getGraphHeight());
+
         // paint de-selected fractions first 
         // paint fills first
-        if (showExcludedEllipses) {
+        if (excludedAsDensity) {
+            excludedDensityRaster.paint(g2d, graphBounds, densityColor(excludedFractions, "excludedBorderColor"));
+        } else if (showExcludedEllipses) {
             for (ETFractionInterface f : excludedFractions) {
                 if (!f.isRejected()) {
                     // determine aliquot for colors etc.
@@ -375,11 +428,6 @@ public abstract class AbstractPlot extends JLayeredPane
                         excludedFillTransparencyPCT = Float.valueOf(myAliquotOptions.get("excludedFillTransparencyPCT"));
                     }
 
-                    // first pass, generate ellipsePath
-                    generateEllipsePathIII(//
-                            f,
-                            ellipseSize);
-
                     if ((f.getErrorEllipsePath() != null) && !useUncertaintyCrosses) {
                         plotAFractionFillOnly(
                                 g2d,
@@ -394,7 +442,7 @@ public abstract class AbstractPlot extends JLayeredPane
         }
 
         // repeat for excluded fractions the borders etc
-        if (showExcludedEllipses) {
+        if (showExcludedEllipses && !excludedAsDensity) {
             for (ETFractionInterface f : excludedFractions) {
                 if (!f.isRejected()) {
                     // determine aliquot for colors etc.
@@ -443,7 +491,7 @@ public abstract class AbstractPlot extends JLayeredPane
         }// END excluded FRACTIONS *************************************
 
         // selected fractions fill only 
-        for (ETFractionInterface f : showFilteredEllipses ? getFilteredFractions() : selectedFractions) {
+        for (ETFractionInterface f : includedFractions) {
             if (!f.isRejected()) {
                 // determine aliquot for colors etc.
                 String aliquotName = sample.getNameOfAliquotFromSample(f.getAliquotNumber());
@@ -466,11 +514,6 @@ public abstract class AbstractPlot extends JLayeredPane
                     includedFillTransparencyPCT = Float.valueOf(myAliquotOptions.get("includedFillTransparencyPCT"));
                 }
 
-                // first pass, generate ellipsePath
-                generateEllipsePathIII(//
-                        f,
-                        ellipseSize);
-
                 if ((f.getErrorEllipsePath() != null) && !useUncertaintyCrosses) {
                     plotAFractionFillOnly(
                             g2d,
@@ -483,7 +526,7 @@ public abstract class AbstractPlot extends JLayeredPane
             }
         }
 
-        for (ETFractionInterface f : showFilteredEllipses ? getFilteredFractions() : selectedFractions) {
+        for (ETFractionInterface f : includedFractions) {
             if (!f.isRejected()) {
                 // determine aliquot for colors etc.
                 String aliquotName = sample.getNameOfAliquotFromSample(f.getAliquotNumber());
@@ -553,17 +596,6 @@ public abstract class AbstractPlot extends JLayeredPane
                 axesLabelFont,
                 axesLabelFontSize);
 
-        // draw zoom box if in use
-        if (getImageMode().equalsIgnoreCase("ZOOM")
-                && (Math.abs(getZoomMaxX() - getZoomMinX()) * Math.abs(getZoomMinY() - getZoomMaxY())) > 0) {
-            g2d.setStroke(new BasicStroke(2.0f));
-            g2d.setColor(Color.red);
-            g2d.drawRect(//
-                    Math.min(getZoomMinX(), getZoomMaxX()),
-                    Math.min(getZoomMaxY(), getZoomMinY()),
-                    Math.abs(getZoomMaxX() - getZoomMinX()),
-                    Math.abs(getZoomMinY() - getZoomMaxY()));
-        }
     }
 
     private Color buildRGBColor(String[] rgbComponents) {
@@ -762,6 +794,52 @@ public abstract class AbstractPlot extends JLayeredPane
 
     }
 
+    /**
+     * Generates the ellipse paths of the fractions to be plotted and gathers
+     * those in view into densityRaster, when given.
+     *
+     * @return the number of ellipses in view gathered into densityRaster
+     */
+    private int generateEllipsePaths(
+            Collection<ETFractionInterface> fractions,
+            double ellipseSize,
+            EllipseDensityRaster densityRaster) {
+
+        int inViewCount = 0;
+        if (densityRaster != null) {
+            densityRaster.clear(ellipseSize);
+        }
+        for (ETFractionInterface f : fractions) {
+            if (!f.isRejected()) {
+                generateEllipsePathIII(//
+                        f,
+                        ellipseSize);
+
+                if ((densityRaster != null) && (f.getErrorEllipsePath() != null) && densityRaster.addEllipsePath(f.getErrorEllipsePath())) {
+                    inViewCount++;
+                }
+            }
+        }
+
+        // crosses have no density
+        return useUncertaintyCrosses ? 0 : inViewCount;
+    }
+
+    private Color densityColor(Collection<ETFractionInterface> fractions, String borderColorOption) {
+        Color densityColor = new Color(0, 0, 0);
+        for (ETFractionInterface f : fractions) {
+            if (f.getErrorEllipsePath() != null) {
+                Map<String, String> myAliquotOptions//
+                        = getAliquotOptions().get(sample.getNameOfAliquotFromSample(f.getAliquotNumber()));
+                if (myAliquotOptions.containsKey(borderColorOption)) {
+                    densityColor = buildRGBColor(myAliquotOptions.get(borderColorOption).split(","));
+                }
+                break;
+            }
+        }
+        return densityColor;
+    }
+
     private void generateEllipsePathIII(
             ETFractionInterface fraction,
             double ellipseSize) {
@@ -1198,38 +1276,12 @@ public abstract class AbstractPlot extends JLayeredPane
      * @param file
      */
     public void outputToSVG(File file) {
-
-        // Get a DOMImplementation.
-        DOMImplementation domImpl
-                = GenericDOMImplementation.getDOMImplementation();
-
-        // Create an instance of org.w3c.dom.Document.
-        String svgNS = "http://www.w3.org/2000/svg";
-        Document document = domImpl.createDocument(svgNS, "svg", null);
-
-        // Create an instance of the SVG Generator.
-        SVGGraphics2D svgGenerator = new SVGGraphics2D(document);
-
-        // Ask the test to render into the SVG Graphics2D implementation.
-        paint(svgGenerator, false);
-
-        // Finally, stream out SVG to the standard output using
-        // UTF-8 encoding.
-        boolean useCSS = true; // we want to use CSS style attributes
-
-        Writer out = null;
-        try {
-            out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
-        } catch (FileNotFoundException | UnsupportedEncodingException fileNotFoundException) {
-        }
-        try {
-            svgGenerator.stream(out, useCSS);
-        } catch (SVGGraphics2DIOException sVGGraphics2DIOException) {
-            System.out.println(sVGGraphics2DIOException.getMessage());
+        // streamed element by element rather than built as a document in memory
+        try (StreamingSVGGraphics2D svgGraphics = new StreamingSVGGraphics2D(file, getWidth(), getHeight())) {
+            paint(svgGraphics, false);
+        } catch (IOException iOException) {
+            System.out.println(iOException.getMessage());
         }
-
-        // aug 2013
-        // read svg file back in to add clip size to comments
     }
 
     /**
@@ -1280,8 +1332,16 @@ public abstract class AbstractPlot extends JLayeredPane
      *
      */
     public void fitMcLeanRegression() {
-        McLeanRegressionLineFit mcLeanRegressionLineFit
-                = new McLeanRegressionLineFit(selectedFractions, nameOfXaxisSourceValueModel, nameOfYaxisSourceValueModel);
+        regressionEngine = McLeanRegressionLineFit.updateYorkRegressionEngine(//
+                regressionEngine, selectedFractions, nameOfXaxisSourceValueModel, nameOfYaxisSourceValueModel);
+
+        McLeanRegressionLineFit mcLeanRegressionLineFit;
+        if ((regressionEngine != null) && regressionEngine.fit().isValid()) {
+            mcLeanRegressionLineFit = new McLeanRegressionLineFit(regressionEngine.fit());
+        } else {
+            mcLeanRegressionLineFit
+                    = new McLeanRegressionLineFit(selectedFractions, nameOfXaxisSourceValueModel, nameOfYaxisSourceValueModel);
+        }
         mcLeanRegressionLine = mcLeanRegressionLineFit.getMcLeanRegressionLine();
     }
 
@@ -1808,7 +1868,11 @@ public abstract class AbstractPlot extends JLayeredPane
             }
         }
 
-        repaint();
+        if (getImageMode().equalsIgnoreCase("ZOOM")) {
+            plotLayers.repaintOverlay(this);
+        } else {
+            repaint();
+        }
     }
 
     /**
@@ -0,0 +1,281 @@
+/*
+ * EllipseDensityRaster.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.plots;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The level of detail used on screen when too many excluded error ellipses
+ * are in view to draw one by one: the summed bivariate normal densities of
+ * the ellipses, rasterized into an image the size of the graph. Each ellipse
+ * adds only to the pixels within three sigma of its center, and bands of rows
+ * are summed in parallel without sharing pixels. The image is kept until the ellipses,
+ * the graph bounds or the color change, so repaints of an unchanged view only
+ * draw the image.
+ *
+ * Ellipses are gathered in display coordinates, usually from the paths of
+ * the fractions in view, which are the ellipseSize sigma contours.
+ *
+ * @author James F. Bowring
+ */
+public class EllipseDensityRaster {
+
+    /**
+     * above this many ellipses in view, the excluded fractions are drawn on
+     * screen as their density
+     */
+    public static final int LEVEL_OF_DETAIL_ELLIPSE_COUNT = 400;
+    private static final int TILE_HEIGHT = 16;
+    private static final double CUTOFF_SIGMA = 3.0;
+    // a quarter pixel squared of blur keeps ellipses smaller than a pixel visible
+    private static final double PIXEL_VARIANCE = 0.25;
+    // center x, center y and the covariances xx, xy, yy in display coordinates
+    private static final int FIELD_COUNT = 5;
+
+    private double ellipseSize;
+    private double[] ellipses;
+    private int ellipseCount;
+
+    private BufferedImage image;
+    private double[] imageEllipses;
+    private Rectangle imageBounds;
+    private int imageRGB;
+
+    /**
+     *
+     */
+    public EllipseDensityRaster() {
+        this.ellipseSize = 2.0;
+        this.ellipses = new double[FIELD_COUNT * 64];
+        this.ellipseCount = 0;
+        this.image = null;
+        this.imageEllipses = new double[0];
+        this.imageBounds = null;
+        this.imageRGB = 0;
+    }
+
+    /**
+     * Removes the ellipses, keeping the last image for comparison.
+     *
+     * @param ellipseSize the sigma of the ellipses to be added
+     */
+    public void clear(double ellipseSize) {
+        this.ellipseSize = ellipseSize;
+        ellipseCount = 0;
+    }
+
+    /**
+     * Adds the ellipse centered on (centerX, centerY) with conjugate semi-axes
+     * (ux, uy) and (vx, vy), all in display coordinates.
+     *
+     * @param centerX
+     * @param centerY
+     * @param ux
+     * @param uy
+     * @param vx
+     * @param vy
+     */
+    public void addEllipse(double centerX, double centerY, double ux, double uy, double vx, double vy) {
+        if (ellipses.length < FIELD_COUNT * (ellipseCount + 1)) {
+            ellipses = Arrays.copyOf(ellipses, 2 * ellipses.length);
+        }
+        double sizeSquared = ellipseSize * ellipseSize;
+        int offset = FIELD_COUNT * ellipseCount;
+        ellipses[offset] = centerX;
+        ellipses[offset + 1] = centerY;
+        ellipses[offset + 2] = (ux * ux + vx * vx) / sizeSquared + PIXEL_VARIANCE;
+        ellipses[offset + 3] = (ux * uy + vx * vy) / sizeSquared;
+        ellipses[offset + 4] = (uy * uy + vy * vy) / sizeSquared + PIXEL_VARIANCE;
+        ellipseCount++;
+    }
+
+    /**
+     * Adds an ellipse path built from the 13 Bezier control points of
+     * ErrorEllipse, whose first, fourth and seventh points are the ends of
+     * two conjugate semi-axes.
+     *
+     * @param ellipsePath
+     * @return false if the path is not such an ellipse, as for uncertainty
+     * crosses, and was not added
+     */
+    public boolean addEllipsePath(Shape ellipsePath) {
+        double[] segment = new double[6];
+        double[] ends = new double[6];
+        int cubicCount = 0;
+        PathIterator iterator = ellipsePath.getPathIterator(null);
+        if (iterator.isDone() || (iterator.currentSegment(segment) != PathIterator.SEG_MOVETO)) {
+            return false;
+        }
+        ends[0] = segment[0];
+        ends[1] = segment[1];
+        for (iterator.next(); !iterator.isDone() && (cubicCount < 2); iterator.next()) {
+            if (iterator.currentSegment(segment) != PathIterator.SEG_CUBICTO) {
+                return false;
+            }
+            cubicCount++;
+            ends[2 * cubicCount] = segment[4];
+            ends[2 * cubicCount + 1] = segment[5];
+        }
+        if (cubicCount < 2) {
+            return false;
+        }
+
+        double centerX = (ends[0] + ends[4]) / 2.0;
+        double centerY = (ends[1] + ends[5]) / 2.0;
+        addEllipse(centerX, centerY, ends[0] - centerX, ends[1] - centerY, ends[2] - centerX, ends[3] - centerY);
+        return true;
+    }
+
+    /**
+     * @return the number of ellipses added since the last clear
+     */
+    public int getEllipseCount() {
+        return ellipseCount;
+    }
+
+    /**
+     * Draws the density image into bounds, unless there are no ellipses.
+     *
+     * @param g2d
+     * @param bounds the graph in display coordinates
+     * @param color
+     */
+    public void paint(Graphics2D g2d, Rectangle bounds, Color color) {
+        if ((ellipseCount > 0) && (bounds.width > 0) && (bounds.height > 0)) {
+            g2d.drawImage(render(bounds, color), bounds.x, bounds.y, null);
+        }
+    }
+
+    /**
+     * The density of the ellipses over bounds, in color with an opacity of
+     * the square root of the density relative to its maximum.
+     *
+     * @param bounds the graph in display coordinates, with positive size
+     * @param color
+     * @return the image, the same as last time if nothing has changed
+     */
+    public BufferedImage render(Rectangle bounds, Color color) {
+        if ((image != null) && bounds.equals(imageBounds) && (color.getRGB() == imageRGB) && hasImageEllipses()) {
+            return image;
+        }
+
+        int width = bounds.width;
+        int height = bounds.height;
+        int count = ellipseCount;
+
+        // per ellipse: inverse covariance, normalization and pixel bounds
+        double[] inverseXX = new double[count];
+        double[] inverseXY = new double[count];
+        double[] inverseYY = new double[count];
+        double[] normalization = new double[count];
+        int[] minColumn = new int[count];
+        int[] maxColumn = new int[count];
+        int[] minRow = new int[count];
+        int[] maxRow = new int[count];
+        for (int i = 0; i < count; i++) {
+            int offset = FIELD_COUNT * i;
+            double covarianceXX = ellipses[offset + 2];
+            double covarianceXY = ellipses[offset + 3];
+            double covarianceYY = ellipses[offset + 4];
+            double determinant = covarianceXX * covarianceYY - covarianceXY * covarianceXY;
+            inverseXX[i] = covarianceYY / determinant;
+            inverseXY[i] = -covarianceXY / determinant;
+            inverseYY[i] = covarianceXX / determinant;
+            normalization[i] = 1.0 / (2.0 * Math.PI * Math.sqrt(determinant));
+
+            double centerX = ellipses[offset] - bounds.x;
+            double centerY = ellipses[offset + 1] - bounds.y;
+            double halfWidth = CUTOFF_SIGMA * Math.sqrt(covarianceXX);
+            double halfHeight = CUTOFF_SIGMA * Math.sqrt(covarianceYY);
+            minColumn[i] = (int) Math.max(0.0, Math.floor(centerX - halfWidth));
+            maxColumn[i] = (int) Math.min(width - 1.0, Math.ceil(centerX + halfWidth));
+            minRow[i] = (int) Math.max(0.0, Math.floor(centerY - halfHeight));
+            maxRow[i] = (int) Math.min(height - 1.0, Math.ceil(centerY + halfHeight));
+        }
+
+        double[] density = new double[width * height];
+        double cutoffSquared = CUTOFF_SIGMA * CUTOFF_SIGMA;
+        int tileCount = (height + TILE_HEIGHT - 1) / TILE_HEIGHT;
+        IntStream.range(0, tileCount).parallel().forEach((int tile) -> {
+            int tileTop = tile * TILE_HEIGHT;
+            int tileBottom = Math.min(height, tileTop + TILE_HEIGHT) - 1;
+            for (int i = 0; i < count; i++) {
+                int top = Math.max(minRow[i], tileTop);
+                int bottom = Math.min(maxRow[i], tileBottom);
+                if ((top > bottom) || (minColumn[i] > maxColumn[i])) {
+                    continue;
+                }
+                double centerX = ellipses[FIELD_COUNT * i] - bounds.x;
+                double centerY = ellipses[FIELD_COUNT * i + 1] - bounds.y;
+                for (int row = top; row <= bottom; row++) {
+                    double dy = row + 0.5 - centerY;
+                    int rowOffset = row * width;
+                    for (int column = minColumn[i]; column <= maxColumn[i]; column++) {
+                        double dx = column + 0.5 - centerX;
+                        double q = inverseXX[i] * dx * dx + 2.0 * inverseXY[i] * dx * dy + inverseYY[i] * dy * dy;
+                        if (q <= cutoffSquared) {
+                            density[rowOffset + column] += normalization[i] * Math.exp(-0.5 * q);
+                        }
+                    }
+                }
+            }
+        });
+
+        double maxDensity = 0.0;
+        for (double d : density) {
+            maxDensity = Math.max(maxDensity, d);
+        }
+
+        BufferedImage densityImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) densityImage.getRaster().getDataBuffer()).getData();
+        int rgb = color.getRGB() & 0x00FFFFFF;
+        if (maxDensity > 0.0) {
+            for (int p = 0; p < pixels.length; p++) {
+                int alpha = (int) Math.round(255.0 * Math.sqrt(density[p] / maxDensity));
+                pixels[p] = (alpha << 24) | rgb;
+            }
+        }
+
+        image = densityImage;
+        imageEllipses = Arrays.copyOf(ellipses, FIELD_COUNT * count);
+        imageBounds = new Rectangle(bounds);
+        imageRGB = color.getRGB();
+
+        return image;
+    }
+
+    private boolean hasImageEllipses() {
+        if (imageEllipses.length != FIELD_COUNT * ellipseCount) {
+            return false;
+        }
+        for (int i = 0; i < imageEllipses.length; i++) {
+            if (imageEllipses[i] != ellipses[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -20,6 +20,7 @@ import org.apache.commons.math3.stat.regression.SimpleRegression;
 import org.cirdles.mcLeanRegression.McLeanRegression;
 import org.cirdles.mcLeanRegression.McLeanRegressionInterface;
 import org.cirdles.mcLeanRegression.core.McLeanRegressionLineInterface;
+import org.earthtime.UPb_Redux.dateInterpretation.concordia.YorkRegressionEngine;
 import org.earthtime.UPb_Redux.valueModels.ValueModel;
 import org.earthtime.fractions.ETFractionInterface;
 
@@ -130,6 +131,63 @@ public class McLeanRegressionLineFit {
         }
     }
 
+    /**
+     * The two-dimensional line from a converged York regression, which is the
+     * same maximum likelihood line without iterating on matrices.
+     *
+     * @param solution
+     */
+    public McLeanRegressionLineFit(YorkRegressionEngine.Solution solution) {
+        mcLeanRegressionLine = new YorkRegressionLine(solution);
+    }
+
+    /**
+     * Loads the fractions' data into a York regression engine with rejected
+     * fractions excluded. When engine already holds the same data only the
+     * exclusions are updated, so toggling a fraction refits from the previous
+     * slope.
+     *
+     * @param engine the engine from the previous fit, or null
+     * @param fractions
+     * @param nameOfXaxisSourceValueModel
+     * @param nameOfYaxisSourceValueModel
+     * @return the engine, or null if the fractions lack either variable
+     */
+    public static YorkRegressionEngine updateYorkRegressionEngine(YorkRegressionEngine engine, Vector<ETFractionInterface> fractions, //
+            String nameOfXaxisSourceValueModel, String nameOfYaxisSourceValueModel) {
+        if (fractions.isEmpty()//
+                || (fractions.get(0).retrieveValueModelByName(nameOfXaxisSourceValueModel) == null)//
+                || (fractions.get(0).retrieveValueModelByName(nameOfYaxisSourceValueModel) == null)) {
+            return null;
+        }
+
+        int count = fractions.size();
+        double x[] = new double[count];
+        double y[] = new double[count];
+        double x1SigmaAbs[] = new double[count];
+        double y1SigmaAbs[] = new double[count];
+        double rhos[] = new double[count];
+        boolean included[] = new boolean[count];
+
+        for (int i = 0; i < count; i++) {
+            ETFractionInterface fraction = fractions.get(i);
+            ValueModel[] xyRho = fraction.retrieveXYRho(nameOfXaxisSourceValueModel, nameOfYaxisSourceValueModel);
+            x[i] = xyRho[0].getValue().doubleValue();
+            x1SigmaAbs[i] = xyRho[0].getOneSigmaAbs().doubleValue();
+            y[i] = xyRho[1].getValue().doubleValue();
+            y1SigmaAbs[i] = xyRho[1].getOneSigmaAbs().doubleValue();
+            rhos[i] = xyRho[2].getValue().doubleValue();
+            included[i] = !fraction.isRejected();
+        }
+
+        if ((engine == null) || !engine.hasData(x, y, x1SigmaAbs, y1SigmaAbs, rhos)) {
+            engine = new YorkRegressionEngine(x, y, x1SigmaAbs, y1SigmaAbs, rhos);
+        }
+        engine.setIncluded(included);
+
+        return engine;
+    }
+
     private double[] partArray(double[] array, int size) {
         double[] part = new double[size];
         System.arraycopy(array, 0, part, 0, size);
@@ -143,6 +201,51 @@ public class McLeanRegressionLineFit {
         return mcLeanRegressionLine;
     }
 
+    public class YorkRegressionLine
+            implements McLeanRegressionLineInterface {
+
+        private final YorkRegressionEngine.Solution solution;
+        private final double[][] a;
+        private final double[][] v;
+
+        public YorkRegressionLine(YorkRegressionEngine.Solution solution) {
+            this.solution = solution;
+
+            a = new double[2][1];
+            a[1][0] = solution.getYIntercept();
+
+            v = new double[2][1];
+            v[0][0] = 1.0;
+            v[1][0] = solution.getSlope();
+        }
+
+        @Override
+        public double[][] getA() {
+            return a;
+        }
+
+        @Override
+        public double[][] getV() {
+            return v;
+        }
+
+        @Override
+        public double[][] getSav() {
+            return solution.getCovarianceMatrix();
+        }
+
+        @Override
+        public double getMSWD() {
+            return solution.getMSWD();
+        }
+
+        @Override
+        public int getN() {
+            return solution.getCount();
+        }
+
+    }
+
     public class McLeanOrdinaryLeastSquaresRegressionLine
             implements McLeanRegressionLineInterface {
 
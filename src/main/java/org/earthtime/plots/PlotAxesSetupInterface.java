@@ -17,6 +17,7 @@ package org.earthtime.plots;
 
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
 import org.earthtime.UPb_Redux.dateInterpretation.graphPersistence.AxisSetup;
 
 /**
@@ -51,6 +52,21 @@ public interface PlotAxesSetupInterface {
 
     public double mapY(double y);
 
+    /**
+     * The affine map of mapX and mapY, for transforming many points at once.
+     *
+     * @return a new transform from data to display coordinates
+     */
+    public default AffineTransform getDataToDisplayTransform() {
+        double scaleX = getGraphWidth() / (getXaxisSetup().getMax_Display() - getXaxisSetup().getMin_Display());
+        double scaleY = getGraphHeight() / (getYaxisSetup().getMax_Display() - getYaxisSetup().getMin_Display());
+
+        return new AffineTransform(//
+                scaleX, 0.0, 0.0, -scaleY, //
+                getLeftMargin() - getXaxisSetup().getMin_Display() * scaleX, //
+                getTopMargin() + getYaxisSetup().getMax_Display() * scaleY);
+    }
+
     public boolean isDoPlotting();
 
     public void setDoPlotting(boolean doPlotting);
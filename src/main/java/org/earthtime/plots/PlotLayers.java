@@ -0,0 +1,216 @@
+/*
+ * PlotLayers.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.plots;
+
+import java.awt.AlphaComposite;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offscreen rendering of a plot panel as named layers, each painted into its
+ * own image and kept until it is invalidated or the panel changes size, with
+ * an overlay for interactive feedback such as cursors and zoom boxes painted
+ * directly over them on every paint. A panel routes its repaint requests
+ * through repaintRequested, so that any ordinary repaint redraws the layers,
+ * while repaintOverlay redraws only the overlay; repaints from Swing itself,
+ * as when a tooltip closes, draw the images.
+ *
+ * Layers are painted in the order added, into images at the scale of the
+ * panel's graphics so that they stay sharp on high resolution displays. All
+ * methods are called on the event dispatch thread.
+ *
+ * @author James F. Bowring
+ */
+public class PlotLayers {
+
+    private final List<Layer> layers;
+    private LayerPainter overlay;
+    private boolean overlayRepaint;
+
+    /**
+     *
+     */
+    public PlotLayers() {
+        this.layers = new ArrayList<>();
+        this.overlay = null;
+        this.overlayRepaint = false;
+    }
+
+    /**
+     * Adds a layer above those already added.
+     *
+     * @param name
+     * @param painter
+     */
+    public void addLayer(String name, LayerPainter painter) {
+        layers.add(new Layer(name, painter));
+    }
+
+    /**
+     *
+     * @param overlay painted directly, above the layers, on every paint
+     */
+    public void setOverlay(LayerPainter overlay) {
+        this.overlay = overlay;
+    }
+
+    /**
+     *
+     * @param name
+     */
+    public void invalidate(String name) {
+        for (Layer layer : layers) {
+            if (layer.name.equals(name)) {
+                layer.valid = false;
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    public void invalidateAll() {
+        for (Layer layer : layers) {
+            layer.valid = false;
+        }
+    }
+
+    /**
+     *
+     * @param name
+     * @return whether the layer will be drawn from its image at the next paint
+     * of the same size
+     */
+    public boolean isValid(String name) {
+        for (Layer layer : layers) {
+            if (layer.name.equals(name)) {
+                return layer.valid;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * To be called from the panel's repaint(long, int, int, int, int), which
+     * every form of repaint goes through: invalidates the layers unless the
+     * repaint came from repaintOverlay.
+     */
+    public void repaintRequested() {
+        if (!overlayRepaint) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Repaints component for a change to the overlay only.
+     *
+     * @param component
+     */
+    public void repaintOverlay(Component component) {
+        overlayRepaint = true;
+        try {
+            component.repaint();
+        } finally {
+            overlayRepaint = false;
+        }
+    }
+
+    /**
+     * Draws the layers, painting those that are invalid or of another size,
+     * and then the overlay.
+     *
+     * @param g2d
+     * @param width the width of the panel
+     * @param height the height of the panel
+     */
+    public void paint(Graphics2D g2d, int width, int height) {
+        if ((width <= 0) || (height <= 0)) {
+            return;
+        }
+        AffineTransform transform = g2d.getTransform();
+        double scaleX = Math.abs(transform.getScaleX()) > 0.0 ? Math.abs(transform.getScaleX()) : 1.0;
+        double scaleY = Math.abs(transform.getScaleY()) > 0.0 ? Math.abs(transform.getScaleY()) : 1.0;
+        int imageWidth = (int) Math.ceil(width * scaleX);
+        int imageHeight = (int) Math.ceil(height * scaleY);
+
+        for (Layer layer : layers) {
+            if (!layer.valid || (layer.image == null)//
+                    || (layer.image.getWidth() != imageWidth) || (layer.image.getHeight() != imageHeight)) {
+                layer.render(imageWidth, imageHeight, scaleX, scaleY);
+            }
+            g2d.drawImage(layer.image, 0, 0, width, height, null);
+        }
+
+        if (overlay != null) {
+            Graphics2D overlayGraphics = (Graphics2D) g2d.create();
+            try {
+                overlay.paintLayer(overlayGraphics);
+            } finally {
+                overlayGraphics.dispose();
+            }
+        }
+    }
+
+    /**
+     * Paints a layer in the panel's coordinates.
+     */
+    public interface LayerPainter {
+
+        /**
+         *
+         * @param g2d
+         */
+        void paintLayer(Graphics2D g2d);
+    }
+
+    private static class Layer {
+
+        private final String name;
+        private final LayerPainter painter;
+        private BufferedImage image;
+        private boolean valid;
+
+        Layer(String name, LayerPainter painter) {
+            this.name = name;
+            this.painter = painter;
+            this.image = null;
+            this.valid = false;
+        }
+
+        void render(int imageWidth, int imageHeight, double scaleX, double scaleY) {
+            if ((image == null) || (image.getWidth() != imageWidth) || (image.getHeight() != imageHeight)) {
+                image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+            }
+            Graphics2D g2d = image.createGraphics();
+            try {
+                g2d.setComposite(AlphaComposite.Clear);
+                g2d.fillRect(0, 0, imageWidth, imageHeight);
+                g2d.setComposite(AlphaComposite.SrcOver);
+                g2d.scale(scaleX, scaleY);
+                painter.paintLayer(g2d);
+            } finally {
+                g2d.dispose();
+            }
+            valid = true;
+        }
+    }
+}
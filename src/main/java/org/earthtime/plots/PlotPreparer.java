@@ -0,0 +1,168 @@
+/*
+ * PlotPreparer.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.plots;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Prepares the display model of a plot panel on a shared pool of background
+ * threads and publishes it to the panel on the event dispatch thread, so that
+ * the panel can swap it in whole while the interface stays responsive. Each
+ * request supersedes the last: a preparation not yet started is dropped, one
+ * in progress sees itself cancelled, and neither is ever published, so a
+ * quick series of slider moves prepares and shows only the latest.
+ *
+ * The preparations of one preparer never run at the same time, so they may
+ * reuse working state such as caches kept between preparations. Whatever a
+ * preparation reads from the models being plotted, which change on the event
+ * dispatch thread, should be gathered there before it is requested.
+ *
+ * @param <M> the display model
+ * @author James F. Bowring
+ */
+public class PlotPreparer<M> {
+
+    private static final ExecutorService PLOT_PREPARATION_EXECUTOR
+            = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), (Runnable runnable) -> {
+                Thread thread = new Thread(runnable, "Plot preparation");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private static final Cancellation NOT_CANCELLED = () -> false;
+
+    private final Consumer<M> publisher;
+    private final AtomicLong currentRequest;
+    private final Object preparationLock;
+    private Future<?> pendingPreparation;
+
+    /**
+     *
+     * @param publisher receives each model prepared and not superseded, on
+     * the event dispatch thread
+     */
+    public PlotPreparer(Consumer<M> publisher) {
+        this.publisher = publisher;
+        this.currentRequest = new AtomicLong(0);
+        this.preparationLock = new Object();
+        this.pendingPreparation = null;
+    }
+
+    /**
+     * Prepares a model in the background, superseding any earlier request.
+     *
+     * @param preparation
+     */
+    public synchronized void prepare(Preparation<M> preparation) {
+        cancel();
+        final long request = currentRequest.get();
+        final Cancellation cancellation = () -> currentRequest.get() != request;
+
+        pendingPreparation = PLOT_PREPARATION_EXECUTOR.submit(() -> {
+            M model = null;
+            synchronized (preparationLock) {
+                if (cancellation.isCancelled()) {
+                    return;
+                }
+                try {
+                    model = preparation.prepare(cancellation);
+                } catch (Exception e) {
+                    // a failed preparation leaves the panel showing its last model
+                }
+            }
+
+            if ((model != null) && !cancellation.isCancelled()) {
+                final M preparedModel = model;
+                SwingUtilities.invokeLater(() -> {
+                    if (!cancellation.isCancelled()) {
+                        publisher.accept(preparedModel);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Prepares and publishes a model on the calling thread, which must be the
+     * event dispatch thread unless the panel is never shown, superseding any
+     * earlier request; for callers, such as exports, that use the model at
+     * once.
+     *
+     * @param preparation
+     * @return the model
+     */
+    public M prepareNow(Preparation<M> preparation) {
+        cancel();
+        M model;
+        synchronized (preparationLock) {
+            model = preparation.prepare(NOT_CANCELLED);
+        }
+        publisher.accept(model);
+        return model;
+    }
+
+    /**
+     * Cancels the current request, if any.
+     */
+    public synchronized void cancel() {
+        currentRequest.incrementAndGet();
+        if (pendingPreparation != null) {
+            pendingPreparation.cancel(false);
+            pendingPreparation = null;
+        }
+    }
+
+    /**
+     * @return true if the current request has not yet been prepared
+     */
+    public synchronized boolean isPreparing() {
+        return (pendingPreparation != null) && !pendingPreparation.isDone();
+    }
+
+    /**
+     * Computes a display model.
+     *
+     * @param <M> the display model
+     */
+    public interface Preparation<M> {
+
+        /**
+         *
+         * @param cancellation checked between steps of a long preparation,
+         * which may then stop and return null
+         * @return the model
+         */
+        M prepare(Cancellation cancellation);
+    }
+
+    /**
+     * Whether a preparation has been superseded.
+     */
+    public interface Cancellation {
+
+        /**
+         *
+         * @return true if the result will not be published
+         */
+        boolean isCancelled();
+    }
+}
@@ -0,0 +1,938 @@
+/*
+ * StreamingSVGGraphics2D.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.plots;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.AttributedCharacterIterator;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * A Graphics2D that writes SVG as it is drawn on, element by element, rather
+ * than building a document in memory as Batik's SVGGraphics2D does, so that
+ * exporting a plot of many thousands of ellipses needs memory only for the
+ * distinct styles and clips it uses. Each distinct style is written once, as
+ * a CSS class, where it is first used, and each distinct clip once, as a
+ * clipPath; elements refer to them. Geometry is written in the coordinates of
+ * the SVG canvas, with strokes scaled by the current transform.
+ *
+ * Gradients and other non-uniform paints are written in their first color,
+ * and XOR mode and copyArea are not supported. Write errors are reported by
+ * close.
+ *
+ * Only SVG is written. The PDF exports still convert the written file with
+ * Batik's SVGConverter, whose PDF transcoder comes from org.apache.fop.svg,
+ * which this build does not provide.
+ *
+ * @author James F. Bowring
+ */
+public class StreamingSVGGraphics2D extends Graphics2D implements Closeable {
+
+    private static final BufferedImage SCRATCH_IMAGE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+    private final SVGStream stream;
+    private AffineTransform transform;
+    // in canvas coordinates
+    private Shape clip;
+    private Paint paint;
+    private Color background;
+    private Stroke stroke;
+    private Font font;
+    private Composite composite;
+    private final RenderingHints hints;
+
+    /**
+     *
+     * @param file
+     * @param width the width of the canvas, or 0 to leave it unspecified
+     * @param height the height of the canvas, or 0 to leave it unspecified
+     * @throws IOException
+     */
+    public StreamingSVGGraphics2D(File file, int width, int height) throws IOException {
+        this(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), width, height);
+    }
+
+    /**
+     *
+     * @param out
+     * @param width the width of the canvas, or 0 to leave it unspecified
+     * @param height the height of the canvas, or 0 to leave it unspecified
+     * @throws IOException
+     */
+    public StreamingSVGGraphics2D(Writer out, int width, int height) throws IOException {
+        this.stream = new SVGStream(new BufferedWriter(out, 1 << 16));
+        this.transform = new AffineTransform();
+        this.clip = null;
+        this.paint = Color.BLACK;
+        this.background = Color.WHITE;
+        this.stroke = new BasicStroke(1.0f);
+        this.font = new Font("SansSerif", Font.PLAIN, 12);
+        this.composite = AlphaComposite.SrcOver;
+        this.hints = new RenderingHints(null);
+
+        stream.out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        stream.out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\"");
+        if ((width > 0) && (height > 0)) {
+            stream.out.write(" width=\"" + width + "\" height=\"" + height + "\" viewBox=\"0 0 " + width + " " + height + "\"");
+        }
+        stream.out.write(">\n");
+    }
+
+    private StreamingSVGGraphics2D(StreamingSVGGraphics2D graphics) {
+        this.stream = graphics.stream;
+        this.transform = new AffineTransform(graphics.transform);
+        this.clip = graphics.clip;
+        this.paint = graphics.paint;
+        this.background = graphics.background;
+        this.stroke = graphics.stroke;
+        this.font = graphics.font;
+        this.composite = graphics.composite;
+        this.hints = (RenderingHints) graphics.hints.clone();
+    }
+
+    /**
+     * Ends the document and closes the writer.
+     *
+     * @throws IOException the first error in writing the document
+     */
+    @Override
+    public void close() throws IOException {
+        if (!stream.closed) {
+            stream.closed = true;
+            try {
+                stream.out.write("</svg>\n");
+            } catch (IOException e) {
+                stream.fail(e);
+            }
+            try {
+                stream.out.close();
+            } catch (IOException e) {
+                stream.fail(e);
+            }
+        }
+        if (stream.error != null) {
+            throw stream.error;
+        }
+    }
+
+    // drawing *****************************************************************
+    @Override
+    public void draw(Shape shape) {
+        if (stroke instanceof BasicStroke) {
+            BasicStroke basicStroke = (BasicStroke) stroke;
+            double scale = Math.sqrt(Math.abs(transform.getDeterminant()));
+            StringBuilder style = new StringBuilder("fill:none;");
+            appendPaint(style, "stroke");
+            style.append("stroke-width:").append(number(basicStroke.getLineWidth() * scale));
+            if (basicStroke.getEndCap() != BasicStroke.CAP_SQUARE) {
+                style.append(";stroke-linecap:").append(basicStroke.getEndCap() == BasicStroke.CAP_BUTT ? "butt" : "round");
+            }
+            if (basicStroke.getLineJoin() != BasicStroke.JOIN_MITER) {
+                style.append(";stroke-linejoin:").append(basicStroke.getLineJoin() == BasicStroke.JOIN_ROUND ? "round" : "bevel");
+            } else if (basicStroke.getMiterLimit() != 4.0f) {
+                style.append(";stroke-miterlimit:").append(number(basicStroke.getMiterLimit()));
+            }
+            float[] dashes = basicStroke.getDashArray();
+            if (dashes != null) {
+                style.append(";stroke-dasharray:");
+                for (int i = 0; i < dashes.length; i++) {
+                    style.append(i > 0 ? "," : "").append(number(dashes[i] * scale));
+                }
+                if (basicStroke.getDashPhase() != 0.0f) {
+                    style.append(";stroke-dashoffset:").append(number(basicStroke.getDashPhase() * scale));
+                }
+            }
+            writePath(shape, style.toString());
+        } else {
+            fill(stroke.createStrokedShape(shape));
+        }
+    }
+
+    @Override
+    public void fill(Shape shape) {
+        StringBuilder style = new StringBuilder();
+        appendPaint(style, "fill");
+        style.append(";stroke:none");
+        writePath(shape, style.toString());
+    }
+
+    @Override
+    public void drawString(String str, float x, float y) {
+        if ((str == null) || str.isEmpty()) {
+            return;
+        }
+        StringBuilder style = new StringBuilder();
+        appendPaint(style, "fill");
+        style.append(";stroke:none;font-family:").append(fontFamily(font));
+        style.append(";font-size:").append(number(font.getSize2D()));
+        if (font.isBold()) {
+            style.append(";font-weight:bold");
+        }
+        if (font.isItalic()) {
+            style.append(";font-style:italic");
+        }
+        if (!font.getTransform().isIdentity()) {
+            // as when rotated for an axis label
+            AffineTransform fontTransform = new AffineTransform(transform);
+            fontTransform.translate(x, y);
+            fontTransform.concatenate(font.getTransform());
+            writeText(str, 0.0, 0.0, fontTransform, style.toString());
+        } else {
+            writeText(str, x, y, transform, style.toString());
+        }
+    }
+
+    @Override
+    public void drawString(String str, int x, int y) {
+        drawString(str, (float) x, (float) y);
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+        new TextLayout(iterator, getFontRenderContext()).draw(this, x, y);
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+        drawString(iterator, (float) x, (float) y);
+    }
+
+    @Override
+    public void drawGlyphVector(GlyphVector glyphs, float x, float y) {
+        fill(glyphs.getOutline(x, y));
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        draw(new Line2D.Double(x1, y1, x2, y2));
+    }
+
+    @Override
+    public void drawRect(int x, int y, int width, int height) {
+        draw(new Rectangle2D.Double(x, y, width, height));
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        fill(new Rectangle2D.Double(x, y, width, height));
+    }
+
+    @Override
+    public void clearRect(int x, int y, int width, int height) {
+        Paint savedPaint = paint;
+        Composite savedComposite = composite;
+        paint = background;
+        composite = AlphaComposite.Src;
+        fillRect(x, y, width, height);
+        paint = savedPaint;
+        composite = savedComposite;
+    }
+
+    @Override
+    public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        draw(new RoundRectangle2D.Double(x, y, width, height, arcWidth, arcHeight));
+    }
+
+    @Override
+    public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        fill(new RoundRectangle2D.Double(x, y, width, height, arcWidth, arcHeight));
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        draw(new Ellipse2D.Double(x, y, width, height));
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        fill(new Ellipse2D.Double(x, y, width, height));
+    }
+
+    @Override
+    public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        draw(new Arc2D.Double(x, y, width, height, startAngle, arcAngle, Arc2D.OPEN));
+    }
+
+    @Override
+    public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        fill(new Arc2D.Double(x, y, width, height, startAngle, arcAngle, Arc2D.PIE));
+    }
+
+    @Override
+    public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+        if (nPoints > 0) {
+            Path2D polyline = new Path2D.Double();
+            polyline.moveTo(xPoints[0], yPoints[0]);
+            for (int i = 1; i < nPoints; i++) {
+                polyline.lineTo(xPoints[i], yPoints[i]);
+            }
+            draw(polyline);
+        }
+    }
+
+    @Override
+    public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        draw(new Polygon(xPoints, yPoints, nPoints));
+    }
+
+    @Override
+    public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        fill(new Polygon(xPoints, yPoints, nPoints));
+    }
+
+    // images ******************************************************************
+    @Override
+    public boolean drawImage(Image img, AffineTransform xform, ImageObserver obs) {
+        AffineTransform imageTransform = new AffineTransform(transform);
+        if (xform != null) {
+            imageTransform.concatenate(xform);
+        }
+        writeImage(img, imageTransform);
+        return true;
+    }
+
+    @Override
+    public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+        drawImage((op == null) ? img : op.filter(img, null), x, y, null);
+    }
+
+    @Override
+    public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+        if (img instanceof BufferedImage) {
+            drawImage((BufferedImage) img, xform, null);
+        }
+    }
+
+    @Override
+    public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+        drawRenderedImage(img.createDefaultRendering(), xform);
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+        return drawImage(img, AffineTransform.getTranslateInstance(x, y), observer);
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+        int imageWidth = img.getWidth(observer);
+        int imageHeight = img.getHeight(observer);
+        if ((imageWidth <= 0) || (imageHeight <= 0)) {
+            return false;
+        }
+        AffineTransform xform = AffineTransform.getTranslateInstance(x, y);
+        xform.scale((double) width / imageWidth, (double) height / imageHeight);
+        return drawImage(img, xform, observer);
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
+        return drawImage(img, x, y, img.getWidth(observer), img.getHeight(observer), bgcolor, observer);
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor, ImageObserver observer) {
+        if (bgcolor != null) {
+            Paint savedPaint = paint;
+            paint = bgcolor;
+            fillRect(x, y, width, height);
+            paint = savedPaint;
+        }
+        return drawImage(img, x, y, width, height, observer);
+    }
+
+    @Override
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, ImageObserver observer) {
+        return drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null, observer);
+    }
+
+    @Override
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, Color bgcolor, ImageObserver observer) {
+        int width = Math.abs(sx2 - sx1);
+        int height = Math.abs(sy2 - sy1);
+        if ((width == 0) || (height == 0)) {
+            return false;
+        }
+        BufferedImage source = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = source.createGraphics();
+        g2d.drawImage(img, 0, 0, width, height, sx1, sy1, sx2, sy2, observer);
+        g2d.dispose();
+        return drawImage(source, Math.min(dx1, dx2), Math.min(dy1, dy2), Math.abs(dx2 - dx1), Math.abs(dy2 - dy1), bgcolor, observer);
+    }
+
+    // state *******************************************************************
+    @Override
+    public Graphics create() {
+        return new StreamingSVGGraphics2D(this);
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public boolean hit(Rectangle rect, Shape shape, boolean onStroke) {
+        Shape target = onStroke ? stroke.createStrokedShape(shape) : shape;
+        return transform.createTransformedShape(target).intersects(rect);
+    }
+
+    @Override
+    public GraphicsConfiguration getDeviceConfiguration() {
+        Graphics2D g2d = SCRATCH_IMAGE.createGraphics();
+        try {
+            return g2d.getDeviceConfiguration();
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    @Override
+    public void setComposite(Composite comp) {
+        this.composite = comp;
+    }
+
+    @Override
+    public Composite getComposite() {
+        return composite;
+    }
+
+    @Override
+    public void setPaint(Paint paint) {
+        if (paint != null) {
+            this.paint = paint;
+        }
+    }
+
+    @Override
+    public Paint getPaint() {
+        return paint;
+    }
+
+    @Override
+    public void setColor(Color c) {
+        setPaint(c);
+    }
+
+    @Override
+    public Color getColor() {
+        return (paint instanceof Color) ? (Color) paint : paintColor();
+    }
+
+    @Override
+    public void setStroke(Stroke s) {
+        this.stroke = s;
+    }
+
+    @Override
+    public Stroke getStroke() {
+        return stroke;
+    }
+
+    @Override
+    public void setFont(Font font) {
+        if (font != null) {
+            this.font = font;
+        }
+    }
+
+    @Override
+    public Font getFont() {
+        return font;
+    }
+
+    @Override
+    public FontMetrics getFontMetrics(Font f) {
+        Graphics2D g2d = SCRATCH_IMAGE.createGraphics();
+        try {
+            g2d.setRenderingHints(hints);
+            return g2d.getFontMetrics(f);
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    @Override
+    public FontRenderContext getFontRenderContext() {
+        return new FontRenderContext(new AffineTransform(), //
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON.equals(hints.get(RenderingHints.KEY_TEXT_ANTIALIASING))//
+                || RenderingHints.VALUE_ANTIALIAS_ON.equals(hints.get(RenderingHints.KEY_ANTIALIASING)), //
+                RenderingHints.VALUE_FRACTIONALMETRICS_ON.equals(hints.get(RenderingHints.KEY_FRACTIONALMETRICS)));
+    }
+
+    @Override
+    public void setBackground(Color color) {
+        this.background = color;
+    }
+
+    @Override
+    public Color getBackground() {
+        return background;
+    }
+
+    @Override
+    public void setPaintMode() {
+    }
+
+    @Override
+    public void setXORMode(Color c1) {
+    }
+
+    @Override
+    public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+    }
+
+    @Override
+    public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
+        hints.put(hintKey, hintValue);
+    }
+
+    @Override
+    public Object getRenderingHint(RenderingHints.Key hintKey) {
+        return hints.get(hintKey);
+    }
+
+    @Override
+    public void setRenderingHints(Map<?, ?> hints) {
+        this.hints.clear();
+        this.hints.putAll(hints);
+    }
+
+    @Override
+    public void addRenderingHints(Map<?, ?> hints) {
+        this.hints.putAll(hints);
+    }
+
+    @Override
+    public RenderingHints getRenderingHints() {
+        return (RenderingHints) hints.clone();
+    }
+
+    @Override
+    public void translate(int x, int y) {
+        transform.translate(x, y);
+    }
+
+    @Override
+    public void translate(double tx, double ty) {
+        transform.translate(tx, ty);
+    }
+
+    @Override
+    public void rotate(double theta) {
+        transform.rotate(theta);
+    }
+
+    @Override
+    public void rotate(double theta, double x, double y) {
+        transform.rotate(theta, x, y);
+    }
+
+    @Override
+    public void scale(double sx, double sy) {
+        transform.scale(sx, sy);
+    }
+
+    @Override
+    public void shear(double shx, double shy) {
+        transform.shear(shx, shy);
+    }
+
+    @Override
+    public void transform(AffineTransform tx) {
+        transform.concatenate(tx);
+    }
+
+    @Override
+    public void setTransform(AffineTransform tx) {
+        transform = new AffineTransform(tx);
+    }
+
+    @Override
+    public AffineTransform getTransform() {
+        return new AffineTransform(transform);
+    }
+
+    // clipping ****************************************************************
+    @Override
+    public void clip(Shape s) {
+        if (s == null) {
+            setClip(null);
+        } else if (clip == null) {
+            setClip(s);
+        } else {
+            Area area = new Area(clip);
+            area.intersect(new Area(transform.createTransformedShape(s)));
+            clip = area;
+        }
+    }
+
+    @Override
+    public void clipRect(int x, int y, int width, int height) {
+        clip(new Rectangle(x, y, width, height));
+    }
+
+    @Override
+    public void setClip(int x, int y, int width, int height) {
+        setClip(new Rectangle(x, y, width, height));
+    }
+
+    @Override
+    public void setClip(Shape s) {
+        clip = (s == null) ? null : transform.createTransformedShape(s);
+    }
+
+    @Override
+    public Shape getClip() {
+        if (clip == null) {
+            return null;
+        }
+        try {
+            return transform.createInverse().createTransformedShape(clip);
+        } catch (NoninvertibleTransformException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Rectangle getClipBounds() {
+        Shape userClip = getClip();
+        return (userClip == null) ? null : userClip.getBounds();
+    }
+
+    // writing *****************************************************************
+    private Color paintColor() {
+        if (paint instanceof Color) {
+            return (Color) paint;
+        } else if (paint instanceof GradientPaint) {
+            return ((GradientPaint) paint).getColor1();
+        }
+        return Color.BLACK;
+    }
+
+    private void appendPaint(StringBuilder style, String property) {
+        Color color = paintColor();
+        style.append(property).append(":#").append(String.format("%06x", color.getRGB() & 0xFFFFFF));
+        double opacity = color.getAlpha() / 255.0;
+        if ((composite instanceof AlphaComposite) && (((AlphaComposite) composite).getRule() == AlphaComposite.SRC_OVER)) {
+            opacity *= ((AlphaComposite) composite).getAlpha();
+        }
+        if (opacity < 1.0) {
+            style.append(';').append(property).append("-opacity:").append(number(opacity));
+        }
+        style.append(';');
+    }
+
+    private void writePath(Shape shape, String style) {
+        String pathData = pathData(shape, transform);
+        if (pathData.isEmpty()) {
+            return;
+        }
+        stream.writeElement("<path d=\"" + pathData + "\"", style, clip, "/>\n");
+    }
+
+    private void writeText(String str, double x, double y, AffineTransform textTransform, String style) {
+        StringBuilder element = new StringBuilder("<text x=\"").append(number(x)).append("\" y=\"").append(number(y)).append('"');
+        if (!textTransform.isIdentity()) {
+            element.append(" transform=\"").append(matrix(textTransform)).append('"');
+        }
+        stream.writeElement(element.toString(), style, clip, " xml:space=\"preserve\">" + escape(str) + "</text>\n");
+    }
+
+    private void writeImage(Image img, AffineTransform imageTransform) {
+        BufferedImage image;
+        if (img instanceof BufferedImage) {
+            image = (BufferedImage) img;
+        } else {
+            int width = img.getWidth(null);
+            int height = img.getHeight(null);
+            if ((width <= 0) || (height <= 0)) {
+                return;
+            }
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = image.createGraphics();
+            g2d.drawImage(img, 0, 0, null);
+            g2d.dispose();
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            stream.fail(e);
+            return;
+        }
+        String element = "<image width=\"" + image.getWidth() + "\" height=\"" + image.getHeight()//
+                + "\" preserveAspectRatio=\"none\" transform=\"" + matrix(imageTransform)//
+                + "\" xlink:href=\"data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray()) + "\"";
+        stream.writeElement(element, null, clip, "/>\n");
+    }
+
+    /**
+     *
+     * @param shape
+     * @param transform
+     * @return the SVG path data of shape transformed by transform
+     */
+    static String pathData(Shape shape, AffineTransform transform) {
+        StringBuilder data = new StringBuilder();
+        double[] coordinates = new double[6];
+        for (PathIterator iterator = shape.getPathIterator(transform); !iterator.isDone(); iterator.next()) {
+            switch (iterator.currentSegment(coordinates)) {
+                case PathIterator.SEG_MOVETO:
+                    appendSegment(data, 'M', coordinates, 2);
+                    break;
+                case PathIterator.SEG_LINETO:
+                    appendSegment(data, 'L', coordinates, 2);
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    appendSegment(data, 'Q', coordinates, 4);
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    appendSegment(data, 'C', coordinates, 6);
+                    break;
+                default:
+                    data.append('Z');
+                    break;
+            }
+        }
+        return data.toString();
+    }
+
+    private static void appendSegment(StringBuilder data, char command, double[] coordinates, int count) {
+        data.append(command);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                data.append(' ');
+            }
+            appendNumber(data, coordinates[i]);
+        }
+    }
+
+    private static String matrix(AffineTransform transform) {
+        StringBuilder matrix = new StringBuilder("matrix(");
+        double[] entries = new double[6];
+        transform.getMatrix(entries);
+        for (int i = 0; i < entries.length; i++) {
+            if (i > 0) {
+                matrix.append(' ');
+            }
+            // rotation and scale entries need more places than coordinates
+            matrix.append((i < 4) ? Double.toString(entries[i]) : number(entries[i]));
+        }
+        return matrix.append(')').toString();
+    }
+
+    /**
+     *
+     * @param value
+     * @return value to three decimal places, without trailing zeros
+     */
+    static String number(double value) {
+        StringBuilder number = new StringBuilder();
+        appendNumber(number, value);
+        return number.toString();
+    }
+
+    private static void appendNumber(StringBuilder number, double value) {
+        if (!Double.isFinite(value)) {
+            number.append('0');
+            return;
+        }
+        long thousandths = Math.round(value * 1000.0);
+        if (thousandths < 0) {
+            number.append('-');
+            thousandths = -thousandths;
+        }
+        number.append(thousandths / 1000);
+        int fraction = (int) (thousandths % 1000);
+        if (fraction != 0) {
+            number.append('.');
+            if (fraction < 100) {
+                number.append('0');
+            }
+            if (fraction < 10) {
+                number.append('0');
+            }
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+            }
+            number.append(fraction);
+        }
+    }
+
+    /**
+     *
+     * @param font
+     * @return the CSS font family of font: the generic family of a Java
+     * logical font, which viewers do not know by name, otherwise the quoted
+     * family name
+     */
+    static String fontFamily(Font font) {
+        switch (font.getFamily(Locale.ROOT).toLowerCase(Locale.ROOT)) {
+            case "sansserif":
+            case "dialog":
+                return "sans-serif";
+            case "serif":
+                return "serif";
+            case "monospaced":
+            case "dialoginput":
+                return "monospace";
+            default:
+                return "'" + escape(font.getFamily(Locale.ROOT)) + "'";
+        }
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    escaped.append("&lt;");
+                    break;
+                case '>':
+                    escaped.append("&gt;");
+                    break;
+                case '&':
+                    escaped.append("&amp;");
+                    break;
+                case '"':
+                    escaped.append("&quot;");
+                    break;
+                case '\'':
+                    escaped.append("&apos;");
+                    break;
+                default:
+                    escaped.append(c);
+                    break;
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * The writer and the definitions written so far, shared by a graphics and
+     * those created from it.
+     */
+    private static class SVGStream {
+
+        private final Writer out;
+        private final Map<String, String> styleClasses;
+        private final Map<String, String> clipPaths;
+        private IOException error;
+        private boolean closed;
+
+        SVGStream(Writer out) {
+            this.out = out;
+            this.styleClasses = new HashMap<>();
+            this.clipPaths = new HashMap<>();
+            this.error = null;
+            this.closed = false;
+        }
+
+        void fail(IOException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+
+        void writeElement(String start, String style, Shape clip, String end) {
+            if (closed || (error != null)) {
+                return;
+            }
+            try {
+                String styleClass = null;
+                if (style != null) {
+                    styleClass = styleClasses.get(style);
+                    if (styleClass == null) {
+                        styleClass = "s" + styleClasses.size();
+                        styleClasses.put(style, styleClass);
+                        out.write("<style type=\"text/css\"><![CDATA[." + styleClass + "{" + style + "}]]></style>\n");
+                    }
+                }
+                String clipPath = null;
+                if (clip != null) {
+                    String clipData = pathData(clip, null);
+                    clipPath = clipPaths.get(clipData);
+                    if (clipPath == null) {
+                        clipPath = "c" + clipPaths.size();
+                        clipPaths.put(clipData, clipPath);
+                        out.write("<clipPath id=\"" + clipPath + "\" clipPathUnits=\"userSpaceOnUse\"><path d=\"" + clipData + "\"/></clipPath>\n");
+                    }
+                }
+
+                out.write(start);
+                if (styleClass != null) {
+                    out.write(" class=\"" + styleClass + "\"");
+                }
+                if (clipPath != null) {
+                    out.write(" clip-path=\"url(#" + clipPath + ")\"");
+                }
+                out.write(end);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+}
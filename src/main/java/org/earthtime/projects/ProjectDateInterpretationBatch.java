@@ -0,0 +1,286 @@
+/*
+ * ProjectDateInterpretationBatch.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.projects;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.earthtime.UPb_Redux.valueModels.SampleDateModel;
+import org.earthtime.UPb_Redux.valueModels.ValueModel;
+import org.earthtime.aliquots.AliquotInterface;
+import org.earthtime.aliquots.ReduxAliquotInterface;
+import org.earthtime.samples.SampleInterface;
+
+/**
+ * Calculates the sample date models of every aliquot of every sample in a
+ * project and gathers their dates into one table, without any Swing
+ * components. Aliquots are independent and are calculated concurrently on at
+ * most the given number of threads. The models of one aliquot share its
+ * fractions and are calculated in turn on one thread; the lower intercept is
+ * calculated by its upper intercept. Fraction reductions and the date
+ * calculations of log-ratio weighted means each work in their own reducer,
+ * so they too run in parallel.
+ *
+ * Rows are in the order of samples, aliquots and models, however the
+ * calculations interleave. A model that fails to calculate keeps its zeroed
+ * values, as in the interpretations window, and its row records the failure.
+ *
+ * @author James F. Bowring
+ */
+public class ProjectDateInterpretationBatch {
+
+    private final int parallelism;
+    private final boolean reduceAliquots;
+
+    /**
+     * Uses all but one processor and does not re-reduce the aliquots.
+     */
+    public ProjectDateInterpretationBatch() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), false);
+    }
+
+    /**
+     *
+     * @param parallelism the maximum number of aliquots calculated at once
+     * @param reduceAliquots true to reduce each aliquot's data before its
+     * models are calculated
+     */
+    public ProjectDateInterpretationBatch(int parallelism, boolean reduceAliquots) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        this.parallelism = parallelism;
+        this.reduceAliquots = reduceAliquots;
+    }
+
+    /**
+     *
+     * @param project
+     * @return one row per sample date model of the project's samples
+     * @throws InterruptedException
+     */
+    public List<Result> interpret(ProjectInterface project) throws InterruptedException {
+        return interpret(project.getProjectSamples());
+    }
+
+    /**
+     *
+     * @param samples
+     * @return one row per sample date model of the samples' aliquots
+     * @throws InterruptedException if interrupted while waiting, in which case
+     * calculations not yet started are abandoned
+     */
+    public List<Result> interpret(List<SampleInterface> samples) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, (Runnable runnable) -> {
+            Thread thread = new Thread(runnable, "Project date interpretation");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<List<Result>>> aliquotResults = new ArrayList<>();
+            for (SampleInterface sample : samples) {
+                for (AliquotInterface aliquot : sample.getAliquots()) {
+                    aliquotResults.add(executor.submit(() -> interpretAliquot(sample.getSampleName(), aliquot)));
+                }
+            }
+
+            List<Result> results = new ArrayList<>();
+            for (Future<List<Result>> aliquotResult : aliquotResults) {
+                try {
+                    results.addAll(aliquotResult.get());
+                } catch (ExecutionException e) {
+                    // interpretAliquot records failures in its rows, so this is unexpected
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return Collections.unmodifiableList(results);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Result> interpretAliquot(String sampleName, AliquotInterface aliquot) {
+        if (reduceAliquots) {
+            ((ReduxAliquotInterface) aliquot).reduceData(false);
+        }
+        aliquot.prepareSampleDateModels();
+
+        List<String> failures = new ArrayList<>();
+        for (ValueModel sam : aliquot.getSampleDateModels()) {
+            SampleDateModel sampleDateModel = (SampleDateModel) sam;
+            String failure = null;
+            if (!sampleDateModel.getMethodName().equalsIgnoreCase("LowerIntercept")) {
+                try {
+                    sampleDateModel.CalculateDateInterpretationForAliquot();
+                } catch (Exception e) {
+                    failure = String.valueOf(e);
+                }
+            }
+            failures.add(failure);
+        }
+
+        List<Result> results = new ArrayList<>();
+        int index = 0;
+        for (ValueModel sam : aliquot.getSampleDateModels()) {
+            results.add(new Result(sampleName, aliquot.getAliquotName(), (SampleDateModel) sam, failures.get(index++)));
+        }
+        return results;
+    }
+
+    /**
+     * Writes results as comma-separated values with a header line.
+     *
+     * @param results
+     * @return
+     */
+    public static String toCSV(List<Result> results) {
+        StringBuilder csv = new StringBuilder();
+        csv.append("Sample,Aliquot,Date Model,Method,Preferred,Date (annum),One Sigma Abs (annum),MSWD,Fractions,Failure\n");
+        for (Result result : results) {
+            csv.append(quote(result.getSampleName())).append(",");
+            csv.append(quote(result.getAliquotName())).append(",");
+            csv.append(quote(result.getDateModelName())).append(",");
+            csv.append(quote(result.getMethodName())).append(",");
+            csv.append(result.isPreferred()).append(",");
+            csv.append(plain(result.getDate())).append(",");
+            csv.append(plain(result.getOneSigmaAbs())).append(",");
+            csv.append(plain(result.getMswd())).append(",");
+            csv.append(result.getFractionCount()).append(",");
+            csv.append(quote((result.getFailure() == null) ? "" : result.getFailure())).append("\n");
+        }
+        return csv.toString();
+    }
+
+    private static String plain(BigDecimal value) {
+        return (value == null) ? "" : value.toPlainString();
+    }
+
+    private static String quote(String field) {
+        if (field.contains(",") || field.contains("\"") || field.contains("\n")) {
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        }
+        return field;
+    }
+
+    /**
+     * The date of one sample date model, copied when calculated so that later
+     * changes to the model do not alter it.
+     */
+    public static class Result {
+
+        private final String sampleName;
+        private final String aliquotName;
+        private final String dateModelName;
+        private final String methodName;
+        private final boolean preferred;
+        private final BigDecimal date;
+        private final BigDecimal oneSigmaAbs;
+        private final BigDecimal mswd;
+        private final int fractionCount;
+        private final String failure;
+
+        Result(String sampleName, String aliquotName, SampleDateModel sampleDateModel, String failure) {
+            this.sampleName = sampleName;
+            this.aliquotName = aliquotName;
+            this.dateModelName = sampleDateModel.getName();
+            this.methodName = sampleDateModel.getMethodName();
+            this.preferred = sampleDateModel.isPreferred();
+            this.date = sampleDateModel.getValue();
+            this.oneSigmaAbs = sampleDateModel.getOneSigmaAbs();
+            this.mswd = sampleDateModel.getMeanSquaredWeightedDeviation();
+            this.fractionCount = sampleDateModel.getIncludedFractionIDsVector().size();
+            this.failure = failure;
+        }
+
+        /**
+         * @return the sampleName
+         */
+        public String getSampleName() {
+            return sampleName;
+        }
+
+        /**
+         * @return the aliquotName
+         */
+        public String getAliquotName() {
+            return aliquotName;
+        }
+
+        /**
+         * @return the name of the sample date model
+         */
+        public String getDateModelName() {
+            return dateModelName;
+        }
+
+        /**
+         * @return the methodName
+         */
+        public String getMethodName() {
+            return methodName;
+        }
+
+        /**
+         * @return true if this is the aliquot's preferred date
+         */
+        public boolean isPreferred() {
+            return preferred;
+        }
+
+        /**
+         * @return the date in annum
+         */
+        public BigDecimal getDate() {
+            return date;
+        }
+
+        /**
+         * @return the one sigma absolute uncertainty in annum
+         */
+        public BigDecimal getOneSigmaAbs() {
+            return oneSigmaAbs;
+        }
+
+        /**
+         * @return the mswd
+         */
+        public BigDecimal getMswd() {
+            return mswd;
+        }
+
+        /**
+         * @return the number of included fractions
+         */
+        public int getFractionCount() {
+            return fractionCount;
+        }
+
+        /**
+         * @return the failure of the calculation, or null if it succeeded
+         */
+        public String getFailure() {
+            return failure;
+        }
+    }
+}
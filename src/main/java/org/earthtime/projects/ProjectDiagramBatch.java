@@ -0,0 +1,463 @@
+/*
+ * ProjectDiagramBatch.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.projects;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+import org.earthtime.UPb_Redux.ReduxConstants;
+import org.earthtime.UPb_Redux.dateInterpretation.DateProbabilityDensityPanel;
+import org.earthtime.UPb_Redux.dateInterpretation.WeightedMeanGraphPanel;
+import org.earthtime.UPb_Redux.dateInterpretation.concordia.ConcordiaGraphPanel;
+import org.earthtime.UPb_Redux.dateInterpretation.graphPersistence.GraphAxesSetup;
+import org.earthtime.UPb_Redux.dialogs.sampleManagers.sampleDateInterpretationManagers.SampleDateInterpretationsUtilities;
+import org.earthtime.UPb_Redux.valueModels.SampleDateModel;
+import org.earthtime.UPb_Redux.valueModels.ValueModel;
+import org.earthtime.aliquots.AliquotInterface;
+import org.earthtime.dataDictionaries.RadDates;
+import org.earthtime.fractions.ETFractionInterface;
+import org.earthtime.samples.SampleInterface;
+
+/**
+ * Renders the concordia, weighted mean and probability density diagrams of
+ * every sample in a project to image files, without showing any window, so
+ * that it runs with java.awt.headless=true. Each diagram is laid out by its
+ * usual panel at a fixed size from the sample's saved interpretation options,
+ * over all of the sample's active fractions, and painted to a PNG image or
+ * streamed to an SVG file.
+ *
+ * Samples are independent and are rendered concurrently on at most the given
+ * number of threads. The diagrams of one sample share its fractions and are
+ * rendered in turn on one thread. The concordia segment classes hold the
+ * decay constants statically, so concordia diagrams are rendered one at a
+ * time while the others proceed.
+ *
+ * Results are in the order of samples and diagrams, however the rendering
+ * interleaves. A diagram that fails to render records the failure in its
+ * result and leaves no file.
+ *
+ * @author James F. Bowring
+ */
+public class ProjectDiagramBatch {
+
+    private static final Object CONCORDIA_LOCK = new Object();
+
+    // the options of the interpretations window's weighted mean chooser
+    private static final String[] WEIGHTED_MEAN_NAMES = new String[]{
+        "weighted mean 207Pb/235U",
+        "weighted mean 206Pb/238U",
+        "weighted mean 207Pb/206Pb",
+        "weighted mean 206Pb/238U (Th-corrected)",
+        "weighted mean 207Pb/235U (Pa-corrected)",
+        "weighted mean 207Pb/206Pb (Th-corrected)",
+        "weighted mean 207Pb/206Pb (Pa-corrected)",
+        "weighted mean 207Pb/206Pb (Th- and Pa-corrected)"};
+
+    /**
+     * The diagrams rendered for each sample.
+     */
+    public enum Diagram {
+
+        CONCORDIA("concordia"),
+        WEIGHTED_MEAN("weightedMean"),
+        PROBABILITY_DENSITY("probabilityDensity");
+
+        private final String fileSuffix;
+
+        private Diagram(String fileSuffix) {
+            this.fileSuffix = fileSuffix;
+        }
+
+        /**
+         * @return the suffix of the sample name in the diagram's file name
+         */
+        public String getFileSuffix() {
+            return fileSuffix;
+        }
+    }
+
+    /**
+     * The image file formats.
+     */
+    public enum Format {
+
+        PNG("png"),
+        SVG("svg");
+
+        private final String extension;
+
+        private Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * @return the extension
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final int parallelism;
+    private final int width;
+    private final int height;
+
+    /**
+     * Uses all but one processor and renders at 800 by 600 pixels.
+     */
+    public ProjectDiagramBatch() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 800, 600);
+    }
+
+    /**
+     *
+     * @param parallelism the maximum number of samples rendered at once
+     * @param width the width of each diagram in pixels
+     * @param height the height of each diagram in pixels
+     */
+    public ProjectDiagramBatch(int parallelism, int width, int height) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        if ((width < 100) || (height < 100)) {
+            throw new IllegalArgumentException("Diagrams must be at least 100 pixels on a side.");
+        }
+        this.parallelism = parallelism;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     *
+     * @param project
+     * @param directory
+     * @param format
+     * @return one result per diagram of the project's samples
+     * @throws InterruptedException
+     */
+    public List<Result> render(ProjectInterface project, File directory, Format format) throws InterruptedException {
+        return render(project.getProjectSamples(), directory, format);
+    }
+
+    /**
+     * Renders each sample's diagrams to files in directory named for the
+     * sample and diagram, replacing any there.
+     *
+     * @param samples
+     * @param directory
+     * @param format
+     * @return one result per diagram of the samples
+     * @throws InterruptedException if interrupted while waiting, in which case
+     * samples not yet started are abandoned
+     */
+    public List<Result> render(List<SampleInterface> samples, File directory, Format format) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, (Runnable runnable) -> {
+            Thread thread = new Thread(runnable, "Project diagram rendering");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<List<Result>>> sampleResults = new ArrayList<>();
+            for (SampleInterface sample : samples) {
+                sampleResults.add(executor.submit(() -> renderSample(sample, directory, format)));
+            }
+
+            List<Result> results = new ArrayList<>();
+            for (Future<List<Result>> sampleResult : sampleResults) {
+                try {
+                    results.addAll(sampleResult.get());
+                } catch (ExecutionException e) {
+                    // renderSample records failures in its results, so this is unexpected
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return Collections.unmodifiableList(results);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Result> renderSample(SampleInterface sample, File directory, Format format) {
+        List<Result> results = new ArrayList<>();
+        for (Diagram diagram : Diagram.values()) {
+            File file = new File(directory, fileName(sample.getSampleName(), diagram, format));
+            String failure = null;
+            try {
+                if (diagram == Diagram.CONCORDIA) {
+                    synchronized (CONCORDIA_LOCK) {
+                        write(layOut(sample, diagram), file, format);
+                    }
+                } else {
+                    write(layOut(sample, diagram), file, format);
+                }
+            } catch (Exception e) {
+                failure = String.valueOf(e);
+                file.delete();
+            }
+            results.add(new Result(sample.getSampleName(), diagram, (failure == null) ? file : null, failure));
+        }
+        return results;
+    }
+
+    /**
+     * Lays out the panel of a diagram of a sample at this batch's size.
+     *
+     * @param sample
+     * @param diagram
+     * @return the laid out diagram
+     */
+    LaidOutDiagram layOut(SampleInterface sample, Diagram diagram) {
+        Vector<ETFractionInterface> activeFractions = sample.getActiveFractionsSortedByAliquot();
+        AliquotInterface firstAliquot = sample.getActiveAliquots().isEmpty() ? null : sample.getActiveAliquots().get(0);
+
+        switch (diagram) {
+            case CONCORDIA: {
+                ConcordiaGraphPanel concordiaGraphPanel = new ConcordiaGraphPanel(sample, null);
+                concordiaGraphPanel.setSelectedFractions(activeFractions);
+                concordiaGraphPanel.setCurAliquot(firstAliquot);
+                concordiaGraphPanel.setFadedDeselectedFractions(false);
+                concordiaGraphPanel.getDeSelectedFractions().clear();
+                concordiaGraphPanel.setYorkFitLine(null);
+                concordiaGraphPanel.setPreferredDatePanel(null);
+
+                // a new setup leaves the sample's saved zoom alone and fits the data
+                concordiaGraphPanel.setBounds(0, 0, width, height);
+                concordiaGraphPanel.setCurrentGraphAxesSetup(new GraphAxesSetup("C", 2));
+                concordiaGraphPanel.setGraphWidth(width - 15 - GraphAxesSetup.DEFAULT_GRAPH_LEFT_MARGIN_VERTICAL_LABELS);
+                concordiaGraphPanel.setGraphHeight(height - 20);
+                concordiaGraphPanel.setShowTightToEdges(true);
+
+                // in live mode so that the sample is not saved
+                concordiaGraphPanel.preparePanel(true, true);
+                return new LaidOutDiagram(//
+                        (Graphics2D g2d) -> concordiaGraphPanel.paint(g2d, false), concordiaGraphPanel::writeSVG);
+            }
+            case WEIGHTED_MEAN: {
+                WeightedMeanGraphPanel weightedMeanGraphPanel = new WeightedMeanGraphPanel(sample);
+                weightedMeanGraphPanel.setSelectedSampleDateModels(selectedWeightedMeans(sample));
+
+                weightedMeanGraphPanel.setBounds(0, 0, width, height);
+                weightedMeanGraphPanel.setGraphWidth(width - 30);
+                weightedMeanGraphPanel.setGraphHeight(height - 30);
+
+                weightedMeanGraphPanel.preparePanel(true, false);
+                return new LaidOutDiagram(//
+                        weightedMeanGraphPanel::paint, weightedMeanGraphPanel::writeSVG);
+            }
+            default: {
+                DateProbabilityDensityPanel probabilityPanel = new DateProbabilityDensityPanel(sample);
+                Map<String, String> probabilityChartOptions = sample.getSampleDateInterpretationGUISettings().getProbabilityChartOptions();
+
+                String chosenDateName = probabilityChartOptions.get("chosenDateName");
+                if (chosenDateName == null) {
+                    chosenDateName = (sample.isSampleTypeLegacy() && sample.getAnalysisPurpose().equals(ReduxConstants.ANALYSIS_PURPOSE.DetritalSpectrum)) //
+                            ? RadDates.bestAge.getName() : RadDates.age207_206r.getName();
+                }
+                probabilityPanel.setChosenDateName(chosenDateName);
+                if (probabilityChartOptions.containsKey("showHistogram")) {
+                    probabilityPanel.setShowHistogram(Boolean.valueOf(probabilityChartOptions.get("showHistogram")));
+                }
+
+                // filtered as by the sliders of the interpretations window, at their defaults if not saved
+                probabilityPanel.setSelectedFractions(SampleDateInterpretationsUtilities.filterActiveUPbFractions(//
+                        sample.getUpbFractionsUnknown(), //
+                        chosenDateName, //
+                        intOption(probabilityChartOptions, "positivePerCentDiscordanceSliderValue", 50), //
+                        intOption(probabilityChartOptions, "negativePerCentDiscordanceSliderValue", -50), //
+                        intOption(probabilityChartOptions, "uncertaintyPerCentSliderValue", 50)));
+                probabilityPanel.setCurAliquot(firstAliquot);
+
+                probabilityPanel.setBounds(0, 0, width, height);
+                probabilityPanel.setGraphWidth(width - 30);
+                probabilityPanel.setGraphHeight(height - 45);
+
+                probabilityPanel.refreshPanel(true, false);
+                return new LaidOutDiagram(//
+                        probabilityPanel::paint, probabilityPanel::writeSVG);
+            }
+        }
+    }
+
+    /**
+     * Chooses, for each active aliquot, the weighted means saved as shown in
+     * the interpretations window, or every weighted mean the aliquot has if
+     * none has been saved for it.
+     *
+     * @param sample
+     * @return the models in the layout of the weighted mean panel
+     */
+    private static Object[][] selectedWeightedMeans(SampleInterface sample) {
+        Map<String, String> weightedMeanOptions = sample.getSampleDateInterpretationGUISettings().getWeightedMeanOptions();
+        Vector<AliquotInterface> activeAliquots = sample.getActiveAliquots();
+
+        Object[][] selectedModels = new Object[activeAliquots.size()][WEIGHTED_MEAN_NAMES.length + 1];
+        for (int a = 0; a < activeAliquots.size(); a++) {
+            AliquotInterface aliquot = activeAliquots.get(a);
+            selectedModels[a][0] = aliquot;
+
+            boolean anySaved = false;
+            for (String weightedMeanName : WEIGHTED_MEAN_NAMES) {
+                String aliquotFlags = weightedMeanOptions.get(weightedMeanName);
+                anySaved |= (aliquotFlags != null) && (aliquotFlags.length() > a) && (aliquotFlags.charAt(a) == '1');
+            }
+            for (int index = 0; index < WEIGHTED_MEAN_NAMES.length; index++) {
+                String aliquotFlags = weightedMeanOptions.get(WEIGHTED_MEAN_NAMES[index]);
+                boolean shown = !anySaved //
+                        || ((aliquotFlags != null) && (aliquotFlags.length() > a) && (aliquotFlags.charAt(a) == '1'));
+                ValueModel model = aliquot.getASampleDateModelByName(WEIGHTED_MEAN_NAMES[index]);
+                if (shown && (model instanceof SampleDateModel)) {
+                    selectedModels[a][index + 1] = model;
+                }
+            }
+        }
+        return selectedModels;
+    }
+
+    private static int intOption(Map<String, String> options, String key, int defaultValue) {
+        try {
+            return Integer.parseInt(options.get(key));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private void write(LaidOutDiagram laidOutDiagram, File file, Format format) throws IOException {
+        if (format == Format.SVG) {
+            laidOutDiagram.svgWriter.write(file);
+        } else {
+            if (!ImageIO.write(paint(laidOutDiagram), "png", file)) {
+                throw new IOException("No PNG writer available");
+            }
+        }
+    }
+
+    /**
+     *
+     * @param laidOutDiagram
+     * @return the diagram painted on white at this batch's size
+     */
+    BufferedImage paint(LaidOutDiagram laidOutDiagram) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, width, height);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2d.setColor(Color.BLACK);
+            laidOutDiagram.painter.accept(g2d);
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+
+    /**
+     *
+     * @param sampleName
+     * @param diagram
+     * @param format
+     * @return the file name of a diagram of a sample
+     */
+    public static String fileName(String sampleName, Diagram diagram, Format format) {
+        return sampleName.replaceAll("[^A-Za-z0-9._-]", "_") + "_" + diagram.getFileSuffix() + "." + format.getExtension();
+    }
+
+    /**
+     * How the panel of a diagram, once laid out, paints and writes SVG.
+     */
+    static class LaidOutDiagram {
+
+        private final Consumer<Graphics2D> painter;
+        private final SVGWriter svgWriter;
+
+        LaidOutDiagram(Consumer<Graphics2D> painter, SVGWriter svgWriter) {
+            this.painter = painter;
+            this.svgWriter = svgWriter;
+        }
+    }
+
+    /**
+     * Writes a laid out panel as SVG, as its writeSVG does.
+     */
+    interface SVGWriter {
+
+        void write(File file) throws IOException;
+    }
+
+    /**
+     * The rendering of one diagram of one sample.
+     */
+    public static class Result {
+
+        private final String sampleName;
+        private final Diagram diagram;
+        private final File file;
+        private final String failure;
+
+        Result(String sampleName, Diagram diagram, File file, String failure) {
+            this.sampleName = sampleName;
+            this.diagram = diagram;
+            this.file = file;
+            this.failure = failure;
+        }
+
+        /**
+         * @return the sampleName
+         */
+        public String getSampleName() {
+            return sampleName;
+        }
+
+        /**
+         * @return the diagram
+         */
+        public Diagram getDiagram() {
+            return diagram;
+        }
+
+        /**
+         * @return the file written, or null if the rendering failed
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the failure of the rendering, or null if it succeeded
+         */
+        public String getFailure() {
+            return failure;
+        }
+    }
+}
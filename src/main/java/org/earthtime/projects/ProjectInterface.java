@@ -7,6 +7,7 @@ package org.earthtime.projects;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 import org.earthtime.Tripoli.dataModels.inputParametersModels.AbstractAcquisitionModel;
 import org.earthtime.Tripoli.rawDataFiles.handlers.AbstractRawDataFileHandler;
 import org.earthtime.Tripoli.sessions.TripoliSessionInterface;
@@ -144,4 +145,29 @@ public interface ProjectInterface {
      */
     public void setLocationOfDataImportFile(File locationOfDataImportFile);
 
+    /**
+     * Calculates the sample date models of every aliquot in this project
+     * concurrently and without Swing; see ProjectDateInterpretationBatch.
+     *
+     * @return one row per sample date model
+     * @throws InterruptedException
+     */
+    public default List<ProjectDateInterpretationBatch.Result> interpretSampleDates() throws InterruptedException {
+        return new ProjectDateInterpretationBatch().interpret(this);
+    }
+
+    /**
+     * Renders the concordia, weighted mean and probability density diagrams
+     * of every sample in this project concurrently and without showing any
+     * window; see ProjectDiagramBatch.
+     *
+     * @param directory
+     * @param format
+     * @return one result per diagram
+     * @throws InterruptedException
+     */
+    public default List<ProjectDiagramBatch.Result> renderSampleDiagrams(File directory, ProjectDiagramBatch.Format format) throws InterruptedException {
+        return new ProjectDiagramBatch().render(this, directory, format);
+    }
+
 }
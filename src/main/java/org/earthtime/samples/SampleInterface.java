@@ -1046,6 +1046,22 @@ public interface SampleInterface {
         });
     }
 
+    /**
+     * As updateAndSaveSampleDateModelsByAliquot, but leaves the sample date
+     * models to be calculated in the background by a
+     * SampleDateModelsScheduler.
+     *
+     * @param sample
+     */
+    public static void reduceAndPrepareSampleDateModelsByAliquot(SampleInterface sample) {
+        sample.getAliquots().stream().map((nextAliquot) -> {
+            ((ReduxAliquotInterface) nextAliquot).reduceData(false);
+            return nextAliquot;
+        }).forEach((nextAliquot) -> {
+            nextAliquot.prepareSampleDateModels();
+        });
+    }
+
     /**
      *
      * @param aliquot
@@ -19,13 +19,15 @@
  */
 package org.earthtime.statistics;
 
-import java.util.ArrayList;
-import org.apache.commons.math3.stat.StatUtils;
-
 /**
+ * Keeps the results of the last calculation, so it cannot be shared between
+ * threads.
  *
  * @author James F. Bowring
+ * @deprecated use the immutable {@link SampleSummary} and the stateless
+ * {@link RobustStatistics}
  */
+@Deprecated
 public class NonParametricStats {
 
     private static NonParametricStats instance = null;
@@ -55,32 +57,11 @@ public class NonParametricStats {
      * @param sample
      */
     public void calculateStats ( boolean[] dataActiveMap, double[] sample ) {
-        ArrayList<Double> liveSample = new ArrayList<>();
-        sampleMean = 0.0;
-
-        if ( sample.length > 0 ) {
-
-            for (int i = 0; i < sample.length; i ++) {
-                if ( dataActiveMap[i] ) {
-                    sampleMean += sample[i];
-                    liveSample.add( sample[i] );
-                }
-            }
-
-            sampleMean /= liveSample.size();
-        }
-        
-        double[] liveSampleArray = new double[liveSample.size()];
-        for (int i = 0; i < liveSampleArray.length; i ++){
-            liveSampleArray[i] = (double)liveSample.get( i );
-        }
-        
-               
-        sampleMean = StatUtils.mean( liveSampleArray );
-        variance = StatUtils.variance( liveSampleArray );
-
-        stdErrSampleMean = Math.sqrt(variance) / Math.sqrt( liveSampleArray.length );
+        SampleSummary summary = SampleSummary.of( dataActiveMap, sample );
 
+        sampleMean = summary.getMean();
+        variance = summary.getVariance();
+        stdErrSampleMean = summary.getStdErrSampleMean();
     }
     
     /**
@@ -90,39 +71,11 @@ public class NonParametricStats {
      * @return
      */
     public boolean determineIfBelowDetectionLimitUsingTwoSigma(boolean[] dataActiveMap, double[] sample){
-        boolean belowDetection = false;
-        
-        calculateStats( dataActiveMap, sample );
-        
-        double stdDev = Math.sqrt( variance);
-        boolean[] localDataActiveMap = dataActiveMap.clone();
-        for (int i = 0; i < localDataActiveMap.length; i ++){
-            if ((sample[i] - sampleMean) > 2.0 * stdDev){
-                localDataActiveMap[i] = false;
-            }
-        }
-        
-        calculateStats( localDataActiveMap, sample);
-        
-        belowDetection = sampleMean <= 2.0 * stdErrSampleMean;
-        
-        return belowDetection;
+        return RobustStatistics.isBelowDetectionLimitUsingTwoSigma( dataActiveMap, sample );
     }
     
     public boolean determineIfTenPercentOrMoreAreNegative(boolean[] dataActiveMap, double[] sample){
-        double countOfNegative = 0;
-        double countOfValues = 0;;
-        
-        for (int i = 0; i < dataActiveMap.length; i ++){
-            if (dataActiveMap[i]){
-                countOfValues++;
-                if (sample[i] < 0.0){
-                    countOfNegative++;
-                }
-            }
-        }
-        
-        return (countOfNegative / countOfValues) > 0.1;
+        return RobustStatistics.isTenPercentOrMoreNegative( dataActiveMap, sample );
     }
 
     /**
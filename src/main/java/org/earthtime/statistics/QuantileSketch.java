@@ -0,0 +1,345 @@
+/*
+ * QuantileSketch.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.statistics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Mergeable approximate quantiles in bounded memory, after Dunning's merging
+ * t-digest. Values are buffered and periodically merged into a sorted list of
+ * weighted centroids whose sizes are limited by the arcsine scale function, so
+ * that centroids near the tails stay small and extreme quantiles remain
+ * accurate. The minimum and maximum are exact.
+ *
+ * Sketches of separate samples, such as aliquots, merge into a sketch of the
+ * combined sample. A sketch is not safe for concurrent modification; build
+ * one per thread and merge them. Reads never change a sketch, so once built
+ * it may be read from any number of threads; reads merge any buffered values
+ * into a copy of the centroids, which compress avoids by merging them once.
+ *
+ * @author James F. Bowring
+ */
+public class QuantileSketch implements Serializable {
+
+    private static final long serialVersionUID = 3376218529640126385L;
+    /**
+     * the default compression, giving at most about 100 centroids
+     */
+    public static final double DEFAULT_COMPRESSION = 100.0;
+    private final double compression;
+    // sorted centroids
+    private double[] means;
+    private double[] weights;
+    private int centroidCount;
+    // unmerged values
+    private double[] bufferValues;
+    private double[] bufferWeights;
+    private int bufferCount;
+    private double totalWeight;
+    private double minimum;
+    private double maximum;
+
+    /**
+     *
+     */
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     *
+     * @param compression at least 10; larger is more accurate and larger
+     */
+    public QuantileSketch(double compression) {
+        if (!(compression >= 10.0)) {
+            throw new IllegalArgumentException("Compression must be at least 10.");
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) + 1;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.centroidCount = 0;
+        this.bufferValues = new double[5 * capacity];
+        this.bufferWeights = new double[5 * capacity];
+        this.bufferCount = 0;
+        this.totalWeight = 0.0;
+        this.minimum = Double.POSITIVE_INFINITY;
+        this.maximum = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     *
+     * @param values
+     * @return a sketch of values
+     */
+    public static QuantileSketch of(double[] values) {
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : values) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+
+    /**
+     *
+     * @param value
+     */
+    public void add(double value) {
+        add(value, 1.0);
+    }
+
+    /**
+     *
+     * @param value
+     * @param weight must be positive
+     */
+    public void add(double value, double weight) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Value must be a number.");
+        }
+        if (!(weight > 0.0)) {
+            throw new IllegalArgumentException("Weight must be positive.");
+        }
+        if (bufferCount == bufferValues.length) {
+            compress();
+        }
+        bufferValues[bufferCount] = value;
+        bufferWeights[bufferCount] = weight;
+        bufferCount++;
+        totalWeight += weight;
+        minimum = Math.min(minimum, value);
+        maximum = Math.max(maximum, value);
+    }
+
+    /**
+     * Adds the contents of other, which is left unchanged.
+     *
+     * @param other
+     */
+    public void merge(QuantileSketch other) {
+        double[] otherMeans = Arrays.copyOf(other.means, other.centroidCount + other.bufferCount);
+        double[] otherWeights = Arrays.copyOf(other.weights, otherMeans.length);
+        System.arraycopy(other.bufferValues, 0, otherMeans, other.centroidCount, other.bufferCount);
+        System.arraycopy(other.bufferWeights, 0, otherWeights, other.centroidCount, other.bufferCount);
+
+        // totals first, as compression scales centroid sizes by the total weight
+        totalWeight += other.totalWeight;
+        minimum = Math.min(minimum, other.minimum);
+        maximum = Math.max(maximum, other.maximum);
+        for (int i = 0; i < otherMeans.length; i++) {
+            if (bufferCount == bufferValues.length) {
+                compress();
+            }
+            bufferValues[bufferCount] = otherMeans[i];
+            bufferWeights[bufferCount] = otherWeights[i];
+            bufferCount++;
+        }
+    }
+
+    /**
+     * @return the total weight, which is the count for unweighted values
+     */
+    public double getCount() {
+        return totalWeight;
+    }
+
+    /**
+     * @return the minimum, NaN if empty
+     */
+    public double getMinimum() {
+        return (totalWeight > 0.0) ? minimum : Double.NaN;
+    }
+
+    /**
+     * @return the maximum, NaN if empty
+     */
+    public double getMaximum() {
+        return (totalWeight > 0.0) ? maximum : Double.NaN;
+    }
+
+    /**
+     *
+     * @param probability in [0, 1]
+     * @return the approximate quantile, NaN if empty
+     */
+    public double quantile(double probability) {
+        if ((probability < 0.0) || (probability > 1.0)) {
+            throw new IllegalArgumentException("Probability must be within [0, 1].");
+        }
+        Centroids centroids = centroids();
+        int centroidCount = centroids.count;
+        double[] means = centroids.means;
+        double[] weights = centroids.weights;
+        if (centroidCount == 0) {
+            return Double.NaN;
+        }
+        if (centroidCount == 1) {
+            return means[0];
+        }
+
+        // each centroid's mean is taken to sit at the middle of its weight
+        double target = probability * totalWeight;
+        if (target <= weights[0] / 2.0) {
+            return interpolate(target, 0.0, minimum, weights[0] / 2.0, means[0]);
+        }
+        double cumulative = weights[0] / 2.0;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double next = cumulative + (weights[i] + weights[i + 1]) / 2.0;
+            if (target <= next) {
+                return interpolate(target, cumulative, means[i], next, means[i + 1]);
+            }
+            cumulative = next;
+        }
+        return interpolate(target, cumulative, means[centroidCount - 1], totalWeight, maximum);
+    }
+
+    /**
+     *
+     * @param value
+     * @return the approximate fraction of the weight at or below value, NaN if
+     * empty
+     */
+    public double cdf(double value) {
+        Centroids centroids = centroids();
+        int centroidCount = centroids.count;
+        double[] means = centroids.means;
+        double[] weights = centroids.weights;
+        if (centroidCount == 0) {
+            return Double.NaN;
+        }
+        if (value < minimum) {
+            return 0.0;
+        }
+        if (value >= maximum) {
+            return 1.0;
+        }
+
+        double cumulative = 0.0;
+        double previousMean = minimum;
+        double previousPosition = 0.0;
+        for (int i = 0; i < centroidCount; i++) {
+            double position = cumulative + weights[i] / 2.0;
+            if (value < means[i]) {
+                double fraction = (means[i] > previousMean) ? (value - previousMean) / (means[i] - previousMean) : 0.0;
+                return (previousPosition + fraction * (position - previousPosition)) / totalWeight;
+            }
+            cumulative += weights[i];
+            previousMean = means[i];
+            previousPosition = position;
+        }
+        double fraction = (maximum > previousMean) ? (value - previousMean) / (maximum - previousMean) : 1.0;
+        return (previousPosition + fraction * (totalWeight - previousPosition)) / totalWeight;
+    }
+
+    private static double interpolate(double x, double x0, double y0, double x1, double y1) {
+        if (x1 <= x0) {
+            return y0;
+        }
+        return y0 + (x - x0) / (x1 - x0) * (y1 - y0);
+    }
+
+    /**
+     * Merges the buffered values into the centroids, so that later reads need
+     * not; like add, this modifies the sketch.
+     */
+    public void compress() {
+        if (bufferCount == 0) {
+            return;
+        }
+
+        Centroids merged = mergeBuffer();
+        means = merged.means;
+        weights = merged.weights;
+        centroidCount = merged.count;
+        bufferCount = 0;
+    }
+
+    private Centroids centroids() {
+        return (bufferCount == 0) ? new Centroids(means, weights, centroidCount) : mergeBuffer();
+    }
+
+    /**
+     * @return the centroids with the buffer merged in, leaving both unchanged
+     */
+    private Centroids mergeBuffer() {
+        int n = centroidCount + bufferCount;
+        double[] allMeans = new double[n];
+        double[] allWeights = new double[n];
+        System.arraycopy(means, 0, allMeans, 0, centroidCount);
+        System.arraycopy(weights, 0, allWeights, 0, centroidCount);
+        System.arraycopy(bufferValues, 0, allMeans, centroidCount, bufferCount);
+        System.arraycopy(bufferWeights, 0, allWeights, centroidCount, bufferCount);
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (Integer a, Integer b) -> Double.compare(allMeans[a], allMeans[b]));
+
+        double[] mergedMeans = new double[Math.max(n, means.length)];
+        double[] mergedWeights = new double[mergedMeans.length];
+        int merged = 0;
+        double weightSoFar = 0.0;
+        double limit = 0.0;
+        for (int i = 0; i < n; i++) {
+            int index = order[i];
+            if ((merged > 0) && (weightSoFar + allWeights[index] <= limit)) {
+                // absorb into the current centroid
+                double combinedWeight = mergedWeights[merged - 1] + allWeights[index];
+                mergedMeans[merged - 1] += (allMeans[index] - mergedMeans[merged - 1]) * allWeights[index] / combinedWeight;
+                mergedWeights[merged - 1] = combinedWeight;
+            } else {
+                // start a new centroid, which may grow until the scale function allows no more
+                mergedMeans[merged] = allMeans[index];
+                mergedWeights[merged] = allWeights[index];
+                merged++;
+                limit = totalWeight * quantileLimit(weightSoFar / totalWeight);
+            }
+            weightSoFar += allWeights[index];
+        }
+
+        return new Centroids(mergedMeans, mergedWeights, merged);
+    }
+
+    /**
+     * The k1 scale function k(q) = compression / (2 pi) * asin(2q - 1) allows
+     * a centroid starting at q to extend to where k has grown by one.
+     */
+    private double quantileLimit(double q) {
+        double k = compression / (2.0 * Math.PI) * Math.asin(2.0 * Math.min(1.0, Math.max(0.0, q)) - 1.0);
+        double kNext = k + 1.0;
+        if (kNext >= compression / 4.0) {
+            return 1.0;
+        }
+        return (Math.sin(kNext * 2.0 * Math.PI / compression) + 1.0) / 2.0;
+    }
+
+    private static class Centroids {
+
+        private final double[] means;
+        private final double[] weights;
+        private final int count;
+
+        Centroids(double[] means, double[] weights, int count) {
+            this.means = means;
+            this.weights = weights;
+            this.count = count;
+        }
+    }
+}
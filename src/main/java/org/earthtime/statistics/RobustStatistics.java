@@ -0,0 +1,306 @@
+/*
+ * RobustStatistics.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.statistics;
+
+import java.util.Arrays;
+
+/**
+ * Stateless order statistics on primitive arrays. Medians, quantiles and the
+ * median absolute deviation are found by selection in expected O(n) rather
+ * than by sorting. No method keeps state or modifies its arguments, so all
+ * may be called concurrently.
+ *
+ * Quantiles interpolate linearly between order statistics at (n - 1) * p,
+ * as do R's default type 7 and Excel's PERCENTILE.
+ *
+ * @author James F. Bowring
+ */
+public final class RobustStatistics {
+
+    /**
+     * scales the MAD to estimate the standard deviation of a normal
+     * distribution
+     */
+    public static final double MAD_TO_STANDARD_DEVIATION = 1.482602218505602;
+
+    private RobustStatistics() {
+    }
+
+    /**
+     *
+     * @param dataActiveMap null for all values
+     * @param sample
+     * @return a new array of the active values
+     */
+    public static double[] activeValues(boolean[] dataActiveMap, double[] sample) {
+        if (dataActiveMap == null) {
+            return sample.clone();
+        }
+        int count = 0;
+        for (int i = 0; i < sample.length; i++) {
+            if (dataActiveMap[i]) {
+                count++;
+            }
+        }
+        double[] active = new double[count];
+        int j = 0;
+        for (int i = 0; i < sample.length; i++) {
+            if (dataActiveMap[i]) {
+                active[j++] = sample[i];
+            }
+        }
+        return active;
+    }
+
+    /**
+     *
+     * @param sample
+     * @return the median, NaN if empty
+     */
+    public static double median(double[] sample) {
+        return quantile(sample, 0.5);
+    }
+
+    /**
+     *
+     * @param dataActiveMap
+     * @param sample
+     * @return the median of the active values, NaN if none
+     */
+    public static double median(boolean[] dataActiveMap, double[] sample) {
+        return quantileInPlace(activeValues(dataActiveMap, sample), 0.5);
+    }
+
+    /**
+     *
+     * @param sample
+     * @param probability in [0, 1]
+     * @return the quantile, NaN if empty
+     */
+    public static double quantile(double[] sample, double probability) {
+        return quantileInPlace(sample.clone(), probability);
+    }
+
+    /**
+     * Several quantiles at once; the sample is sorted once when that is
+     * cheaper than repeated selection.
+     *
+     * @param sample
+     * @param probabilities each in [0, 1]
+     * @return
+     */
+    public static double[] quantiles(double[] sample, double[] probabilities) {
+        double[] work = sample.clone();
+        double[] results = new double[probabilities.length];
+        if (probabilities.length > 4) {
+            Arrays.sort(work);
+            for (int i = 0; i < probabilities.length; i++) {
+                results[i] = interpolateSorted(work, probabilities[i]);
+            }
+        } else {
+            for (int i = 0; i < probabilities.length; i++) {
+                results[i] = quantileInPlace(work, probabilities[i]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     *
+     * @param sample
+     * @return the median of the absolute deviations from the median, unscaled
+     */
+    public static double medianAbsoluteDeviation(double[] sample) {
+        double[] work = sample.clone();
+        double median = quantileInPlace(work, 0.5);
+        for (int i = 0; i < work.length; i++) {
+            work[i] = Math.abs(work[i] - median);
+        }
+        return quantileInPlace(work, 0.5);
+    }
+
+    /**
+     *
+     * @param dataActiveMap
+     * @param sample
+     * @return the MAD of the active values, unscaled
+     */
+    public static double medianAbsoluteDeviation(boolean[] dataActiveMap, double[] sample) {
+        return medianAbsoluteDeviation(activeValues(dataActiveMap, sample));
+    }
+
+    /**
+     *
+     * @param sample
+     * @return the third quartile less the first
+     */
+    public static double interquartileRange(double[] sample) {
+        double[] work = sample.clone();
+        return quantileInPlace(work, 0.75) - quantileInPlace(work, 0.25);
+    }
+
+    /**
+     * The test used for on-peak intensities: values more than two standard
+     * deviations above the mean are set aside, and the remainder is below
+     * detection if its mean is no more than twice its standard error.
+     *
+     * @param dataActiveMap
+     * @param sample
+     * @return
+     */
+    public static boolean isBelowDetectionLimitUsingTwoSigma(boolean[] dataActiveMap, double[] sample) {
+        SampleSummary summary = SampleSummary.of(dataActiveMap, sample);
+
+        double stdDev = summary.getStandardDeviation();
+        boolean[] localDataActiveMap = dataActiveMap.clone();
+        for (int i = 0; i < localDataActiveMap.length; i++) {
+            if ((sample[i] - summary.getMean()) > 2.0 * stdDev) {
+                localDataActiveMap[i] = false;
+            }
+        }
+
+        summary = SampleSummary.of(localDataActiveMap, sample);
+        return summary.getMean() <= 2.0 * summary.getStdErrSampleMean();
+    }
+
+    /**
+     *
+     * @param dataActiveMap
+     * @param sample
+     * @return true if more than ten percent of the active values are negative
+     */
+    public static boolean isTenPercentOrMoreNegative(boolean[] dataActiveMap, double[] sample) {
+        double countOfNegative = 0;
+        double countOfValues = 0;
+
+        for (int i = 0; i < dataActiveMap.length; i++) {
+            if (dataActiveMap[i]) {
+                countOfValues++;
+                if (sample[i] < 0.0) {
+                    countOfNegative++;
+                }
+            }
+        }
+
+        return (countOfNegative / countOfValues) > 0.1;
+    }
+
+    /**
+     * Quantile by selection, permuting work.
+     *
+     * @param work
+     * @param probability
+     * @return
+     */
+    static double quantileInPlace(double[] work, double probability) {
+        int n = work.length;
+        if (n == 0) {
+            return Double.NaN;
+        }
+        if ((probability < 0.0) || (probability > 1.0)) {
+            throw new IllegalArgumentException("Probability must be within [0, 1].");
+        }
+
+        double position = (n - 1) * probability;
+        int k = (int) Math.floor(position);
+        double lower = select(work, k);
+        double fraction = position - k;
+        if ((fraction == 0.0) || (k == n - 1)) {
+            return lower;
+        }
+
+        // after selection everything right of k is no smaller, so the next order statistic is its minimum
+        double upper = Double.POSITIVE_INFINITY;
+        for (int i = k + 1; i < n; i++) {
+            upper = Math.min(upper, work[i]);
+        }
+        return lower + fraction * (upper - lower);
+    }
+
+    private static double interpolateSorted(double[] sorted, double probability) {
+        int n = sorted.length;
+        if (n == 0) {
+            return Double.NaN;
+        }
+        double position = (n - 1) * probability;
+        int k = (int) Math.floor(position);
+        if (k >= n - 1) {
+            return sorted[n - 1];
+        }
+        return sorted[k] + (position - k) * (sorted[k + 1] - sorted[k]);
+    }
+
+    /**
+     * Hoare's selection with median-of-three pivots: afterwards work[k] is the
+     * k-th smallest value, with no larger values left of it and no smaller
+     * values right of it.
+     *
+     * @param work
+     * @param k
+     * @return work[k]
+     */
+    static double select(double[] work, int k) {
+        int left = 0;
+        int right = work.length - 1;
+        while (right > left) {
+            int middle = (left + right) >>> 1;
+            // order work[left], work[middle], work[right]
+            if (work[middle] < work[left]) {
+                swap(work, middle, left);
+            }
+            if (work[right] < work[left]) {
+                swap(work, right, left);
+            }
+            if (work[right] < work[middle]) {
+                swap(work, right, middle);
+            }
+            double pivot = work[middle];
+
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (work[i] < pivot) {
+                    i++;
+                }
+                while (work[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(work, i, j);
+                    i++;
+                    j--;
+                }
+            }
+
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return work[k];
+    }
+
+    private static void swap(double[] work, int i, int j) {
+        double temp = work[i];
+        work[i] = work[j];
+        work[j] = temp;
+    }
+}
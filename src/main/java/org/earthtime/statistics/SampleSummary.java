@@ -0,0 +1,195 @@
+/*
+ * SampleSummary.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.statistics;
+
+import java.io.Serializable;
+
+/**
+ * Immutable count, mean, variance and range of a sample. Summaries of
+ * disjoint samples merge exactly (Chan, Golub and LeVeque), so per-aliquot
+ * summaries can be combined and single values appended without revisiting
+ * the data. Being immutable, summaries may be shared between threads.
+ *
+ * The variance is the bias-corrected sample variance, as from
+ * org.apache.commons.math3.stat.StatUtils: NaN for an empty sample and zero
+ * for a single value.
+ *
+ * @author James F. Bowring
+ */
+public final class SampleSummary implements Serializable {
+
+    private static final long serialVersionUID = -2405263018837618541L;
+    /**
+     * the summary of no values
+     */
+    public static final SampleSummary EMPTY = new SampleSummary(0, Double.NaN, 0.0, Double.NaN, Double.NaN);
+    private final long count;
+    private final double mean;
+    // sum of squared deviations from the mean
+    private final double m2;
+    private final double minimum;
+    private final double maximum;
+
+    private SampleSummary(long count, double mean, double m2, double minimum, double maximum) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+        this.minimum = minimum;
+        this.maximum = maximum;
+    }
+
+    /**
+     *
+     * @param sample
+     * @return
+     */
+    public static SampleSummary of(double[] sample) {
+        return of(null, sample);
+    }
+
+    /**
+     * Summarizes the active values with the same corrected two-pass sums
+     * as StatUtils.mean and StatUtils.variance.
+     *
+     * @param dataActiveMap null for all values
+     * @param sample
+     * @return
+     */
+    public static SampleSummary of(boolean[] dataActiveMap, double[] sample) {
+        long count = 0;
+        double sum = 0.0;
+        double minimum = Double.POSITIVE_INFINITY;
+        double maximum = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < sample.length; i++) {
+            if ((dataActiveMap == null) || dataActiveMap[i]) {
+                count++;
+                sum += sample[i];
+                minimum = Math.min(minimum, sample[i]);
+                maximum = Math.max(maximum, sample[i]);
+            }
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+
+        double mean = sum / count;
+        double correction = 0.0;
+        for (int i = 0; i < sample.length; i++) {
+            if ((dataActiveMap == null) || dataActiveMap[i]) {
+                correction += sample[i] - mean;
+            }
+        }
+        double correctedMean = mean + correction / count;
+
+        double deviationSum = 0.0;
+        double squaredDeviationSum = 0.0;
+        for (int i = 0; i < sample.length; i++) {
+            if ((dataActiveMap == null) || dataActiveMap[i]) {
+                double deviation = sample[i] - correctedMean;
+                deviationSum += deviation;
+                squaredDeviationSum += deviation * deviation;
+            }
+        }
+        double m2 = squaredDeviationSum - deviationSum * deviationSum / count;
+
+        return new SampleSummary(count, correctedMean, Math.max(0.0, m2), minimum, maximum);
+    }
+
+    /**
+     *
+     * @param value
+     * @return the summary with value appended
+     */
+    public SampleSummary plus(double value) {
+        return merge(new SampleSummary(1, value, 0.0, value, value));
+    }
+
+    /**
+     *
+     * @param other the summary of a disjoint sample
+     * @return the summary of both samples
+     */
+    public SampleSummary merge(SampleSummary other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+
+        long combinedCount = count + other.count;
+        double delta = other.mean - mean;
+        double combinedMean = mean + delta * other.count / combinedCount;
+        double combinedM2 = m2 + other.m2 + delta * delta * ((double) count * other.count / combinedCount);
+
+        return new SampleSummary(combinedCount, combinedMean, combinedM2, //
+                Math.min(minimum, other.minimum), Math.max(maximum, other.maximum));
+    }
+
+    /**
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the sample mean, NaN if empty
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the bias-corrected variance
+     */
+    public double getVariance() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return (count == 1) ? 0.0 : m2 / (count - 1);
+    }
+
+    /**
+     * @return the standard deviation
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return the standard error of the mean
+     */
+    public double getStdErrSampleMean() {
+        return Math.sqrt(getVariance()) / Math.sqrt(count);
+    }
+
+    /**
+     * @return the minimum, NaN if empty
+     */
+    public double getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * @return the maximum, NaN if empty
+     */
+    public double getMaximum() {
+        return maximum;
+    }
+}
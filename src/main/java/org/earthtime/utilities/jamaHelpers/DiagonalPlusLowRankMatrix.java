@@ -0,0 +1,388 @@
+/*
+ * DiagonalPlusLowRankMatrix.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.utilities.jamaHelpers;
+
+import Jama.CholeskyDecomposition;
+import Jama.Matrix;
+import java.io.Serializable;
+
+/**
+ * A symmetric n x n matrix held in the factored form S = D + U * C * U',
+ * where D is diagonal, U is n x k and C is a symmetric k x k matrix with k
+ * typically much smaller than n. Storage is O(n * k) rather than O(n * n);
+ * entries and sub-blocks are produced on demand. A matrix that was only ever
+ * available densely, as in older serialized sessions, is instead held as is
+ * and solved directly; see fromDenseMatrix.
+ *
+ * @author James F. Bowring
+ */
+public class DiagonalPlusLowRankMatrix implements Serializable {
+
+    // Class variables
+    private static final long serialVersionUID = 2209826616346287795L;
+    // instance variables
+    private final double[] diagonal;
+    private final Matrix leftFactor;
+    private final Matrix innerMatrix;
+    // null unless the matrix is held densely, in which case the factors are empty
+    private final Matrix denseMatrix;
+    // U * C, rebuilt on demand after deserialization
+    private transient Matrix leftFactorTimesInner;
+
+    /**
+     *
+     * @param diagonal the diagonal part D, of length n
+     * @param leftFactor U, n x k; may be null for a purely diagonal matrix
+     * @param innerMatrix C, k x k; may be null for a purely diagonal matrix
+     */
+    public DiagonalPlusLowRankMatrix(double[] diagonal, Matrix leftFactor, Matrix innerMatrix) {
+        this.diagonal = diagonal.clone();
+
+        if ((leftFactor == null) || (innerMatrix == null)) {
+            this.leftFactor = new Matrix(diagonal.length, 0);
+            this.innerMatrix = new Matrix(0, 0);
+        } else {
+            if (leftFactor.getRowDimension() != diagonal.length) {
+                throw new IllegalArgumentException("Left factor row dimension must equal diagonal length.");
+            }
+            if ((innerMatrix.getRowDimension() != leftFactor.getColumnDimension())//
+                    || (innerMatrix.getColumnDimension() != leftFactor.getColumnDimension())) {
+                throw new IllegalArgumentException("Inner matrix must be square with dimension equal to rank of left factor.");
+            }
+            this.leftFactor = leftFactor;
+            this.innerMatrix = innerMatrix;
+        }
+        this.denseMatrix = null;
+    }
+
+    private DiagonalPlusLowRankMatrix(Matrix denseMatrix) {
+        this.diagonal = new double[0];
+        this.leftFactor = new Matrix(0, 0);
+        this.innerMatrix = new Matrix(0, 0);
+        this.denseMatrix = denseMatrix;
+    }
+
+    /**
+     *
+     * @param diagonal the diagonal part D, of length n
+     */
+    public DiagonalPlusLowRankMatrix(double[] diagonal) {
+        this(diagonal, null, null);
+    }
+
+    /**
+     * Holds a dense symmetric matrix as is, so that legacy dense covariances
+     * can be used wherever the factored form is expected. Storage stays
+     * O(n * n), sums with it stay dense and solves use its Cholesky or LU
+     * decomposition rather than the Woodbury identity. The matrix is not
+     * copied and must not be modified afterwards.
+     *
+     * @param dense
+     * @return
+     */
+    public static DiagonalPlusLowRankMatrix fromDenseMatrix(Matrix dense) {
+        return new DiagonalPlusLowRankMatrix(dense);
+    }
+
+    /**
+     * @return true if held densely rather than in factored form, in which
+     * case the diagonal, left factor and inner matrix are not available
+     */
+    public boolean isDense() {
+        return denseMatrix != null;
+    }
+
+    /**
+     * Returns a new matrix equal to this + U2 * C2 * U2'. The added factor is
+     * appended to the existing left factor and C2 becomes a new diagonal block
+     * of the inner matrix.
+     *
+     * @param addedLeftFactor U2, n x k2
+     * @param addedInnerMatrix C2, k2 x k2
+     * @return
+     */
+    public DiagonalPlusLowRankMatrix plusLowRank(Matrix addedLeftFactor, Matrix addedInnerMatrix) {
+        if (isDense()) {
+            return new DiagonalPlusLowRankMatrix(//
+                    denseMatrix.plus(addedLeftFactor.times(addedInnerMatrix).times(addedLeftFactor.transpose())));
+        }
+
+        int n = getDimension();
+        int k = getRank();
+        int k2 = addedLeftFactor.getColumnDimension();
+
+        Matrix combinedLeftFactor = new Matrix(n, k + k2);
+        if (k > 0) {
+            combinedLeftFactor.setMatrix(0, n - 1, 0, k - 1, leftFactor);
+        }
+        if (k2 > 0) {
+            combinedLeftFactor.setMatrix(0, n - 1, k, k + k2 - 1, addedLeftFactor);
+        }
+
+        Matrix combinedInnerMatrix = new Matrix(k + k2, k + k2);
+        if (k > 0) {
+            combinedInnerMatrix.setMatrix(0, k - 1, 0, k - 1, innerMatrix);
+        }
+        if (k2 > 0) {
+            combinedInnerMatrix.setMatrix(k, k + k2 - 1, k, k + k2 - 1, addedInnerMatrix);
+        }
+
+        return new DiagonalPlusLowRankMatrix(diagonal, combinedLeftFactor, combinedInnerMatrix);
+    }
+
+    /**
+     * Returns a new matrix equal to this + diag(addedDiagonal).
+     *
+     * @param addedDiagonal
+     * @return
+     */
+    public DiagonalPlusLowRankMatrix plusDiagonal(double[] addedDiagonal) {
+        if (isDense()) {
+            Matrix combined = denseMatrix.copy();
+            for (int i = 0; i < addedDiagonal.length; i++) {
+                combined.set(i, i, combined.get(i, i) + addedDiagonal[i]);
+            }
+            return new DiagonalPlusLowRankMatrix(combined);
+        }
+
+        double[] combinedDiagonal = diagonal.clone();
+        for (int i = 0; i < combinedDiagonal.length; i++) {
+            combinedDiagonal[i] += addedDiagonal[i];
+        }
+
+        return new DiagonalPlusLowRankMatrix(combinedDiagonal, leftFactor, innerMatrix);
+    }
+
+    /**
+     * @return n
+     */
+    public int getDimension() {
+        return isDense() ? denseMatrix.getRowDimension() : diagonal.length;
+    }
+
+    /**
+     * @return k, the column count of the left factor, or n if held densely
+     */
+    public int getRank() {
+        return isDense() ? getDimension() : leftFactor.getColumnDimension();
+    }
+
+    private Matrix getLeftFactorTimesInner() {
+        if (leftFactorTimesInner == null) {
+            leftFactorTimesInner = leftFactor.times(innerMatrix);
+        }
+        return leftFactorTimesInner;
+    }
+
+    /**
+     *
+     * @param i
+     * @param j
+     * @return entry (i, j) of D + U * C * U'
+     */
+    public double get(int i, int j) {
+        if (isDense()) {
+            return denseMatrix.get(i, j);
+        }
+
+        double[][] uc = getLeftFactorTimesInner().getArray();
+        double[][] u = leftFactor.getArray();
+
+        double retVal = (i == j) ? diagonal[i] : 0.0;
+        for (int m = 0; m < u[j].length; m++) {
+            retVal += uc[i][m] * u[j][m];
+        }
+
+        return retVal;
+    }
+
+    /**
+     * @return the full diagonal of D + U * C * U'
+     */
+    public double[] getFullDiagonal() {
+        double[] fullDiagonal = new double[getDimension()];
+        for (int i = 0; i < fullDiagonal.length; i++) {
+            fullDiagonal[i] = get(i, i);
+        }
+        return fullDiagonal;
+    }
+
+    /**
+     *
+     * @param rowIndices
+     * @param columnIndices
+     * @return the dense sub-block at the requested rows and columns
+     */
+    public Matrix getMatrix(int[] rowIndices, int[] columnIndices) {
+        if (isDense()) {
+            return denseMatrix.getMatrix(rowIndices, columnIndices);
+        }
+
+        Matrix subBlock = new Matrix(rowIndices.length, columnIndices.length);
+        double[][] s = subBlock.getArray();
+        for (int i = 0; i < rowIndices.length; i++) {
+            for (int j = 0; j < columnIndices.length; j++) {
+                s[i][j] = get(rowIndices[i], columnIndices[j]);
+            }
+        }
+        return subBlock;
+    }
+
+    /**
+     * Extracts the principal sub-matrix at indices, still in factored form,
+     * or dense if held densely.
+     *
+     * @param indices
+     * @return
+     */
+    public DiagonalPlusLowRankMatrix getPrincipalSubMatrix(int[] indices) {
+        if (isDense()) {
+            return new DiagonalPlusLowRankMatrix(denseMatrix.getMatrix(indices, indices));
+        }
+
+        double[] subDiagonal = new double[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            subDiagonal[i] = diagonal[indices[i]];
+        }
+
+        Matrix subLeftFactor = null;
+        if (getRank() > 0) {
+            subLeftFactor = leftFactor.getMatrix(indices, 0, getRank() - 1);
+        }
+
+        return new DiagonalPlusLowRankMatrix(subDiagonal, subLeftFactor, innerMatrix);
+    }
+
+    /**
+     * Solves (D + U * C * U') * X = B by the Woodbury identity in the form
+     *
+     * X = D^-1 * B - D^-1 * U * C * (I + U' * D^-1 * U * C)^-1 * U' * D^-1 * B
+     *
+     * which needs only a k x k solve and does not require C to be invertible.
+     * If D has a zero entry the dense matrix is solved instead, as is a
+     * matrix held densely.
+     *
+     * @param rhs B, n x m
+     * @return X, n x m
+     * @throws RuntimeException Matrix is singular.
+     */
+    public Matrix solve(Matrix rhs) {
+        if (isDense()) {
+            CholeskyDecomposition cholesky = denseMatrix.chol();
+            return cholesky.isSPD() ? cholesky.solve(rhs) : denseMatrix.solve(rhs);
+        }
+
+        int n = getDimension();
+        int k = getRank();
+        int m = rhs.getColumnDimension();
+
+        for (int i = 0; i < n; i++) {
+            if (diagonal[i] == 0.0) {
+                if (k == 0) {
+                    throw new RuntimeException("Matrix is singular.");
+                }
+                return toMatrix().solve(rhs);
+            }
+        }
+
+        Matrix dInverseB = new Matrix(n, m);
+        double[][] y = dInverseB.getArray();
+        double[][] b = rhs.getArray();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                y[i][j] = b[i][j] / diagonal[i];
+            }
+        }
+
+        if (k == 0) {
+            return dInverseB;
+        }
+
+        Matrix dInverseU = new Matrix(n, k);
+        double[][] w = dInverseU.getArray();
+        double[][] u = leftFactor.getArray();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < k; j++) {
+                w[i][j] = u[i][j] / diagonal[i];
+            }
+        }
+
+        Matrix leftFactorTranspose = leftFactor.transpose();
+        Matrix capacitance = leftFactorTranspose.times(dInverseU).times(innerMatrix);
+        for (int i = 0; i < k; i++) {
+            capacitance.set(i, i, capacitance.get(i, i) + 1.0);
+        }
+
+        Matrix correction = capacitance.solve(leftFactorTranspose.times(dInverseB));
+
+        return dInverseB.minus(dInverseU.times(innerMatrix.times(correction)));
+    }
+
+    /**
+     * @return the dense n x n matrix; intended for small n and for testing
+     */
+    public Matrix toMatrix() {
+        if (isDense()) {
+            return denseMatrix.copy();
+        }
+
+        int n = getDimension();
+        Matrix dense = new Matrix(n, n);
+        if (getRank() > 0) {
+            dense = getLeftFactorTimesInner().times(leftFactor.transpose());
+        }
+        for (int i = 0; i < n; i++) {
+            dense.set(i, i, dense.get(i, i) + diagonal[i]);
+        }
+        return dense;
+    }
+
+    /**
+     * @return a copy of the diagonal part D
+     * @throws IllegalStateException if held densely
+     */
+    public double[] getDiagonal() {
+        checkFactored();
+        return diagonal.clone();
+    }
+
+    /**
+     * @return the left factor U
+     * @throws IllegalStateException if held densely
+     */
+    public Matrix getLeftFactor() {
+        checkFactored();
+        return leftFactor;
+    }
+
+    /**
+     * @return the inner matrix C
+     * @throws IllegalStateException if held densely
+     */
+    public Matrix getInnerMatrix() {
+        checkFactored();
+        return innerMatrix;
+    }
+
+    private void checkFactored() {
+        if (isDense()) {
+            throw new IllegalStateException("Matrix is held densely, not in factored form.");
+        }
+    }
+
+}
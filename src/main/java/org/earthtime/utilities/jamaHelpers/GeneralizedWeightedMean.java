@@ -0,0 +1,152 @@
+/*
+ * GeneralizedWeightedMean.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.utilities.jamaHelpers;
+
+import Jama.Matrix;
+
+/**
+ * The generalized weighted mean of n correlated values x with covariance
+ * matrix SIGMA, per "Evaluating Weighted Means with Systematic Uncertainties
+ * in U-Pb_Redux" by Noah McLean May 10 2011:
+ *
+ * alpha = SIGMA^-1 * 1 / (1' * SIGMA^-1 * 1), mean = alpha' * x, variance =
+ * alpha' * SIGMA * alpha = 1 / (1' * SIGMA^-1 * 1) and MSWD = r' * SIGMA^-1 *
+ * r / (n - 1) with residuals r = x - mean.
+ *
+ * When SIGMA is held as diagonal plus low rank, both solves cost O(n * k^2)
+ * rather than O(n^3); the dense form is kept as the reference.
+ *
+ * @author James F. Bowring
+ */
+public class GeneralizedWeightedMean {
+
+    private final double mean;
+    private final double oneSigma;
+    private final double mswd;
+    private final double[] weights;
+
+    GeneralizedWeightedMean(double mean, double oneSigma, double mswd, double[] weights) {
+        this.mean = mean;
+        this.oneSigma = oneSigma;
+        this.mswd = mswd;
+        this.weights = weights;
+    }
+
+    /**
+     *
+     * @param values x
+     * @param covariance SIGMA in factored form
+     * @return
+     * @throws RuntimeException Matrix is singular.
+     */
+    public static GeneralizedWeightedMean fromStructuredCovariance(double[] values, DiagonalPlusLowRankMatrix covariance) {
+        int n = values.length;
+        Matrix rhs = new Matrix(n, 2);
+        for (int i = 0; i < n; i++) {
+            rhs.set(i, 0, 1.0);
+            rhs.set(i, 1, values[i]);
+        }
+
+        return fromSolutions(values, covariance.solve(rhs));
+    }
+
+    /**
+     * The dense O(n^3) reference calculation.
+     *
+     * @param values x
+     * @param covariance SIGMA
+     * @return
+     * @throws RuntimeException Matrix is singular.
+     */
+    public static GeneralizedWeightedMean fromDenseCovariance(double[] values, Matrix covariance) {
+        int n = values.length;
+        Matrix U = new Matrix(n, 1, 1.0);
+        Matrix x = new Matrix(values, n);
+
+        Matrix covarianceInverseU = covariance.solve(U);
+        Matrix alpha = covarianceInverseU.times(1.0 / U.transpose().times(covarianceInverseU).get(0, 0));
+
+        double mean = alpha.transpose().times(x).get(0, 0);
+        double oneSigma = Math.sqrt(alpha.transpose().times(covariance).times(alpha).get(0, 0));
+
+        Matrix r = x.minus(new Matrix(n, 1, mean));
+        double mswd = r.transpose().times(covariance.solve(r)).get(0, 0) / (double) (n - 1);
+
+        return new GeneralizedWeightedMean(mean, oneSigma, mswd, alpha.getColumnPackedCopy());
+    }
+
+    /**
+     * Since SIGMA^-1 * r = SIGMA^-1 * x - mean * SIGMA^-1 * 1, the two
+     * solutions give everything.
+     *
+     * @param values
+     * @param solutions n x 2: SIGMA^-1 * 1, SIGMA^-1 * x
+     * @return
+     */
+    private static GeneralizedWeightedMean fromSolutions(double[] values, Matrix solutions) {
+        int n = values.length;
+        double[][] s = solutions.getArray();
+
+        double sumInverseU = 0.0;
+        double sumInverseX = 0.0;
+        for (int i = 0; i < n; i++) {
+            sumInverseU += s[i][0];
+            sumInverseX += s[i][1];
+        }
+
+        double mean = sumInverseX / sumInverseU;
+        double oneSigma = Math.sqrt(1.0 / sumInverseU);
+
+        double chiSquared = 0.0;
+        double[] weights = new double[n];
+        for (int i = 0; i < n; i++) {
+            weights[i] = s[i][0] / sumInverseU;
+            chiSquared += (values[i] - mean) * (s[i][1] - mean * s[i][0]);
+        }
+
+        return new GeneralizedWeightedMean(mean, oneSigma, chiSquared / (double) (n - 1), weights);
+    }
+
+    /**
+     * @return the mean
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the one sigma absolute uncertainty of the mean
+     */
+    public double getOneSigma() {
+        return oneSigma;
+    }
+
+    /**
+     * @return the MSWD
+     */
+    public double getMSWD() {
+        return mswd;
+    }
+
+    /**
+     * @return the weights alpha, or null if they were not formed
+     */
+    public double[] getWeights() {
+        return (weights == null) ? null : weights.clone();
+    }
+}
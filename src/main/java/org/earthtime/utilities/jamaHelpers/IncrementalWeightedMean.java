@@ -0,0 +1,272 @@
+/*
+ * IncrementalWeightedMean.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.utilities.jamaHelpers;
+
+import Jama.Matrix;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Accumulates the sufficient statistics of a generalized weighted mean whose
+ * covariance is SIGMA = D + U * C * U', so that analyses can be added and
+ * removed one at a time at a cost independent of their number. Each analysis
+ * i contributes its value x_i, its variance d_i and its row u_i of U; the
+ * accumulator keeps the D-weighted sums
+ *
+ * sum(1/d), sum(x/d), sum(x^2/d), sum(u/d), sum(x*u/d), sum(u*u'/d)
+ *
+ * from which the Woodbury identity gives 1' * SIGMA^-1 * 1, 1' * SIGMA^-1 *
+ * x and x' * SIGMA^-1 * x for any inner matrix C with a single k x k solve.
+ * Values are accumulated relative to a reference value to limit
+ * cancellation, and the sums are rebuilt from the retained contributions
+ * every REACCUMULATION_INTERVAL updates so that rounding from removals does
+ * not build up.
+ *
+ * @author James F. Bowring
+ */
+public class IncrementalWeightedMean {
+
+    /**
+     * updates between rebuilds of the sums from the retained contributions
+     */
+    public static final int REACCUMULATION_INTERVAL = 256;
+    private final int rank;
+    private final Map<String, Contribution> contributions;
+    private double referenceValue;
+    private double sumInverseVariance;
+    private double sumValueOverVariance;
+    private double sumValueSquaredOverVariance;
+    private final double[] sumRowOverVariance;
+    private final double[] sumValueTimesRowOverVariance;
+    private final double[][] sumRowOuterProductOverVariance;
+    private int updatesSinceReaccumulation;
+
+    /**
+     *
+     * @param rank k, the length of each row of U; zero for uncorrelated
+     * analyses
+     */
+    public IncrementalWeightedMean(int rank) {
+        this.rank = rank;
+        this.contributions = new HashMap<>();
+        this.referenceValue = 0.0;
+        this.sumRowOverVariance = new double[rank];
+        this.sumValueTimesRowOverVariance = new double[rank];
+        this.sumRowOuterProductOverVariance = new double[rank][rank];
+        clearSums();
+    }
+
+    /**
+     * Adds, or replaces, the analysis named key.
+     *
+     * @param key
+     * @param value x_i
+     * @param variance d_i, which must be positive
+     * @param factorRow u_i, of length k
+     */
+    public void add(String key, double value, double variance, double[] factorRow) {
+        if (!(variance > 0.0)) {
+            throw new IllegalArgumentException("Variance must be positive for " + key + ".");
+        }
+        if (factorRow.length != rank) {
+            throw new IllegalArgumentException("Factor row must have length " + rank + ".");
+        }
+
+        remove(key);
+        if (contributions.isEmpty()) {
+            referenceValue = value;
+        }
+
+        Contribution contribution = new Contribution(value, variance, factorRow.clone());
+        contributions.put(key, contribution);
+        accumulate(contribution, 1.0);
+        countUpdate();
+    }
+
+    /**
+     * Removes the analysis named key.
+     *
+     * @param key
+     * @return true if key was present
+     */
+    public boolean remove(String key) {
+        Contribution contribution = contributions.remove(key);
+        if (contribution == null) {
+            return false;
+        }
+
+        if (contributions.isEmpty()) {
+            clearSums();
+        } else {
+            accumulate(contribution, -1.0);
+            countUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * Removes every analysis.
+     */
+    public void clear() {
+        contributions.clear();
+        clearSums();
+    }
+
+    /**
+     *
+     * @param key
+     * @return
+     */
+    public boolean contains(String key) {
+        return contributions.containsKey(key);
+    }
+
+    /**
+     * @return the number of analyses
+     */
+    public int size() {
+        return contributions.size();
+    }
+
+    /**
+     * @return the keys of the analyses, as a live view
+     */
+    public Set<String> keySet() {
+        return contributions.keySet();
+    }
+
+    /**
+     * Evaluates the weighted mean for SIGMA = D + U * C * U'. The per-analysis
+     * weights are not formed, so getWeights of the result returns null.
+     *
+     * @param innerMatrix C, k x k; may be null when k is zero
+     * @return
+     * @throws RuntimeException Matrix is singular.
+     */
+    public GeneralizedWeightedMean getWeightedMean(Matrix innerMatrix) {
+        int n = contributions.size();
+        if (n == 0) {
+            throw new IllegalStateException("No analyses have been added.");
+        }
+
+        // quadratic forms of SIGMA^-1 in 1 and the centered values
+        double oneOne = sumInverseVariance;
+        double oneX = sumValueOverVariance;
+        double xX = sumValueSquaredOverVariance;
+
+        if (rank > 0) {
+            // S * (I + M * S)^-1, with M = sum(u * u' / d)
+            Matrix M = new Matrix(sumRowOuterProductOverVariance, rank, rank);
+            Matrix capacitance = M.times(innerMatrix);
+            for (int i = 0; i < rank; i++) {
+                capacitance.set(i, i, capacitance.get(i, i) + 1.0);
+            }
+            Matrix correctionKernel = innerMatrix.times(capacitance.inverse());
+
+            Matrix p = new Matrix(sumRowOverVariance, rank);
+            Matrix q = new Matrix(sumValueTimesRowOverVariance, rank);
+            Matrix kernelP = correctionKernel.times(p);
+            Matrix kernelQ = correctionKernel.times(q);
+
+            oneOne -= p.transpose().times(kernelP).get(0, 0);
+            oneX -= p.transpose().times(kernelQ).get(0, 0);
+            xX -= q.transpose().times(kernelQ).get(0, 0);
+        }
+
+        if (!(oneOne > 0.0)) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+
+        double centeredMean = oneX / oneOne;
+        double chiSquared = xX - centeredMean * oneX;
+
+        return new GeneralizedWeightedMean(//
+                referenceValue + centeredMean, Math.sqrt(1.0 / oneOne), chiSquared / (double) (n - 1), null);
+    }
+
+    /**
+     * Rebuilds the sums from the retained contributions about the current
+     * mean of the values.
+     */
+    public void reaccumulate() {
+        clearSums();
+        if (!contributions.isEmpty()) {
+            double sumValues = 0.0;
+            for (Contribution contribution : contributions.values()) {
+                sumValues += contribution.value;
+            }
+            referenceValue = sumValues / contributions.size();
+
+            for (Contribution contribution : contributions.values()) {
+                accumulate(contribution, 1.0);
+            }
+        }
+    }
+
+    private void countUpdate() {
+        updatesSinceReaccumulation++;
+        if (updatesSinceReaccumulation >= REACCUMULATION_INTERVAL) {
+            reaccumulate();
+        }
+    }
+
+    private void clearSums() {
+        updatesSinceReaccumulation = 0;
+        sumInverseVariance = 0.0;
+        sumValueOverVariance = 0.0;
+        sumValueSquaredOverVariance = 0.0;
+        for (int i = 0; i < rank; i++) {
+            sumRowOverVariance[i] = 0.0;
+            sumValueTimesRowOverVariance[i] = 0.0;
+            for (int j = 0; j < rank; j++) {
+                sumRowOuterProductOverVariance[i][j] = 0.0;
+            }
+        }
+    }
+
+    private void accumulate(Contribution contribution, double sign) {
+        double weight = sign / contribution.variance;
+        double centeredValue = contribution.value - referenceValue;
+        double[] u = contribution.factorRow;
+
+        sumInverseVariance += weight;
+        sumValueOverVariance += centeredValue * weight;
+        sumValueSquaredOverVariance += centeredValue * centeredValue * weight;
+        for (int i = 0; i < rank; i++) {
+            sumRowOverVariance[i] += u[i] * weight;
+            sumValueTimesRowOverVariance[i] += centeredValue * u[i] * weight;
+            for (int j = 0; j < rank; j++) {
+                sumRowOuterProductOverVariance[i][j] += u[i] * u[j] * weight;
+            }
+        }
+    }
+
+    private static class Contribution {
+
+        private final double value;
+        private final double variance;
+        private final double[] factorRow;
+
+        Contribution(double value, double variance, double[] factorRow) {
+            this.value = value;
+            this.variance = variance;
+            this.factorRow = factorRow;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.Tripoli.dataModels;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class AcquisitionColumnStoreTest {
+
+    /**
+     * Test that stored slices, including empty and null ones, are returned
+     * intact across page boundaries.
+     */
+    @Test
+    public void testStoreAndFetch() {
+        AcquisitionColumnStore store = new AcquisitionColumnStore();
+
+        long nullHandle = store.store(null);
+        long emptyHandle = store.store(new double[0]);
+        long[] handles = new long[500];
+        for (int i = 0; i < handles.length; i++) {
+            double[] values = new double[400];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = i * 1000.0 + j;
+            }
+            handles[i] = store.store(values);
+        }
+        store.trimToSize();
+
+        assertNull(store.fetch(nullHandle));
+        assertEquals(-1, store.length(nullHandle));
+        assertEquals(0, store.fetch(emptyHandle).length);
+        for (int i = 0; i < handles.length; i++) {
+            assertEquals(400, store.length(handles[i]));
+            assertEquals(i * 1000.0 + 399, store.get(handles[i], 399), 0.0);
+            assertEquals(i * 1000.0, store.fetch(handles[i])[0], 0.0);
+        }
+    }
+
+    /**
+     * Test that a packed collector reproduces its stored and derived columns.
+     */
+    @Test
+    public void testPackedCollectorDerivesCorrectedIntensities() {
+        VirtualCollectorModel collector = new VirtualCollectorModel(1);
+        collector.setIntensities(new double[]{10.0, 12.0, 5.0});
+        collector.setFitBackgroundIntensities(new double[]{2.0, 2.0, 5.0});
+        collector.setAquireTimes(new double[]{0.0, 1.0, 2.0});
+        collector.correctOnPeakIntensities();
+        collector.adjustNonPositiveCorrectedIntensities();
+        collector.calculateLogOnPeakCorrectedIntensities();
+
+        double[] expectedCorrected = collector.getCorrectedIntensities().clone();
+        double[] expectedLogs = collector.getLogCorrectedIntensities().clone();
+        assertEquals(Double.MIN_VALUE, expectedCorrected[2], 0.0);
+
+        collector.packColumns(new AcquisitionColumnStore());
+        assertTrue(collector.isPacked());
+
+        assertArrayEquals(expectedCorrected, collector.getCorrectedIntensities(), 0.0);
+        assertArrayEquals(expectedLogs, collector.getLogCorrectedIntensities(), 0.0);
+        assertArrayEquals(new double[]{0.0, 1.0, 2.0}, collector.getAquireTimes(), 0.0);
+        // reading does not unpack
+        assertTrue(collector.isPacked());
+    }
+
+    /**
+     * Test that changing a packed collector unpacks it and releases its
+     * slices in the store.
+     */
+    @Test
+    public void testChangeUnpacksAndReleases() {
+        AcquisitionColumnStore store = new AcquisitionColumnStore();
+        VirtualCollectorModel collector = new VirtualCollectorModel(1);
+        collector.setIntensities(new double[]{10.0, 12.0});
+        collector.setAquireTimes(new double[]{0.0, 1.0});
+        collector.packColumns(store);
+        long packedSize = store.getSizeInDoubles();
+        assertEquals(0, store.getReleasedSizeInDoubles());
+
+        collector.setAquireTimes(new double[]{0.0, 2.0});
+        assertFalse(collector.isPacked());
+        assertEquals(packedSize, store.getReleasedSizeInDoubles());
+        assertArrayEquals(new double[]{10.0, 12.0}, collector.getIntensities(), 0.0);
+        assertArrayEquals(new double[]{0.0, 2.0}, collector.getAquireTimes(), 0.0);
+    }
+
+    /**
+     * Test that corrected intensities keep the values of the last correction
+     * when the background fit changes afterwards.
+     */
+    @Test
+    public void testCorrectedIntensitiesRetainedAfterBackgroundChange() {
+        VirtualCollectorModel collector = new VirtualCollectorModel(1);
+        collector.setIntensities(new double[]{10.0, 12.0});
+        collector.setFitBackgroundIntensities(new double[]{2.0, 2.0});
+        collector.correctOnPeakIntensities();
+
+        collector.setFitBackgroundIntensities(new double[]{3.0, 3.0});
+        collector.packColumns(new AcquisitionColumnStore());
+
+        assertArrayEquals(new double[]{8.0, 10.0}, collector.getCorrectedIntensities(), 0.0);
+
+        collector.correctOnPeakIntensities();
+        assertArrayEquals(new double[]{7.0, 9.0}, collector.getCorrectedIntensities(), 0.0);
+    }
+}
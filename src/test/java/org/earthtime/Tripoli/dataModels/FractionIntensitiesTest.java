@@ -0,0 +1,92 @@
+/*
+ * FractionIntensitiesTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.dataModels;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.earthtime.Tripoli.dataModels.collectorModels.AbstractCollectorModel;
+import org.earthtime.Tripoli.dataModels.collectorModels.FaradayCollectorModel;
+import org.earthtime.Tripoli.dataModels.collectorModels.IonCounterCollectorModel;
+import org.earthtime.dataDictionaries.IsotopeNames;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class FractionIntensitiesTest {
+
+    private static RawIntensityDataModel isotopeModel(IsotopeNames isotope, AbstractCollectorModel collectorModel, double[] background, double[] onPeak) {
+        VirtualCollectorModel backgroundCollector = new VirtualCollectorModel(1);
+        backgroundCollector.setIntensities(background);
+        VirtualCollectorModel onPeakCollector = new VirtualCollectorModel(2);
+        onPeakCollector.setIntensities(onPeak);
+        return new RawIntensityDataModel(isotope, backgroundCollector, onPeakCollector, 100, collectorModel);
+    }
+
+    /**
+     * Test that each stage returns a new result, leaving its input and the
+     * models unchanged until applied, and that applying the input again
+     * restores the models.
+     */
+    @Test
+    public void testStagesAreFunctions() {
+        FaradayCollectorModel faraday = new FaradayCollectorModel();
+        IonCounterCollectorModel ionCounter = new IonCounterCollectorModel();
+        RawIntensityDataModel hg202 = isotopeModel(IsotopeNames.Hg202, ionCounter, new double[]{4.346, 8.692}, new double[]{43.46, 86.92});
+        RawIntensityDataModel pb204 = isotopeModel(IsotopeNames.Pb204, ionCounter, new double[]{10.0, 20.0}, new double[]{100.0, 200.0});
+        RawIntensityDataModel pb206 = isotopeModel(IsotopeNames.Pb206, faraday, new double[]{1.0e-5, 2.0e-5}, new double[]{1.0e-3, 2.0e-3});
+        List<DataModelInterface> isotopeModels = Arrays.<DataModelInterface>asList(hg202, pb204, pb206);
+
+        Map<IsotopeNames, AbstractCollectorModel> collectorModels = new EnumMap<>(IsotopeNames.class);
+        collectorModels.put(IsotopeNames.Hg202, ionCounter);
+        collectorModels.put(IsotopeNames.Pb204, ionCounter);
+        collectorModels.put(IsotopeNames.Pb206, faraday);
+
+        FractionIntensities raw = FractionIntensities.of(isotopeModels);
+        FractionIntensities countsPerSecond = raw.convertedToCountsPerSecond(collectorModels);
+        FractionIntensities corrected = countsPerSecond.correctedForIsobaricInterference(IsotopeNames.Hg202, IsotopeNames.Pb204, 4.346);
+
+        double countsPerVolt = FaradayCollectorModel.ResistorEnum.OHMS10e10.getCountsPerVolt();
+        assertArrayEquals(new double[]{1.0e-3 * countsPerVolt, 2.0e-3 * countsPerVolt}, countsPerSecond.getOnPeakIntensities(IsotopeNames.Pb206), 1e-6);
+        assertArrayEquals(new double[]{1.0e-3, 2.0e-3}, raw.getOnPeakIntensities(IsotopeNames.Pb206), 0.0);
+
+        assertArrayEquals(new double[]{90.0, 180.0}, corrected.getOnPeakIntensities(IsotopeNames.Pb204), 1e-12);
+        assertArrayEquals(new double[]{10.0, 20.0}, corrected.getOnPeakCorrections(IsotopeNames.Pb204), 1e-12);
+        assertArrayEquals(new double[]{9.0, 18.0}, corrected.getBackgroundIntensities(IsotopeNames.Pb204), 1e-12);
+        assertArrayEquals(new double[]{100.0, 200.0}, countsPerSecond.getOnPeakIntensities(IsotopeNames.Pb204), 0.0);
+        assertArrayEquals(new double[2], countsPerSecond.getOnPeakCorrections(IsotopeNames.Pb204), 0.0);
+
+        // the models hold what was loaded until a result is applied
+        assertArrayEquals(new double[]{1.0e-3, 2.0e-3}, pb206.getOnPeakVirtualCollector().getIntensities(), 0.0);
+
+        corrected.applyTo(isotopeModels);
+        assertArrayEquals(new double[]{90.0, 180.0}, pb204.getOnPeakVirtualCollector().getIntensities(), 1e-12);
+        assertArrayEquals(new double[]{10.0, 20.0}, pb204.getOnPeakVirtualCollector().getIntensityCorrections(), 1e-12);
+        // changing the models leaves the result unchanged
+        pb204.getOnPeakVirtualCollector().getIntensities()[0] = -1.0;
+        assertArrayEquals(new double[]{90.0, 180.0}, corrected.getOnPeakIntensities(IsotopeNames.Pb204), 1e-12);
+
+        countsPerSecond.applyTo(isotopeModels);
+        assertArrayEquals(new double[]{100.0, 200.0}, pb204.getOnPeakVirtualCollector().getIntensities(), 0.0);
+        assertArrayEquals(new double[2], pb204.getOnPeakVirtualCollector().getIntensityCorrections(), 0.0);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.Tripoli.dataModels;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class IntensityCorrectionStagesTest {
+
+    /**
+     * Test that the isobaric correction leaves its inputs untouched.
+     */
+    @Test
+    public void testCorrectIsobaricInterference() {
+        double[] hg202 = new double[]{4.346, 8.692};
+        double[] pb204 = new double[]{10.0, 20.0};
+
+        double[][] result = IntensityCorrectionStages.correctIsobaricInterference(hg202, pb204, 4.346);
+
+        assertArrayEquals(new double[]{1.0, 2.0}, result[0], 1e-15);
+        assertArrayEquals(new double[]{9.0, 18.0}, result[1], 1e-15);
+        assertArrayEquals(new double[]{10.0, 20.0}, pb204, 0.0);
+    }
+
+    /**
+     * Test background subtraction, zero adjustment and logs.
+     */
+    @Test
+    public void testCorrectionAndLogs() {
+        double[] corrected = IntensityCorrectionStages.subtractBackground(//
+                new double[]{5.0, 3.0, 2.0}, new double[]{1.0, 3.0, 1.0});
+        assertArrayEquals(new double[]{4.0, 0.0, 1.0}, corrected, 0.0);
+
+        double[] adjusted = IntensityCorrectionStages.adjustZeroIntensities(corrected);
+        assertEquals(Double.MIN_VALUE, adjusted[1], 0.0);
+        assertEquals(0.0, corrected[1], 0.0);
+
+        double[] logs = IntensityCorrectionStages.logIntensities(adjusted);
+        assertEquals(Math.log(4.0), logs[0], 0.0);
+        assertEquals(0.0, logs[2], 0.0);
+
+        assertArrayEquals(new double[3], IntensityCorrectionStages.evaluateBackgroundFit(null, new double[3]), 0.0);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * StandardsInformationTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.dataModels;
+
+import Jama.Matrix;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class StandardsInformationTest {
+
+    private static final int COUNT_OF_ACTIVE_DATA = 6;
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * A symmetric covariance-like matrix, positive definite unless indefinite
+     * is true, in which case one diagonal entry is made negative.
+     */
+    private static Matrix covariance(Random random, boolean indefinite) {
+        Matrix a = new Matrix(COUNT_OF_ACTIVE_DATA, COUNT_OF_ACTIVE_DATA);
+        for (int i = 0; i < COUNT_OF_ACTIVE_DATA; i++) {
+            for (int j = 0; j < COUNT_OF_ACTIVE_DATA; j++) {
+                a.set(i, j, random.nextDouble() - 0.5);
+            }
+        }
+        Matrix s = a.times(a.transpose());
+        for (int i = 0; i < COUNT_OF_ACTIVE_DATA; i++) {
+            s.set(i, i, s.get(i, i) + 0.5);
+        }
+        if (indefinite) {
+            s.set(2, 2, -s.get(2, 2));
+        }
+        return s;
+    }
+
+    private static Matrix logRatios(Random random) {
+        Matrix logRatios = new Matrix(COUNT_OF_ACTIVE_DATA, 1);
+        for (int i = 0; i < COUNT_OF_ACTIVE_DATA; i++) {
+            logRatios.set(i, 0, -2.0 + 0.1 * random.nextDouble());
+        }
+        return logRatios;
+    }
+
+    /**
+     * Asserts that the summed information and weighted mean match the sum of
+     * explicit inverses used before, and do not vary between calls.
+     */
+    private static void assertMatchesInverseSum(Matrix[] covariances, Matrix[] logRatios) {
+        Matrix sumInvSlogRatioX_Y = new Matrix(COUNT_OF_ACTIVE_DATA, COUNT_OF_ACTIVE_DATA);
+        Matrix sumInvSlogRatioX_YTimeslr = new Matrix(COUNT_OF_ACTIVE_DATA, 1);
+        for (int i = 0; i < covariances.length; i++) {
+            sumInvSlogRatioX_Y.plusEquals(covariances[i].inverse());
+            sumInvSlogRatioX_YTimeslr.plusEquals(covariances[i].solve(logRatios[i]));
+        }
+        Matrix expectedMean = sumInvSlogRatioX_Y.solve(sumInvSlogRatioX_YTimeslr);
+        Matrix expectedCovariance = sumInvSlogRatioX_Y.inverse();
+
+        Matrix sumInformation = StandardsInformation.sum(covariances.length, COUNT_OF_ACTIVE_DATA, //
+                (int standard) -> StandardsInformation.information(covariances[standard], logRatios[standard]));
+        int n = COUNT_OF_ACTIVE_DATA;
+        assertEquals(0.0, sumInformation.getMatrix(0, n - 1, 0, n - 1).minus(sumInvSlogRatioX_Y).normInf(), //
+                TOLERANCE * sumInvSlogRatioX_Y.normInf());
+        assertEquals(0.0, sumInformation.getMatrix(0, n - 1, n, n).minus(sumInvSlogRatioX_YTimeslr).normInf(), //
+                TOLERANCE * sumInvSlogRatioX_YTimeslr.normInf());
+
+        Matrix weightedMean = StandardsInformation.weightedMean(sumInformation);
+        assertEquals(0.0, weightedMean.getMatrix(0, n - 1, 0, n - 1).minus(expectedCovariance).normInf(), //
+                TOLERANCE * expectedCovariance.normInf());
+        assertEquals(0.0, weightedMean.getMatrix(0, n - 1, n, n).minus(expectedMean).normInf(), //
+                TOLERANCE * expectedMean.normInf());
+
+        Matrix again = StandardsInformation.sum(covariances.length, COUNT_OF_ACTIVE_DATA, //
+                (int standard) -> StandardsInformation.information(covariances[standard], logRatios[standard]));
+        assertArrayEquals(sumInformation.getRowPackedCopy(), again.getRowPackedCopy(), 0.0);
+    }
+
+    /**
+     * Test that the weighted mean of positive definite standards, in more
+     * than one chunk, matches the sum of explicit inverses.
+     */
+    @Test
+    public void testPositiveDefiniteStandards() {
+        Random random = new Random(2017);
+        int countOfStandards = 2 * StandardsInformation.STANDARDS_PER_CHUNK + 3;
+        Matrix[] covariances = new Matrix[countOfStandards];
+        Matrix[] logRatios = new Matrix[countOfStandards];
+        for (int i = 0; i < countOfStandards; i++) {
+            covariances[i] = covariance(random, false);
+            logRatios[i] = logRatios(random);
+        }
+        assertMatchesInverseSum(covariances, logRatios);
+    }
+
+    /**
+     * Test that standards whose covariance is not positive definite, solved
+     * by LU, still match the sum of explicit inverses.
+     */
+    @Test
+    public void testIndefiniteStandards() {
+        Random random = new Random(2016);
+        int countOfStandards = StandardsInformation.STANDARDS_PER_CHUNK + 1;
+        Matrix[] covariances = new Matrix[countOfStandards];
+        Matrix[] logRatios = new Matrix[countOfStandards];
+        for (int i = 0; i < countOfStandards; i++) {
+            covariances[i] = covariance(random, (i % 3) == 0);
+            logRatios[i] = logRatios(random);
+        }
+        assertFalse(covariances[0].chol().isSPD());
+        assertMatchesInverseSum(covariances, logRatios);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * PixelDownsamplerTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.dataViews;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class PixelDownsamplerTest {
+
+    /**
+     * Test that a long acquisition is reduced to one point per marked pixel
+     * and class, keeping the outlier and the excluded points.
+     */
+    @Test
+    public void testEveryMarkedPixelKept() {
+        Random random = new Random(5);
+        int n = 100000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        byte[] classes = new byte[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = 1.0 + 0.01 * random.nextGaussian();
+            classes[i] = (byte) ((i % 1000 == 0) ? 1 : 0);
+        }
+        y[54321] = 1.5;
+
+        // 128 by 150 pane showing x from 0 to n and y from 0.9 to 1.6
+        double scaleX = 128.0 / n;
+        double scaleY = -150.0 / 0.7;
+        double offsetY = 1.6 * 150.0 / 0.7;
+        int[] indices = PixelDownsampler.downsample(x, y, classes, scaleX, 0.0, scaleY, offsetY, 128, 150);
+
+        assertTrue(indices.length < n / 10);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            expected.add(cell(x[i] * scaleX, y[i] * scaleY + offsetY, classes[i]));
+        }
+        Set<Long> drawn = new HashSet<>();
+        for (int k = 0; k < indices.length; k++) {
+            if (k > 0) {
+                assertTrue(indices[k] > indices[k - 1]);
+            }
+            int i = indices[k];
+            assertTrue(drawn.add(cell(x[i] * scaleX, y[i] * scaleY + offsetY, classes[i])));
+        }
+        assertEquals(expected, drawn);
+
+        int excluded = 0;
+        boolean outlier = false;
+        for (int i : indices) {
+            excluded += classes[i];
+            outlier |= (i == 54321);
+        }
+        assertEquals(100, excluded);
+        assertTrue(outlier);
+    }
+
+    /**
+     * Test that the points are cached for a mapping and recomputed for
+     * another, and that points off the pane or not finite are dropped.
+     */
+    @Test
+    public void testCachedPerMapping() {
+        double[] x = new double[]{0.0, 1.0, 2.0, 3.0, Double.NaN};
+        double[] y = new double[]{0.0, 0.1, 50.0, 0.2, 0.0};
+        PixelDownsampler downsampler = new PixelDownsampler();
+
+        int[] indices = downsampler.indicesToDraw(x, y, null, 0.1, 10.0, 1.0, 10.0, 20, 20);
+        assertArrayEquals(new int[]{0}, indices);
+        assertSame(indices, downsampler.indicesToDraw(x, y, null, 0.1, 10.0, 1.0, 10.0, 20, 20));
+
+        assertArrayEquals(new int[]{0, 1, 3}, downsampler.indicesToDraw(x, y, null, 5.0, 0.0, 1.0, 10.0, 20, 20));
+        assertArrayEquals(new int[]{0, 1}, downsampler.indicesToDraw(x, y, new byte[]{0, 1, 0, 1, 0}, 0.1, 10.0, 1.0, 10.0, 20, 20));
+
+        downsampler.clear();
+        assertNotSame(indices, downsampler.indicesToDraw(x, y, null, 0.1, 10.0, 1.0, 10.0, 20, 20));
+    }
+
+    private static long cell(double pixelX, double pixelY, byte pointClass) {
+        return (((long) Math.floor(pixelX + 2.0)) << 32) | (((long) Math.floor(pixelY + 2.0)) << 8) | pointClass;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * VirtualizedColumnsTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.Tripoli.dataViews.overlayViews;
+
+import javax.swing.JLayeredPane;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class VirtualizedColumnsTest {
+
+    /**
+     * Test that only the columns within the range are attached, in each of
+     * their parents, as the range scrolls across 1000 fractions.
+     */
+    @Test
+    public void testColumnsAttachedWithinRange() {
+        JLayeredPane view = new JLayeredPane();
+        JLayeredPane header = new JLayeredPane();
+        VirtualizedColumns columns = new VirtualizedColumns();
+        JLayeredPane[] dataColumns = new JLayeredPane[1000];
+        JLayeredPane[] infoColumns = new JLayeredPane[1000];
+        for (int f = 0; f < 1000; f++) {
+            dataColumns[f] = new JLayeredPane();
+            dataColumns[f].setBounds(f * 100, 0, 96, 400);
+            columns.add(view, dataColumns[f]);
+            infoColumns[f] = new JLayeredPane();
+            infoColumns[f].setBounds(f * 100, 0, 96, 110);
+            columns.add(header, infoColumns[f]);
+        }
+        assertEquals(2000, columns.size());
+        assertEquals(0, view.getComponentCount());
+
+        // columns 2 through 5 lie within x = 250 to 550
+        assertEquals(8, columns.update(250, 550));
+        assertEquals(4, view.getComponentCount());
+        assertEquals(4, header.getComponentCount());
+        assertSame(header, infoColumns[2].getParent());
+        assertNull(dataColumns[1].getParent());
+
+        // scrolled along
+        columns.update(50250, 50550);
+        assertEquals(4, view.getComponentCount());
+        assertNull(dataColumns[2].getParent());
+        assertSame(view, dataColumns[503].getParent());
+
+        columns.attachAll();
+        assertEquals(1000, view.getComponentCount());
+        assertEquals(1000, header.getComponentCount());
+
+        columns.clear();
+        assertEquals(0, columns.size());
+        assertEquals(0, columns.update(0, 1000));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.Tripoli.massSpecSetups;
+
+import java.util.Arrays;
+import java.util.List;
+import org.earthtime.dataDictionaries.FractionProcessingStagesEnum;
+import org.earthtime.dataDictionaries.TripoliProcessingSettingsEnum;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class FractionStageDependencyTrackerTest {
+
+    /**
+     * Test that a change invalidates only downstream stages, and only until
+     * the fraction is processed again.
+     */
+    @Test
+    public void testSettingChangeInvalidatesDownstreamStages() {
+        FractionStageDependencyTracker tracker = new FractionStageDependencyTracker();
+        tracker.fractionProcessed("A", FractionProcessingStagesEnum.RAW_INTENSITIES);
+        assertNull(tracker.getFirstStaleStage("A"));
+        assertFalse(tracker.isSessionFitStale());
+
+        tracker.settingChanged(TripoliProcessingSettingsEnum.DEAD_TIMES);
+        assertEquals(FractionProcessingStagesEnum.BACKGROUND_FITTING, tracker.getFirstStaleStage("A"));
+        // never seen by the tracker
+        assertEquals(FractionProcessingStagesEnum.BACKGROUND_FITTING, tracker.getFirstStaleStage("B"));
+        assertFalse(tracker.isRawDataReloadRequired("A"));
+        assertTrue(tracker.isSessionFitStale());
+
+        tracker.fractionProcessed("A", FractionProcessingStagesEnum.INTERCEPT_FITTING);
+        assertEquals(FractionProcessingStagesEnum.BACKGROUND_FITTING, tracker.getFirstStaleStage("A"));
+
+        tracker.fractionProcessed("A", FractionProcessingStagesEnum.BACKGROUND_FITTING);
+        assertNull(tracker.getFirstStaleStage("A"));
+        assertTrue(tracker.isSessionFitStale());
+
+        tracker.sessionFitted();
+        assertFalse(tracker.isSessionFitStale());
+    }
+
+    /**
+     * Test per-fraction and session-only settings, and settings that need the
+     * raw data reloaded.
+     */
+    @Test
+    public void testScopeOfSettings() {
+        FractionStageDependencyTracker tracker = new FractionStageDependencyTracker();
+
+        tracker.settingChanged(TripoliProcessingSettingsEnum.BACKGROUND_FIT_FUNCTION, "A");
+        tracker.settingChanged(TripoliProcessingSettingsEnum.PRIMARY_STANDARD_MODEL);
+        assertEquals(FractionProcessingStagesEnum.BACKGROUND_FITTING, tracker.getFirstStaleStage("A"));
+        assertNull(tracker.getFirstStaleStage("B"));
+        assertTrue(tracker.getChangedSettings().contains(TripoliProcessingSettingsEnum.PRIMARY_STANDARD_MODEL));
+
+        tracker.settingChanged(TripoliProcessingSettingsEnum.RELATIVE_GAINS);
+        assertEquals(FractionProcessingStagesEnum.COUNTS_PER_SECOND, tracker.getFirstStaleStage("B"));
+        assertFalse(tracker.isRawDataReloadRequired("B"));
+
+        tracker.settingChanged(TripoliProcessingSettingsEnum.RESISTORS);
+        assertTrue(tracker.isRawDataReloadRequired("B"));
+
+        tracker.reset();
+        assertNull(tracker.getFirstStaleStage("A"));
+        assertFalse(tracker.isSessionFitStale());
+    }
+
+    /**
+     * Test that the record of changes is cleared only once every fraction and
+     * the session fits are up to date.
+     */
+    @Test
+    public void testResetIfUpToDate() {
+        FractionStageDependencyTracker tracker = new FractionStageDependencyTracker();
+        List<String> fractionIDs = Arrays.asList("A", "B");
+
+        tracker.settingChanged(TripoliProcessingSettingsEnum.UNCERTAINTY_PROPAGATION);
+        tracker.fractionProcessed("A", FractionProcessingStagesEnum.BACKGROUND_FITTING);
+        tracker.sessionFitted();
+        assertFalse(tracker.resetIfUpToDate(fractionIDs));
+        assertEquals(FractionProcessingStagesEnum.BACKGROUND_FITTING, tracker.getFirstStaleStage("B"));
+
+        tracker.fractionProcessed("B", FractionProcessingStagesEnum.BACKGROUND_FITTING);
+        assertTrue(tracker.resetIfUpToDate(fractionIDs));
+        assertNull(tracker.getFirstStaleStage("A"));
+        assertNull(tracker.getFirstStaleStage("B"));
+        assertTrue(tracker.getChangedSettings().isEmpty());
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation;
+
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class DensityPeakFinderTest {
+
+    /**
+     * Test ranking by prominence and the prominence threshold on two peaks
+     * with a small shoulder and flat zero tails.
+     */
+    @Test
+    public void testPeaksRankedByProminence() {
+        double[] points = new double[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+        double[] density = new double[]{0, 0, 1, 3, 1, 2, 1.9, 2.1, 0.5, 0, 0, 0};
+
+        List<DensityPeakFinder.Peak> peaks = DensityPeakFinder.findPeaks(points, density, 0.0);
+        assertEquals(3, peaks.size());
+        assertEquals(3.0, peaks.get(0).getLocation(), 0.0);
+        assertEquals(3.0, peaks.get(0).getProminence(), 1E-12);
+        // 2.1 at 7 merges with 3 at the saddle 1 at 4
+        assertEquals(7.0, peaks.get(1).getLocation(), 0.0);
+        assertEquals(1.1, peaks.get(1).getProminence(), 1E-12);
+        // 2 at 5 merges with 2.1 at the saddle 1.9 at 6
+        assertEquals(5.0, peaks.get(2).getLocation(), 0.0);
+        assertEquals(0.1, peaks.get(2).getProminence(), 1E-12);
+
+        peaks = DensityPeakFinder.findPeaks(points, density, 0.5);
+        assertEquals(2, peaks.size());
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class IncrementalHistogramTest {
+
+    /**
+     * Test counts after toggling values and changing the bin width against
+     * direct binning.
+     */
+    @Test
+    public void testCountsMatchDirectBinning() {
+        IncrementalHistogram histogram = new IncrementalHistogram();
+        Random random = new Random(7);
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 4000.0 * random.nextDouble();
+            histogram.add("F" + i, values[i]);
+        }
+        for (int i = 0; i < values.length; i += 3) {
+            histogram.remove("F" + i);
+        }
+        // replacing a value moves it
+        histogram.add("F1", 10.0);
+        values[1] = 10.0;
+        assertEquals(values.length - 334, histogram.size());
+
+        for (double binWidth : new double[]{20.0, 75.0}) {
+            int binCount = 30;
+            int[] counts = histogram.getCounts(500.0, binWidth, binCount, 2000.0);
+            int[] expected = new int[binCount];
+            for (int i = 0; i < values.length; i++) {
+                if ((i % 3 != 0) && (values[i] >= 500.0) && (values[i] <= 2000.0)) {
+                    int bin = (int) Math.floor((values[i] - 500.0) / binWidth);
+                    if (bin < binCount) {
+                        expected[bin]++;
+                    }
+                }
+            }
+            assertArrayEquals(expected, counts);
+        }
+
+        double[] inRange = histogram.getValuesInRange(0.0, 100.0);
+        assertEquals(inRange.length, histogram.countInRange(0.0, 100.0));
+        double[] sorted = inRange.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, inRange, 0.0);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class ProbabilityDensityEngineTest {
+
+    private static double gaussian(double x, double mean, double variance) {
+        return Math.exp(-(x - mean) * (x - mean) / (2.0 * variance)) / Math.sqrt(2.0 * Math.PI * variance);
+    }
+
+    /**
+     * Test that grid densities after adds and removes match a direct sum, per
+     * group, and that excluding a kernel matches removing it.
+     */
+    @Test
+    public void testAddRemoveMatchesDirectSum() {
+        double[] grid = new double[4001];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = i;
+        }
+        ProbabilityDensityEngine engine = new ProbabilityDensityEngine(grid, 2);
+
+        Random random = new Random(3);
+        int count = 2000;
+        double[] means = new double[count];
+        double[] variances = new double[count];
+        for (int k = 0; k < count; k++) {
+            means[k] = 4000.0 * random.nextDouble();
+            variances[k] = Math.pow(0.02 * means[k] + 1.0, 2);
+            // groups beyond the initial count are grown
+            engine.add("F" + k, means[k], variances[k], 1 + (k % 3));
+        }
+        for (int k = 0; k < count; k += 2) {
+            engine.remove("F" + k);
+        }
+        assertEquals(count / 2, engine.size());
+
+        for (int i = 0; i < grid.length; i += 7) {
+            double all = 0.0;
+            double groupTwo = 0.0;
+            for (int k = 1; k < count; k += 2) {
+                double value = gaussian(grid[i], means[k], variances[k]);
+                all += value;
+                if ((1 + (k % 3)) == 2) {
+                    groupTwo += value;
+                }
+            }
+            // truncation at six sigma leaves about 1E-8 of each kernel
+            assertEquals(all, engine.getDensity(0)[i], 1E-7);
+            assertEquals(groupTwo, engine.getDensity(2)[i], 1E-7);
+        }
+
+        double[] excluded = engine.getDensityExcluding(0, Arrays.asList("F1", "F2"));
+        engine.remove("F1");
+        double[] removed = engine.getDensity(0);
+        for (int i = 0; i < grid.length; i++) {
+            assertEquals(removed[i], excluded[i], 1E-12);
+        }
+    }
+
+    /**
+     * Test evaluation on a refined grid merged with dates against the grid
+     * densities at shared points.
+     */
+    @Test
+    public void testRefinedEvaluation() {
+        double[] grid = new double[101];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = i;
+        }
+        ProbabilityDensityEngine engine = new ProbabilityDensityEngine(grid, 2);
+        engine.add("A", 40.25, 0.04, 1);
+        engine.add("B", 41.5, 9.0, 1);
+
+        double[] refined = ProbabilityDensityEngine.buildRefinedGrid(40.0, 42.0, 9, engine.getSortedMeans());
+        assertEquals(11, refined.length);
+        for (int i = 1; i < refined.length; i++) {
+            assertTrue(refined[i] >= refined[i - 1]);
+        }
+
+        double[] density = engine.evaluate(refined, 0, Collections.<String>emptySet());
+        // 40.0 and 42.0 are shared with the stored grid
+        assertEquals(engine.getDensity(0)[40], density[0], 1E-15);
+        assertEquals(engine.getDensity(0)[42], density[refined.length - 1], 1E-15);
+        // 40.25 is the mean of A
+        assertEquals(gaussian(40.25, 40.25, 0.04) + gaussian(40.25, 41.5, 9.0), density[2], 1E-12);
+
+        double[] withoutA = engine.evaluate(refined, 1, Collections.singleton("A"));
+        assertEquals(gaussian(40.25, 41.5, 9.0), withoutA[2], 1E-12);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * ConcordiaCurveCacheTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation.concordia;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class ConcordiaCurveCacheTest {
+
+    private static final double LAMBDA235 = 9.8485e-10;
+    private static final double LAMBDA238 = 1.55125e-10;
+
+    // records each view built for, and builds a concordia from the view's dates
+    private static class RecordingBuilder implements ConcordiaCurveCache.CurveBuilder {
+
+        private final List<double[]> views = new ArrayList<>();
+        private double maxBuildableY = Double.MAX_VALUE;
+
+        @Override
+        public ConcordiaCurveCache.Curve build(double minX, double minY, double maxX, double maxY) {
+            views.add(new double[]{minX, minY, maxX, maxY});
+            double minT = Math.max(Math.log1p(minX) / LAMBDA235, Math.log1p(minY) / LAMBDA238);
+            double maxT = (maxY > maxBuildableY) ? Double.NaN
+                    : Math.min(Math.log1p(maxX) / LAMBDA235, Math.log1p(maxY) / LAMBDA238);
+            Path2D concordia = new Path2D.Double();
+            concordia.moveTo(Math.expm1(LAMBDA235 * minT), Math.expm1(LAMBDA238 * minT));
+            concordia.lineTo(Math.expm1(LAMBDA235 * maxT), Math.expm1(LAMBDA238 * maxT));
+            Path2D upper = new Path2D.Double();
+            upper.moveTo(minX, minY);
+            upper.lineTo(maxX, maxY);
+            Path2D lower = new Path2D.Double();
+            lower.moveTo(maxX, minY);
+            lower.lineTo(minX, minY);
+            return new ConcordiaCurveCache.Curve(minX, minY, maxX, maxY, concordia, upper, lower);
+        }
+    }
+
+    /**
+     * Test that a curve is built for the enlarged view and reused while
+     * panning and zooming stay within it.
+     */
+    @Test
+    public void testCurveReusedWithinOverscan() {
+        ConcordiaCurveCache cache = new ConcordiaCurveCache();
+        RecordingBuilder builder = new RecordingBuilder();
+        String key = ConcordiaCurveCache.curveKey("C", LAMBDA235, 1.3e-12, LAMBDA238, 8.3e-14);
+
+        ConcordiaCurveCache.Curve curve = cache.getCurve(key, 1.0, 0.1, 3.0, 0.3, builder);
+        assertEquals(1, builder.views.size());
+        assertArrayEquals(new double[]{0.5, 0.05, 4.0, 0.4}, builder.views.get(0), 1e-12);
+
+        // pan a little, zoom in a little
+        assertSame(curve, cache.getCurve(key, 1.2, 0.12, 3.2, 0.32, builder));
+        assertSame(curve, cache.getCurve(key, 1.5, 0.15, 2.5, 0.25, builder));
+        assertEquals(1, builder.views.size());
+
+        // out of the enlarged view, then zoomed in too far for its resolution
+        assertNotSame(curve, cache.getCurve(key, 3.5, 0.35, 5.5, 0.55, builder));
+        curve = cache.getCurve(key, 4.0, 0.4, 5.0, 0.5, builder);
+        assertSame(curve, cache.getCurve(key, 4.2, 0.42, 4.8, 0.48, builder));
+        cache.getCurve(key, 4.49, 0.449, 4.51, 0.451, builder);
+        assertEquals(4, builder.views.size());
+
+        // other decay constants are another curve
+        cache.getCurve(ConcordiaCurveCache.curveKey("C", LAMBDA235, 0.0, LAMBDA238, 0.0), 4.49, 0.449, 4.51, 0.451, builder);
+        assertEquals(5, builder.views.size());
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * Test that a curve not finite over the enlarged view is built for the
+     * view itself.
+     */
+    @Test
+    public void testCurveBuiltForViewWhenOverscanFails() {
+        ConcordiaCurveCache cache = new ConcordiaCurveCache();
+        RecordingBuilder builder = new RecordingBuilder();
+        builder.maxBuildableY = 0.5;
+
+        cache.getCurve("T-W", 0.0, 0.1, 1.0, 0.4, builder);
+        assertEquals(2, builder.views.size());
+        assertArrayEquals(new double[]{0.0, 0.05, 1.5, 0.55}, builder.views.get(0), 1e-12);
+        assertArrayEquals(new double[]{0.0, 0.1, 1.0, 0.4}, builder.views.get(1), 1e-12);
+    }
+
+    /**
+     * Test that the display paths are transformed copies and the envelope is
+     * closed from the upper and lower envelopes.
+     */
+    @Test
+    public void testDisplayPaths() {
+        RecordingBuilder builder = new RecordingBuilder();
+        ConcordiaCurveCache.Curve curve = builder.build(1.0, 0.1, 3.0, 0.3);
+        AffineTransform dataToDisplay = new AffineTransform(100.0, 0.0, 0.0, -1000.0, 40.0, 500.0);
+
+        Path2D envelope = curve.getErrorEnvelopePath(dataToDisplay);
+        Rectangle2D bounds = envelope.getBounds2D();
+        assertEquals(140.0, bounds.getMinX(), 1e-9);
+        assertEquals(340.0, bounds.getMaxX(), 1e-9);
+        assertEquals(200.0, bounds.getMinY(), 1e-9);
+        assertEquals(400.0, bounds.getMaxY(), 1e-9);
+        assertTrue(envelope.contains(300.0, 390.0));
+
+        // the cached paths are unchanged
+        assertEquals(bounds, curve.getErrorEnvelopePath(dataToDisplay).getBounds2D());
+        Path2D concordia = curve.getConcordiaPath(dataToDisplay);
+        assertEquals(curve.getConcordiaPath(new AffineTransform()).getBounds2D().getMinX() * 100.0 + 40.0,
+                concordia.getBounds2D().getMinX(), 1e-9);
+    }
+}
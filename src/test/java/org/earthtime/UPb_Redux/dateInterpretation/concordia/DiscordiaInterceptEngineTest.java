@@ -0,0 +1,98 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation.concordia;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class DiscordiaInterceptEngineTest {
+
+    private static final double LAMBDA235 = 9.8485E-10;
+    private static final double LAMBDA238 = 1.55125E-10;
+    private static final double UPPER_DATE = 2.0E9;
+    private static final double LOWER_DATE = 3.0E8;
+
+    private static double[] discordiaThroughDates() {
+        double x1 = Math.expm1(LAMBDA235 * LOWER_DATE);
+        double y1 = Math.expm1(LAMBDA238 * LOWER_DATE);
+        double x2 = Math.expm1(LAMBDA235 * UPPER_DATE);
+        double y2 = Math.expm1(LAMBDA238 * UPPER_DATE);
+        double slope = (y2 - y1) / (x2 - x1);
+
+        return new double[]{y1 - slope * x1, slope, x1, x2};
+    }
+
+    /**
+     * Test that both intercepts of a line through two concordia points are
+     * recovered, and that a line missing concordia gives NaN.
+     */
+    @Test
+    public void testSolveIntercepts() {
+        double[] line = discordiaThroughDates();
+
+        double[] intercepts = DiscordiaInterceptEngine.solveIntercepts(line[0], line[1], LAMBDA235, LAMBDA238);
+        assertEquals(UPPER_DATE, intercepts[0], 1.0);
+        assertEquals(LOWER_DATE, intercepts[1], 1.0);
+
+        // shifted well above concordia
+        intercepts = DiscordiaInterceptEngine.solveIntercepts(line[0] + 1.0, line[1], LAMBDA235, LAMBDA238);
+        assertTrue(Double.isNaN(intercepts[0]));
+        assertTrue(Double.isNaN(intercepts[1]));
+    }
+
+    /**
+     * Test that the bootstrap is reproducible for a seed and brackets the
+     * true dates.
+     */
+    @Test
+    public void testBootstrapIntercepts() {
+        double[] line = discordiaThroughDates();
+        int pointCount = 200;
+        Random random = new Random(17);
+
+        double[] X = new double[pointCount];
+        double[] Y = new double[pointCount];
+        double[] sigmaX = new double[pointCount];
+        double[] sigmaY = new double[pointCount];
+        double[] rho = new double[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            double x = line[2] + (line[3] - line[2]) * random.nextDouble();
+            sigmaX[i] = 0.002 * x;
+            sigmaY[i] = 0.002 * (line[0] + line[1] * x);
+            rho[i] = 0.5;
+            X[i] = x + sigmaX[i] * random.nextGaussian();
+            Y[i] = line[0] + line[1] * x + sigmaY[i] * random.nextGaussian();
+        }
+
+        DiscordiaInterceptEngine.BootstrapResult first = DiscordiaInterceptEngine.bootstrapIntercepts(//
+                X, Y, sigmaX, sigmaY, rho, LAMBDA235, LAMBDA238, 10000, 42L);
+        DiscordiaInterceptEngine.BootstrapResult second = DiscordiaInterceptEngine.bootstrapIntercepts(//
+                X, Y, sigmaX, sigmaY, rho, LAMBDA235, LAMBDA238, 10000, 42L);
+        assertArrayEquals(first.getUpperIntercepts(), second.getUpperIntercepts(), 0.0);
+        assertArrayEquals(first.getLowerIntercepts(), second.getLowerIntercepts(), 0.0);
+
+        double[] upperInterval = first.getUpperInterceptInterval(0.95);
+        double[] lowerInterval = first.getLowerInterceptInterval(0.95);
+        assertTrue(upperInterval[0] < upperInterval[1]);
+        assertTrue((upperInterval[0] < UPPER_DATE + 5.0E7) && (upperInterval[1] > UPPER_DATE - 5.0E7));
+        assertTrue((lowerInterval[0] < LOWER_DATE + 5.0E7) && (lowerInterval[1] > LOWER_DATE - 5.0E7));
+    }
+}
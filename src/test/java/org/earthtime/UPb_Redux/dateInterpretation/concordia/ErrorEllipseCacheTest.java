@@ -0,0 +1,128 @@
+/*
+ * ErrorEllipseCacheTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation.concordia;
+
+import Jama.Matrix;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Collections;
+import org.earthtime.plots.PlotAxesSetup;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class ErrorEllipseCacheTest {
+
+    // the calculation of ErrorEllipse, without its value models
+    private static Matrix errorEllipseControlPoints(double x, double y, double xOneSigmaAbs, double yOneSigmaAbs, double rho, double ellipseSize) {
+        double k = 4.0 / 3.0 * (Math.sqrt(2.0) - 1.0);
+        Matrix cntrlPointsMatrix = new Matrix(new double[][]{
+            {1.0, 0.0}, {1.0, k}, {k, 1.0}, {0.0, 1.0}, {-k, 1.0}, {-1.0, k}, {-1.0, 0.0},
+            {-1.0, -k}, {-k, -1.0}, {0.0, -1.0}, {k, -1.0}, {1.0, -k}, {1.0, 0.0}});
+
+        double covarianceX_Y = rho * xOneSigmaAbs * yOneSigmaAbs;
+        Matrix covMat = new Matrix(new double[][]{
+            {Math.pow(xOneSigmaAbs, 2), covarianceX_Y},
+            {covarianceX_Y, Math.pow(yOneSigmaAbs, 2)}});
+        Matrix R = covMat.chol().getL().transpose();
+
+        Matrix ellipseControlPoints = cntrlPointsMatrix.times(ellipseSize).times(R);
+        for (int i = 0; i < 13; i++) {
+            ellipseControlPoints.set(i, 0, ellipseControlPoints.get(i, 0) + x);
+            ellipseControlPoints.set(i, 1, ellipseControlPoints.get(i, 1) + y);
+        }
+        return ellipseControlPoints;
+    }
+
+    private static PlotAxesSetup axes(double minX, double maxX, double minY, double maxY) {
+        PlotAxesSetup axes = new PlotAxesSetup();
+        axes.getXaxisSetup().setMin(minX);
+        axes.getXaxisSetup().setMax(maxX);
+        axes.getYaxisSetup().setMin(minY);
+        axes.getYaxisSetup().setMax(maxY);
+        axes.setLeftMargin(40);
+        axes.setTopMargin(25);
+        axes.setGraphWidth(610.0);
+        axes.setGraphHeight(480.0);
+        return axes;
+    }
+
+    /**
+     * Test of controlPoints against the Cholesky factor of ErrorEllipse.
+     */
+    @Test
+    public void testControlPointsMatchErrorEllipse() {
+        double[][] cases = {
+            {1.65, 0.165, 0.012, 0.0009, 0.87},
+            {14.2, 0.0718, 0.3, 0.004, -0.4},
+            {0.3, 0.05, 0.001, 0.002, 0.0},
+            {5.0, 2.0, 0.2, 0.1, 1.0}};
+        for (double[] c : cases) {
+            Matrix expected = errorEllipseControlPoints(c[0], c[1], c[2], c[3], c[4], 2.0);
+            double[] points = ErrorEllipseCache.controlPoints(c[0], c[1], c[2], c[3], c[4], 2.0);
+            for (int i = 0; i < ErrorEllipseCache.CONTROL_POINT_COUNT; i++) {
+                assertEquals(expected.get(i, 0), points[2 * i], 1e-12);
+                assertEquals(expected.get(i, 1), points[2 * i + 1], 1e-12);
+            }
+        }
+    }
+
+    /**
+     * Test that the display path maps the control points as mapX and mapY do,
+     * and is reused until the values or the view change.
+     */
+    @Test
+    public void testDisplayPathFollowsView() {
+        PlotAxesSetup axes = axes(1.2, 2.4, 0.12, 0.21);
+        ErrorEllipseCache cache = new ErrorEllipseCache();
+
+        Path2D first = cache.getDisplayPath("0:a", 1.65, 0.165, 0.012, 0.0009, 0.87, 2.0, axes.getDataToDisplayTransform());
+        double[] points = ErrorEllipseCache.controlPoints(1.65, 0.165, 0.012, 0.0009, 0.87, 2.0);
+        double[] segment = new double[6];
+        PathIterator iterator = first.getPathIterator(null);
+        assertEquals(PathIterator.SEG_MOVETO, iterator.currentSegment(segment));
+        assertEquals(axes.mapX(points[0]), segment[0], 1e-9);
+        assertEquals(axes.mapY(points[1]), segment[1], 1e-9);
+        for (int i = 1; i < ErrorEllipseCache.CONTROL_POINT_COUNT; i += 3) {
+            iterator.next();
+            assertEquals(PathIterator.SEG_CUBICTO, iterator.currentSegment(segment));
+            for (int j = 0; j < 3; j++) {
+                assertEquals(axes.mapX(points[2 * (i + j)]), segment[2 * j], 1e-9);
+                assertEquals(axes.mapY(points[2 * (i + j) + 1]), segment[2 * j + 1], 1e-9);
+            }
+        }
+
+        AffineTransform sameView = axes.getDataToDisplayTransform();
+        assertSame(first, cache.getDisplayPath("0:a", 1.65, 0.165, 0.012, 0.0009, 0.87, 2.0, sameView));
+        assertNotSame(first, cache.getDisplayPath("0:a", 1.65, 0.165, 0.012, 0.0009, 0.5, 2.0, sameView));
+
+        PlotAxesSetup zoomed = axes(1.5, 1.8, 0.15, 0.18);
+        Path2D moved = cache.getDisplayPath("0:a", 1.65, 0.165, 0.012, 0.0009, 0.5, 2.0, zoomed.getDataToDisplayTransform());
+        assertEquals(zoomed.mapX(1.65), moved.getBounds2D().getCenterX(), 1e-9);
+        assertEquals(zoomed.mapY(0.165), moved.getBounds2D().getCenterY(), 1e-9);
+
+        cache.getDisplayPath("0:b", 2.0, 0.19, 0.01, 0.001, 0.2, 2.0, sameView);
+        assertEquals(2, cache.size());
+        cache.retainAll(Collections.singleton("0:b"));
+        assertEquals(1, cache.size());
+    }
+}
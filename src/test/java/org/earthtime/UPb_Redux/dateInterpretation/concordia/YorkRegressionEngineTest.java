@@ -0,0 +1,128 @@
+/*
+ * YorkRegressionEngineTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation.concordia;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class YorkRegressionEngineTest {
+
+    // Pearson's data with York's weights, the benchmark of York et al. (2004)
+    private static final double[] X = {0.0, 0.9, 1.8, 2.6, 3.3, 4.4, 5.2, 6.1, 6.5, 7.4};
+    private static final double[] Y = {5.9, 5.4, 4.4, 4.6, 3.5, 3.7, 2.8, 2.8, 2.4, 1.5};
+    private static final double[] WEIGHT_X = {1000, 1000, 500, 800, 200, 80, 60, 20, 1.8, 1};
+    private static final double[] WEIGHT_Y = {1, 1.8, 4, 8, 20, 20, 70, 70, 100, 500};
+
+    private static double[] sigmas(double[] weights) {
+        double[] sigmas = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            sigmas[i] = 1.0 / Math.sqrt(weights[i]);
+        }
+        return sigmas;
+    }
+
+    /**
+     * Test of fit against the published solution for Pearson's data.
+     */
+    @Test
+    public void testPearsonYorkBenchmark() {
+        YorkRegressionEngine engine = new YorkRegressionEngine(X, Y, sigmas(WEIGHT_X), sigmas(WEIGHT_Y), new double[X.length]);
+        YorkRegressionEngine.Solution solution = engine.fit();
+
+        assertTrue(solution.isValid());
+        assertTrue(solution.isConverged());
+        assertEquals(-0.4805334, solution.getSlope(), 1e-6);
+        assertEquals(5.4799102, solution.getYIntercept(), 1e-6);
+        assertEquals(0.0576, Math.sqrt(solution.getSlopeVariance()), 1e-3);
+        assertEquals(0.2950, Math.sqrt(solution.getYInterceptVariance()), 1e-3);
+        assertEquals(10, solution.getCount());
+
+        YorkLineFit yorkLineFit = new YorkLineFit(X, Y, sigmas(WEIGHT_X), sigmas(WEIGHT_Y), new double[X.length]);
+        assertEquals(solution.getSlope(), yorkLineFit.getSlope(), 0.0);
+        assertEquals(solution.getRhoYIntercept__slope(), yorkLineFit.getRhoYIntercept__slope(), 0.0);
+    }
+
+    /**
+     * Test that toggling a point warm-starts to the same fit as starting
+     * afresh, and that offsets far from the origin do not change the slope.
+     */
+    @Test
+    public void testToggledFitMatchesFreshFit() {
+        Random random = new Random(5);
+        int n = 300;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] sigmaX = new double[n];
+        double[] sigmaY = new double[n];
+        double[] rho = new double[n];
+        for (int i = 0; i < n; i++) {
+            double t = random.nextDouble();
+            sigmaX[i] = 0.002 + 0.002 * random.nextDouble();
+            sigmaY[i] = 0.001 + 0.001 * random.nextDouble();
+            rho[i] = 0.9 * random.nextDouble();
+            x[i] = 1.0e4 + t + sigmaX[i] * random.nextGaussian();
+            y[i] = 0.2 + 0.16 * t + sigmaY[i] * random.nextGaussian();
+        }
+
+        YorkRegressionEngine engine = new YorkRegressionEngine(x, y, sigmaX, sigmaY, rho);
+        YorkRegressionEngine.Solution all = engine.fit();
+        assertEquals(0.16, all.getSlope(), 0.01);
+        assertSame(all, engine.fit());
+
+        boolean[] included = new boolean[n];
+        Arrays.fill(included, true);
+        for (int toggle = 0; toggle < 20; toggle++) {
+            int index = random.nextInt(n);
+            included[index] = !included[index];
+            engine.setIncluded(index, included[index]);
+            YorkRegressionEngine.Solution warm = engine.fit();
+
+            YorkRegressionEngine fresh = new YorkRegressionEngine(x, y, sigmaX, sigmaY, rho);
+            fresh.setIncluded(included);
+            YorkRegressionEngine.Solution cold = fresh.fit();
+
+            // both stop within the relative tolerance of 1e-10 of the same slope
+            assertTrue(warm.isConverged() && cold.isConverged());
+            assertEquals(cold.getSlope(), warm.getSlope(), 1e-9);
+            assertEquals(cold.getYIntercept(), warm.getYIntercept(), 1e-5);
+            assertEquals(cold.getSlopeVariance(), warm.getSlopeVariance(), 1e-7 * cold.getSlopeVariance());
+            assertEquals(cold.getCovYIntercept__slope(), warm.getCovYIntercept__slope(), 1e-7 * Math.abs(cold.getCovYIntercept__slope()));
+            assertTrue(warm.getIterations() <= cold.getIterations());
+        }
+        assertTrue(engine.hasData(x, y, sigmaX, sigmaY, rho));
+    }
+
+    /**
+     * Test that too few points give an invalid solution.
+     */
+    @Test
+    public void testTooFewPoints() {
+        YorkRegressionEngine engine = new YorkRegressionEngine(X, Y, sigmas(WEIGHT_X), sigmas(WEIGHT_Y), new double[X.length]);
+        for (int i = 1; i < X.length; i++) {
+            engine.setIncluded(i, false);
+        }
+        assertEquals(1, engine.getIncludedCount());
+        assertFalse(engine.fit().isValid());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.UPb_Redux.dateInterpretation.vermeeschKDE;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class PrimitiveFFTTest {
+
+    /**
+     * Test the complex, inverse and real-input transforms against FFT for
+     * several lengths.
+     */
+    @Test
+    public void testMatchesComplexFFT() {
+        Random random = new Random(5);
+        for (int n : new int[]{1, 2, 4, 8, 64, 4096}) {
+            PrimitiveFFT primitiveFFT = new PrimitiveFFT(n);
+            Complex[] x = new Complex[n];
+            double[] interleaved = new double[2 * n];
+            double[] real = new double[n];
+            for (int i = 0; i < n; i++) {
+                real[i] = random.nextGaussian();
+                x[i] = new Complex(real[i], random.nextGaussian());
+                interleaved[2 * i] = x[i].re();
+                interleaved[2 * i + 1] = x[i].im();
+            }
+
+            Complex[] expected = FFT.fft(x);
+            primitiveFFT.fft(interleaved);
+            assertInterleavedEquals(expected, interleaved, 1E-9);
+
+            primitiveFFT.ifft(interleaved);
+            assertInterleavedEquals(x, interleaved, 1E-12);
+
+            Complex[] realAsComplex = new Complex[n];
+            for (int i = 0; i < n; i++) {
+                realAsComplex[i] = new Complex(real[i], 0);
+            }
+            double[] spectrum = new double[2 * n];
+            primitiveFFT.fftReal(real, spectrum);
+            assertInterleavedEquals(FFT.fft(realAsComplex), spectrum, 1E-9);
+        }
+    }
+
+    /**
+     * Test that KDE densities are unchanged when the instance is reused for
+     * a second data set.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testKDEReuse() throws Exception {
+        Random random = new Random(11);
+        double[] xmesh = new double[4096];
+        for (int i = 0; i < xmesh.length; i++) {
+            xmesh[i] = i;
+        }
+        double[] first = new double[300];
+        double[] second = new double[150];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = 1000 + 200 * random.nextGaussian();
+        }
+        for (int i = 0; i < second.length; i++) {
+            second[i] = 2500 + 50 * random.nextGaussian();
+        }
+
+        KDE reused = new KDE();
+        reused.pdf(first, xmesh, true);
+        double[] density = reused.pdf(second, xmesh, true);
+        double[] fresh = new KDE().pdf(second, xmesh, true);
+        assertArrayEquals(fresh, density, 0.0);
+
+        // unit mass
+        double sum = 0.0;
+        for (double d : density) {
+            sum += d;
+        }
+        assertEquals(1.0, sum, 1E-3);
+    }
+
+    private static void assertInterleavedEquals(Complex[] expected, double[] actual, double tolerance) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].re(), actual[2 * i], tolerance);
+            assertEquals(expected[i].im(), actual[2 * i + 1], tolerance);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.earthtime.aliquots.AliquotInterface;
 import org.earthtime.dataDictionaries.SampleAnalysisTypesEnum;
 import org.earthtime.samples.SampleInterface;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
 /**
@@ -130,6 +131,36 @@ public class SampleDateModelTest {
         
     }
 
+    /**
+     * Test of copyForCalculation and copyCalculatedValuesFrom, of class
+     * SampleDateModel.
+     */
+    @Test
+    public void test_CopyForCalculation() {
+        System.out.println("Testing SampleDateModel's copyForCalculation()");
+        SampleDateInterceptModel instance = new SampleDateInterceptModel("upper intercept", "UpperIntercept", "age207_206r", BigDecimal.ZERO, "ABS", BigDecimal.ZERO);
+        Vector<String> included = new Vector<>();
+        included.add("A");
+        instance.setIncludedFractionIDsVector(included);
+
+        SampleDateModel copy = instance.copyForCalculation();
+        assertTrue(copy instanceof SampleDateInterceptModel);
+        assertEquals("UpperIntercept", copy.getMethodName());
+        assertEquals(included, copy.getIncludedFractionIDsVector());
+        included.add("B");
+        assertEquals(1, copy.getIncludedFractionIDsVector().size());
+
+        copy.setValue(new BigDecimal("1000"));
+        copy.setMeanSquaredWeightedDeviation(new BigDecimal("1.5"));
+        ((SampleDateInterceptModel) copy).setPlusInternalTwoSigmaUnct(new BigDecimal("12"));
+        instance.copyCalculatedValuesFrom(copy);
+
+        assertEquals(new BigDecimal("1000"), instance.getValue());
+        assertEquals(new BigDecimal("1.5"), instance.getMeanSquaredWeightedDeviation());
+        assertEquals(new BigDecimal("12"), instance.getPlusInternalTwoSigmaUnct());
+        assertEquals(2, instance.getIncludedFractionIDsVector().size());
+    }
+
         /**
      * Test of compareTo method, of class SampleDateModel.
      */
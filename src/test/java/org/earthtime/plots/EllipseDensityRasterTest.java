@@ -0,0 +1,97 @@
+/*
+ * EllipseDensityRasterTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.plots;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import org.earthtime.UPb_Redux.dateInterpretation.concordia.ErrorEllipseCache;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class EllipseDensityRasterTest {
+
+    private static int alpha(BufferedImage image, int x, int y) {
+        return image.getRGB(x, y) >>> 24;
+    }
+
+    /**
+     * Test that an ellipse path gives the density of its covariance, peaked
+     * at its center and falling off along its axes.
+     */
+    @Test
+    public void testEllipsePathDensity() {
+        // 2 sigma ellipse of sigma 4 by 2 pixels, uncorrelated, centered in the middle of pixel (50, 30)
+        Path2D path = new ErrorEllipseCache().getDisplayPath(//
+                "a", 50.5, 30.5, 4.0, 2.0, 0.0, 2.0, new AffineTransform());
+        EllipseDensityRaster raster = new EllipseDensityRaster();
+        raster.clear(2.0);
+        assertTrue(raster.addEllipsePath(path));
+
+        Path2D cross = new Path2D.Double();
+        cross.moveTo(0.0, 0.0);
+        cross.lineTo(1.0, 1.0);
+        assertFalse(raster.addEllipsePath(cross));
+        assertEquals(1, raster.getEllipseCount());
+
+        BufferedImage image = raster.render(new Rectangle(0, 0, 100, 60), Color.RED);
+        assertEquals(255, alpha(image, 50, 30));
+        assertEquals(0x00FF0000, image.getRGB(50, 30) & 0x00FFFFFF);
+        // wider in x than in y, and symmetric
+        assertEquals(alpha(image, 46, 30), alpha(image, 54, 30));
+        assertTrue(alpha(image, 54, 30) > alpha(image, 50, 34));
+        // nothing beyond three sigma
+        assertEquals(0, alpha(image, 50 + 14, 30));
+        assertEquals(0, alpha(image, 50, 30 + 8));
+    }
+
+    /**
+     * Test that the image is kept until the ellipses or bounds change, and
+     * that overlapping ellipses sum.
+     */
+    @Test
+    public void testImageCachedAndSummed() {
+        EllipseDensityRaster raster = new EllipseDensityRaster();
+        raster.clear(2.0);
+        for (int i = 0; i < 1000; i++) {
+            raster.addEllipse(20.5 + (i % 3), 20.5, 6.0, 0.0, 0.0, 6.0);
+        }
+        raster.addEllipse(70.5, 20.5, 6.0, 0.0, 0.0, 6.0);
+        Rectangle bounds = new Rectangle(10, 5, 80, 40);
+        BufferedImage image = raster.render(bounds, Color.BLUE);
+        assertTrue(alpha(image, 11, 15) > 10 * alpha(image, 61, 15));
+
+        raster.clear(2.0);
+        for (int i = 0; i < 1000; i++) {
+            raster.addEllipse(20.5 + (i % 3), 20.5, 6.0, 0.0, 0.0, 6.0);
+        }
+        raster.addEllipse(70.5, 20.5, 6.0, 0.0, 0.0, 6.0);
+        assertSame(image, raster.render(bounds, Color.BLUE));
+        assertNotSame(image, raster.render(new Rectangle(10, 5, 80, 41), Color.BLUE));
+
+        raster.clear(2.0);
+        raster.addEllipse(70.5, 20.5, 6.0, 0.0, 0.0, 6.0);
+        assertEquals(255, alpha(raster.render(bounds, Color.BLUE), 60, 15));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * PlotLayersTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.plots;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import javax.swing.JPanel;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class PlotLayersTest {
+
+    // a panel routing its repaints through the layers, as the plot panels do
+    private static class LayeredPanel extends JPanel {
+
+        private final PlotLayers plotLayers;
+        private int backgroundPaints;
+        private int dataPaints;
+        private int overlayPaints;
+        private int cursorX;
+
+        LayeredPanel() {
+            plotLayers = new PlotLayers();
+            plotLayers.addLayer("background", (Graphics2D g2d) -> {
+                backgroundPaints++;
+                g2d.setColor(Color.BLUE);
+                g2d.fillRect(0, 0, 10, 10);
+            });
+            plotLayers.addLayer("data", (Graphics2D g2d) -> {
+                dataPaints++;
+                g2d.setColor(Color.GREEN);
+                g2d.fillRect(5, 5, 10, 10);
+            });
+            plotLayers.setOverlay((Graphics2D g2d) -> {
+                overlayPaints++;
+                g2d.setColor(Color.RED);
+                g2d.drawLine(cursorX, 0, cursorX, 19);
+            });
+        }
+
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+            if (plotLayers != null) {
+                plotLayers.repaintRequested();
+            }
+            super.repaint(tm, x, y, width, height);
+        }
+
+        BufferedImage render(int width, int height, double scale) {
+            BufferedImage image = new BufferedImage((int) (width * scale), (int) (height * scale), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = image.createGraphics();
+            g2d.scale(scale, scale);
+            plotLayers.paint(g2d, width, height);
+            g2d.dispose();
+            return image;
+        }
+    }
+
+    /**
+     * Test that overlay repaints and repeated paints reuse the layer images,
+     * while other repaints, invalidation and resizing paint them again.
+     */
+    @Test
+    public void testLayersPaintedOnlyWhenInvalid() {
+        LayeredPanel panel = new LayeredPanel();
+        BufferedImage image = panel.render(20, 20, 1.0);
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(2, 2));
+        assertEquals(Color.GREEN.getRGB(), image.getRGB(7, 7));
+        assertEquals(Color.RED.getRGB(), image.getRGB(0, 15));
+
+        panel.cursorX = 12;
+        panel.plotLayers.repaintOverlay(panel);
+        image = panel.render(20, 20, 1.0);
+        assertEquals(1, panel.backgroundPaints);
+        assertEquals(1, panel.dataPaints);
+        assertEquals(2, panel.overlayPaints);
+        assertEquals(Color.RED.getRGB(), image.getRGB(12, 2));
+        assertEquals(Color.GREEN.getRGB(), image.getRGB(7, 7));
+        // the old cursor is gone
+        assertEquals(0, image.getRGB(0, 15) >>> 24);
+
+        panel.plotLayers.invalidate("data");
+        panel.render(20, 20, 1.0);
+        assertEquals(1, panel.backgroundPaints);
+        assertEquals(2, panel.dataPaints);
+
+        panel.repaint();
+        assertFalse(panel.plotLayers.isValid("background"));
+        panel.render(20, 20, 1.0);
+        assertEquals(2, panel.backgroundPaints);
+        assertEquals(3, panel.dataPaints);
+
+        panel.render(30, 20, 1.0);
+        assertEquals(3, panel.backgroundPaints);
+        assertTrue(panel.plotLayers.isValid("data"));
+    }
+
+    /**
+     * Test that layers are painted at the scale of the graphics.
+     */
+    @Test
+    public void testLayersPaintedAtScale() {
+        LayeredPanel panel = new LayeredPanel();
+        BufferedImage image = panel.render(20, 20, 2.0);
+        // the edge of the blue square falls between device pixels 19 and 20
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(19, 2));
+        assertEquals(0, image.getRGB(21, 2) >>> 24);
+        assertEquals(Color.GREEN.getRGB(), image.getRGB(29, 29));
+
+        panel.render(20, 20, 1.0);
+        assertEquals(2, panel.backgroundPaints);
+    }
+}
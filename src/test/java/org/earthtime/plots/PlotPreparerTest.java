@@ -0,0 +1,116 @@
+/*
+ * PlotPreparerTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.plots;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class PlotPreparerTest {
+
+    private static void flushEventDispatchThread() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+        });
+    }
+
+    /**
+     * Test that a preparation in progress is cancelled by a later request,
+     * that requests in between are dropped, and that only the latest is
+     * published, on the event dispatch thread.
+     */
+    @Test
+    public void testLatestRequestPublished() throws Exception {
+        List<String> published = new CopyOnWriteArrayList<>();
+        AtomicBoolean publishedOnEventDispatchThread = new AtomicBoolean(true);
+        CountDownLatch latestPublished = new CountDownLatch(1);
+        PlotPreparer<String> preparer = new PlotPreparer<>((String model) -> {
+            publishedOnEventDispatchThread.compareAndSet(true, SwingUtilities.isEventDispatchThread());
+            published.add(model);
+            latestPublished.countDown();
+        });
+
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicBoolean firstSawCancellation = new AtomicBoolean(false);
+        AtomicBoolean secondRan = new AtomicBoolean(false);
+
+        preparer.prepare((PlotPreparer.Cancellation cancellation) -> {
+            firstStarted.countDown();
+            try {
+                releaseFirst.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+            }
+            firstSawCancellation.set(cancellation.isCancelled());
+            return "first";
+        });
+        assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+        assertTrue(preparer.isPreparing());
+
+        // a slider dragged through two more values
+        preparer.prepare((PlotPreparer.Cancellation cancellation) -> {
+            secondRan.set(true);
+            return "second";
+        });
+        preparer.prepare((PlotPreparer.Cancellation cancellation) -> "third");
+        releaseFirst.countDown();
+
+        assertTrue(latestPublished.await(10, TimeUnit.SECONDS));
+        flushEventDispatchThread();
+        assertTrue(firstSawCancellation.get());
+        assertFalse(secondRan.get());
+        assertEquals(Collections.singletonList("third"), published);
+        assertTrue(publishedOnEventDispatchThread.get());
+    }
+
+    /**
+     * Test that preparing now publishes at once and supersedes a background
+     * request.
+     */
+    @Test
+    public void testPrepareNowSupersedesBackground() throws Exception {
+        List<String> published = new CopyOnWriteArrayList<>();
+        PlotPreparer<String> preparer = new PlotPreparer<>((String model) -> published.add(model));
+
+        CountDownLatch releaseBackground = new CountDownLatch(1);
+        preparer.prepare((PlotPreparer.Cancellation cancellation) -> {
+            try {
+                releaseBackground.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+            }
+            return "background";
+        });
+
+        SwingUtilities.invokeAndWait(() -> {
+            releaseBackground.countDown();
+            assertEquals("now", preparer.prepareNow((PlotPreparer.Cancellation cancellation) -> "now"));
+        });
+        assertFalse(preparer.isPreparing());
+        flushEventDispatchThread();
+        assertEquals(Collections.singletonList("now"), published);
+    }
+}
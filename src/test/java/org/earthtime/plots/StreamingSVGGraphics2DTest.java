@@ -0,0 +1,114 @@
+/*
+ * StreamingSVGGraphics2DTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.plots;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.geom.Ellipse2D;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class StreamingSVGGraphics2DTest {
+
+    /**
+     * Test that many ellipses of a few styles are written as a well formed
+     * document in which each style and clip is defined once and shared.
+     */
+    @Test
+    public void testStylesAndClipsShared() throws Exception {
+        StringWriter svg = new StringWriter();
+        try (StreamingSVGGraphics2D g2d = new StreamingSVGGraphics2D(svg, 400, 300)) {
+            g2d.setClip(10, 10, 380, 280);
+            g2d.translate(5, 5);
+            g2d.setStroke(new BasicStroke(0.5f));
+            for (int i = 0; i < 1000; i++) {
+                Ellipse2D ellipse = new Ellipse2D.Double(i % 350, i % 250, 20, 10);
+                g2d.setPaint(new Color(255, 0, 0, 64));
+                g2d.fill(ellipse);
+                g2d.setPaint((i % 2 == 0) ? Color.BLACK : Color.BLUE);
+                g2d.draw(ellipse);
+            }
+            Graphics2D label = (Graphics2D) g2d.create();
+            label.rotate(-Math.PI / 2.0);
+            label.drawString("206Pb/238U < 0.1 & more", 0, 0);
+            label.dispose();
+        }
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()//
+                .parse(new ByteArrayInputStream(svg.toString().getBytes(StandardCharsets.UTF_8)));
+        Element root = document.getDocumentElement();
+        assertEquals("svg", root.getTagName());
+        assertEquals("400", root.getAttribute("width"));
+
+        NodeList paths = document.getElementsByTagName("path");
+        // clip path plus a fill and a draw per ellipse
+        assertEquals(1 + 2000, paths.getLength());
+        assertEquals(1, document.getElementsByTagName("clipPath").getLength());
+        // one translucent fill, two strokes and the text
+        assertEquals(4, document.getElementsByTagName("style").getLength());
+        assertTrue(svg.toString().contains("fill-opacity:0.251"));
+        assertTrue(svg.toString().contains("stroke-width:0.5"));
+
+        Element path = (Element) paths.item(1);
+        assertEquals("c0", path.getAttribute("clip-path").replaceAll("url\\(#(.*)\\)", "$1"));
+        assertTrue(path.getAttribute("d").startsWith("M25 10"));
+
+        Element text = (Element) document.getElementsByTagName("text").item(0);
+        assertEquals("206Pb/238U < 0.1 & more", text.getTextContent());
+        assertTrue(text.getAttribute("transform").startsWith("matrix("));
+        assertTrue(document.getElementsByTagName("style").item(3).getTextContent().contains("font-family:sans-serif;"));
+    }
+
+    /**
+     * Test that Java logical fonts are written as CSS generic families.
+     */
+    @Test
+    public void testFontFamily() {
+        assertEquals("sans-serif", StreamingSVGGraphics2D.fontFamily(new Font("SansSerif", Font.PLAIN, 12)));
+        assertEquals("sans-serif", StreamingSVGGraphics2D.fontFamily(new Font(Font.DIALOG, Font.BOLD, 12)));
+        assertEquals("serif", StreamingSVGGraphics2D.fontFamily(new Font(Font.SERIF, Font.PLAIN, 12)));
+        assertEquals("monospace", StreamingSVGGraphics2D.fontFamily(new Font("Monospaced", Font.PLAIN, 12)));
+        assertEquals("monospace", StreamingSVGGraphics2D.fontFamily(new Font(Font.DIALOG_INPUT, Font.PLAIN, 12)));
+    }
+
+    /**
+     * Test the formatting of coordinates.
+     */
+    @Test
+    public void testNumber() {
+        assertEquals("0", StreamingSVGGraphics2D.number(0.0));
+        assertEquals("12", StreamingSVGGraphics2D.number(12.0001));
+        assertEquals("-0.5", StreamingSVGGraphics2D.number(-0.5));
+        assertEquals("3.142", StreamingSVGGraphics2D.number(Math.PI));
+        assertEquals("0.05", StreamingSVGGraphics2D.number(0.05));
+        assertEquals("0", StreamingSVGGraphics2D.number(Double.NaN));
+    }
+}
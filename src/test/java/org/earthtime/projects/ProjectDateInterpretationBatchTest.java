@@ -0,0 +1,151 @@
+/*
+ * ProjectDateInterpretationBatchTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.projects;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.earthtime.UPb_Redux.ReduxConstants;
+import org.earthtime.UPb_Redux.fractions.UPbReduxFractions.UPbFraction;
+import org.earthtime.UPb_Redux.samples.Sample;
+import org.earthtime.UPb_Redux.valueModels.SampleDateModel;
+import org.earthtime.UPb_Redux.valueModels.ValueModel;
+import org.earthtime.aliquots.AliquotInterface;
+import org.earthtime.aliquots.ReduxAliquotInterface;
+import org.earthtime.dataDictionaries.RadDates;
+import org.earthtime.dataDictionaries.SampleAnalysisTypesEnum;
+import org.earthtime.dataDictionaries.SampleTypesEnum;
+import org.earthtime.samples.SampleInterface;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class ProjectDateInterpretationBatchTest {
+
+    private static final int FRACTIONS_PER_ALIQUOT = 6;
+
+    private static double date(int aliquotNumber, int fractionNumber) {
+        return 100.0e6 + aliquotNumber * 1.0e6 + ((fractionNumber % 3) - 1) * 0.05e6;
+    }
+
+    private static double oneSigma(int fractionNumber) {
+        return 0.02e6 * (1 + fractionNumber % 2);
+    }
+
+    /**
+     * The fractions carry dates without tracers, so the weighted mean is the
+     * inverse-variance weighted mean of their analytical uncertainties.
+     */
+    private static List<SampleInterface> samples() throws Exception {
+        List<SampleInterface> samples = new ArrayList<>();
+        int aliquotNumber = 0;
+        for (String sampleName : new String[]{"Alpha", "Beta", "Gamma"}) {
+            SampleInterface sample = new Sample(//
+                    sampleName, //
+                    SampleTypesEnum.ANALYSIS.getName(), //
+                    SampleAnalysisTypesEnum.LAICPMS.getName(), //
+                    ReduxConstants.ANALYSIS_PURPOSE.DetritalSpectrum, "UPb", "UPb");
+            for (int i = 1; i <= 3; i++) {
+                AliquotInterface aliquot = sample.addNewAliquot(sampleName + "-" + i);
+                ((ReduxAliquotInterface) aliquot).getAliquotFractions().clear();
+                for (int f = 0; f < FRACTIONS_PER_ALIQUOT; f++) {
+                    UPbFraction fraction = new UPbFraction(sampleName + "-" + i + "." + f);
+                    ValueModel date206_238r = fraction.getRadiogenicIsotopeDateByName(RadDates.age206_238r);
+                    date206_238r.setValue(new BigDecimal(date(aliquotNumber, f)));
+                    date206_238r.setOneSigma(new BigDecimal(oneSigma(f)));
+                    ((ReduxAliquotInterface) aliquot).getAliquotFractions().add(fraction);
+                }
+
+                SampleDateModel weightedMean = new SampleDateModel(//
+                        "weighted mean 206/238", "WM206_238", RadDates.age206_238r.getName(), BigDecimal.ZERO, "ABS", BigDecimal.ZERO);
+                weightedMean.getIncludedFractionIDsVector().addAll(((ReduxAliquotInterface) aliquot).getAliquotFractionIDs());
+                weightedMean.getIncludedFractionIDsVector().add("missing");
+                aliquot.getSampleDateModels().clear();
+                aliquot.getSampleDateModels().add(weightedMean);
+                aliquotNumber++;
+            }
+            samples.add(sample);
+        }
+        return samples;
+    }
+
+    /**
+     * Test that the models of every aliquot, calculated concurrently, are
+     * reported in order with the weighted means of their fractions, and
+     * match a calculation on one thread.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentWeightedMeansMatchSequential() throws Exception {
+        List<ProjectDateInterpretationBatch.Result> results = new ProjectDateInterpretationBatch(4, false).interpret(samples());
+        List<ProjectDateInterpretationBatch.Result> sequential = new ProjectDateInterpretationBatch(1, false).interpret(samples());
+
+        assertEquals(9, results.size());
+        assertEquals("Alpha-1", results.get(0).getAliquotName());
+        assertEquals("Beta-1", results.get(3).getAliquotName());
+        assertEquals("Gamma-3", results.get(8).getAliquotName());
+
+        for (int a = 0; a < results.size(); a++) {
+            ProjectDateInterpretationBatch.Result result = results.get(a);
+            assertNull(result.getFailure());
+            assertEquals("WM206_238", result.getMethodName());
+            assertTrue(result.isPreferred());
+            // the missing fraction is removed before calculation
+            assertEquals(FRACTIONS_PER_ALIQUOT, result.getFractionCount());
+
+            double sumWeights = 0.0;
+            double sumWeightedDates = 0.0;
+            for (int f = 0; f < FRACTIONS_PER_ALIQUOT; f++) {
+                double weight = 1.0 / (oneSigma(f) * oneSigma(f));
+                sumWeights += weight;
+                sumWeightedDates += weight * date(a, f);
+            }
+            double mean = sumWeightedDates / sumWeights;
+            double sumSquaredDeviations = 0.0;
+            for (int f = 0; f < FRACTIONS_PER_ALIQUOT; f++) {
+                sumSquaredDeviations += Math.pow(date(a, f) - mean, 2) / (oneSigma(f) * oneSigma(f));
+            }
+
+            assertEquals(mean, result.getDate().doubleValue(), 1e-3);
+            assertEquals(Math.sqrt(1.0 / sumWeights), result.getOneSigmaAbs().doubleValue(), 1e-3);
+            assertEquals(sumSquaredDeviations / (FRACTIONS_PER_ALIQUOT - 1), result.getMswd().doubleValue(), 1e-9);
+
+            assertEquals(0, sequential.get(a).getDate().compareTo(result.getDate()));
+            assertEquals(0, sequential.get(a).getOneSigmaAbs().compareTo(result.getOneSigmaAbs()));
+            assertEquals(0, sequential.get(a).getMswd().compareTo(result.getMswd()));
+        }
+
+        String csv = ProjectDateInterpretationBatch.toCSV(results);
+        assertEquals(10, csv.split("\n").length);
+        assertTrue(csv.split("\n")[1].startsWith("Alpha,Alpha-1,weighted mean 206/238,WM206_238,true,"));
+    }
+
+    /**
+     * Test of an empty project.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEmptyProject() throws Exception {
+        assertTrue(new Project().interpretSampleDates().isEmpty());
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * ProjectDiagramBatchTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.projects;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.earthtime.UPb_Redux.ReduxConstants;
+import org.earthtime.UPb_Redux.fractions.UPbReduxFractions.UPbFraction;
+import org.earthtime.UPb_Redux.samples.Sample;
+import org.earthtime.UPb_Redux.valueModels.SampleDateModel;
+import org.earthtime.aliquots.AliquotInterface;
+import org.earthtime.aliquots.ReduxAliquotInterface;
+import org.earthtime.dataDictionaries.RadDates;
+import org.earthtime.dataDictionaries.RadRatios;
+import org.earthtime.dataDictionaries.SampleAnalysisTypesEnum;
+import org.earthtime.dataDictionaries.SampleTypesEnum;
+import org.earthtime.samples.SampleInterface;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class ProjectDiagramBatchTest {
+
+    private static final double LAMBDA235 = 9.8485e-10;
+    private static final double LAMBDA238 = 1.55125e-10;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static void setRatio(UPbFraction fraction, RadRatios ratio, double value, double oneSigma) {
+        fraction.getRadiogenicIsotopeRatioByName(ratio.getName()).setValue(new BigDecimal(value));
+        fraction.getRadiogenicIsotopeRatioByName(ratio.getName()).setOneSigma(new BigDecimal(oneSigma));
+    }
+
+    private static void setDate(UPbFraction fraction, RadDates date, double value, double oneSigma) {
+        fraction.getRadiogenicIsotopeDateByName(date).setValue(new BigDecimal(value));
+        fraction.getRadiogenicIsotopeDateByName(date).setOneSigma(new BigDecimal(oneSigma));
+    }
+
+    /**
+     * Concordant fractions scattered about an age, with 0.2% uncertainties
+     * and a weighted mean of their 206Pb/238U dates for each aliquot.
+     */
+    private static List<SampleInterface> samples(String... sampleNames) throws Exception {
+        List<SampleInterface> samples = new ArrayList<>();
+        for (int s = 0; s < sampleNames.length; s++) {
+            SampleInterface sample = new Sample(//
+                    sampleNames[s], //
+                    SampleTypesEnum.ANALYSIS.getName(), //
+                    SampleAnalysisTypesEnum.LAICPMS.getName(), //
+                    ReduxConstants.ANALYSIS_PURPOSE.DetritalSpectrum, "UPb", "UPb");
+            for (int a = 1; a <= 2; a++) {
+                AliquotInterface aliquot = sample.addNewAliquot(sampleNames[s] + "-" + a);
+                ((ReduxAliquotInterface) aliquot).getAliquotFractions().clear();
+                for (int f = 0; f < 12; f++) {
+                    double age = (100.0e6 + 50.0e6 * s + 20.0e6 * a) * (1.0 + 0.004 * ((f % 5) - 2));
+                    double r206_238r = Math.expm1(LAMBDA238 * age);
+                    double r207_235r = Math.expm1(LAMBDA235 * age);
+                    double r207_206r = r207_235r / r206_238r / 137.818;
+
+                    UPbFraction fraction = new UPbFraction(sampleNames[s] + "-" + a + "." + f);
+                    fraction.setAliquotNumber(((ReduxAliquotInterface) aliquot).getAliquotNumber());
+                    setRatio(fraction, RadRatios.r206_238r, r206_238r, 0.002 * r206_238r);
+                    setRatio(fraction, RadRatios.r207_235r, r207_235r, 0.002 * r207_235r);
+                    setRatio(fraction, RadRatios.r207_206r, r207_206r, 0.002 * r207_206r);
+                    setRatio(fraction, RadRatios.rhoR206_238r__r207_235r, 0.8, 0.0);
+                    setDate(fraction, RadDates.age206_238r, age, 0.002 * age);
+                    setDate(fraction, RadDates.age207_235r, age, 0.002 * age);
+                    setDate(fraction, RadDates.age207_206r, age, 0.01 * age);
+                    setDate(fraction, RadDates.bestAge, age, 0.002 * age);
+
+                    ((ReduxAliquotInterface) aliquot).getAliquotFractions().add(fraction);
+                    sample.getFractions().add(fraction);
+                }
+
+                SampleDateModel weightedMean = new SampleDateModel(//
+                        "weighted mean 206Pb/238U", "WM206_238", RadDates.age206_238r.getName(), BigDecimal.ZERO, "ABS", BigDecimal.ZERO);
+                weightedMean.getIncludedFractionIDsVector().addAll(((ReduxAliquotInterface) aliquot).getAliquotFractionIDs());
+                aliquot.getSampleDateModels().clear();
+                aliquot.getSampleDateModels().add(weightedMean);
+                aliquot.prepareSampleDateModels();
+                weightedMean.CalculateDateInterpretationForAliquot();
+            }
+            samples.add(sample);
+        }
+        return samples;
+    }
+
+    private static void assertRendered(List<ProjectDiagramBatch.Result> results) {
+        for (ProjectDiagramBatch.Result result : results) {
+            assertNull(result.getSampleName() + " " + result.getDiagram(), result.getFailure());
+            assertTrue(result.getFile().isFile());
+        }
+    }
+
+    /**
+     * Test that every diagram of every sample is rendered concurrently,
+     * headless, at the fixed size, exactly as when rendered by itself.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentRenderingMatchesSequential() throws Exception {
+        File concurrentFolder = temporaryFolder.newFolder("concurrent");
+        File sequentialFolder = temporaryFolder.newFolder("sequential");
+
+        List<ProjectDiagramBatch.Result> results = new ProjectDiagramBatch(4, 400, 300)//
+                .render(samples("Alpha", "Beta", "Gamma", "Delta/1"), concurrentFolder, ProjectDiagramBatch.Format.PNG);
+        assertEquals(12, results.size());
+        assertRendered(results);
+        assertEquals("Alpha", results.get(0).getSampleName());
+        assertEquals(ProjectDiagramBatch.Diagram.CONCORDIA, results.get(0).getDiagram());
+        assertEquals(ProjectDiagramBatch.Diagram.PROBABILITY_DENSITY, results.get(11).getDiagram());
+        assertEquals("Delta_1_probabilityDensity.png", results.get(11).getFile().getName());
+
+        List<ProjectDiagramBatch.Result> sequential = new ProjectDiagramBatch(1, 400, 300)//
+                .render(samples("Alpha", "Beta", "Gamma", "Delta/1"), sequentialFolder, ProjectDiagramBatch.Format.PNG);
+        assertRendered(sequential);
+
+        for (int i = 0; i < results.size(); i++) {
+            BufferedImage image = ImageIO.read(results.get(i).getFile());
+            BufferedImage reference = ImageIO.read(sequential.get(i).getFile());
+            assertEquals(400, image.getWidth());
+            assertEquals(300, image.getHeight());
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    assertEquals(results.get(i).getFile().getName() + " at " + x + "," + y, //
+                            reference.getRGB(x, y), image.getRGB(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that diagrams are written as well formed SVG.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSVG() throws Exception {
+        File folder = temporaryFolder.newFolder();
+        List<ProjectDiagramBatch.Result> results = new ProjectDiagramBatch(2, 400, 300)//
+                .render(samples("Alpha"), folder, ProjectDiagramBatch.Format.SVG);
+        assertEquals(3, results.size());
+        assertRendered(results);
+        for (ProjectDiagramBatch.Result result : results) {
+            assertEquals("svg", DocumentBuilderFactory.newInstance().newDocumentBuilder()//
+                    .parse(result.getFile()).getDocumentElement().getTagName());
+        }
+    }
+
+    /**
+     * Test that a failure to write SVG is reported rather than swallowed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSVGFailureReported() throws Exception {
+        File notAFolder = temporaryFolder.newFile();
+        List<ProjectDiagramBatch.Result> results = new ProjectDiagramBatch(1, 400, 300)//
+                .render(samples("Alpha"), notAFolder, ProjectDiagramBatch.Format.SVG);
+        assertEquals(3, results.size());
+        for (ProjectDiagramBatch.Result result : results) {
+            assertNotNull(result.getFailure());
+            assertNull(result.getFile());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * RobustStatisticsTest.java
+ *
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.earthtime.statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.math3.stat.StatUtils;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class RobustStatisticsTest {
+
+    private static double sortedQuantile(double[] sample, double p) {
+        double[] sorted = sample.clone();
+        Arrays.sort(sorted);
+        double position = (sorted.length - 1) * p;
+        int k = (int) Math.floor(position);
+        if (k == sorted.length - 1) {
+            return sorted[k];
+        }
+        return sorted[k] + (position - k) * (sorted[k + 1] - sorted[k]);
+    }
+
+    private static double[] randomSample(Random random, int n) {
+        double[] sample = new double[n];
+        for (int i = 0; i < n; i++) {
+            // include ties
+            sample[i] = Math.round(random.nextGaussian() * 50.0) / 10.0;
+        }
+        return sample;
+    }
+
+    /**
+     * Test of quantile, median and quantiles, against sorting.
+     */
+    @Test
+    public void testQuantilesMatchSorting() {
+        Random random = new Random(7);
+        double[] probabilities = {0.0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1.0};
+        for (int n = 1; n < 200; n += 13) {
+            double[] sample = randomSample(random, n);
+            double[] copy = sample.clone();
+            double[] all = RobustStatistics.quantiles(sample, probabilities);
+            for (int i = 0; i < probabilities.length; i++) {
+                double expected = sortedQuantile(sample, probabilities[i]);
+                assertEquals(expected, RobustStatistics.quantile(sample, probabilities[i]), 1e-12);
+                assertEquals(expected, all[i], 1e-12);
+            }
+            assertEquals(sortedQuantile(sample, 0.5), RobustStatistics.median(sample), 1e-12);
+            assertArrayEquals(copy, sample, 0.0);
+        }
+        assertTrue(Double.isNaN(RobustStatistics.median(new double[0])));
+    }
+
+    /**
+     * Test of medianAbsoluteDeviation and the active map.
+     */
+    @Test
+    public void testMedianAbsoluteDeviation() {
+        double[] sample = {1.0, 1.0, 2.0, 2.0, 4.0, 6.0, 9.0, 1000.0};
+        assertEquals(2.0, RobustStatistics.medianAbsoluteDeviation(sample), 0.0);
+
+        boolean[] active = {true, true, true, true, true, true, true, false};
+        assertEquals(2.0, RobustStatistics.median(active, sample), 0.0);
+        assertEquals(1.0, RobustStatistics.medianAbsoluteDeviation(active, sample), 0.0);
+        assertEquals(5.0, RobustStatistics.interquartileRange(sample), 1e-12);
+    }
+
+    /**
+     * Test of SampleSummary against StatUtils, and of merge and plus.
+     */
+    @Test
+    public void testSampleSummaryMerges() {
+        Random random = new Random(11);
+        double[] sample = new double[1000];
+        boolean[] active = new boolean[sample.length];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = 1.0e6 + random.nextGaussian();
+            active[i] = random.nextDouble() < 0.9;
+        }
+        double[] live = RobustStatistics.activeValues(active, sample);
+
+        SampleSummary whole = SampleSummary.of(active, sample);
+        assertEquals(live.length, whole.getCount());
+        assertEquals(StatUtils.mean(live), whole.getMean(), 0.0);
+        assertEquals(StatUtils.variance(live), whole.getVariance(), 0.0);
+        assertEquals(StatUtils.min(live), whole.getMinimum(), 0.0);
+        assertEquals(StatUtils.max(live), whole.getMaximum(), 0.0);
+
+        SampleSummary merged = SampleSummary.of(Arrays.copyOfRange(live, 0, 300))//
+                .merge(SampleSummary.of(Arrays.copyOfRange(live, 300, live.length)));
+        SampleSummary appended = SampleSummary.EMPTY;
+        for (double value : live) {
+            appended = appended.plus(value);
+        }
+        for (SampleSummary summary : new SampleSummary[]{merged, appended}) {
+            assertEquals(whole.getCount(), summary.getCount());
+            assertEquals(whole.getMean(), summary.getMean(), 1e-9);
+            assertEquals(whole.getVariance(), summary.getVariance(), 1e-6 * whole.getVariance());
+        }
+
+        assertTrue(Double.isNaN(SampleSummary.EMPTY.getVariance()));
+        assertEquals(0.0, SampleSummary.of(new double[]{3.0}).getVariance(), 0.0);
+    }
+
+    /**
+     * Test of the detection limit checks.
+     */
+    @Test
+    public void testDetectionLimits() {
+        double[] sample = {-1.0, 1.0, -1.0, 1.0, 0.5, -0.5, 0.2, 40.0};
+        boolean[] active = new boolean[sample.length];
+        Arrays.fill(active, true);
+        assertTrue(RobustStatistics.isBelowDetectionLimitUsingTwoSigma(active, sample));
+        assertTrue(RobustStatistics.isTenPercentOrMoreNegative(active, sample));
+
+        double[] signal = {10.0, 11.0, 9.0, 10.5, 9.5, 10.0, 10.2, 9.8};
+        assertFalse(RobustStatistics.isBelowDetectionLimitUsingTwoSigma(active, signal));
+        assertFalse(RobustStatistics.isTenPercentOrMoreNegative(active, signal));
+    }
+
+    /**
+     * Test of QuantileSketch accuracy and merging.
+     */
+    @Test
+    public void testQuantileSketch() {
+        Random random = new Random(3);
+        double[] sample = new double[100000];
+        QuantileSketch[] parts = new QuantileSketch[4];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = new QuantileSketch();
+        }
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = random.nextGaussian();
+            parts[i % parts.length].add(sample[i]);
+        }
+        QuantileSketch whole = QuantileSketch.of(sample);
+        QuantileSketch merged = new QuantileSketch();
+        for (QuantileSketch part : parts) {
+            merged.merge(part);
+        }
+
+        double[] sorted = sample.clone();
+        Arrays.sort(sorted);
+        for (QuantileSketch sketch : new QuantileSketch[]{whole, merged}) {
+            assertEquals(sample.length, sketch.getCount(), 0.0);
+            assertEquals(sorted[0], sketch.quantile(0.0), 0.0);
+            assertEquals(sorted[sorted.length - 1], sketch.quantile(1.0), 0.0);
+            for (double p : new double[]{0.001, 0.01, 0.1, 0.5, 0.9, 0.99, 0.999}) {
+                // compare in rank, which is what the sketch bounds
+                double estimate = sketch.quantile(p);
+                double rank = (double) Math.abs(Arrays.binarySearch(sorted, estimate)) / sorted.length;
+                assertEquals(p, rank, 0.01 * Math.min(p, 1.0 - p) + 0.0005);
+                assertEquals(p, sketch.cdf(estimate), 0.01 * Math.min(p, 1.0 - p) + 0.0005);
+            }
+        }
+        assertEquals(25000, parts[0].getCount(), 0.0);
+    }
+
+    /**
+     * Test that reading a QuantileSketch with buffered values leaves it
+     * unchanged, so that it may be read from several threads at once.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testQuantileSketchReadsConcurrently() throws Exception {
+        Random random = new Random(5);
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(random.nextGaussian());
+        }
+        double median = sketch.quantile(0.5);
+        double cdf = sketch.cdf(median);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> readers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            readers.add(executor.submit(() -> {
+                boolean same = true;
+                for (int i = 0; i < 200; i++) {
+                    same &= (sketch.quantile(0.5) == median) && (sketch.cdf(median) == cdf);
+                }
+                return same;
+            }));
+        }
+        for (Future<Boolean> reader : readers) {
+            assertTrue(reader.get());
+        }
+        executor.shutdown();
+
+        sketch.compress();
+        assertEquals(median, sketch.quantile(0.5), 0.0);
+        assertEquals(1000, sketch.getCount(), 0.0);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.utilities.jamaHelpers;
+
+import Jama.Matrix;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class DiagonalPlusLowRankMatrixTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    private static Matrix dense(double[] d, Matrix u, Matrix c) {
+        Matrix s = u.times(c).times(u.transpose());
+        for (int i = 0; i < d.length; i++) {
+            s.set(i, i, s.get(i, i) + d[i]);
+        }
+        return s;
+    }
+
+    /**
+     * Test that entries and sub-blocks match the dense equivalent.
+     */
+    @Test
+    public void testEntriesMatchDense() {
+        double[] d = new double[]{1.0, 2.0, 3.0, 4.0, 5.0};
+        Matrix u = new Matrix(new double[][]{{1, 0}, {2, 1}, {0, 1}, {1, 1}, {3, -1}});
+        Matrix c = new Matrix(new double[][]{{0.5, 0.1}, {0.1, 0.25}});
+
+        DiagonalPlusLowRankMatrix s = new DiagonalPlusLowRankMatrix(d, u, c);
+        Matrix expected = dense(d, u, c);
+
+        assertEquals(5, s.getDimension());
+        assertEquals(2, s.getRank());
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                assertEquals(expected.get(i, j), s.get(i, j), TOLERANCE);
+            }
+        }
+
+        int[] indices = new int[]{4, 1, 2};
+        Matrix block = s.getMatrix(indices, indices);
+        Matrix expectedBlock = expected.getMatrix(indices, indices);
+        assertEquals(0.0, block.minus(expectedBlock).normInf(), TOLERANCE);
+
+        Matrix principal = s.getPrincipalSubMatrix(indices).toMatrix();
+        assertEquals(0.0, principal.minus(expectedBlock).normInf(), TOLERANCE);
+    }
+
+    /**
+     * Test that rank-one updates with a zeroed diagonal match the dense
+     * construction used for the dead time term of Su.
+     */
+    @Test
+    public void testPlusLowRankWithZeroedDiagonal() {
+        double[] d = new double[]{1.0, 1.5, 2.0};
+        DiagonalPlusLowRankMatrix s = new DiagonalPlusLowRankMatrix(d);
+
+        double[] v = new double[]{0.3, -0.2, 0.7};
+        double variance = 0.04;
+        double[] negatedDiagonal = new double[3];
+        for (int i = 0; i < 3; i++) {
+            negatedDiagonal[i] = -variance * v[i] * v[i];
+        }
+        s = s.plusLowRank(new Matrix(v, 3), new Matrix(1, 1, variance)).plusDiagonal(negatedDiagonal);
+
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                double expected = (i == j) ? d[i] : variance * v[i] * v[j];
+                assertEquals(expected, s.get(i, j), TOLERANCE);
+            }
+        }
+        assertArrayEquals(d, s.getFullDiagonal(), TOLERANCE);
+    }
+
+    /**
+     * Test that the Woodbury solve matches the dense solve, including a
+     * singular inner matrix.
+     */
+    @Test
+    public void testSolveMatchesDense() {
+        double[] d = new double[]{1.0, 2.0, 3.0, 4.0, 5.0};
+        Matrix u = new Matrix(new double[][]{{1, 0}, {2, 1}, {0, 1}, {1, 1}, {3, -1}});
+        Matrix c = new Matrix(new double[][]{{0.5, 0.0}, {0.0, 0.0}});
+        Matrix b = new Matrix(new double[][]{{1, 2}, {-1, 0}, {3, 1}, {0.5, 0.5}, {2, -2}});
+
+        DiagonalPlusLowRankMatrix s = new DiagonalPlusLowRankMatrix(d, u, c);
+        Matrix expected = dense(d, u, c).solve(b);
+        assertEquals(0.0, s.solve(b).minus(expected).normInf(), TOLERANCE);
+
+        DiagonalPlusLowRankMatrix diagonalOnly = new DiagonalPlusLowRankMatrix(d);
+        assertEquals(2.0 / 5.0, diagonalOnly.solve(b).get(4, 0), TOLERANCE);
+    }
+
+    /**
+     * Test that a dense matrix is held densely and that its sub-matrices,
+     * sums and solutions match the dense equivalent.
+     */
+    @Test
+    public void testFromDenseMatrix() {
+        Matrix dense = new Matrix(new double[][]{{2, 1, 0}, {1, 3, 1}, {0, 1, 4}});
+        DiagonalPlusLowRankMatrix s = DiagonalPlusLowRankMatrix.fromDenseMatrix(dense);
+        assertTrue(s.isDense());
+        assertEquals(3, s.getDimension());
+        assertEquals(0.0, s.toMatrix().minus(dense).normInf(), TOLERANCE);
+        assertArrayEquals(new double[]{2, 3, 4}, s.getFullDiagonal(), TOLERANCE);
+
+        int[] indices = new int[]{2, 0};
+        DiagonalPlusLowRankMatrix principal = s.getPrincipalSubMatrix(indices);
+        assertTrue(principal.isDense());
+        assertEquals(0.0, principal.toMatrix().minus(dense.getMatrix(indices, indices)).normInf(), TOLERANCE);
+
+        Matrix u = new Matrix(new double[][]{{1}, {1}, {1}});
+        DiagonalPlusLowRankMatrix sum = s.plusLowRank(u, new Matrix(1, 1, 0.5)).plusDiagonal(new double[]{1, 0, -1});
+        assertTrue(sum.isDense());
+        Matrix expected = dense(new double[]{1, 0, -1}, u, new Matrix(1, 1, 0.5)).plus(dense);
+        assertEquals(0.0, sum.toMatrix().minus(expected).normInf(), TOLERANCE);
+
+        Matrix b = new Matrix(new double[][]{{1, 2}, {-1, 0}, {3, 1}});
+        assertEquals(0.0, s.solve(b).minus(dense.solve(b)).normInf(), TOLERANCE);
+
+        // not positive definite, so solved by LU
+        Matrix indefinite = new Matrix(new double[][]{{1, 2}, {2, 1}});
+        Matrix rhs = new Matrix(new double[][]{{1}, {0}});
+        assertEquals(0.0, DiagonalPlusLowRankMatrix.fromDenseMatrix(indefinite).solve(rhs).minus(indefinite.solve(rhs)).normInf(), TOLERANCE);
+    }
+
+    /**
+     * Test that the factors of a matrix held densely are not offered.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testDenseHasNoFactors() {
+        DiagonalPlusLowRankMatrix.fromDenseMatrix(Matrix.identity(2, 2)).getLeftFactor();
+    }
+
+}
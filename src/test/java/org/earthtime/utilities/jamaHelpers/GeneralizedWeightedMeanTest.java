@@ -0,0 +1,84 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.utilities.jamaHelpers;
+
+import Jama.Matrix;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class GeneralizedWeightedMeanTest {
+
+    /**
+     * Test the structured weighted mean against the dense reference for a
+     * tracer-like and lambda-like systematic covariance.
+     */
+    @Test
+    public void testStructuredMatchesDense() {
+        Random random = new Random(20110510L);
+        int n = 40;
+        int k = 6;
+
+        double[] values = new double[n];
+        double[] analyticalVariances = new double[n];
+        Matrix jacobian = new Matrix(n, k);
+        for (int i = 0; i < n; i++) {
+            values[i] = 100.0 + random.nextGaussian();
+            analyticalVariances[i] = 0.5 + random.nextDouble();
+            for (int j = 0; j < k; j++) {
+                jacobian.set(i, j, random.nextGaussian() * 0.1);
+            }
+        }
+        Matrix root = Matrix.random(k, k);
+        Matrix systematicCovariance = root.times(root.transpose()).times(0.01);
+
+        DiagonalPlusLowRankMatrix structured = new DiagonalPlusLowRankMatrix(analyticalVariances, jacobian, systematicCovariance);
+
+        GeneralizedWeightedMean fast = GeneralizedWeightedMean.fromStructuredCovariance(values, structured);
+        GeneralizedWeightedMean oracle = GeneralizedWeightedMean.fromDenseCovariance(values, structured.toMatrix());
+
+        assertEquals(oracle.getMean(), fast.getMean(), 1e-10);
+        assertEquals(oracle.getOneSigma(), fast.getOneSigma(), 1e-12);
+        assertEquals(oracle.getMSWD(), fast.getMSWD(), 1e-10);
+        assertArrayEquals(oracle.getWeights(), fast.getWeights(), 1e-12);
+
+        // a rank-one inter-standard term as used for the log-ratio means
+        DiagonalPlusLowRankMatrix plusInterStd = structured.plusLowRank(new Matrix(n, 1, 1.0), new Matrix(1, 1, 0.0004));
+        assertEquals(//
+                GeneralizedWeightedMean.fromDenseCovariance(values, plusInterStd.toMatrix()).getOneSigma(),
+                GeneralizedWeightedMean.fromStructuredCovariance(values, plusInterStd).getOneSigma(), 1e-12);
+    }
+
+    /**
+     * Test the uncorrelated case against the familiar inverse-variance mean.
+     */
+    @Test
+    public void testUncorrelated() {
+        double[] values = new double[]{10.0, 12.0};
+        double[] variances = new double[]{1.0, 4.0};
+
+        GeneralizedWeightedMean wm = GeneralizedWeightedMean.fromStructuredCovariance(//
+                values, new DiagonalPlusLowRankMatrix(variances));
+
+        assertEquals(10.4, wm.getMean(), 1e-12);
+        assertEquals(Math.sqrt(0.8), wm.getOneSigma(), 1e-12);
+        assertEquals(0.16 + 2.56 / 4.0, wm.getMSWD(), 1e-12);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2006-2017 James F. Bowring and www.Earth-Time.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.earthtime.utilities.jamaHelpers;
+
+import Jama.Matrix;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author James F. Bowring
+ */
+public class IncrementalWeightedMeanTest {
+
+    /**
+     * Test that after many adds and removes, spanning several
+     * re-accumulations, the accumulator agrees with the weighted mean of the
+     * analyses still present.
+     */
+    @Test
+    public void testAddRemoveMatchesStructured() {
+        Random random = new Random(7L);
+        int n = 300;
+        int k = 3;
+
+        double[] values = new double[n];
+        double[] variances = new double[n];
+        double[][] rows = new double[n][k];
+        for (int i = 0; i < n; i++) {
+            // log-ratio magnitudes with small scatter, as for live sessions
+            values[i] = -2.7 + 0.001 * random.nextGaussian();
+            variances[i] = 1e-6 * (0.5 + random.nextDouble());
+            for (int j = 0; j < k; j++) {
+                rows[i][j] = random.nextGaussian();
+            }
+        }
+        Matrix innerMatrix = new Matrix(new double[][]{{1e-8, 0, 0}, {0, 4e-8, 0}, {0, 0, 0}});
+
+        IncrementalWeightedMean accumulator = new IncrementalWeightedMean(k);
+        boolean[] present = new boolean[n];
+        for (int step = 0; step < 5 * IncrementalWeightedMean.REACCUMULATION_INTERVAL; step++) {
+            int i = random.nextInt(n);
+            if (present[i]) {
+                assertTrue(accumulator.remove("F" + i));
+            } else {
+                accumulator.add("F" + i, values[i], variances[i], rows[i]);
+            }
+            present[i] = !present[i];
+        }
+
+        List<Integer> members = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (present[i]) {
+                members.add(i);
+            }
+        }
+        assertEquals(members.size(), accumulator.size());
+
+        double[] memberValues = new double[members.size()];
+        double[] memberVariances = new double[members.size()];
+        Matrix memberRows = new Matrix(members.size(), k);
+        for (int m = 0; m < members.size(); m++) {
+            int i = members.get(m);
+            memberValues[m] = values[i];
+            memberVariances[m] = variances[i];
+            for (int j = 0; j < k; j++) {
+                memberRows.set(m, j, rows[i][j]);
+            }
+        }
+
+        GeneralizedWeightedMean expected = GeneralizedWeightedMean.fromStructuredCovariance(//
+                memberValues, new DiagonalPlusLowRankMatrix(memberVariances, memberRows, innerMatrix));
+        GeneralizedWeightedMean actual = accumulator.getWeightedMean(innerMatrix);
+
+        assertEquals(expected.getMean(), actual.getMean(), 1e-12);
+        assertEquals(expected.getOneSigma(), actual.getOneSigma(), 1e-9 * expected.getOneSigma());
+        assertEquals(expected.getMSWD(), actual.getMSWD(), 1e-7 * expected.getMSWD());
+        assertNull(actual.getWeights());
+    }
+
+    /**
+     * Test the uncorrelated case and emptying the accumulator.
+     */
+    @Test
+    public void testUncorrelated() {
+        IncrementalWeightedMean accumulator = new IncrementalWeightedMean(0);
+        accumulator.add("a", 10.0, 1.0, new double[0]);
+        accumulator.add("b", 12.0, 4.0, new double[0]);
+        accumulator.add("c", 99.0, 1.0, new double[0]);
+        accumulator.remove("c");
+
+        GeneralizedWeightedMean wm = accumulator.getWeightedMean(null);
+        assertEquals(10.4, wm.getMean(), 1e-12);
+        assertEquals(Math.sqrt(0.8), wm.getOneSigma(), 1e-12);
+        assertEquals(0.8, wm.getMSWD(), 1e-12);
+
+        accumulator.remove("a");
+        accumulator.remove("b");
+        assertEquals(0, accumulator.size());
+    }
+}